@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Generates deterministic data sets shared by the benchmarks in this module. Rows look like the
+ * zero-padded, prefix heavy keys most tables have, so key compression and comparison behave as
+ * they do on real data.
+ */
+@InterfaceAudience.Private
+public final class BenchmarkCells {
+
+  public static final byte[] FAMILY = Bytes.toBytes("f");
+
+  private static final long SEED = 0x5eedL;
+
+  private BenchmarkCells() {
+  }
+
+  public static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row-%010d", i));
+  }
+
+  public static byte[] qualifier(int i) {
+    return Bytes.toBytes("q" + i);
+  }
+
+  /**
+   * @return <code>rows * qualifiers</code> KeyValues sorted by {@link CellComparatorImpl}, each
+   *         carrying a random value of <code>valueLength</code> bytes and a sequence id.
+   */
+  public static List<KeyValue> sortedKeyValues(int rows, int qualifiers, int valueLength) {
+    Random rand = new Random(SEED);
+    List<KeyValue> kvs = new ArrayList<>(rows * qualifiers);
+    long ts = System.currentTimeMillis();
+    for (int r = 0; r < rows; r++) {
+      byte[] row = row(r);
+      for (int q = 0; q < qualifiers; q++) {
+        byte[] value = new byte[valueLength];
+        rand.nextBytes(value);
+        KeyValue kv = new KeyValue(row, FAMILY, qualifier(q), ts, KeyValue.Type.Put, value);
+        kv.setSequenceId(r);
+        kvs.add(kv);
+      }
+    }
+    kvs.sort(CellComparatorImpl.COMPARATOR);
+    return kvs;
+  }
+
+  /**
+   * @return <code>count</code> indexes in [0, bound) drawn from a fixed seed, used to look up
+   *         keys in a random but reproducible order.
+   */
+  public static int[] randomIndexes(int count, int bound) {
+    Random rand = new Random(SEED);
+    int[] indexes = new int[count];
+    for (int i = 0; i < count; i++) {
+      indexes[i] = rand.nextInt(bound);
+    }
+    return indexes;
+  }
+}
@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.yetus.audience.InterfaceAudience;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link CellComparatorImpl#compare(Cell, Cell)} for on-heap {@link KeyValue}s and
+ * off-heap {@link ByteBufferKeyValue}s, the comparison done for every cell that passes through
+ * the memstore, the scanner heaps and the block seekers.
+ */
+@InterfaceAudience.Private
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CellComparatorBenchmark {
+
+  private static final int NUM_CELLS = 1024;
+
+  @Param({ "true", "false" })
+  private boolean offheap;
+
+  private Cell[] cells;
+  private int index;
+
+  @Setup
+  public void setUp() {
+    List<KeyValue> kvs = BenchmarkCells.sortedKeyValues(NUM_CELLS / 4, 4, 16);
+    cells = new Cell[kvs.size()];
+    for (int i = 0; i < cells.length; i++) {
+      KeyValue kv = kvs.get(i);
+      if (offheap) {
+        ByteBuffer bb = ByteBuffer.allocateDirect(kv.getSerializedSize());
+        bb.put(kv.getBuffer(), kv.getOffset(), kv.getLength());
+        cells[i] = new ByteBufferKeyValue(bb, 0, kv.getLength(), kv.getSequenceId());
+      } else {
+        cells[i] = kv;
+      }
+    }
+  }
+
+  @Benchmark
+  public int compareAdjacent() {
+    int i = index;
+    index = (i + 1) % (cells.length - 1);
+    return CellComparatorImpl.COMPARATOR.compare(cells[i], cells[i + 1]);
+  }
+
+  @Benchmark
+  public int compareRows() {
+    int i = index;
+    index = (i + 1) % (cells.length - 1);
+    return CellComparatorImpl.COMPARATOR.compareRows(cells[i], cells[i + 1]);
+  }
+
+  @Benchmark
+  public void compareSelf(Blackhole bh) {
+    // Equal keys walk every component of the key, the worst case for the comparator.
+    int i = index;
+    index = (i + 1) % cells.length;
+    bh.consume(CellComparatorImpl.COMPARATOR.compare(cells[i], cells[i]));
+  }
+}
@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.encoding;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.BenchmarkCells;
+import org.apache.hadoop.hbase.CellComparatorImpl;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.ByteArrayOutputStream;
+import org.apache.hadoop.hbase.io.hfile.HFileContext;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.nio.SingleByteBuff;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures each {@link DataBlockEncoder}: encoding a block worth of cells, and seeking and
+ * iterating inside the encoded block with its {@link DataBlockEncoder.EncodedSeeker}.
+ */
+@InterfaceAudience.Private
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataBlockEncodersBenchmark {
+
+  private static final int ENCODED_DATA_OFFSET =
+      HConstants.HFILEBLOCK_HEADER_SIZE + DataBlockEncoding.ID_SIZE;
+  private static final int NUM_SEEKS = 1024;
+
+  @Param({ "PREFIX", "DIFF", "FAST_DIFF", "ROW_INDEX_V1" })
+  private DataBlockEncoding encoding;
+
+  /** Roughly the number of cells of a 64KB block with the default cell shape. */
+  @Param({ "800" })
+  private int cellsPerBlock;
+
+  @Param({ "true", "false" })
+  private boolean offheap;
+
+  private DataBlockEncoder encoder;
+  private HFileContext meta;
+  private List<KeyValue> kvs;
+  private ByteBuffer encoded;
+  private DataBlockEncoder.EncodedSeeker seeker;
+  private KeyValue[] seekKeys;
+  private int seekIndex;
+
+  @Setup
+  public void setUp() throws IOException {
+    encoder = encoding.getEncoder();
+    meta = new HFileContextBuilder().withIncludesMvcc(true).withIncludesTags(false).build();
+    kvs = BenchmarkCells.sortedKeyValues(cellsPerBlock / 4, 4, 32);
+    byte[] encodedBytes = encode();
+    encoded = offheap ? ByteBuffer.allocateDirect(encodedBytes.length)
+        : ByteBuffer.allocate(encodedBytes.length);
+    encoded.put(encodedBytes);
+    encoded.rewind();
+    seeker = encoder.createSeeker(CellComparatorImpl.COMPARATOR,
+      encoder.newDataBlockDecodingContext(meta));
+    seeker.setCurrentBuffer(new SingleByteBuff(encoded));
+    int[] indexes = BenchmarkCells.randomIndexes(NUM_SEEKS, kvs.size());
+    seekKeys = new KeyValue[indexes.length];
+    for (int i = 0; i < indexes.length; i++) {
+      seekKeys[i] = kvs.get(indexes[i]);
+    }
+  }
+
+  private byte[] encode() throws IOException {
+    HFileBlockEncodingContext ctx =
+        encoder.newDataBlockEncodingContext(encoding, HConstants.HFILEBLOCK_DUMMY_HEADER, meta);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    baos.write(HConstants.HFILEBLOCK_DUMMY_HEADER);
+    DataOutputStream dos = new DataOutputStream(baos);
+    encoder.startBlockEncoding(ctx, dos);
+    for (KeyValue kv : kvs) {
+      encoder.encode(kv, ctx, dos);
+    }
+    encoder.endBlockEncoding(ctx, dos, baos.getBuffer());
+    byte[] encodedData = new byte[baos.size() - ENCODED_DATA_OFFSET];
+    System.arraycopy(baos.getBuffer(), ENCODED_DATA_OFFSET, encodedData, 0, encodedData.length);
+    return encodedData;
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public byte[] encodeBlock() throws IOException {
+    return encode();
+  }
+
+  @Benchmark
+  public void seekInBlock(Blackhole bh) {
+    int i = seekIndex;
+    seekIndex = (i + 1) % seekKeys.length;
+    bh.consume(seeker.seekToKeyInBlock(seekKeys[i], false));
+    bh.consume(seeker.getCell());
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void iterateBlock(Blackhole bh) {
+    seeker.rewind();
+    do {
+      bh.consume(seeker.getCell());
+    } while (seeker.next());
+  }
+}
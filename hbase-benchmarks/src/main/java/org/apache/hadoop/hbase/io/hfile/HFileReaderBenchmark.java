@@ -0,0 +1,148 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.BenchmarkCells;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures seekTo and next through {@link HFileReaderImpl} on an HFile written to the local
+ * filesystem. With <code>cacheBlocks</code> the blocks are served from an {@link LruBlockCache}
+ * after warmup, which is the common case for a hot serving table; without it every block is
+ * read and decoded again.
+ */
+@InterfaceAudience.Private
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HFileReaderBenchmark {
+
+  private static final int NUM_ROWS = 100000;
+  private static final int NUM_QUALIFIERS = 4;
+  private static final int NUM_SEEKS = 4096;
+
+  @Param({ "NONE", "FAST_DIFF", "ROW_INDEX_V1" })
+  private DataBlockEncoding encoding;
+
+  @Param({ "true", "false" })
+  private boolean cacheBlocks;
+
+  @Param({ "65536" })
+  private int blockSize;
+
+  private File testDir;
+  private HFile.Reader reader;
+  private HFileScanner scanner;
+  private KeyValue[] seekKeys;
+  private int seekIndex;
+
+  @Setup
+  public void setUp() throws IOException {
+    Configuration conf = HBaseConfiguration.create();
+    FileSystem fs = FileSystem.getLocal(conf);
+    testDir = Files.createTempDirectory("hfile-reader-benchmark").toFile();
+    Path path = new Path(testDir.getAbsolutePath(), "hfile");
+    List<KeyValue> kvs = BenchmarkCells.sortedKeyValues(NUM_ROWS, NUM_QUALIFIERS, 32);
+    HFileContext context = new HFileContextBuilder().withBlockSize(blockSize)
+        .withIncludesMvcc(true).withDataBlockEncoding(encoding).build();
+    try (HFile.Writer writer = HFile.getWriterFactoryNoCache(conf).withPath(fs, path)
+        .withFileContext(context).create()) {
+      for (KeyValue kv : kvs) {
+        writer.append(kv);
+      }
+    }
+    CacheConfig cacheConf = cacheBlocks
+        ? new CacheConfig(conf, new LruBlockCache(256L * 1024 * 1024, blockSize, false, conf))
+        : CacheConfig.DISABLED;
+    reader = HFile.createReader(fs, path, cacheConf, true, conf);
+    scanner = reader.getScanner(cacheBlocks, true);
+    int[] indexes = BenchmarkCells.randomIndexes(NUM_SEEKS, kvs.size());
+    seekKeys = new KeyValue[indexes.length];
+    for (int i = 0; i < indexes.length; i++) {
+      seekKeys[i] = kvs.get(indexes[i]);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    scanner.close();
+    reader.close();
+    FileUtils.deleteDirectory(testDir);
+  }
+
+  @Benchmark
+  public void seekTo(Blackhole bh) throws IOException {
+    int i = seekIndex;
+    seekIndex = (i + 1) % seekKeys.length;
+    bh.consume(scanner.seekTo(seekKeys[i]));
+    bh.consume(scanner.getCell());
+    scanner.shipped();
+  }
+
+  @Benchmark
+  public void seekToAndNext(Blackhole bh) throws IOException {
+    int i = seekIndex;
+    seekIndex = (i + 1) % seekKeys.length;
+    scanner.seekTo(seekKeys[i]);
+    for (int n = 0; n < NUM_QUALIFIERS && scanner.next(); n++) {
+      bh.consume(scanner.getCell());
+    }
+    scanner.shipped();
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public void fullScan(Blackhole bh) throws IOException {
+    if (!scanner.seekTo()) {
+      return;
+    }
+    do {
+      bh.consume(scanner.getCell());
+    } while (scanner.next());
+    scanner.shipped();
+  }
+}
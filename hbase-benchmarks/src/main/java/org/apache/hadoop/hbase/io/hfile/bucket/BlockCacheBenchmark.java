@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile.bucket;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.io.ByteBuffAllocator;
+import org.apache.hadoop.hbase.io.hfile.BlockCache;
+import org.apache.hadoop.hbase.io.hfile.BlockCacheKey;
+import org.apache.hadoop.hbase.io.hfile.BlockType;
+import org.apache.hadoop.hbase.io.hfile.Cacheable;
+import org.apache.hadoop.hbase.io.hfile.HFileBlock;
+import org.apache.hadoop.hbase.io.hfile.HFileContext;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.io.hfile.LruBlockCache;
+import org.apache.hadoop.hbase.nio.ByteBuff;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures get and put on {@link LruBlockCache} and on {@link BucketCache} backed by the offheap
+ * and the file {@link IOEngine}. Gets pick a random block of a working set that fits in the
+ * cache; puts always insert a new block so the cache runs at capacity and keeps evicting.
+ */
+@InterfaceAudience.Private
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockCacheBenchmark {
+
+  private static final long CAPACITY = 256L * 1024 * 1024;
+  private static final long BUCKET_FLUSH_TIMEOUT_MS = 60000;
+
+  @Param({ "lru", "offheap", "file" })
+  private String cacheType;
+
+  @Param({ "65536" })
+  private int blockSize;
+
+  @Param({ "1024" })
+  private int workingSetBlocks;
+
+  private File testDir;
+  private BlockCache cache;
+  private BlockCacheKey[] keys;
+  private HFileBlock block;
+  private final AtomicLong nextOffset = new AtomicLong();
+
+  @Setup
+  public void setUp() throws IOException {
+    Configuration conf = HBaseConfiguration.create();
+    testDir = Files.createTempDirectory("block-cache-benchmark").toFile();
+    switch (cacheType) {
+      case "lru":
+        cache = new LruBlockCache(CAPACITY, blockSize, true, conf);
+        break;
+      case "offheap":
+        cache = newBucketCache("offheap", conf);
+        break;
+      case "file":
+        cache = newBucketCache("file:" + new File(testDir, "bucket.cache").getAbsolutePath(),
+          conf);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown cache type " + cacheType);
+    }
+    block = newBlock(blockSize);
+    keys = new BlockCacheKey[workingSetBlocks];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new BlockCacheKey("working-set", (long) i * blockSize);
+      cache.cacheBlock(keys[i], block);
+    }
+    if (cache instanceof BucketCache) {
+      // Wait for the writer threads so gets are served by the IOEngine, not the RAM queue.
+      BucketCache bucketCache = (BucketCache) cache;
+      long deadline = System.currentTimeMillis() + BUCKET_FLUSH_TIMEOUT_MS;
+      while (!bucketCache.ramCache.isEmpty() && System.currentTimeMillis() < deadline) {
+        org.apache.hadoop.hbase.util.Threads.sleep(10);
+      }
+    }
+  }
+
+  private BucketCache newBucketCache(String ioEngineName, Configuration conf)
+      throws IOException {
+    return new BucketCache(ioEngineName, CAPACITY, blockSize, null,
+        BucketCache.DEFAULT_WRITER_THREADS, BucketCache.DEFAULT_WRITER_QUEUE_ITEMS, null,
+        BucketCache.DEFAULT_ERROR_TOLERATION_DURATION, conf);
+  }
+
+  private static HFileBlock newBlock(int size) {
+    ByteBuffer buf = ByteBuffer.allocate(size + HConstants.HFILEBLOCK_HEADER_SIZE);
+    ThreadLocalRandom.current().nextBytes(buf.array());
+    HFileContext meta = new HFileContextBuilder().withHBaseCheckSum(true).build();
+    return new HFileBlock(BlockType.DATA, size, size, -1, ByteBuff.wrap(buf),
+        HFileBlock.FILL_HEADER, -1, -1, size + HConstants.HFILEBLOCK_HEADER_SIZE, meta,
+        ByteBuffAllocator.HEAP);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    cache.shutdown();
+    FileUtils.deleteDirectory(testDir);
+  }
+
+  private Cacheable get() {
+    BlockCacheKey key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+    Cacheable cached = cache.getBlock(key, true, false, true);
+    if (cached != null) {
+      cached.release();
+    }
+    return cached;
+  }
+
+  private void put() {
+    cache.cacheBlock(new BlockCacheKey("put", nextOffset.getAndAdd(blockSize)), block);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Cacheable get1() {
+    return get();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public Cacheable get8() {
+    return get();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void put1() {
+    put();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void put8() {
+    put();
+  }
+}
@@ -0,0 +1,151 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.BenchmarkCells;
+import org.apache.hadoop.hbase.CellComparatorImpl;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.MemoryCompactionPolicy;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.io.util.MemorySizeUtil;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.wal.WALFactory;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures cell inserts into a {@link CompactingMemStore}, including the MSLAB copy and the in
+ * memory flushes and compactions they trigger in the background. The store belongs to a region
+ * opened on the local filesystem; no cluster is involved.
+ */
+@InterfaceAudience.Private
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompactingMemStoreBenchmark {
+
+  private static final TableName TABLE = TableName.valueOf("benchmark");
+
+  @Param({ "BASIC", "EAGER", "ADAPTIVE" })
+  private MemoryCompactionPolicy policy;
+
+  @Param({ "100" })
+  private int valueLength;
+
+  private Configuration conf;
+  private File testDir;
+  private WALFactory wals;
+  private HRegion region;
+  private CompactingMemStore memstore;
+  private MemStoreSizing memstoreSizing;
+  private byte[] value;
+  private final AtomicLong rowId = new AtomicLong();
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    conf = HBaseConfiguration.create();
+    testDir = Files.createTempDirectory("compacting-memstore-benchmark").toFile();
+    Path rootDir = new Path(testDir.toURI());
+    conf.set("hbase.rootdir", rootDir.toString());
+    long globalMemStoreLimit = MemorySizeUtil.getGlobalMemStoreSize(conf).getFirst();
+    ChunkCreator.initialize(MemStoreLABImpl.CHUNK_SIZE_DEFAULT, false, globalMemStoreLimit, 0.2f,
+      MemStoreLAB.POOL_INITIAL_SIZE_DEFAULT, null);
+    TableDescriptor td = TableDescriptorBuilder.newBuilder(TABLE)
+        .setColumnFamily(ColumnFamilyDescriptorBuilder.newBuilder(BenchmarkCells.FAMILY)
+            .setInMemoryCompaction(policy).build())
+        .build();
+    RegionInfo info = RegionInfoBuilder.newBuilder(TABLE).build();
+    wals = new WALFactory(conf, "benchmark");
+    region = HRegion.createHRegion(info, rootDir, conf, td, wals.getWAL(info));
+    value = new byte[valueLength];
+    Bytes.random(value);
+  }
+
+  @Setup(Level.Iteration)
+  public void newMemStore() throws IOException {
+    HStore store = region.getStore(BenchmarkCells.FAMILY);
+    memstore = new CompactingMemStore(conf, CellComparatorImpl.COMPARATOR,
+        store, region.getRegionServicesForStores(), policy);
+    memstoreSizing = new ThreadSafeMemStoreSizing();
+  }
+
+  @TearDown(Level.Iteration)
+  public void releaseMemStore() throws IOException {
+    // Return the MSLAB chunks to the pool before the next iteration starts.
+    MemStoreSnapshot snapshot = memstore.snapshot();
+    memstore.clearSnapshot(snapshot.getId());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    region.close();
+    wals.close();
+    FileUtils.deleteDirectory(testDir);
+  }
+
+  private void insert() {
+    long id = rowId.getAndIncrement();
+    KeyValue kv = new KeyValue(Bytes.toBytes(id), BenchmarkCells.FAMILY,
+        BenchmarkCells.qualifier(0), id, KeyValue.Type.Put, value);
+    kv.setSequenceId(id);
+    memstore.add(kv, memstoreSizing);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void insertSingleWriter() {
+    insert();
+  }
+
+  @Benchmark
+  @Threads(16)
+  public void insertConcurrentWriters() {
+    insert();
+  }
+}
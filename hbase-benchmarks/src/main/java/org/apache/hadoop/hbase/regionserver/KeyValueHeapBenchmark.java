@@ -0,0 +1,107 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.BenchmarkCells;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparatorImpl;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.CollectionBackedScanner;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the merge done by {@link KeyValueHeap}, the structure a {@link StoreScanner} uses to
+ * interleave the memstore and store file scanners. The cells are dealt round robin over the
+ * scanners, so every <code>next()</code> has to re-heapify, like a store that has not been
+ * compacted in a while.
+ */
+@InterfaceAudience.Private
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyValueHeapBenchmark {
+
+  @Param({ "1", "4", "16", "32" })
+  private int numScanners;
+
+  @Param({ "10000" })
+  private int numCells;
+
+  private List<List<Cell>> perScanner;
+
+  @Setup
+  public void setUp() {
+    List<KeyValue> kvs = BenchmarkCells.sortedKeyValues(numCells / 4, 4, 16);
+    perScanner = new ArrayList<>(numScanners);
+    for (int i = 0; i < numScanners; i++) {
+      perScanner.add(new ArrayList<>(kvs.size() / numScanners + 1));
+    }
+    for (int i = 0; i < kvs.size(); i++) {
+      perScanner.get(i % numScanners).add(kvs.get(i));
+    }
+  }
+
+  private KeyValueHeap newHeap() throws IOException {
+    List<KeyValueScanner> scanners = new ArrayList<>(numScanners);
+    for (List<Cell> cells : perScanner) {
+      scanners.add(new CollectionBackedScanner(cells, CellComparatorImpl.COMPARATOR));
+    }
+    return new KeyValueHeap(scanners, CellComparatorImpl.COMPARATOR);
+  }
+
+  @Benchmark
+  public void mergeAll(Blackhole bh) throws IOException {
+    try (KeyValueHeap heap = newHeap()) {
+      Cell cell;
+      while ((cell = heap.next()) != null) {
+        bh.consume(cell);
+      }
+    }
+  }
+
+  @Benchmark
+  public void reseekEveryOtherRow(Blackhole bh) throws IOException {
+    try (KeyValueHeap heap = newHeap()) {
+      List<Cell> firstScanner = perScanner.get(0);
+      for (int i = 0; i < firstScanner.size(); i += 2) {
+        heap.reseek(firstScanner.get(i));
+        bh.consume(heap.peek());
+      }
+    }
+  }
+}
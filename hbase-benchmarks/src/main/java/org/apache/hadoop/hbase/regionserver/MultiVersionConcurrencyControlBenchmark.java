@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.yetus.audience.InterfaceAudience;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a write transaction through {@link MultiVersionConcurrencyControl}: begin, then
+ * complete and wait for the read point to catch up. This is what every mutation batch of a region
+ * does, so the contended variants approximate a region with many handlers writing to it.
+ * <code>impl</code> compares the default implementation with
+ * {@link RingBufferMultiVersionConcurrencyControl}.
+ */
+@InterfaceAudience.Private
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiVersionConcurrencyControlBenchmark {
+
+  @Param({ "default", "ringbuffer" })
+  private String impl;
+
+  private MultiVersionConcurrencyControl mvcc;
+
+  @Setup
+  public void setUp() {
+    switch (impl) {
+      case "default":
+        mvcc = new MultiVersionConcurrencyControl();
+        break;
+      case "ringbuffer":
+        mvcc = new RingBufferMultiVersionConcurrencyControl();
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown mvcc implementation " + impl);
+    }
+  }
+
+  private long beginAndComplete() {
+    MultiVersionConcurrencyControl.WriteEntry e = mvcc.begin();
+    mvcc.completeAndWait(e);
+    return e.getWriteNumber();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public long uncontended() {
+    return beginAndComplete();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public long contended8() {
+    return beginAndComplete();
+  }
+
+  @Benchmark
+  @Threads(64)
+  public long contended64() {
+    return beginAndComplete();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public long readPoint() {
+    return mvcc.getReadPoint();
+  }
+}
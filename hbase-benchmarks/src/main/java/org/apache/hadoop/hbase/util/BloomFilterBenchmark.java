@@ -0,0 +1,115 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.nio.ByteBuff;
+import org.apache.hadoop.hbase.regionserver.BloomType;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures Bloom filter lookups with the standard and the blocked layouts, and binary fuse filter
+ * lookups, for each hash function. The default chunk size fits in the CPU caches; a large chunk
+ * shows the cost of the cache misses the blocked layout avoids. Half of the looked up keys were
+ * added.
+ */
+@InterfaceAudience.Private
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BloomFilterBenchmark {
+
+  private static final int KEY_LENGTH = 32;
+  private static final int QUERY_COUNT = 1 << 16;
+
+  @Param({ "bloom", "blocked", "xor" })
+  private String layout;
+
+  @Param({ "murmur", "jenkins", "murmur3", "xxhash64" })
+  private String hashType;
+
+  @Param({ "131072", "16777216" })
+  private int byteSize;
+
+  private boolean blocked;
+  private boolean xor;
+  private BloomFilterChunk bloom;
+  private ByteBuff bloomBuf;
+  private byte[][] queries;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    blocked = layout.equals("blocked");
+    xor = layout.equals("xor");
+    if (xor) {
+      int fingerprintBits = XorFilterChunk.computeFingerprintBits(0.01);
+      bloom = new XorFilterChunk(Hash.parseHashType(hashType), BloomType.ROW, fingerprintBits,
+          XorFilterChunk.computeMaxKeys(byteSize, fingerprintBits));
+    } else {
+      bloom = BloomFilterUtil.createBySize(byteSize, 0.01, Hash.parseHashType(hashType), 0,
+        BloomType.ROW, blocked);
+    }
+    bloom.allocBloom();
+    Random rand = new Random(42);
+    byte[] key = new byte[KEY_LENGTH];
+    queries = new byte[QUERY_COUNT][];
+    for (int i = 0; i < bloom.getMaxKeys(); i++) {
+      rand.nextBytes(key);
+      bloom.add(key, 0, key.length);
+      if (i < QUERY_COUNT / 2) {
+        queries[i] = key.clone();
+      }
+    }
+    for (int i = QUERY_COUNT / 2; i < QUERY_COUNT; i++) {
+      queries[i] = new byte[KEY_LENGTH];
+      rand.nextBytes(queries[i]);
+    }
+    if (xor) {
+      bloom.compactBloom();
+    }
+    bloomBuf = ByteBuff.wrap(bloom.bloom);
+  }
+
+  @Benchmark
+  public boolean contains() {
+    byte[] key = queries[next++ & (QUERY_COUNT - 1)];
+    if (xor) {
+      return XorFilterChunk.contains(key, 0, key.length, bloomBuf, 0, bloom.hash,
+        bloom.getHashCount());
+    }
+    return BloomFilterUtil.contains(key, 0, key.length, bloomBuf, 0, (int) bloom.getByteSize(),
+      bloom.hash, bloom.getHashCount(), blocked);
+  }
+}
@@ -78,6 +78,10 @@ public class HColumnDescriptor implements ColumnFamilyDescriptor, Comparable<HCo
   public static final String DFS_REPLICATION = ColumnFamilyDescriptorBuilder.DFS_REPLICATION;
   public static final short DEFAULT_DFS_REPLICATION = ColumnFamilyDescriptorBuilder.DEFAULT_DFS_REPLICATION;
   public static final String STORAGE_POLICY = ColumnFamilyDescriptorBuilder.STORAGE_POLICY;
+  public static final String BLOCK_CACHE_PARTITION =
+      ColumnFamilyDescriptorBuilder.BLOCK_CACHE_PARTITION;
+  public static final String BLOCK_CACHE_PARTITION_SHARE =
+      ColumnFamilyDescriptorBuilder.BLOCK_CACHE_PARTITION_SHARE;
   public static final String DEFAULT_COMPRESSION = ColumnFamilyDescriptorBuilder.DEFAULT_COMPRESSION.name();
   public static final boolean DEFAULT_ENCODE_ON_DISK = true;
   public static final String DEFAULT_DATA_BLOCK_ENCODING = ColumnFamilyDescriptorBuilder.DEFAULT_DATA_BLOCK_ENCODING.name();
@@ -811,6 +815,34 @@ public class HColumnDescriptor implements ColumnFamilyDescriptor, Comparable<HCo
     return this;
   }
 
+  @Override
+  public String getBlockCachePartition() {
+    return delegatee.getBlockCachePartition();
+  }
+
+  /**
+   * Set the block cache partition of this family
+   * @param value name of the partition, null for none
+   */
+  public HColumnDescriptor setBlockCachePartition(String value) {
+    getDelegateeForModification().setBlockCachePartition(value);
+    return this;
+  }
+
+  @Override
+  public float getBlockCachePartitionShare() {
+    return delegatee.getBlockCachePartitionShare();
+  }
+
+  /**
+   * Set the fraction of the block cache the partition of this family may take up
+   * @param value a fraction greater than 0 and at most 1
+   */
+  public HColumnDescriptor setBlockCachePartitionShare(float value) {
+    getDelegateeForModification().setBlockCachePartitionShare(value);
+    return this;
+  }
+
   @Override
   public Bytes getValue(Bytes key) {
     return delegatee.getValue(key);
@@ -174,6 +174,23 @@ public interface ColumnFamilyDescriptor {
    * @return Return the storage policy in use by this family
    */
   String getStoragePolicy();
+
+  /**
+   * Blocks of all families naming the same partition share a slice of the block cache.
+   * @return Return the block cache partition of this family, or null if it has none
+   */
+  default String getBlockCachePartition() {
+    return null;
+  }
+
+  /**
+   * @return Return the fraction of the block cache the partition of this family may take up, 0
+   *         if the family does not limit its partition
+   */
+  default float getBlockCachePartitionShare() {
+    return 0;
+  }
+
  /**
    * @return Time-to-live of cell contents, in seconds.
    */
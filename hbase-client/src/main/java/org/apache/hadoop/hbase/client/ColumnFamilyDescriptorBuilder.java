@@ -175,6 +175,24 @@ public class ColumnFamilyDescriptorBuilder {
   public static final String STORAGE_POLICY = "STORAGE_POLICY";
   private static final Bytes STORAGE_POLICY_BYTES = new Bytes(Bytes.toBytes(STORAGE_POLICY));
 
+  /**
+   * Key for the BLOCK_CACHE_PARTITION attribute. Blocks of families naming the same partition
+   * share a slice of the block cache, whose size is set by {@link #BLOCK_CACHE_PARTITION_SHARE}.
+   */
+  @InterfaceAudience.Private
+  public static final String BLOCK_CACHE_PARTITION = "BLOCK_CACHE_PARTITION";
+  private static final Bytes BLOCK_CACHE_PARTITION_BYTES =
+      new Bytes(Bytes.toBytes(BLOCK_CACHE_PARTITION));
+  /**
+   * Key for the BLOCK_CACHE_PARTITION_SHARE attribute, the fraction of each block cache that
+   * the blocks of the family's partition may take up.
+   */
+  @InterfaceAudience.Private
+  public static final String BLOCK_CACHE_PARTITION_SHARE = "BLOCK_CACHE_PARTITION_SHARE";
+  private static final Bytes BLOCK_CACHE_PARTITION_SHARE_BYTES =
+      new Bytes(Bytes.toBytes(BLOCK_CACHE_PARTITION_SHARE));
+  public static final float DEFAULT_BLOCK_CACHE_PARTITION_SHARE = 1.0f;
+
   public static final String NEW_VERSION_BEHAVIOR = "NEW_VERSION_BEHAVIOR";
   private static final Bytes NEW_VERSION_BEHAVIOR_BYTES = new Bytes(Bytes.toBytes(NEW_VERSION_BEHAVIOR));
   public static final boolean DEFAULT_NEW_VERSION_BEHAVIOR = false;
@@ -542,6 +560,16 @@ public class ColumnFamilyDescriptorBuilder {
     return this;
   }
 
+  public ColumnFamilyDescriptorBuilder setBlockCachePartition(final String value) {
+    desc.setBlockCachePartition(value);
+    return this;
+  }
+
+  public ColumnFamilyDescriptorBuilder setBlockCachePartitionShare(final float value) {
+    desc.setBlockCachePartitionShare(value);
+    return this;
+  }
+
   public ColumnFamilyDescriptorBuilder setTimeToLive(final int value) {
     desc.setTimeToLive(value);
     return this;
@@ -1355,5 +1383,40 @@ public class ColumnFamilyDescriptorBuilder {
       return setValue(STORAGE_POLICY_BYTES, policy);
     }
 
+    @Override
+    public String getBlockCachePartition() {
+      return getStringOrDefault(BLOCK_CACHE_PARTITION_BYTES, Function.identity(), null);
+    }
+
+    /**
+     * Set the block cache partition of this family
+     *
+     * @param partition name of the partition, null for none
+     * @return this (for chained invocation)
+     */
+    public ModifyableColumnFamilyDescriptor setBlockCachePartition(String partition) {
+      return setValue(BLOCK_CACHE_PARTITION_BYTES, partition);
+    }
+
+    @Override
+    public float getBlockCachePartitionShare() {
+      return getStringOrDefault(BLOCK_CACHE_PARTITION_SHARE_BYTES, Float::valueOf,
+        DEFAULT_BLOCK_CACHE_PARTITION_SHARE);
+    }
+
+    /**
+     * Set the fraction of the block cache the partition of this family may take up
+     *
+     * @param share a fraction greater than 0 and at most 1
+     * @return this (for chained invocation)
+     */
+    public ModifyableColumnFamilyDescriptor setBlockCachePartitionShare(float share) {
+      if (share <= 0 || share > 1) {
+        throw new IllegalArgumentException(
+            "Block cache partition share must be greater than 0 and at most 1, got " + share);
+      }
+      return setValue(BLOCK_CACHE_PARTITION_SHARE_BYTES, Float.toString(share));
+    }
+
   }
 }
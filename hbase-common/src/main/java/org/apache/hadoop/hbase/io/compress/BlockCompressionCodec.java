@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.hadoop.hbase.io.compress;
+
+import java.io.IOException;
+
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Compresses and decompresses whole blocks held in arrays, without the streams, compressors and
+ * pools of Hadoop codecs. Implementations are thread safe.
+ * <p>
+ * A dictionary is data like the data to compress, used as if it came right before it. The same
+ * dictionary has to be given to decompress.
+ */
+@InterfaceAudience.Private
+public interface BlockCompressionCodec {
+
+  /**
+   * @return the most bytes {@link #compress} writes for <code>length</code> bytes
+   */
+  int maxCompressedLength(int length);
+
+  /**
+   * @param dictionary the dictionary to compress with, or null
+   * @return the number of bytes written to <code>dest</code>
+   */
+  int compress(byte[] src, int srcOffset, int srcLength, byte[] dest, int destOffset,
+      byte[] dictionary);
+
+  /**
+   * Decompresses the data of one {@link #compress} call.
+   * @param destLength the most bytes to write to <code>dest</code>
+   * @param dictionary the dictionary the data was compressed with, or null
+   * @return the number of bytes written to <code>dest</code>
+   * @throws IOException if the data is corrupt or decompresses to more than
+   *           <code>destLength</code> bytes
+   */
+  int decompress(byte[] src, int srcOffset, int srcLength, byte[] dest, int destOffset,
+      int destLength, byte[] dictionary) throws IOException;
+}
@@ -18,6 +18,7 @@ package org.apache.hadoop.hbase.io.compress;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -25,8 +26,10 @@ import java.io.OutputStream;
 
 import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.io.ByteArrayOutputStream;
 import org.apache.hadoop.hbase.io.util.BlockIOUtils;
 import org.apache.hadoop.hbase.nio.ByteBuff;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.io.compress.CodecPool;
 import org.apache.hadoop.io.compress.CompressionCodec;
 import org.apache.hadoop.io.compress.CompressionInputStream;
@@ -75,6 +78,12 @@ public final class Compression {
     }
   }
 
+  /**
+   * Most bytes {@link #compressBlock} compresses at once, the most Hadoop's LZ4 and Snappy codecs
+   * take for their default buffer size of 256KB.
+   */
+  public static final int BLOCK_CHUNK_SIZE = 256 * 1024 - (256 * 1024 / 255 + 16);
+
   /**
    * Returns the classloader to load the Codec class from.
    */
@@ -225,6 +234,11 @@ public final class Compression {
         return lz4Codec;
       }
 
+      @Override
+      public BlockCompressionCodec getBlockCodec() {
+        return Lz4BlockCodec.INSTANCE;
+      }
+
       private CompressionCodec buildCodec(Configuration conf) {
         try {
           Class<?> externalCodec =
@@ -406,6 +420,15 @@ public final class Compression {
     public String getName() {
       return compressName;
     }
+
+    /**
+     * @return a codec that compresses whole blocks in Java, in the format of the Hadoop codec of
+     *         this algorithm, or null if there is none and blocks go through the Hadoop codec.
+     *         See {@link Compression#compressBlock} and {@link Compression#decompressBlock}.
+     */
+    public BlockCompressionCodec getBlockCodec() {
+      return null;
+    }
   }
 
   public static Algorithm getCompressionAlgorithmByName(String compressName) {
@@ -438,6 +461,166 @@ public final class Compression {
     return ret;
   }
 
+  /**
+   * Compresses with the block codec of the algorithm, in the framing of Hadoop's
+   * BlockCompressorStream so the Hadoop codec can read it back. That framing is a sequence of:
+   * - 4 bytes: uncompressed length
+   * - one or more compressed chunks, together that many bytes uncompressed, each of:
+   *   - 4 bytes: compressed length
+   *   - ... bytes: compressed chunk
+   * Each chunk of at most {@link #BLOCK_CHUNK_SIZE} bytes is written with its own uncompressed
+   * length here, while Hadoop writes a single uncompressed length for all the chunks of a write
+   * larger than that.
+   * @param dictionary the dictionary to compress with, or null
+   * @param out the stream to append the compressed data to
+   * @see Algorithm#getBlockCodec()
+   */
+  public static void compressBlock(Compression.Algorithm compressAlgo, byte[] src, int offset,
+      int length, byte[] dictionary, ByteArrayOutputStream out) {
+    BlockCompressionCodec codec = compressAlgo.getBlockCodec();
+    if (length == 0) {
+      out.writeInt(0);
+      return;
+    }
+    byte[] chunk = new byte[codec.maxCompressedLength(Math.min(length, BLOCK_CHUNK_SIZE))];
+    for (int end = offset + length; offset < end; offset += BLOCK_CHUNK_SIZE) {
+      int chunkLength = Math.min(end - offset, BLOCK_CHUNK_SIZE);
+      int compressedLength = codec.compress(src, offset, chunkLength, chunk, 0, dictionary);
+      out.writeInt(chunkLength);
+      out.writeInt(compressedLength);
+      out.write(chunk, 0, compressedLength);
+    }
+  }
+
+  /**
+   * Decompresses data written by {@link #compressBlock}, or by the Hadoop codec of the algorithm,
+   * from the position of <code>src</code>. Heap buffers are read and written in place.
+   * @param dest the output buffer
+   * @param uncompressedSize uncompressed data size, header not included
+   * @param dictionary the dictionary the data was compressed with, or null
+   * @throws IOException if the data is corrupt
+   */
+  public static void decompressBlock(ByteBuff dest, ByteBuff src, int uncompressedSize,
+      Compression.Algorithm compressAlgo, byte[] dictionary) throws IOException {
+    int length = src.remaining();
+    byte[] in;
+    int inOffset;
+    if (src.hasArray()) {
+      in = src.array();
+      inOffset = src.arrayOffset() + src.position();
+    } else {
+      in = new byte[length];
+      src.get(in, 0, length);
+      inOffset = 0;
+    }
+    decompressBlock(dest, in, inOffset, inOffset + length, uncompressedSize, compressAlgo,
+      dictionary);
+  }
+
+  /**
+   * Decompresses data written by {@link #compressBlock} from a stream, for blocks that have to be
+   * decrypted first.
+   * @see #decompressBlock(ByteBuff, ByteBuff, int, Algorithm, byte[])
+   */
+  public static void decompressBlock(ByteBuff dest, InputStream in, int uncompressedSize,
+      Compression.Algorithm compressAlgo, byte[] dictionary) throws IOException {
+    checkDecompressedSpace(dest, uncompressedSize);
+    BlockCompressionCodec codec = compressAlgo.getBlockCodec();
+    DataInputStream dataIn = new DataInputStream(in);
+    byte[] out = new byte[uncompressedSize];
+    byte[] chunk = null;
+    int pos = 0;
+    while (pos < uncompressedSize) {
+      int frameEnd = pos + checkFrameLength(dataIn.readInt(), uncompressedSize - pos);
+      while (pos < frameEnd) {
+        int compressedLength = checkCompressedLength(codec, dataIn.readInt(), frameEnd - pos,
+          Integer.MAX_VALUE);
+        if (chunk == null || chunk.length < compressedLength) {
+          chunk = new byte[compressedLength];
+        }
+        dataIn.readFully(chunk, 0, compressedLength);
+        pos += codec.decompress(chunk, 0, compressedLength, out, pos, frameEnd - pos, dictionary);
+      }
+    }
+    dest.put(out, 0, uncompressedSize);
+  }
+
+  private static void decompressBlock(ByteBuff dest, byte[] in, int inOffset, int inEnd,
+      int uncompressedSize, Compression.Algorithm compressAlgo, byte[] dictionary)
+      throws IOException {
+    checkDecompressedSpace(dest, uncompressedSize);
+    BlockCompressionCodec codec = compressAlgo.getBlockCodec();
+    byte[] out;
+    int outOffset;
+    if (dest.hasArray()) {
+      out = dest.array();
+      outOffset = dest.arrayOffset() + dest.position();
+    } else {
+      out = new byte[uncompressedSize];
+      outOffset = 0;
+    }
+    int pos = outOffset;
+    int outEnd = outOffset + uncompressedSize;
+    while (pos < outEnd) {
+      int frameEnd = pos + checkFrameLength(readFramingInt(in, inOffset, inEnd), outEnd - pos);
+      inOffset += Bytes.SIZEOF_INT;
+      while (pos < frameEnd) {
+        int compressedLength = checkCompressedLength(codec,
+          readFramingInt(in, inOffset, inEnd), frameEnd - pos, inEnd - inOffset - Bytes.SIZEOF_INT);
+        inOffset += Bytes.SIZEOF_INT;
+        pos += codec.decompress(in, inOffset, compressedLength, out, pos, frameEnd - pos,
+          dictionary);
+        inOffset += compressedLength;
+      }
+    }
+    if (dest.hasArray()) {
+      dest.skip(uncompressedSize);
+    } else {
+      dest.put(out, 0, uncompressedSize);
+    }
+  }
+
+  private static void checkDecompressedSpace(ByteBuff dest, int uncompressedSize) {
+    if (dest.remaining() < uncompressedSize) {
+      throw new IllegalArgumentException("Output buffer does not have enough space to hold "
+          + uncompressedSize + " decompressed bytes, available: " + dest.remaining());
+    }
+  }
+
+  private static int readFramingInt(byte[] in, int inOffset, int inEnd) throws IOException {
+    if (inEnd - inOffset < Bytes.SIZEOF_INT) {
+      throw new IOException("Malformed compressed block, truncated at " + inOffset);
+    }
+    return Bytes.toInt(in, inOffset);
+  }
+
+  /**
+   * @param remaining the bytes left to decompress
+   * @return the uncompressed length of a frame, checked against what is left
+   */
+  private static int checkFrameLength(int frameLength, int remaining) throws IOException {
+    if (frameLength <= 0 || frameLength > remaining) {
+      throw new IOException("Malformed compressed block, " + frameLength + " bytes to decompress"
+          + " with " + remaining + " bytes left");
+    }
+    return frameLength;
+  }
+
+  /**
+   * @param frameRemaining the bytes left to decompress in the frame of the chunk
+   * @param available the compressed bytes left
+   * @return the compressed length of a chunk, checked against what it may decompress to
+   */
+  private static int checkCompressedLength(BlockCompressionCodec codec, int compressedLength,
+      int frameRemaining, int available) throws IOException {
+    if (compressedLength < 0 || compressedLength > available
+        || compressedLength > codec.maxCompressedLength(frameRemaining)) {
+      throw new IOException("Malformed compressed block, chunk of " + compressedLength
+          + " compressed bytes with " + frameRemaining + " bytes left in its frame");
+    }
+    return compressedLength;
+  }
+
   /**
    * Decompresses data from the given stream using the configured compression algorithm. It will
    * throw an exception if the dest buffer does not have enough space to hold the decompressed data.
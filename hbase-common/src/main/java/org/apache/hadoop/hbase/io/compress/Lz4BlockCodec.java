@@ -0,0 +1,252 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.hadoop.hbase.io.compress;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Pure Java implementation of the LZ4 block format, the format the native compressor of Hadoop's
+ * Lz4Codec writes, so it needs no native library.
+ * <p>
+ * A compressed block is a sequence of:
+ * - 1 byte:    token, number of literals (4 bits) and match length minus 4 (4 bits), 15 meaning
+ *              the lengths go on in the next bytes
+ * - ... bytes: rest of the number of literals, bytes of 255 ended by one lower
+ * - ... bytes: literals
+ * - 2 bytes:   offset of the match back from the current position, little endian
+ * - ... bytes: rest of the match length, as for the number of literals
+ * The last sequence has literals only, at least the last 5 bytes.
+ * <p>
+ * Compression is the greedy, single hash probe one of the reference implementation.
+ */
+@InterfaceAudience.Private
+public final class Lz4BlockCodec implements BlockCompressionCodec {
+
+  public static final Lz4BlockCodec INSTANCE = new Lz4BlockCodec();
+
+  private static final int MIN_MATCH = 4;
+  /** The last bytes of a block are always literals. */
+  private static final int LAST_LITERALS = 5;
+  /** The last match starts this many bytes before the end of a block or more. */
+  private static final int MF_LIMIT = 12;
+  private static final int MAX_DISTANCE = 65535;
+  private static final int RUN_MASK = 15;
+  private static final int HASH_LOG = 12;
+
+  /** Last position of each hash of 4 bytes, one table per thread. */
+  private static final ThreadLocal<int[]> HASH_TABLE =
+      ThreadLocal.withInitial(() -> new int[1 << HASH_LOG]);
+
+  private Lz4BlockCodec() {
+  }
+
+  @Override
+  public int maxCompressedLength(int length) {
+    return length + length / 255 + 16;
+  }
+
+  @Override
+  public int compress(byte[] src, int srcOffset, int srcLength, byte[] dest, int destOffset,
+      byte[] dictionary) {
+    if (dictionary == null || dictionary.length == 0) {
+      return compress(src, srcOffset, srcOffset, srcLength, dest, destOffset);
+    }
+    // Matches may reach back into the dictionary, up to the maximum distance.
+    int dictionaryLength = Math.min(dictionary.length, MAX_DISTANCE);
+    byte[] data = new byte[dictionaryLength + srcLength];
+    System.arraycopy(dictionary, dictionary.length - dictionaryLength, data, 0,
+      dictionaryLength);
+    System.arraycopy(src, srcOffset, data, dictionaryLength, srcLength);
+    return compress(data, 0, dictionaryLength, srcLength, dest, destOffset);
+  }
+
+  /**
+   * Compresses <code>length</code> bytes from <code>start</code>, those from <code>base</code>
+   * to <code>start</code> being the dictionary.
+   */
+  private static int compress(byte[] src, int base, int start, int length, byte[] dest,
+      int destOffset) {
+    int[] table = HASH_TABLE.get();
+    Arrays.fill(table, -1);
+    int end = start + length;
+    int anchor = start;
+    int pos = start;
+    int op = destOffset;
+    if (length >= MF_LIMIT + 1) {
+      int matchLimit = end - LAST_LITERALS;
+      int mfLimit = end - MF_LIMIT;
+      for (int p = base; p < start; p++) {
+        table[hash(readInt(src, p))] = p;
+      }
+      while (pos < mfLimit) {
+        int sequence = readInt(src, pos);
+        int h = hash(sequence);
+        int ref = table[h];
+        table[h] = pos;
+        if (ref < base || pos - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+          pos++;
+          continue;
+        }
+        // Extend the match backwards over the literals, then forwards
+        while (pos > anchor && ref > base && src[pos - 1] == src[ref - 1]) {
+          pos--;
+          ref--;
+        }
+        int matchLength = MIN_MATCH;
+        while (pos + matchLength < matchLimit && src[pos + matchLength] == src[ref + matchLength]) {
+          matchLength++;
+        }
+        op = writeSequence(src, anchor, pos - anchor, pos - ref, matchLength, dest, op);
+        pos += matchLength;
+        anchor = pos;
+      }
+    }
+    op = writeLastLiterals(src, anchor, end - anchor, dest, op);
+    return op - destOffset;
+  }
+
+  private static int writeSequence(byte[] src, int literalsOffset, int literalsLength,
+      int offset, int matchLength, byte[] dest, int op) {
+    int tokenPos = op++;
+    int token = Math.min(literalsLength, RUN_MASK) << 4;
+    op = writeLength(literalsLength, dest, op);
+    System.arraycopy(src, literalsOffset, dest, op, literalsLength);
+    op += literalsLength;
+    dest[op++] = (byte) offset;
+    dest[op++] = (byte) (offset >>> 8);
+    token |= Math.min(matchLength - MIN_MATCH, RUN_MASK);
+    op = writeLength(matchLength - MIN_MATCH, dest, op);
+    dest[tokenPos] = (byte) token;
+    return op;
+  }
+
+  private static int writeLastLiterals(byte[] src, int literalsOffset, int literalsLength,
+      byte[] dest, int op) {
+    dest[op++] = (byte) (Math.min(literalsLength, RUN_MASK) << 4);
+    op = writeLength(literalsLength, dest, op);
+    System.arraycopy(src, literalsOffset, dest, op, literalsLength);
+    return op + literalsLength;
+  }
+
+  /**
+   * Writes what does not fit in the 4 bits of the token of a length.
+   */
+  private static int writeLength(int length, byte[] dest, int op) {
+    if (length >= RUN_MASK) {
+      int rest = length - RUN_MASK;
+      while (rest >= 255) {
+        dest[op++] = (byte) 255;
+        rest -= 255;
+      }
+      dest[op++] = (byte) rest;
+    }
+    return op;
+  }
+
+  private static int readInt(byte[] b, int offset) {
+    return (b[offset] & 0xff) | (b[offset + 1] & 0xff) << 8 | (b[offset + 2] & 0xff) << 16
+        | (b[offset + 3] & 0xff) << 24;
+  }
+
+  private static int hash(int sequence) {
+    return (sequence * -1640531535) >>> (32 - HASH_LOG);
+  }
+
+  @Override
+  public int decompress(byte[] src, int srcOffset, int srcLength, byte[] dest, int destOffset,
+      int destLength, byte[] dictionary) throws IOException {
+    int ip = srcOffset;
+    int srcEnd = srcOffset + srcLength;
+    int op = destOffset;
+    int destEnd = destOffset + destLength;
+    while (true) {
+      if (ip >= srcEnd) {
+        throw new IOException("Malformed LZ4 block, truncated at " + (ip - srcOffset));
+      }
+      int token = src[ip++] & 0xff;
+      int literalsLength = token >>> 4;
+      if (literalsLength == RUN_MASK) {
+        int b;
+        do {
+          if (ip >= srcEnd) {
+            throw new IOException("Malformed LZ4 block, truncated at " + (ip - srcOffset));
+          }
+          b = src[ip++] & 0xff;
+          literalsLength += b;
+        } while (b == 255);
+      }
+      if (literalsLength > srcEnd - ip || literalsLength > destEnd - op) {
+        throw new IOException("Malformed LZ4 block, " + literalsLength + " literals at "
+            + (ip - srcOffset) + " do not fit");
+      }
+      System.arraycopy(src, ip, dest, op, literalsLength);
+      ip += literalsLength;
+      op += literalsLength;
+      if (ip == srcEnd) {
+        break;
+      }
+      if (srcEnd - ip < 2) {
+        throw new IOException("Malformed LZ4 block, truncated at " + (ip - srcOffset));
+      }
+      int offset = (src[ip] & 0xff) | (src[ip + 1] & 0xff) << 8;
+      ip += 2;
+      int matchLength = token & RUN_MASK;
+      if (matchLength == RUN_MASK) {
+        int b;
+        do {
+          if (ip >= srcEnd) {
+            throw new IOException("Malformed LZ4 block, truncated at " + (ip - srcOffset));
+          }
+          b = src[ip++] & 0xff;
+          matchLength += b;
+        } while (b == 255);
+      }
+      matchLength += MIN_MATCH;
+      int ref = op - offset;
+      if (offset == 0 || matchLength > destEnd - op) {
+        throw new IOException("Malformed LZ4 block, match of " + matchLength + " bytes at "
+            + offset + " back from " + (op - destOffset));
+      }
+      if (ref < destOffset) {
+        // The match starts in the dictionary
+        int fromDictionary = destOffset - ref;
+        if (dictionary == null || fromDictionary > dictionary.length) {
+          throw new IOException("Malformed LZ4 block, match at " + offset + " back from "
+              + (op - destOffset) + " is before the start of the block");
+        }
+        int length = Math.min(fromDictionary, matchLength);
+        System.arraycopy(dictionary, dictionary.length - fromDictionary, dest, op, length);
+        op += length;
+        matchLength -= length;
+        ref = destOffset;
+      }
+      if (op - ref >= matchLength) {
+        System.arraycopy(dest, ref, dest, op, matchLength);
+        op += matchLength;
+      } else {
+        // The match overlaps the bytes it produces
+        for (int i = 0; i < matchLength; i++) {
+          dest[op++] = dest[ref++];
+        }
+      }
+    }
+    return op - destOffset;
+  }
+}
@@ -1127,10 +1127,18 @@ abstract class BufferedDataBlockEncoder extends AbstractDataBlockEncoder {
       }
     }
     StreamUtils.writeInt(out, 0); // DUMMY length. This will be updated in endBlockEncoding()
-    blkEncodingCtx.setEncodingState(new BufferedDataBlockEncodingState());
+    blkEncodingCtx.setEncodingState(createEncodingState(out));
   }
 
-  private static class BufferedDataBlockEncodingState extends EncodingState {
+  /**
+   * @param out the stream the block is encoded into, positioned after the block's leading int
+   * @return the state to keep while encoding a block
+   */
+  protected BufferedDataBlockEncodingState createEncodingState(DataOutputStream out) {
+    return new BufferedDataBlockEncodingState();
+  }
+
+  protected static class BufferedDataBlockEncodingState extends EncodingState {
     int unencodedDataSizeWritten = 0;
   }
 
@@ -284,14 +284,13 @@ public class EncodedDataBlock {
       baosBytes = baos.toByteArray();
       this.dataBlockEncoder.endBlockEncoding(encodingCtx, out, baosBytes);
       // In endBlockEncoding(encodingCtx, out, baosBytes), Encoder ROW_INDEX_V1 write integer in
-      // out while the others write integer in baosBytes(byte array). We need to add
-      // baos.toByteArray() after endBlockEncoding again to make sure the integer writes in
-      // outputstream with Encoder ROW_INDEX_V1 dump to byte array (baosBytes).
-      // The if branch is necessary because Encoders excepts ROW_INDEX_V1 write integer in
-      // baosBytes directly, without if branch and do toByteArray() again, baosBytes won't
-      // contains the integer wrotten in endBlockEncoding.
-      if (this.encoding.equals(DataBlockEncoding.ROW_INDEX_V1)) {
-        baosBytes = baos.toByteArray();
+      // out while the others write integer in baosBytes(byte array), and FAST_DIFF_INDEXED does
+      // both. Take what was written in out after baosBytes was copied, keeping what was written
+      // in baosBytes.
+      if (baos.size() > baosBytes.length) {
+        byte[] encodedBytes = baos.toByteArray();
+        System.arraycopy(baosBytes, 0, encodedBytes, 0, baosBytes.length);
+        baosBytes = encodedBytes;
       }
     } catch (IOException e) {
       throw new RuntimeException(String.format(
@@ -338,12 +338,29 @@ public class FastDiffDeltaEncoder extends BufferedDataBlockEncoder {
   @Override
   protected ByteBuffer internalDecodeKeyValues(DataInputStream source, int allocateHeaderLength,
       int skipLastBytes, HFileBlockDefaultDecodingContext decodingCtx) throws IOException {
+    return internalDecodeKeyValues(source, allocateHeaderLength, skipLastBytes, decodingCtx, null);
+  }
+
+  /**
+   * @param restartPoints sorted offsets in the block of the key/values which were compressed
+   *          without a previous one, null if only the first one was
+   */
+  protected ByteBuffer internalDecodeKeyValues(DataInputStream source, int allocateHeaderLength,
+      int skipLastBytes, HFileBlockDefaultDecodingContext decodingCtx, int[] restartPoints)
+      throws IOException {
+    int blockSize = source.available();
     int decompressedSize = source.readInt();
     ByteBuffer buffer = ByteBuffer.allocate(decompressedSize +
         allocateHeaderLength);
     buffer.position(allocateHeaderLength);
     FastDiffCompressionState state = new FastDiffCompressionState();
+    int nextRestart = 0;
     while (source.available() > skipLastBytes) {
+      if (restartPoints != null && nextRestart < restartPoints.length
+          && restartPoints[nextRestart] == blockSize - source.available()) {
+        state = new FastDiffCompressionState();
+        nextRestart++;
+      }
       uncompressSingleKeyValue(source, buffer, state);
       afterDecodingKeyValue(source, buffer, decodingCtx);
     }
@@ -399,130 +416,140 @@ public class FastDiffDeltaEncoder extends BufferedDataBlockEncoder {
   @Override
   public EncodedSeeker createSeeker(CellComparator comparator,
       final HFileBlockDecodingContext decodingCtx) {
-    return new BufferedEncodedSeeker<FastDiffSeekerState>(comparator, decodingCtx) {
-      private void decode(boolean isFirst) {
-        byte flag = currentBuffer.get();
-        if ((flag & FLAG_SAME_KEY_LENGTH) == 0) {
-          if (!isFirst) {
-            System.arraycopy(current.keyBuffer,
-                current.keyLength - current.prevTimestampAndType.length,
-                current.prevTimestampAndType, 0,
-                current.prevTimestampAndType.length);
-          }
-          current.keyLength = ByteBuff.readCompressedInt(currentBuffer);
-        }
-        if ((flag & FLAG_SAME_VALUE_LENGTH) == 0) {
-          current.valueLength = ByteBuff.readCompressedInt(currentBuffer);
-        }
-        current.lastCommonPrefix = ByteBuff.readCompressedInt(currentBuffer);
-
-        current.ensureSpaceForKey();
-
-        if (isFirst) {
-          // copy everything
-          currentBuffer.get(current.keyBuffer, current.lastCommonPrefix,
-              current.keyLength - current.prevTimestampAndType.length);
-          current.rowLengthWithSize = Bytes.toShort(current.keyBuffer, 0) +
-              Bytes.SIZEOF_SHORT;
-          current.familyLengthWithSize =
-              current.keyBuffer[current.rowLengthWithSize] + Bytes.SIZEOF_BYTE;
-        } else if (current.lastCommonPrefix < Bytes.SIZEOF_SHORT) {
-          // length of row is different, copy everything except family
-
-          // copy the row size
-          int oldRowLengthWithSize = current.rowLengthWithSize;
-          currentBuffer.get(current.keyBuffer, current.lastCommonPrefix,
-              Bytes.SIZEOF_SHORT - current.lastCommonPrefix);
-          current.rowLengthWithSize = Bytes.toShort(current.keyBuffer, 0) +
-              Bytes.SIZEOF_SHORT;
-
-          // move the column family
-          System.arraycopy(current.keyBuffer, oldRowLengthWithSize,
-              current.keyBuffer, current.rowLengthWithSize,
-              current.familyLengthWithSize);
-
-          // copy the rest of row
-          currentBuffer.get(current.keyBuffer, Bytes.SIZEOF_SHORT,
-              current.rowLengthWithSize - Bytes.SIZEOF_SHORT);
-
-          // copy the qualifier
-          currentBuffer.get(current.keyBuffer, current.rowLengthWithSize
-              + current.familyLengthWithSize, current.keyLength
-              - current.rowLengthWithSize - current.familyLengthWithSize
-              - current.prevTimestampAndType.length);
-        } else if (current.lastCommonPrefix < current.rowLengthWithSize) {
-          // We have to copy part of row and qualifier, but the column family
-          // is in the right place.
-
-          // before column family (rest of row)
-          currentBuffer.get(current.keyBuffer, current.lastCommonPrefix,
-              current.rowLengthWithSize - current.lastCommonPrefix);
-
-          // after column family (qualifier)
-          currentBuffer.get(current.keyBuffer, current.rowLengthWithSize
-              + current.familyLengthWithSize, current.keyLength
-              - current.rowLengthWithSize - current.familyLengthWithSize
-              - current.prevTimestampAndType.length);
-        } else {
-          // copy just the ending
-          currentBuffer.get(current.keyBuffer, current.lastCommonPrefix,
-              current.keyLength - current.prevTimestampAndType.length
-                  - current.lastCommonPrefix);
-        }
+    return new FastDiffSeeker(comparator, decodingCtx);
+  }
 
-        // timestamp
-        int pos = current.keyLength - current.prevTimestampAndType.length;
-        int commonTimestampPrefix = (flag & MASK_TIMESTAMP_LENGTH) >>>
-          SHIFT_TIMESTAMP_LENGTH;
-        if ((flag & FLAG_SAME_KEY_LENGTH) == 0) {
-          System.arraycopy(current.prevTimestampAndType, 0, current.keyBuffer,
-              pos, commonTimestampPrefix);
-        }
-        pos += commonTimestampPrefix;
-        currentBuffer.get(current.keyBuffer, pos,
-            Bytes.SIZEOF_LONG - commonTimestampPrefix);
-        pos += Bytes.SIZEOF_LONG - commonTimestampPrefix;
-
-        // type
-        if ((flag & FLAG_SAME_TYPE) == 0) {
-          currentBuffer.get(current.keyBuffer, pos, Bytes.SIZEOF_BYTE);
-        } else if ((flag & FLAG_SAME_KEY_LENGTH) == 0) {
-          current.keyBuffer[pos] =
-              current.prevTimestampAndType[Bytes.SIZEOF_LONG];
-        }
+  protected static class FastDiffSeeker extends BufferedEncodedSeeker<FastDiffSeekerState> {
 
-        // handle value
-        if ((flag & FLAG_SAME_VALUE) == 0) {
-          current.valueOffset = currentBuffer.position();
-          currentBuffer.skip(current.valueLength);
-        }
+    public FastDiffSeeker(CellComparator comparator, HFileBlockDecodingContext decodingCtx) {
+      super(comparator, decodingCtx);
+    }
 
-        if (includesTags()) {
-          decodeTags();
-        }
-        if (includesMvcc()) {
-          current.memstoreTS = ByteBufferUtils.readVLong(currentBuffer);
-        } else {
-          current.memstoreTS = 0;
+    /**
+     * @param isFirst true if the key/value was compressed without a previous one
+     */
+    protected void decode(boolean isFirst) {
+      byte flag = currentBuffer.get();
+      if ((flag & FLAG_SAME_KEY_LENGTH) == 0) {
+        if (!isFirst) {
+          System.arraycopy(current.keyBuffer,
+              current.keyLength - current.prevTimestampAndType.length,
+              current.prevTimestampAndType, 0,
+              current.prevTimestampAndType.length);
         }
-        current.nextKvOffset = currentBuffer.position();
+        current.keyLength = ByteBuff.readCompressedInt(currentBuffer);
+      }
+      if ((flag & FLAG_SAME_VALUE_LENGTH) == 0) {
+        current.valueLength = ByteBuff.readCompressedInt(currentBuffer);
       }
+      current.lastCommonPrefix = ByteBuff.readCompressedInt(currentBuffer);
+
+      current.ensureSpaceForKey();
+
+      if (isFirst) {
+        // copy everything
+        currentBuffer.get(current.keyBuffer, current.lastCommonPrefix,
+            current.keyLength - current.prevTimestampAndType.length);
+        current.rowLengthWithSize = Bytes.toShort(current.keyBuffer, 0) +
+            Bytes.SIZEOF_SHORT;
+        current.familyLengthWithSize =
+            current.keyBuffer[current.rowLengthWithSize] + Bytes.SIZEOF_BYTE;
+      } else if (current.lastCommonPrefix < Bytes.SIZEOF_SHORT) {
+        // length of row is different, copy everything except family
+
+        // copy the row size
+        int oldRowLengthWithSize = current.rowLengthWithSize;
+        currentBuffer.get(current.keyBuffer, current.lastCommonPrefix,
+            Bytes.SIZEOF_SHORT - current.lastCommonPrefix);
+        current.rowLengthWithSize = Bytes.toShort(current.keyBuffer, 0) +
+            Bytes.SIZEOF_SHORT;
+
+        // move the column family
+        System.arraycopy(current.keyBuffer, oldRowLengthWithSize,
+            current.keyBuffer, current.rowLengthWithSize,
+            current.familyLengthWithSize);
 
-      @Override
-      protected void decodeFirst() {
-        currentBuffer.skip(Bytes.SIZEOF_INT);
-        decode(true);
+        // copy the rest of row
+        currentBuffer.get(current.keyBuffer, Bytes.SIZEOF_SHORT,
+            current.rowLengthWithSize - Bytes.SIZEOF_SHORT);
+
+        // copy the qualifier
+        currentBuffer.get(current.keyBuffer, current.rowLengthWithSize
+            + current.familyLengthWithSize, current.keyLength
+            - current.rowLengthWithSize - current.familyLengthWithSize
+            - current.prevTimestampAndType.length);
+      } else if (current.lastCommonPrefix < current.rowLengthWithSize) {
+        // We have to copy part of row and qualifier, but the column family
+        // is in the right place.
+
+        // before column family (rest of row)
+        currentBuffer.get(current.keyBuffer, current.lastCommonPrefix,
+            current.rowLengthWithSize - current.lastCommonPrefix);
+
+        // after column family (qualifier)
+        currentBuffer.get(current.keyBuffer, current.rowLengthWithSize
+            + current.familyLengthWithSize, current.keyLength
+            - current.rowLengthWithSize - current.familyLengthWithSize
+            - current.prevTimestampAndType.length);
+      } else {
+        // copy just the ending
+        currentBuffer.get(current.keyBuffer, current.lastCommonPrefix,
+            current.keyLength - current.prevTimestampAndType.length
+                - current.lastCommonPrefix);
+      }
+
+      // timestamp
+      int pos = current.keyLength - current.prevTimestampAndType.length;
+      int commonTimestampPrefix = (flag & MASK_TIMESTAMP_LENGTH) >>>
+        SHIFT_TIMESTAMP_LENGTH;
+      if ((flag & FLAG_SAME_KEY_LENGTH) == 0) {
+        System.arraycopy(current.prevTimestampAndType, 0, current.keyBuffer,
+            pos, commonTimestampPrefix);
       }
+      pos += commonTimestampPrefix;
+      currentBuffer.get(current.keyBuffer, pos,
+          Bytes.SIZEOF_LONG - commonTimestampPrefix);
+      pos += Bytes.SIZEOF_LONG - commonTimestampPrefix;
 
-      @Override
-      protected void decodeNext() {
-        decode(false);
+      // type
+      if ((flag & FLAG_SAME_TYPE) == 0) {
+        currentBuffer.get(current.keyBuffer, pos, Bytes.SIZEOF_BYTE);
+      } else if ((flag & FLAG_SAME_KEY_LENGTH) == 0) {
+        current.keyBuffer[pos] =
+            current.prevTimestampAndType[Bytes.SIZEOF_LONG];
       }
 
-      @Override
-      protected FastDiffSeekerState createSeekerState() {
-        return new FastDiffSeekerState(this.tmpPair, this.includesTags());
+      // handle value
+      if ((flag & FLAG_SAME_VALUE) == 0) {
+        current.valueOffset = currentBuffer.position();
+        currentBuffer.skip(current.valueLength);
+      }
+
+      if (includesTags()) {
+        decodeTags();
+      }
+      if (includesMvcc()) {
+        current.memstoreTS = ByteBufferUtils.readVLong(currentBuffer);
+      } else {
+        current.memstoreTS = 0;
       }
-    };
+      current.nextKvOffset = currentBuffer.position();
+    }
+
+    @Override
+    protected void decodeFirst() {
+      currentBuffer.skip(Bytes.SIZEOF_INT);
+      decode(true);
+    }
+
+    @Override
+    protected void decodeNext() {
+      decode(false);
+    }
+
+    @Override
+    protected FastDiffSeekerState createSeekerState() {
+      return new FastDiffSeekerState(this.tmpPair, this.includesTags());
+    }
   }
 }
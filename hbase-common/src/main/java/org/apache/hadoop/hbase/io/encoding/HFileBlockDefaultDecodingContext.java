@@ -45,7 +45,9 @@ public class HFileBlockDefaultDecodingContext implements
     HFileBlockDecodingContext {
   private final HFileContext fileContext;
   private TagCompressionContext tagCompressionContext;
-  
+  /** Dictionary the blocks were compressed with, or null */
+  private byte[] compressionDictionary;
+
   public HFileBlockDefaultDecodingContext(HFileContext fileContext) {
     this.fileContext = fileContext;
   }
@@ -53,6 +55,14 @@ public class HFileBlockDefaultDecodingContext implements
   @Override
   public void prepareDecoding(int onDiskSizeWithoutHeader, int uncompressedSizeWithoutHeader,
       ByteBuff blockBufferWithoutHeader, ByteBuff onDiskBlock) throws IOException {
+    Compression.Algorithm compression = fileContext.getCompression();
+    if (compression.getBlockCodec() != null
+        && fileContext.getEncryptionContext() == Encryption.Context.NONE) {
+      // Decompressed straight from the block, no streams needed
+      Compression.decompressBlock(blockBufferWithoutHeader, onDiskBlock,
+        uncompressedSizeWithoutHeader, compression, compressionDictionary);
+      return;
+    }
     final ByteBuffInputStream byteBuffInputStream = new ByteBuffInputStream(onDiskBlock);
     InputStream dataInputStream = new DataInputStream(byteBuffInputStream);
 
@@ -87,8 +97,10 @@ public class HFileBlockDefaultDecodingContext implements
         onDiskSizeWithoutHeader -= Bytes.SIZEOF_BYTE + ivLength;
       }
 
-      Compression.Algorithm compression = fileContext.getCompression();
-      if (compression != Compression.Algorithm.NONE) {
+      if (compression.getBlockCodec() != null) {
+        Compression.decompressBlock(blockBufferWithoutHeader, dataInputStream,
+          uncompressedSizeWithoutHeader, compression, compressionDictionary);
+      } else if (compression != Compression.Algorithm.NONE) {
         Compression.decompress(blockBufferWithoutHeader, dataInputStream,
           uncompressedSizeWithoutHeader, compression);
       } else {
@@ -113,4 +125,12 @@ public class HFileBlockDefaultDecodingContext implements
   public void setTagCompressionContext(TagCompressionContext tagCompressionContext) {
     this.tagCompressionContext = tagCompressionContext;
   }
+
+  /**
+   * Sets the dictionary the blocks were compressed with.
+   * @see HFileBlockDefaultEncodingContext#setCompressionDictionary(byte[])
+   */
+  public void setCompressionDictionary(byte[] compressionDictionary) {
+    this.compressionDictionary = compressionDictionary;
+  }
 }
@@ -75,6 +75,9 @@ public class HFileBlockDefaultEncodingContext implements
 
   private EncodingState encoderState;
 
+  /** Dictionary the blocks are compressed with, or null */
+  private byte[] compressionDictionary;
+
   /**
    * @param encoding encoding used
    * @param headerBytes dummy header bytes
@@ -87,8 +90,10 @@ public class HFileBlockDefaultEncodingContext implements
     Compression.Algorithm compressionAlgorithm =
         fileContext.getCompression() == null ? NONE : fileContext.getCompression();
     if (compressionAlgorithm != NONE) {
-      compressor = compressionAlgorithm.getCompressor();
       compressedByteStream = new ByteArrayOutputStream();
+    }
+    if (compressionAlgorithm != NONE && compressionAlgorithm.getBlockCodec() == null) {
+      compressor = compressionAlgorithm.getCompressor();
       try {
         compressionStream =
             compressionAlgorithm.createPlainCompressionStream(
@@ -156,11 +161,9 @@ public class HFileBlockDefaultEncodingContext implements
       // Run any compression before encryption
       if (fileContext.getCompression() != Compression.Algorithm.NONE) {
         compressedByteStream.reset();
-        compressionStream.resetState();
-        compressionStream.write(uncompressedBytesWithHeaderBuffer,
-            headerBytes.length + uncompressedBytesWithHeaderOffset, uncompressedBytesWithHeaderLength - headerBytes.length);
-        compressionStream.flush();
-        compressionStream.finish();
+        compress(uncompressedBytesWithHeaderBuffer,
+          headerBytes.length + uncompressedBytesWithHeaderOffset,
+          uncompressedBytesWithHeaderLength - headerBytes.length);
         byte[] plaintext = compressedByteStream.toByteArray();
         plaintextLength = plaintext.length;
         in = new ByteArrayInputStream(plaintext);
@@ -203,12 +206,9 @@ public class HFileBlockDefaultEncodingContext implements
       if (this.fileContext.getCompression() != NONE) {
         compressedByteStream.reset();
         compressedByteStream.write(headerBytes);
-        compressionStream.resetState();
-        compressionStream.write(uncompressedBytesWithHeaderBuffer,
-          headerBytes.length + uncompressedBytesWithHeaderOffset, uncompressedBytesWithHeaderLength
-              - headerBytes.length);
-        compressionStream.flush();
-        compressionStream.finish();
+        compress(uncompressedBytesWithHeaderBuffer,
+          headerBytes.length + uncompressedBytesWithHeaderOffset,
+          uncompressedBytesWithHeaderLength - headerBytes.length);
         return new Bytes(compressedByteStream.getBuffer(), 0, compressedByteStream.size());
       } else {
         return null;
@@ -216,6 +216,23 @@ public class HFileBlockDefaultEncodingContext implements
     }
   }
 
+  /**
+   * Compresses to {@link #compressedByteStream}, with the block codec of the compression algorithm
+   * and the dictionary if it has one.
+   */
+  private void compress(byte[] data, int offset, int length) throws IOException {
+    Compression.Algorithm compression = fileContext.getCompression();
+    if (compression.getBlockCodec() != null) {
+      Compression.compressBlock(compression, data, offset, length, compressionDictionary,
+        compressedByteStream);
+    } else {
+      compressionStream.resetState();
+      compressionStream.write(data, offset, length);
+      compressionStream.flush();
+      compressionStream.finish();
+    }
+  }
+
   @Override
   public BlockType getBlockType() {
     return blockType;
@@ -251,6 +268,15 @@ public class HFileBlockDefaultEncodingContext implements
     this.tagCompressionContext = tagCompressionContext;
   }
 
+  /**
+   * Sets the dictionary to compress the next blocks with, only used by compression algorithms with
+   * a block codec.
+   * @see Compression.Algorithm#getBlockCodec()
+   */
+  public void setCompressionDictionary(byte[] compressionDictionary) {
+    this.compressionDictionary = compressionDictionary;
+  }
+
   @Override
   public EncodingState getEncodingState() {
     return this.encoderState;
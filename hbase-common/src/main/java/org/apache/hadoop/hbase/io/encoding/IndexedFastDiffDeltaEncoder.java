@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hadoop.hbase.io.encoding;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.hadoop.hbase.ByteBufferKeyOnlyKeyValue;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.PrivateCellUtil;
+import org.apache.hadoop.hbase.nio.ByteBuff;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * {@link FastDiffDeltaEncoder} with restart points, so seeks in a block are a binary search over
+ * the restart points followed by a short scan instead of a scan from the start of the block.
+ *
+ * Every {@link #RESTART_INTERVAL} key/values one is compressed without a previous one, that is
+ * with its whole key, as the first key/value of a FAST_DIFF block is. The offsets of these restart
+ * points are appended to the block.
+ *
+ * Format:
+ * - 4 bytes:   unencoded data size
+ * - ... bytes: key/values, as in {@link FastDiffDeltaEncoder}
+ * - 4 bytes:   offset in the block of each restart point, the first one being 4
+ * - 4 bytes:   number of restart points
+ *
+ * Seeks scan from the start of the block when tags are compressed, as the tag dictionary is
+ * built from all the key/values before the one decoded.
+ */
+@InterfaceAudience.Private
+public class IndexedFastDiffDeltaEncoder extends FastDiffDeltaEncoder {
+  /** Number of key/values from one restart point to the next. */
+  static final int RESTART_INTERVAL = 16;
+
+  private static class IndexedEncodingState extends BufferedDataBlockEncodingState {
+    /** Position in the stream of the start of the block, its leading int. */
+    private final int blockStart;
+    private int[] restartPoints = new int[8];
+    private int restartCount;
+    private int cellCount;
+
+    IndexedEncodingState(int blockStart) {
+      this.blockStart = blockStart;
+    }
+
+    void addRestartPoint(int offset) {
+      if (restartCount == restartPoints.length) {
+        restartPoints = Arrays.copyOf(restartPoints, restartCount * 2);
+      }
+      restartPoints[restartCount++] = offset;
+    }
+  }
+
+  @Override
+  protected BufferedDataBlockEncodingState createEncodingState(DataOutputStream out) {
+    return new IndexedEncodingState(out.size() - Bytes.SIZEOF_INT);
+  }
+
+  @Override
+  public int internalEncode(Cell cell, HFileBlockDefaultEncodingContext encodingContext,
+      DataOutputStream out) throws IOException {
+    IndexedEncodingState state = (IndexedEncodingState) encodingContext.getEncodingState();
+    if (state.cellCount++ % RESTART_INTERVAL == 0) {
+      state.addRestartPoint(out.size() - state.blockStart);
+      state.prevCell = null;
+    }
+    return super.internalEncode(cell, encodingContext, out);
+  }
+
+  @Override
+  public void endBlockEncoding(HFileBlockEncodingContext encodingCtx, DataOutputStream out,
+      byte[] uncompressedBytesWithHeader) throws IOException {
+    // Fills in the unencoded data size first, the array is the stream's buffer until it grows.
+    super.endBlockEncoding(encodingCtx, out, uncompressedBytesWithHeader);
+    IndexedEncodingState state = (IndexedEncodingState) encodingCtx.getEncodingState();
+    for (int i = 0; i < state.restartCount; i++) {
+      out.writeInt(state.restartPoints[i]);
+    }
+    out.writeInt(state.restartCount);
+  }
+
+  @Override
+  protected ByteBuffer internalDecodeKeyValues(DataInputStream source, int allocateHeaderLength,
+      int skipLastBytes, HFileBlockDefaultDecodingContext decodingCtx) throws IOException {
+    byte[] block = new byte[source.available()];
+    source.readFully(block);
+    int indexEnd = block.length - skipLastBytes;
+    int restartCount = Bytes.toInt(block, indexEnd - Bytes.SIZEOF_INT);
+    int indexStart = indexEnd - (restartCount + 1) * Bytes.SIZEOF_INT;
+    int[] restartPoints = new int[restartCount];
+    for (int i = 0; i < restartCount; i++) {
+      restartPoints[i] = Bytes.toInt(block, indexStart + i * Bytes.SIZEOF_INT);
+    }
+    return internalDecodeKeyValues(new DataInputStream(new ByteArrayInputStream(block)),
+      allocateHeaderLength, block.length - indexStart, decodingCtx, restartPoints);
+  }
+
+  @Override
+  public String toString() {
+    return IndexedFastDiffDeltaEncoder.class.getSimpleName();
+  }
+
+  @Override
+  public EncodedSeeker createSeeker(CellComparator comparator,
+      HFileBlockDecodingContext decodingCtx) {
+    return new IndexedFastDiffSeeker(comparator, decodingCtx);
+  }
+
+  static class IndexedFastDiffSeeker extends FastDiffSeeker {
+    private final ByteBufferKeyOnlyKeyValue restartKey = new ByteBufferKeyOnlyKeyValue();
+    private int[] restartPoints = new int[0];
+    private int restartCount;
+    /** Index of the first restart point at or after the next key/value to decode. */
+    private int nextRestart;
+
+    IndexedFastDiffSeeker(CellComparator comparator, HFileBlockDecodingContext decodingCtx) {
+      super(comparator, decodingCtx);
+    }
+
+    @Override
+    public void setCurrentBuffer(ByteBuff buffer) {
+      int limit = buffer.limit();
+      restartCount = buffer.getInt(limit - Bytes.SIZEOF_INT);
+      int indexStart = limit - (restartCount + 1) * Bytes.SIZEOF_INT;
+      if (restartPoints.length < restartCount) {
+        restartPoints = new int[restartCount];
+      }
+      for (int i = 0; i < restartCount; i++) {
+        restartPoints[i] = buffer.getInt(indexStart + i * Bytes.SIZEOF_INT);
+      }
+      ByteBuff data = buffer.duplicate();
+      data.limit(indexStart);
+      nextRestart = 0;
+      super.setCurrentBuffer(data);
+    }
+
+    @Override
+    protected void decodeNext() {
+      int offset = currentBuffer.position();
+      // Going back to the previous key/value may have moved before a restart point
+      while (nextRestart > 0 && restartPoints[nextRestart - 1] >= offset) {
+        nextRestart--;
+      }
+      while (nextRestart < restartCount && restartPoints[nextRestart] < offset) {
+        nextRestart++;
+      }
+      boolean isRestart = nextRestart < restartCount && restartPoints[nextRestart] == offset;
+      if (isRestart) {
+        nextRestart++;
+      }
+      decode(isRestart);
+    }
+
+    @Override
+    public int seekToKeyInBlock(Cell seekCell, boolean seekBefore) {
+      if (tagCompressionContext == null) {
+        int restart = findRestartPoint(seekCell, seekBefore);
+        // Only skip forward, past the key/value the seeker is on
+        if (restart > 0 && restartPoints[restart] >= current.nextKvOffset) {
+          currentBuffer.position(restartPoints[restart]);
+          decodeNext();
+          current.setKey(current.keyBuffer, current.memstoreTS);
+        }
+      }
+      return super.seekToKeyInBlock(seekCell, seekBefore);
+    }
+
+    /**
+     * @return the last restart point whose key is before <code>seekCell</code>, or equal to it
+     *         unless <code>seekBefore</code>, 0 if there is none
+     */
+    private int findRestartPoint(Cell seekCell, boolean seekBefore) {
+      int position = currentBuffer.position();
+      int low = 1;
+      int high = restartCount - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int comp = compareRestartKey(seekCell, restartPoints[mid]);
+        if (comp > 0 || (comp == 0 && !seekBefore)) {
+          low = mid + 1;
+        } else {
+          high = mid - 1;
+        }
+      }
+      currentBuffer.position(position);
+      return high < 0 ? 0 : high;
+    }
+
+    private int compareRestartKey(Cell seekCell, int offset) {
+      // Skip the flag, the common prefix length is 0
+      currentBuffer.position(offset + Bytes.SIZEOF_BYTE);
+      int keyLength = ByteBuff.readCompressedInt(currentBuffer);
+      ByteBuff.readCompressedInt(currentBuffer); // valueLength
+      ByteBuff.readCompressedInt(currentBuffer); // commonLength
+      currentBuffer.asSubByteBuffer(currentBuffer.position(), keyLength, tmpPair);
+      restartKey.setKey(tmpPair.getFirst(), tmpPair.getSecond(), keyLength);
+      return PrivateCellUtil.compareKeyIgnoresMvcc(comparator, seekCell, restartKey);
+    }
+  }
+}
@@ -77,7 +77,7 @@ public class PrefixKeyDeltaEncoder extends BufferedDataBlockEncoder {
     return size;
   }
 
-  private void writeKeyExcludingCommon(Cell cell, int commonPrefix, DataOutputStream out)
+  void writeKeyExcludingCommon(Cell cell, int commonPrefix, DataOutputStream out)
       throws IOException {
     short rLen = cell.getRowLength();
     if (commonPrefix < rLen + KeyValue.ROW_LENGTH_SIZE) {
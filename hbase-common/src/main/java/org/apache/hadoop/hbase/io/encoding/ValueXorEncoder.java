@@ -0,0 +1,368 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hadoop.hbase.io.encoding;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.hadoop.hbase.ByteBufferExtendedCell;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.PrivateCellUtil;
+import org.apache.hadoop.hbase.io.ByteArrayOutputStream;
+import org.apache.hadoop.hbase.nio.ByteBuff;
+import org.apache.hadoop.hbase.util.ByteBufferUtils;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.ObjectIntPair;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Encoder for blocks of similar values, such as the numbers of time series, which stores the
+ * keys and the values of a block in two streams, so each can be compressed on its own.
+ *
+ * Keys are compressed as in {@link PrefixKeyDeltaEncoder}. A value is compressed against the
+ * value before it when both have the same length:
+ * - up to 8 bytes, the XOR of the two is stored without its leading and trailing zero bytes, as
+ *   Gorilla does with bits for floating point values
+ * - longer, a flag tells whether it is the same as the value before
+ *
+ * Format:
+ * - 4 bytes:   unencoded data size
+ * - keys, for each key/value:
+ *   - 1-5 bytes: compressed key length minus prefix (7-bit encoding)
+ *   - 1-5 bytes: compressed value length (7-bit encoding)
+ *   - 1-5 bytes: compressed length of common key prefix
+ *   - ... bytes: rest of key (including timestamp)
+ *   - ... bytes: tags and memstore timestamp, when the block has them
+ * - values, for each key/value, depending on the length of the value before:
+ *   - different: ... bytes: value
+ *   - same, up to 8 bytes:
+ *     - 1 byte:    number of leading zero bytes of the XOR (4 bits), of trailing zero bytes (4 bits)
+ *     - ... bytes: rest of the XOR
+ *   - same, longer:
+ *     - 1 byte:    1 if the value is the same as the one before, 0 if not
+ *     - ... bytes: value, if not the same
+ * - 4 bytes:   offset in the block of the values
+ */
+@InterfaceAudience.Private
+public class ValueXorEncoder extends PrefixKeyDeltaEncoder {
+
+  private static class ValueXorEncodingState extends BufferedDataBlockEncodingState {
+    /** Position in the stream of the start of the block, its leading int. */
+    private final int blockStart;
+    private final ByteArrayOutputStream values = new ByteArrayOutputStream();
+    private final byte[] xor = new byte[Bytes.SIZEOF_LONG];
+
+    ValueXorEncodingState(int blockStart) {
+      this.blockStart = blockStart;
+    }
+  }
+
+  @Override
+  protected BufferedDataBlockEncodingState createEncodingState(DataOutputStream out) {
+    return new ValueXorEncodingState(out.size() - Bytes.SIZEOF_INT);
+  }
+
+  @Override
+  public int internalEncode(Cell cell, HFileBlockDefaultEncodingContext encodingContext,
+      DataOutputStream out) throws IOException {
+    int klength = KeyValueUtil.keyLength(cell);
+    int vlength = cell.getValueLength();
+    ValueXorEncodingState state = (ValueXorEncodingState) encodingContext.getEncodingState();
+    if (state.prevCell == null) {
+      // copy the key, there is no common prefix with none
+      ByteBufferUtils.putCompressedInt(out, klength);
+      ByteBufferUtils.putCompressedInt(out, vlength);
+      ByteBufferUtils.putCompressedInt(out, 0);
+      PrivateCellUtil.writeFlatKey(cell, (DataOutput) out);
+    } else {
+      // find a common prefix and skip it
+      int common = PrivateCellUtil.findCommonPrefixInFlatKey(cell, state.prevCell, true, true);
+      ByteBufferUtils.putCompressedInt(out, klength - common);
+      ByteBufferUtils.putCompressedInt(out, vlength);
+      ByteBufferUtils.putCompressedInt(out, common);
+      writeKeyExcludingCommon(cell, common, out);
+    }
+    encodeValue(cell, state.prevCell, state);
+    int size = klength + vlength + KeyValue.KEYVALUE_INFRASTRUCTURE_SIZE;
+    size += afterEncodingKeyValue(cell, out, encodingContext);
+    state.prevCell = cell;
+    return size;
+  }
+
+  private static void encodeValue(Cell cell, Cell prevCell, ValueXorEncodingState state)
+      throws IOException {
+    int vlength = cell.getValueLength();
+    if (prevCell == null || prevCell.getValueLength() != vlength) {
+      PrivateCellUtil.writeValue(state.values, cell, vlength);
+    } else if (vlength <= Bytes.SIZEOF_LONG) {
+      byte[] xor = state.xor;
+      for (int i = 0; i < vlength; i++) {
+        xor[i] = (byte) (valueByte(cell, i) ^ valueByte(prevCell, i));
+      }
+      int leading = 0;
+      while (leading < vlength && xor[leading] == 0) {
+        leading++;
+      }
+      int trailing = 0;
+      while (trailing < vlength - leading && xor[vlength - 1 - trailing] == 0) {
+        trailing++;
+      }
+      state.values.write(leading << 4 | trailing);
+      state.values.write(xor, leading, vlength - leading - trailing);
+    } else if (PrivateCellUtil.matchingValue(cell, prevCell, vlength, vlength)) {
+      state.values.write(1);
+    } else {
+      state.values.write(0);
+      PrivateCellUtil.writeValue(state.values, cell, vlength);
+    }
+  }
+
+  private static byte valueByte(Cell cell, int index) {
+    if (cell instanceof ByteBufferExtendedCell) {
+      return ByteBufferUtils.toByte(((ByteBufferExtendedCell) cell).getValueByteBuffer(),
+        ((ByteBufferExtendedCell) cell).getValuePosition() + index);
+    }
+    return cell.getValueArray()[cell.getValueOffset() + index];
+  }
+
+  @Override
+  public void endBlockEncoding(HFileBlockEncodingContext encodingCtx, DataOutputStream out,
+      byte[] uncompressedBytesWithHeader) throws IOException {
+    // Fills in the unencoded data size first, the array is the stream's buffer until it grows.
+    super.endBlockEncoding(encodingCtx, out, uncompressedBytesWithHeader);
+    ValueXorEncodingState state = (ValueXorEncodingState) encodingCtx.getEncodingState();
+    int valuesOffset = out.size() - state.blockStart;
+    out.write(state.values.getBuffer(), 0, state.values.size());
+    out.writeInt(valuesOffset);
+  }
+
+  @Override
+  protected ByteBuffer internalDecodeKeyValues(DataInputStream source, int allocateHeaderLength,
+      int skipLastBytes, HFileBlockDefaultDecodingContext decodingCtx) throws IOException {
+    byte[] block = new byte[source.available()];
+    source.readFully(block);
+    int valuesEnd = block.length - skipLastBytes - Bytes.SIZEOF_INT;
+    int valuesOffset = Bytes.toInt(block, valuesEnd);
+    DataInputStream keys =
+        new DataInputStream(new ByteArrayInputStream(block, 0, valuesOffset));
+    int decompressedSize = keys.readInt();
+    ByteBuffer buffer = ByteBuffer.allocate(decompressedSize + allocateHeaderLength);
+    buffer.position(allocateHeaderLength);
+    int prevKeyOffset = 0;
+    int prevValueOffset = 0;
+    int prevValueLength = -1;
+    int valuesPosition = valuesOffset;
+    while (keys.available() > 0) {
+      int keyLength = ByteBufferUtils.readCompressedInt(keys);
+      int valueLength = ByteBufferUtils.readCompressedInt(keys);
+      int commonLength = ByteBufferUtils.readCompressedInt(keys);
+      keyLength += commonLength;
+      ensureSpace(buffer, keyLength + valueLength + KeyValue.ROW_OFFSET);
+      buffer.putInt(keyLength);
+      buffer.putInt(valueLength);
+      int keyOffset = buffer.position();
+      // copy the prefix, then the rest of the key
+      ByteBufferUtils.copyFromBufferToBuffer(buffer, buffer, prevKeyOffset, commonLength);
+      ByteBufferUtils.copyFromStreamToBuffer(buffer, keys, keyLength - commonLength);
+      int valueOffset = buffer.position();
+      valuesPosition = decodeValue(block, valuesPosition, buffer, valueLength, prevValueOffset,
+        prevValueLength);
+      afterDecodingKeyValue(keys, buffer, decodingCtx);
+      prevKeyOffset = keyOffset;
+      prevValueOffset = valueOffset;
+      prevValueLength = valueLength;
+    }
+    if (valuesPosition != valuesEnd) {
+      throw new IllegalStateException("Read too many bytes.");
+    }
+    buffer.limit(buffer.position());
+    return buffer;
+  }
+
+  /**
+   * Decodes a value into <code>out</code>, the value before being in <code>out</code> too.
+   * @return the position of the next value in <code>block</code>
+   */
+  private static int decodeValue(byte[] block, int position, ByteBuffer out, int valueLength,
+      int prevValueOffset, int prevValueLength) {
+    if (valueLength != prevValueLength) {
+      out.put(block, position, valueLength);
+      return position + valueLength;
+    }
+    if (valueLength <= Bytes.SIZEOF_LONG) {
+      int lengths = block[position++] & 0xff;
+      int valueOffset = out.position();
+      ByteBufferUtils.copyFromBufferToBuffer(out, out, prevValueOffset, valueLength);
+      for (int i = lengths >>> 4; i < valueLength - (lengths & 0xf); i++) {
+        out.put(valueOffset + i, (byte) (out.get(valueOffset + i) ^ block[position++]));
+      }
+      return position;
+    }
+    if (block[position++] != 0) {
+      ByteBufferUtils.copyFromBufferToBuffer(out, out, prevValueOffset, valueLength);
+      return position;
+    }
+    out.put(block, position, valueLength);
+    return position + valueLength;
+  }
+
+  @Override
+  public String toString() {
+    return ValueXorEncoder.class.getSimpleName();
+  }
+
+  protected static class ValueXorSeekerState extends SeekerState {
+    /** The decoded value, the one before until the next key/value is decoded. */
+    private byte[] value = HConstants.EMPTY_BYTE_ARRAY;
+    /** Position in the block of the value of the next key/value. */
+    private int nextValueOffset;
+    private final boolean includeTags;
+
+    public ValueXorSeekerState(ObjectIntPair<ByteBuffer> tmpPair, boolean includeTags) {
+      super(tmpPair, includeTags);
+      this.includeTags = includeTags;
+    }
+
+    private void ensureSpaceForValue() {
+      if (valueLength > value.length) {
+        byte[] newValue = new byte[Integer.highestOneBit(Math.max(Bytes.SIZEOF_LONG,
+          valueLength) - 1) << 1];
+        System.arraycopy(value, 0, newValue, 0, value.length);
+        value = newValue;
+      }
+    }
+
+    @Override
+    protected void copyFromNext(SeekerState that) {
+      super.copyFromNext(that);
+      ValueXorSeekerState other = (ValueXorSeekerState) that;
+      if (value.length < other.valueLength) {
+        value = new byte[other.value.length];
+      }
+      System.arraycopy(other.value, 0, value, 0, other.valueLength);
+      nextValueOffset = other.nextValueOffset;
+    }
+
+    @Override
+    public Cell toCell() {
+      // The value is not in the block as is, so the cell gets copies of its parts
+      byte[] tags = HConstants.EMPTY_BYTE_ARRAY;
+      if (includeTags && tagsLength > 0) {
+        if (tagCompressionContext == null) {
+          tags = new byte[tagsLength];
+          currentBuffer.get(tagsOffset, tags, 0, tagsLength);
+        } else {
+          tags = Bytes.copy(tagsBuffer, 0, tagsLength);
+        }
+      }
+      return new OnheapDecodedCell(Bytes.copy(keyBuffer, 0, keyLength),
+          currentKey.getRowLength(), currentKey.getFamilyOffset(), currentKey.getFamilyLength(),
+          currentKey.getQualifierOffset(), currentKey.getQualifierLength(),
+          currentKey.getTimestamp(), currentKey.getTypeByte(), Bytes.copy(value, 0, valueLength),
+          0, valueLength, memstoreTS, tags, 0, tagsLength);
+    }
+  }
+
+  @Override
+  public EncodedSeeker createSeeker(CellComparator comparator,
+      final HFileBlockDecodingContext decodingCtx) {
+    return new BufferedEncodedSeeker<ValueXorSeekerState>(comparator, decodingCtx) {
+      /** The whole block, {@link #currentBuffer} ending with the keys. */
+      private ByteBuff block;
+
+      @Override
+      public void setCurrentBuffer(ByteBuff buffer) {
+        int valuesOffset = buffer.getInt(buffer.limit() - Bytes.SIZEOF_INT);
+        block = buffer;
+        ByteBuff keys = buffer.duplicate();
+        keys.limit(valuesOffset);
+        super.setCurrentBuffer(keys);
+      }
+
+      @Override
+      public ByteBuffer getValueShallowCopy() {
+        return ByteBuffer.wrap(current.value, 0, current.valueLength).slice();
+      }
+
+      @Override
+      protected void decodeNext() {
+        int prevValueLength = current.valueLength;
+        current.keyLength = ByteBuff.readCompressedInt(currentBuffer);
+        current.valueLength = ByteBuff.readCompressedInt(currentBuffer);
+        current.lastCommonPrefix = ByteBuff.readCompressedInt(currentBuffer);
+        current.keyLength += current.lastCommonPrefix;
+        current.ensureSpaceForKey();
+        currentBuffer.get(current.keyBuffer, current.lastCommonPrefix,
+            current.keyLength - current.lastCommonPrefix);
+        decodeValue(prevValueLength);
+        if (includesTags()) {
+          decodeTags();
+        }
+        if (includesMvcc()) {
+          current.memstoreTS = ByteBufferUtils.readVLong(currentBuffer);
+        } else {
+          current.memstoreTS = 0;
+        }
+        current.nextKvOffset = currentBuffer.position();
+      }
+
+      /**
+       * Decodes the value in place of the value before.
+       */
+      private void decodeValue(int prevValueLength) {
+        int position = current.nextValueOffset;
+        current.valueOffset = position;
+        current.ensureSpaceForValue();
+        int valueLength = current.valueLength;
+        if (valueLength != prevValueLength) {
+          block.get(position, current.value, 0, valueLength);
+          position += valueLength;
+        } else if (valueLength <= Bytes.SIZEOF_LONG) {
+          int lengths = block.get(position++) & 0xff;
+          for (int i = lengths >>> 4; i < valueLength - (lengths & 0xf); i++) {
+            current.value[i] ^= block.get(position++);
+          }
+        } else if (block.get(position++) == 0) {
+          block.get(position, current.value, 0, valueLength);
+          position += valueLength;
+        }
+        current.nextValueOffset = position;
+      }
+
+      @Override
+      protected void decodeFirst() {
+        currentBuffer.skip(Bytes.SIZEOF_INT);
+        current.valueLength = -1;
+        current.nextValueOffset = currentBuffer.limit();
+        decodeNext();
+      }
+
+      @Override
+      protected ValueXorSeekerState createSeekerState() {
+        return new ValueXorSeekerState(this.tmpPair, this.includesTags());
+      }
+    };
+  }
+}
@@ -37,11 +37,13 @@ public abstract class Hash {
   public static final int MURMUR_HASH  = 1;
   /** Constant to denote {@link MurmurHash3}. */
   public static final int MURMUR_HASH3 = 2;
+  /** Constant to denote {@link XXHash64}. */
+  public static final int XXHASH64 = 3;
 
   /**
    * This utility method converts String representation of hash function name
-   * to a symbolic constant. Currently three function types are supported,
-   * "jenkins", "murmur" and "murmur3".
+   * to a symbolic constant. Currently four function types are supported,
+   * "jenkins", "murmur", "murmur3" and "xxhash64".
    * @param name hash function name
    * @return one of the predefined constants
    */
@@ -52,6 +54,8 @@ public abstract class Hash {
       return MURMUR_HASH;
     } else if ("murmur3".equalsIgnoreCase(name)) {
       return MURMUR_HASH3;
+    } else if ("xxhash64".equalsIgnoreCase(name)) {
+      return XXHASH64;
     } else {
       return INVALID_HASH;
     }
@@ -81,6 +85,8 @@ public abstract class Hash {
         return MurmurHash.getInstance();
       case MURMUR_HASH3:
         return MurmurHash3.getInstance();
+      case XXHASH64:
+        return XXHash64.getInstance();
       default:
         return null;
     }
@@ -105,4 +111,18 @@ public abstract class Hash {
    * @return hash value
    */
   public abstract <T> int hash(HashKey<T> hashKey, int initval);
+
+  /**
+   * Calculate a 64 bit hash using bytes from HashKey and the provided seed value. This
+   * implementation combines two 32 bit hashes, the second one seeded with the first. Hash
+   * functions with a 64 bit result override it to go over the key only once.
+   * @param hashKey key to extract the hash
+   * @param initval the seed value
+   * @return hash value
+   */
+  public <T> long hash64(HashKey<T> hashKey, int initval) {
+    int hash1 = hash(hashKey, initval);
+    int hash2 = hash(hashKey, hash1);
+    return ((long) hash1 << 32) | (hash2 & 0xffffffffL);
+  }
 }
@@ -431,6 +431,47 @@ public final class UnsafeAccess {
     }
     return offset + Bytes.SIZEOF_LONG;
   }
+
+  /**
+   * Reads a long value at the given buffer's offset with volatile semantics, considering it was
+   * written in big-endian format. The offset must be 8 byte aligned.
+   * @param buf the ByteBuffer to read from
+   * @param offset offset in the ByteBuffer
+   * @return long value at offset
+   */
+  public static long toLongVolatile(ByteBuffer buf, int offset) {
+    long val;
+    if (buf.isDirect()) {
+      val = theUnsafe.getLongVolatile(null, ((DirectBuffer) buf).address() + offset);
+    } else {
+      val = theUnsafe.getLongVolatile(buf.array(),
+        BYTE_ARRAY_BASE_OFFSET + buf.arrayOffset() + offset);
+    }
+    return LITTLE_ENDIAN ? Long.reverseBytes(val) : val;
+  }
+
+  /**
+   * Atomically sets the long value at the given buffer's offset, in big-endian format, if it is
+   * the expected one. The offset must be 8 byte aligned.
+   * @param buf the ByteBuffer to write to
+   * @param offset offset in the ByteBuffer
+   * @param expected the expected value
+   * @param val long to write out
+   * @return true if the value was set
+   */
+  public static boolean compareAndSetLong(ByteBuffer buf, int offset, long expected, long val) {
+    if (LITTLE_ENDIAN) {
+      expected = Long.reverseBytes(expected);
+      val = Long.reverseBytes(val);
+    }
+    if (buf.isDirect()) {
+      return theUnsafe.compareAndSwapLong(null, ((DirectBuffer) buf).address() + offset, expected,
+        val);
+    }
+    return theUnsafe.compareAndSwapLong(buf.array(),
+      BYTE_ARRAY_BASE_OFFSET + buf.arrayOffset() + offset, expected, val);
+  }
+
   /**
    * Put a byte value out to the specified BB position in big-endian format.
    * @param buf the byte buffer
@@ -0,0 +1,124 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.util;
+
+import org.apache.yetus.audience.InterfaceAudience;
+import org.apache.yetus.audience.InterfaceStability;
+
+/**
+ * The 64 bit xxHash, see https://github.com/Cyan4973/xxHash for details.
+ *
+ * <p>It consumes 8 bytes of the key at a time and its 64 bit result gives a Bloom filter all of
+ * the bits of a key in one pass, where 32 bit hashes go over the key twice.</p>
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Stable
+public class XXHash64 extends Hash {
+  private static final XXHash64 _instance = new XXHash64();
+
+  private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+  private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+  private static final long PRIME64_3 = 0x165667B19E3779F9L;
+  private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+  private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+  public static Hash getInstance() {
+    return _instance;
+  }
+
+  /** Returns the 64 bit hash folded to 32 bits. */
+  @Override
+  public <T> int hash(HashKey<T> hashKey, int initval) {
+    long hash = hash64(hashKey, initval);
+    return (int) (hash ^ (hash >>> 32));
+  }
+
+  /** Returns the XXH64 hash, the seed being the unsigned value of <code>initval</code>. */
+  @Override
+  public <T> long hash64(HashKey<T> hashKey, int initval) {
+    long seed = initval & 0xffffffffL;
+    int length = hashKey.length();
+    int i = 0;
+    long h;
+    if (length >= 32) {
+      long v1 = seed + PRIME64_1 + PRIME64_2;
+      long v2 = seed + PRIME64_2;
+      long v3 = seed;
+      long v4 = seed - PRIME64_1;
+      for (int limit = length - 32; i <= limit; i += 32) {
+        v1 = round(v1, getLong(hashKey, i));
+        v2 = round(v2, getLong(hashKey, i + 8));
+        v3 = round(v3, getLong(hashKey, i + 16));
+        v4 = round(v4, getLong(hashKey, i + 24));
+      }
+      h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12)
+          + Long.rotateLeft(v4, 18);
+      h = mergeRound(h, v1);
+      h = mergeRound(h, v2);
+      h = mergeRound(h, v3);
+      h = mergeRound(h, v4);
+    } else {
+      h = seed + PRIME64_5;
+    }
+    h += length;
+
+    for (; i + 8 <= length; i += 8) {
+      h ^= round(0, getLong(hashKey, i));
+      h = Long.rotateLeft(h, 27) * PRIME64_1 + PRIME64_4;
+    }
+    if (i + 4 <= length) {
+      h ^= (getInt(hashKey, i) & 0xffffffffL) * PRIME64_1;
+      h = Long.rotateLeft(h, 23) * PRIME64_2 + PRIME64_3;
+      i += 4;
+    }
+    for (; i < length; i++) {
+      h ^= (hashKey.get(i) & 0xff) * PRIME64_5;
+      h = Long.rotateLeft(h, 11) * PRIME64_1;
+    }
+
+    // avalanche
+    h ^= h >>> 33;
+    h *= PRIME64_2;
+    h ^= h >>> 29;
+    h *= PRIME64_3;
+    h ^= h >>> 32;
+    return h;
+  }
+
+  private static long round(long acc, long input) {
+    acc += input * PRIME64_2;
+    acc = Long.rotateLeft(acc, 31);
+    return acc * PRIME64_1;
+  }
+
+  private static long mergeRound(long acc, long val) {
+    acc ^= round(0, val);
+    return acc * PRIME64_1 + PRIME64_4;
+  }
+
+  /** Little endian load order */
+  private static <T> long getLong(HashKey<T> hashKey, int pos) {
+    return (getInt(hashKey, pos) & 0xffffffffL) | ((long) getInt(hashKey, pos + 4) << 32);
+  }
+
+  private static <T> int getInt(HashKey<T> hashKey, int pos) {
+    return (hashKey.get(pos) & 0xff) | ((hashKey.get(pos + 1) & 0xff) << 8)
+        | ((hashKey.get(pos + 2) & 0xff) << 16) | (hashKey.get(pos + 3) << 24);
+  }
+}
@@ -0,0 +1,281 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.hadoop.hbase.io.compress;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.io.ByteArrayOutputStream;
+import org.apache.hadoop.hbase.io.compress.Compression.Algorithm;
+import org.apache.hadoop.hbase.nio.ByteBuff;
+import org.apache.hadoop.hbase.testclassification.IOTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.compress.BlockCompressorStream;
+import org.apache.hadoop.io.compress.Compressor;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ IOTests.class, SmallTests.class })
+public class TestLz4BlockCodec {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestLz4BlockCodec.class);
+
+  private static final Lz4BlockCodec CODEC = Lz4BlockCodec.INSTANCE;
+
+  private static byte[] createRows(int count) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (int i = 0; i < count; i++) {
+      byte[] row = Bytes.toBytes(String.format("row-%08d/family:qualifier/%d/Put", i, i * 7L));
+      out.write(row, 0, row.length);
+      out.writeInt(i);
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] roundTrip(byte[] data, byte[] dictionary) throws IOException {
+    byte[] compressed = new byte[CODEC.maxCompressedLength(data.length) + 3];
+    int length = CODEC.compress(data, 0, data.length, compressed, 3, dictionary);
+    assertTrue(length <= CODEC.maxCompressedLength(data.length));
+    byte[] decompressed = new byte[data.length + 2];
+    CODEC.decompress(compressed, 3, length, decompressed, 2, data.length, dictionary);
+    assertEquals(0, Bytes.compareTo(data, 0, data.length, decompressed, 2, data.length));
+    return Bytes.copy(compressed, 3, length);
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    byte[] rows = createRows(1000);
+    assertTrue(roundTrip(rows, null).length < rows.length / 3);
+    for (int length = 0; length < 40; length++) {
+      roundTrip(Bytes.copy(rows, 0, length), null);
+    }
+    byte[] random = new byte[100000];
+    new Random(42).nextBytes(random);
+    roundTrip(random, null);
+    // Long runs make the lengths go past the token
+    roundTrip(new byte[100000], null);
+  }
+
+  @Test
+  public void testDictionary() throws IOException {
+    byte[] rows = createRows(200);
+    byte[] dictionary = Bytes.copy(rows, 0, rows.length / 2);
+    byte[] data = Bytes.copy(rows, rows.length / 2, rows.length / 2);
+    byte[] withDictionary = roundTrip(data, dictionary);
+    assertTrue(withDictionary.length < roundTrip(data, null).length);
+    byte[] decompressed = new byte[data.length];
+    try {
+      CODEC.decompress(withDictionary, 0, withDictionary.length, decompressed, 0, data.length,
+        null);
+      fail("Matches into the dictionary decompressed without it");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testDecompressReferenceBlock() throws IOException {
+    // "abc", then a match of 9 bytes 3 back, then the literals "abcab"
+    byte[] block = new byte[] { 0x35, 'a', 'b', 'c', 3, 0, 0x50, 'a', 'b', 'c', 'a', 'b' };
+    byte[] decompressed = new byte[17];
+    CODEC.decompress(block, 0, block.length, decompressed, 0, decompressed.length, null);
+    assertArrayEquals(Bytes.toBytes("abcabcabcabcabcab"), decompressed);
+    try {
+      CODEC.decompress(block, 0, block.length - 1, decompressed, 0, decompressed.length, null);
+      fail("Truncated block decompressed");
+    } catch (IOException e) {
+      // expected
+    }
+    try {
+      CODEC.decompress(block, 0, block.length, new byte[16], 0, 16, null);
+      fail("Block decompressed past its end");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testCompressBlockInChunks() throws IOException {
+    byte[] rows = createRows(2 * Compression.BLOCK_CHUNK_SIZE / 40);
+    assertTrue(rows.length > 2 * Compression.BLOCK_CHUNK_SIZE);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(7);
+    Compression.compressBlock(Algorithm.LZ4, rows, 0, rows.length, null, out);
+    byte[] compressed = out.toByteArray();
+    assertEquals(Compression.BLOCK_CHUNK_SIZE, Bytes.toInt(compressed, 1));
+
+    ByteBuff src = ByteBuff.wrap(ByteBuffer.wrap(compressed));
+    src.position(1);
+    ByteBuff dest = ByteBuff.wrap(ByteBuffer.allocate(rows.length));
+    Compression.decompressBlock(dest, src, rows.length, Algorithm.LZ4, null);
+    assertEquals(rows.length, dest.position());
+    assertArrayEquals(rows, dest.array());
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(compressed.length - 1);
+    direct.put(compressed, 1, compressed.length - 1).flip();
+    dest = ByteBuff.wrap(ByteBuffer.allocateDirect(rows.length));
+    Compression.decompressBlock(dest, ByteBuff.wrap(direct), rows.length, Algorithm.LZ4,
+      null);
+    byte[] decompressed = new byte[rows.length];
+    dest.position(0);
+    dest.get(decompressed, 0, rows.length);
+    assertArrayEquals(rows, decompressed);
+
+    dest = ByteBuff.wrap(ByteBuffer.allocate(rows.length));
+    Compression.decompressBlock(dest,
+      new ByteArrayInputStream(compressed, 1, compressed.length - 1), rows.length, Algorithm.LZ4,
+      null);
+    assertArrayEquals(rows, dest.array());
+  }
+
+  /**
+   * Compresses as the native compressor of Hadoop's Lz4Codec does, all the input given before
+   * {@link #finish()} into one LZ4 block, with the codec under test.
+   */
+  private static final class Lz4Compressor implements Compressor {
+    private final ByteArrayOutputStream input = new ByteArrayOutputStream();
+    private byte[] output;
+    private int outputPos;
+    private boolean finish;
+    private long bytesWritten;
+
+    @Override
+    public void setInput(byte[] b, int off, int len) {
+      input.write(b, off, len);
+    }
+
+    @Override
+    public boolean needsInput() {
+      return output == null;
+    }
+
+    @Override
+    public void setDictionary(byte[] b, int off, int len) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long getBytesRead() {
+      return input.size();
+    }
+
+    @Override
+    public long getBytesWritten() {
+      return bytesWritten;
+    }
+
+    @Override
+    public void finish() {
+      finish = true;
+    }
+
+    @Override
+    public boolean finished() {
+      return finish && output != null && outputPos == output.length;
+    }
+
+    @Override
+    public int compress(byte[] b, int off, int len) {
+      if (!finish) {
+        return 0;
+      }
+      if (output == null) {
+        byte[] compressed = new byte[CODEC.maxCompressedLength(input.size())];
+        int length = CODEC.compress(input.getBuffer(), 0, input.size(), compressed, 0, null);
+        output = Bytes.copy(compressed, 0, length);
+      }
+      int n = Math.min(len, output.length - outputPos);
+      System.arraycopy(output, outputPos, b, off, n);
+      outputPos += n;
+      bytesWritten += n;
+      return n;
+    }
+
+    @Override
+    public void reset() {
+      input.reset();
+      output = null;
+      outputPos = 0;
+      finish = false;
+      bytesWritten = 0;
+    }
+
+    @Override
+    public void end() {
+    }
+
+    @Override
+    public void reinit(Configuration conf) {
+      reset();
+    }
+  }
+
+  @Test
+  public void testDecompressHadoopFraming() throws IOException {
+    byte[] rows = createRows(3 * Compression.BLOCK_CHUNK_SIZE / 40);
+    int head = 1000;
+    assertTrue(rows.length - head > 2 * Compression.BLOCK_CHUNK_SIZE);
+    // The buffer size and overhead Hadoop's Lz4Codec gives the stream
+    int bufferSize = 256 * 1024;
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (BlockCompressorStream stream = new BlockCompressorStream(out, new Lz4Compressor(),
+        bufferSize, bufferSize / 255 + 16)) {
+      // The first write gets its own frame, the second is larger than the most the stream
+      // compresses at once, it is written as one uncompressed length and several chunks
+      stream.write(rows, 0, head);
+      stream.write(rows, head, rows.length - head);
+      stream.finish();
+    }
+    byte[] compressed = out.toByteArray();
+    assertEquals(head, Bytes.toInt(compressed, 0));
+    int second = 2 * Bytes.SIZEOF_INT + Bytes.toInt(compressed, Bytes.SIZEOF_INT);
+    assertEquals(rows.length - head, Bytes.toInt(compressed, second));
+
+    ByteBuff dest = ByteBuff.wrap(ByteBuffer.allocate(rows.length));
+    Compression.decompressBlock(dest, ByteBuff.wrap(ByteBuffer.wrap(compressed)), rows.length,
+      Algorithm.LZ4, null);
+    assertArrayEquals(rows, dest.array());
+
+    dest = ByteBuff.wrap(ByteBuffer.allocate(rows.length));
+    Compression.decompressBlock(dest, new ByteArrayInputStream(compressed), rows.length,
+      Algorithm.LZ4, null);
+    assertArrayEquals(rows, dest.array());
+
+    // A frame claiming more than the chunks that follow decompress to
+    byte[] truncated = Bytes.copy(compressed, 0, compressed.length);
+    Bytes.putInt(truncated, second, rows.length - head + 1);
+    try {
+      Compression.decompressBlock(ByteBuff.wrap(ByteBuffer.allocate(rows.length + 1)),
+        ByteBuff.wrap(ByteBuffer.wrap(truncated)), rows.length + 1, Algorithm.LZ4, null);
+      fail("Decompressed a frame longer than its chunks");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+}
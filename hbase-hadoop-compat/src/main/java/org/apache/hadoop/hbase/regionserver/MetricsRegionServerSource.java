@@ -185,6 +185,15 @@ public interface MetricsRegionServerSource extends BaseSource, JvmPauseMonitorSo
    */
   void updateFlushOutputSize(long bytes);
 
+  /**
+   * Update the histograms of the time it took to write the memstore snapshots of the stores of a
+   * region, and of the CPU time the threads writing them took, which adds up the stores when
+   * they are written in parallel
+   * @param t wall clock time, in milliseconds
+   * @param cpuTime CPU time, in milliseconds
+   */
+  void updateFlushStoresTime(long t, long cpuTime);
+
   /**
    * Update the compaction time histogram, both major and minor
    * @param isMajor whether compaction is a major compaction
@@ -346,6 +355,12 @@ public interface MetricsRegionServerSource extends BaseSource, JvmPauseMonitorSo
   String BLOCK_CACHE_FAILED_INSERTION_COUNT = "blockCacheFailedInsertionCount";
   String BLOCK_CACHE_FAILED_INSERTION_COUNT_DESC = "Number of times that a block cache " +
       "insertion failed. Usually due to size restrictions.";
+  String BLOCK_CACHE_ADMITTED_COUNT = "blockCacheAdmittedCount";
+  String BLOCK_CACHE_ADMITTED_COUNT_DESC = "Number of blocks the block cache admission policy " +
+      "let into a full block cache.";
+  String BLOCK_CACHE_REJECTED_COUNT = "blockCacheRejectedCount";
+  String BLOCK_CACHE_REJECTED_COUNT_DESC = "Number of blocks the block cache admission policy " +
+      "kept out of a full block cache.";
   String BLOCK_CACHE_DATA_MISS_COUNT = "blockCacheDataMissCount";
   String BLOCK_CACHE_ENCODED_DATA_MISS_COUNT = "blockCacheEncodedDataMissCount";
   String BLOCK_CACHE_LEAF_INDEX_MISS_COUNT = "blockCacheLeafIndexMissCount";
@@ -384,6 +399,29 @@ public interface MetricsRegionServerSource extends BaseSource, JvmPauseMonitorSo
   String L2_CACHE_HIT_RATIO_DESC = "L2 cache hit ratio.";
   String L2_CACHE_MISS_RATIO = "l2CacheMissRatio";
   String L2_CACHE_MISS_RATIO_DESC = "L2 cache miss ratio.";
+  String L1_CACHE_EVICTION_TIME_MEAN = "l1CacheEvictionTimeMean";
+  String L1_CACHE_EVICTION_TIME_MEAN_DESC = "Mean time of an L1 cache eviction run in microseconds.";
+  String L1_CACHE_EVICTION_TIME_99TH = "l1CacheEvictionTime99thPercentile";
+  String L1_CACHE_EVICTION_TIME_99TH_DESC =
+      "99th percentile time of an L1 cache eviction run in microseconds.";
+  String L2_CACHE_EVICTION_TIME_MEAN = "l2CacheEvictionTimeMean";
+  String L2_CACHE_EVICTION_TIME_MEAN_DESC = "Mean time of an L2 cache eviction run in microseconds.";
+  String L2_CACHE_EVICTION_TIME_99TH = "l2CacheEvictionTime99thPercentile";
+  String L2_CACHE_EVICTION_TIME_99TH_DESC =
+      "99th percentile time of an L2 cache eviction run in microseconds.";
+  String PREFETCH_PENDING_FILES = "prefetchPendingFiles";
+  String PREFETCH_PENDING_FILES_DESC =
+      "Number of store files whose blocks are waiting to be or being prefetched.";
+  String PREFETCH_COMPLETED_FILES = "prefetchCompletedFiles";
+  String PREFETCH_COMPLETED_FILES_DESC = "Number of store files prefetched completely.";
+  String PREFETCHED_BYTES = "prefetchedBytes";
+  String PREFETCHED_BYTES_DESC = "Number of bytes read by block prefetches.";
+  String PARALLEL_SEEK_COUNT = "parallelSeekCount";
+  String PARALLEL_SEEK_COUNT_DESC =
+      "Number of scanner seeks whose store file seeks missing the block cache ran in parallel.";
+  String PARALLEL_SEEK_TIME_SAVED = "parallelSeekTimeSaved";
+  String PARALLEL_SEEK_TIME_SAVED_DESC =
+      "Time in milliseconds parallel seeks saved over seeking the store files one after the other.";
   String RS_START_TIME_NAME = "regionServerStartTime";
   String ZOOKEEPER_QUORUM_NAME = "zookeeperQuorum";
   String SERVER_NAME_NAME = "serverName";
@@ -495,6 +533,12 @@ public interface MetricsRegionServerSource extends BaseSource, JvmPauseMonitorSo
   String FLUSH_MEMSTORE_SIZE_DESC = "Histogram for number of bytes in the memstore for a flush";
   String FLUSH_OUTPUT_SIZE = "flushOutputSize";
   String FLUSH_OUTPUT_SIZE_DESC = "Histogram for number of bytes in the resulting file for a flush";
+  String FLUSH_STORES_TIME = "flushStoresTime";
+  String FLUSH_STORES_TIME_DESC =
+      "Histogram for the time in millis to write the memstore snapshots of the stores of a flush";
+  String FLUSH_STORES_CPU_TIME = "flushStoresCpuTime";
+  String FLUSH_STORES_CPU_TIME_DESC = "Histogram for the CPU time in millis of the threads "
+      + "writing the memstore snapshots of the stores of a flush";
   String FLUSHED_OUTPUT_BYTES = "flushedOutputBytes";
   String FLUSHED_OUTPUT_BYTES_DESC = "Total number of bytes written from flush";
   String FLUSHED_MEMSTORE_BYTES = "flushedMemstoreBytes";
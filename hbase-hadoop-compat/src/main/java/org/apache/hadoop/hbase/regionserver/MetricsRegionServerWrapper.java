@@ -292,6 +292,16 @@ public interface MetricsRegionServerWrapper {
    */
   long getBlockCacheFailedInsertions();
 
+  /**
+   * Number of blocks the admission policy let into a full cache.
+   */
+  long getBlockCacheAdmittedCount();
+
+  /**
+   * Number of blocks the admission policy kept out of a full cache.
+   */
+  long getBlockCacheRejectedCount();
+
   /**
    * Hit count of L1 cache.
    */
@@ -332,6 +342,51 @@ public interface MetricsRegionServerWrapper {
    */
   double getL2CacheMissRatio();
 
+  /**
+   * Mean time of an L1 cache eviction run, in microseconds.
+   */
+  double getL1CacheEvictionTimeMean();
+
+  /**
+   * 99th percentile time of an L1 cache eviction run, in microseconds.
+   */
+  double getL1CacheEvictionTime99thPercentile();
+
+  /**
+   * Mean time of an L2 cache eviction run, in microseconds.
+   */
+  double getL2CacheEvictionTimeMean();
+
+  /**
+   * 99th percentile time of an L2 cache eviction run, in microseconds.
+   */
+  double getL2CacheEvictionTime99thPercentile();
+
+  /**
+   * Number of store files whose blocks are waiting to be or being prefetched.
+   */
+  long getPrefetchPendingFiles();
+
+  /**
+   * Number of store files prefetched completely.
+   */
+  long getPrefetchCompletedFiles();
+
+  /**
+   * Number of bytes read by block prefetches.
+   */
+  long getPrefetchedBytes();
+
+  /**
+   * Number of scanner seeks whose store file seeks missing the block cache ran in parallel.
+   */
+  long getParallelSeekCount();
+
+  /**
+   * Time in milliseconds parallel seeks saved over seeking the store files one after the other.
+   */
+  long getParallelSeekTimeSaved();
+
   /**
    * Force a re-computation of the metrics.
    */
@@ -64,6 +64,8 @@ public class MetricsRegionServerSourceImpl
   private final MetricHistogram flushTimeHisto;
   private final MetricHistogram flushMemstoreSizeHisto;
   private final MetricHistogram flushOutputSizeHisto;
+  private final MetricHistogram flushStoresTimeHisto;
+  private final MetricHistogram flushStoresCpuTimeHisto;
   private final MutableFastCounter flushedMemstoreBytes;
   private final MutableFastCounter flushedOutputBytes;
 
@@ -131,6 +133,10 @@ public class MetricsRegionServerSourceImpl
         .newSizeHistogram(FLUSH_MEMSTORE_SIZE, FLUSH_MEMSTORE_SIZE_DESC);
     flushOutputSizeHisto = getMetricsRegistry().newSizeHistogram(FLUSH_OUTPUT_SIZE,
       FLUSH_OUTPUT_SIZE_DESC);
+    flushStoresTimeHisto =
+        getMetricsRegistry().newTimeHistogram(FLUSH_STORES_TIME, FLUSH_STORES_TIME_DESC);
+    flushStoresCpuTimeHisto =
+        getMetricsRegistry().newTimeHistogram(FLUSH_STORES_CPU_TIME, FLUSH_STORES_CPU_TIME_DESC);
     flushedOutputBytes = getMetricsRegistry().newCounter(FLUSHED_OUTPUT_BYTES,
       FLUSHED_OUTPUT_BYTES_DESC, 0L);
     flushedMemstoreBytes = getMetricsRegistry().newCounter(FLUSHED_MEMSTORE_BYTES,
@@ -276,6 +282,12 @@ public class MetricsRegionServerSourceImpl
     flushedOutputBytes.incr(bytes);
   }
 
+  @Override
+  public void updateFlushStoresTime(long t, long cpuTime) {
+    flushStoresTimeHisto.add(t);
+    flushStoresCpuTimeHisto.add(cpuTime);
+  }
+
   @Override
   public void updateCompactionTime(boolean isMajor, long t) {
     compactionTimeHisto.add(t);
@@ -375,6 +387,12 @@ public class MetricsRegionServerSourceImpl
               .addCounter(Interns.info(BLOCK_CACHE_FAILED_INSERTION_COUNT,
                       BLOCK_CACHE_FAILED_INSERTION_COUNT_DESC),
                       rsWrap.getBlockCacheFailedInsertions())
+              .addCounter(Interns.info(BLOCK_CACHE_ADMITTED_COUNT,
+                      BLOCK_CACHE_ADMITTED_COUNT_DESC),
+                      rsWrap.getBlockCacheAdmittedCount())
+              .addCounter(Interns.info(BLOCK_CACHE_REJECTED_COUNT,
+                      BLOCK_CACHE_REJECTED_COUNT_DESC),
+                      rsWrap.getBlockCacheRejectedCount())
               .addCounter(Interns.info(BLOCK_CACHE_DATA_MISS_COUNT, ""),
                       rsWrap.getDataMissCount())
               .addCounter(Interns.info(BLOCK_CACHE_LEAF_INDEX_MISS_COUNT, ""),
@@ -546,6 +564,24 @@ public class MetricsRegionServerSourceImpl
                     rsWrap.getL2CacheHitRatio())
             .addGauge(Interns.info(L2_CACHE_MISS_RATIO, L2_CACHE_MISS_RATIO_DESC),
                     rsWrap.getL2CacheMissRatio())
+            .addGauge(Interns.info(L1_CACHE_EVICTION_TIME_MEAN, L1_CACHE_EVICTION_TIME_MEAN_DESC),
+                    rsWrap.getL1CacheEvictionTimeMean())
+            .addGauge(Interns.info(L1_CACHE_EVICTION_TIME_99TH, L1_CACHE_EVICTION_TIME_99TH_DESC),
+                    rsWrap.getL1CacheEvictionTime99thPercentile())
+            .addGauge(Interns.info(L2_CACHE_EVICTION_TIME_MEAN, L2_CACHE_EVICTION_TIME_MEAN_DESC),
+                    rsWrap.getL2CacheEvictionTimeMean())
+            .addGauge(Interns.info(L2_CACHE_EVICTION_TIME_99TH, L2_CACHE_EVICTION_TIME_99TH_DESC),
+                    rsWrap.getL2CacheEvictionTime99thPercentile())
+            .addGauge(Interns.info(PREFETCH_PENDING_FILES, PREFETCH_PENDING_FILES_DESC),
+                    rsWrap.getPrefetchPendingFiles())
+            .addCounter(Interns.info(PREFETCH_COMPLETED_FILES, PREFETCH_COMPLETED_FILES_DESC),
+                    rsWrap.getPrefetchCompletedFiles())
+            .addCounter(Interns.info(PREFETCHED_BYTES, PREFETCHED_BYTES_DESC),
+                    rsWrap.getPrefetchedBytes())
+            .addCounter(Interns.info(PARALLEL_SEEK_COUNT, PARALLEL_SEEK_COUNT_DESC),
+                    rsWrap.getParallelSeekCount())
+            .addCounter(Interns.info(PARALLEL_SEEK_TIME_SAVED, PARALLEL_SEEK_TIME_SAVED_DESC),
+                    rsWrap.getParallelSeekTimeSaved())
             .addGauge(Interns.info(MOB_FILE_CACHE_COUNT, MOB_FILE_CACHE_COUNT_DESC),
                     rsWrap.getMobFileCacheCount())
             .addGauge(Interns.info(MOB_FILE_CACHE_HIT_PERCENT, MOB_FILE_CACHE_HIT_PERCENT_DESC),
@@ -559,6 +559,12 @@ public class LoadTestTool extends AbstractHBaseTool {
       } else {
         conf.set(BloomFilterUtil.PREFIX_LENGTH_KEY, cmd.getOptionValue(OPT_BLOOM_PARAM));
       }
+    } else if (bloomType == BloomType.ROWPREFIX_DELIMITED) {
+      if (!cmd.hasOption(OPT_BLOOM_PARAM)) {
+        LOG.error("the parameter of bloom filter {} is not specified", bloomType.name());
+      } else {
+        conf.set(BloomFilterUtil.DELIMITER_KEY, cmd.getOptionValue(OPT_BLOOM_PARAM));
+      }
     }
 
     inMemoryCF = cmd.hasOption(OPT_INMEMORY);
@@ -19,6 +19,7 @@
 package org.apache.hadoop.hbase.io.hfile;
 
 import java.util.Iterator;
+import java.util.Optional;
 
 import org.apache.yetus.audience.InterfaceAudience;
 
@@ -55,6 +56,16 @@ public interface BlockCache extends Iterable<CachedBlock> {
   Cacheable getBlock(BlockCacheKey cacheKey, boolean caching, boolean repeat,
     boolean updateCacheMetrics);
 
+  /**
+   * Whether the cache contains the block, without reading it. Caches that cannot tell cheaply
+   * return false.
+   * @param cacheKey cache key for the block
+   * @return true if it contains the block
+   */
+  default boolean containsBlock(BlockCacheKey cacheKey) {
+    return false;
+  }
+
   /**
    * Evict block from cache.
    * @param cacheKey Block to evict
@@ -69,6 +80,15 @@ public interface BlockCache extends Iterable<CachedBlock> {
    */
   int evictBlocksByHfileName(String hfileName);
 
+  /**
+   * Counts the blocks of the given HFile in the cache. Caches that do not keep track of the blocks
+   * by file return 0.
+   * @return the number of blocks of the file in the cache
+   */
+  default int getBlockCountByHfileName(String hfileName) {
+    return 0;
+  }
+
   /**
    * Get the statistics for this block cache.
    * @return Stats
@@ -132,4 +152,38 @@ public interface BlockCache extends Iterable<CachedBlock> {
    * @return The list of sub blockcaches that make up this one; returns null if no sub caches.
    */
   BlockCache [] getBlockCaches();
+
+  /**
+   * Limits the blocks of a partition, see {@link BlockCacheKey#getPartition()}, to a fraction of
+   * the cache. If another owner asks for a larger share of the partition, the larger one is kept,
+   * see {@link BlockCachePartitions}. Caches that do not support partitions ignore this.
+   * @param partition name of the partition
+   * @param owner what asks for the share, replacing the share it asked for before
+   * @param share fraction of the cache the blocks of the partition may take up, 0 or 1 for no
+   *          limit
+   */
+  default void setPartitionShare(String partition, String owner, float share) {
+  }
+
+  /**
+   * Withdraws the share an owner asked for with {@link #setPartitionShare(String, String, float)}.
+   */
+  default void removePartitionShare(String partition, String owner) {
+  }
+
+  /**
+   * @return the cache holding unpacked copies of DATA blocks that this cache keeps compressed, if
+   *         any. Readers look there before unpacking a block they got from this cache.
+   */
+  default Optional<BlockCache> getDecompressedBlockCache() {
+    return Optional.empty();
+  }
+
+  /**
+   * Records an access to a block without reading it, as when a read is served by the cache of
+   * {@link #getDecompressedBlockCache()}, so that the block does not age out of this cache while
+   * it is hot. Does nothing if the block is not cached.
+   */
+  default void touchBlock(BlockCacheKey cacheKey) {
+  }
 }
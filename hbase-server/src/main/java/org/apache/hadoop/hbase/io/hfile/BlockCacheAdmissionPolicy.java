@@ -0,0 +1,49 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Decides whether a block is worth caching when caching it means evicting another one.
+ * <p>
+ * {@link LruBlockCache} and {@link org.apache.hadoop.hbase.io.hfile.bucket.BucketCache} report
+ * every lookup to the policy and consult it before caching a new block, but only once they are
+ * full enough to evict. Blocks cached in-memory bypass the policy. Rejected blocks are not cached
+ * and are counted in {@link CacheStats#getRejectedCount()}.
+ * <p>
+ * Configure an implementation with {@link BlockCacheFactory#BLOCKCACHE_ADMISSION_POLICY_KEY}.
+ * Implementations need a public constructor taking a
+ * {@link org.apache.hadoop.conf.Configuration} and must be thread safe.
+ */
+@InterfaceAudience.Private
+public interface BlockCacheAdmissionPolicy {
+
+  /**
+   * Records a lookup of the block, whether it hit or missed.
+   * @param cacheKey block's cache key
+   */
+  void recordAccess(BlockCacheKey cacheKey);
+
+  /**
+   * @param cacheKey block's cache key
+   * @param block block to cache
+   * @return true if the block should be cached
+   */
+  boolean admit(BlockCacheKey cacheKey, Cacheable block);
+}
@@ -26,6 +26,7 @@ import java.util.concurrent.ForkJoinPool;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.io.hfile.bucket.BucketCache;
+import org.apache.hadoop.hbase.io.hfile.bucket.TieredBucketCache;
 import org.apache.hadoop.hbase.io.util.MemorySizeUtil;
 import org.apache.hadoop.hbase.util.ReflectionUtils;
 import org.apache.hadoop.util.StringUtils;
@@ -48,6 +49,12 @@ public final class BlockCacheFactory {
   public static final String BLOCKCACHE_POLICY_KEY = "hfile.block.cache.policy";
   public static final String BLOCKCACHE_POLICY_DEFAULT = "LRU";
 
+  /**
+   * Class name of the {@link BlockCacheAdmissionPolicy} the LRU and bucket caches consult before
+   * evicting for a new block, e.g. {@link TinyLfuAdmissionPolicy}. Unset, every block is cached.
+   */
+  public static final String BLOCKCACHE_ADMISSION_POLICY_KEY = "hbase.blockcache.admission.policy";
+
   /**
    * If the chosen ioengine can persist its state across restarts, the path to the file to persist
    * to. This file is NOT the data file. It is a file into which we will serialize the map of
@@ -69,12 +76,34 @@ public final class BlockCacheFactory {
    */
   public static final String BUCKET_CACHE_BUCKETS_KEY = "hbase.bucketcache.bucket.sizes";
 
+  /**
+   * IOEngine of an optional second, colder bucket cache tier, e.g. <code>file:/mnt/nvme/bc</code>.
+   * When set, the bucket cache configured by {@link HConstants#BUCKET_CACHE_IOENGINE_KEY} becomes
+   * the hot tier of a {@link TieredBucketCache} and demotes the blocks it evicts to this tier.
+   * {@link #BUCKET_CACHE_PERSISTENT_PATH_KEY} then applies to this tier only.
+   */
+  public static final String BUCKET_CACHE_TIER2_IOENGINE_KEY = "hbase.bucketcache.tier2.ioengine";
+
+  /**
+   * Size in MB of the second bucket cache tier, see {@link #BUCKET_CACHE_TIER2_IOENGINE_KEY}.
+   */
+  public static final String BUCKET_CACHE_TIER2_SIZE_KEY = "hbase.bucketcache.tier2.size";
+
   /**
    * Defaults for Bucket cache
    */
   public static final int DEFAULT_BUCKET_CACHE_WRITER_THREADS = 3;
   public static final int DEFAULT_BUCKET_CACHE_WRITER_QUEUE = 64;
 
+  /**
+   * Fraction of the on-heap block cache given to unpacked copies of DATA blocks when the
+   * BucketCache keeps them compressed, see {@link CacheConfig#CACHE_DATA_BLOCKS_COMPRESSED_KEY}.
+   * Hot blocks then need not be decompressed on every read. 0, the default, disables it.
+   */
+  public static final String BLOCKCACHE_DECOMPRESSED_RATIO_KEY =
+      "hbase.blockcache.decompressed.ratio";
+  public static final float BLOCKCACHE_DECOMPRESSED_RATIO_DEFAULT = 0.0f;
+
   /**
    * The target block size used by blockcache instances. Defaults to
    * {@link HConstants#DEFAULT_BLOCKSIZE}.
@@ -122,16 +151,56 @@ public final class BlockCacheFactory {
           new InclusiveCombinedBlockCache(l1Cache, l2CacheInstance);
     } else {
       // otherwise use the bucket cache.
-      BucketCache bucketCache = createBucketCache(conf);
+      BlockCache bucketCache = createBucketCache(conf);
       if (!conf.getBoolean("hbase.bucketcache.combinedcache.enabled", true)) {
         // Non combined mode is off from 2.0
         LOG.warn(
             "From HBase 2.0 onwards only combined mode of LRU cache and bucket cache is available");
       }
-      return bucketCache == null ? l1Cache : new CombinedBlockCache(l1Cache, bucketCache);
+      if (bucketCache == null) {
+        return l1Cache;
+      }
+      return new CombinedBlockCache(l1Cache, bucketCache,
+          createDecompressedCache(conf, l1Cache));
     }
   }
 
+  /**
+   * Shrinks the l1Cache by the configured fraction and returns a cache of that size for unpacked
+   * DATA blocks, or null if compressed DATA blocks are not cached or no fraction is configured.
+   * @see #BLOCKCACHE_DECOMPRESSED_RATIO_KEY
+   */
+  private static FirstLevelBlockCache createDecompressedCache(Configuration c,
+      FirstLevelBlockCache l1Cache) {
+    float ratio = c.getFloat(BLOCKCACHE_DECOMPRESSED_RATIO_KEY,
+      BLOCKCACHE_DECOMPRESSED_RATIO_DEFAULT);
+    if (ratio <= 0 || !c.getBoolean(CacheConfig.CACHE_DATA_BLOCKS_COMPRESSED_KEY,
+      CacheConfig.DEFAULT_CACHE_DATA_COMPRESSED)) {
+      return null;
+    }
+    if (ratio >= 1) {
+      throw new IllegalArgumentException(
+          BLOCKCACHE_DECOMPRESSED_RATIO_KEY + " must be below 1, not " + ratio);
+    }
+    long cacheSize = l1Cache.getMaxSize();
+    long decompressedSize = (long) (cacheSize * ratio);
+    int blockSize = c.getInt(BLOCKCACHE_BLOCKSIZE_KEY, HConstants.DEFAULT_BLOCKSIZE);
+    LOG.info("Allocating decompressed BlockCache size=" + StringUtils.byteDesc(decompressedSize)
+        + " out of the on-heap BlockCache");
+    l1Cache.setMaxSize(cacheSize - decompressedSize);
+    return new LruBlockCache(decompressedSize, blockSize, true, c);
+  }
+
+  /**
+   * @return a new instance of the configured admission policy, or null if none is configured
+   * @see #BLOCKCACHE_ADMISSION_POLICY_KEY
+   */
+  public static BlockCacheAdmissionPolicy createAdmissionPolicy(Configuration c) {
+    Class<? extends BlockCacheAdmissionPolicy> klass =
+        c.getClass(BLOCKCACHE_ADMISSION_POLICY_KEY, null, BlockCacheAdmissionPolicy.class);
+    return klass == null ? null : ReflectionUtils.newInstance(klass, c);
+  }
+
   private static FirstLevelBlockCache createFirstLevelCache(final Configuration c) {
     final long cacheSize = MemorySizeUtil.getOnHeapCacheSize(c);
     if (cacheSize < 0) {
@@ -200,19 +269,39 @@ public final class BlockCacheFactory {
 
   }
 
-  private static BucketCache createBucketCache(Configuration c) {
+  private static BlockCache createBucketCache(Configuration c) {
     // Check for L2.  ioengine name must be non-null.
     String bucketCacheIOEngineName = c.get(BUCKET_CACHE_IOENGINE_KEY, null);
     if (bucketCacheIOEngineName == null || bucketCacheIOEngineName.length() <= 0) {
       return null;
     }
 
-    int blockSize = c.getInt(BLOCKCACHE_BLOCKSIZE_KEY, HConstants.DEFAULT_BLOCKSIZE);
     final long bucketCacheSize = MemorySizeUtil.getBucketCacheSize(c);
     if (bucketCacheSize <= 0) {
       throw new IllegalStateException("bucketCacheSize <= 0; Check " +
           BUCKET_CACHE_SIZE_KEY + " setting and/or server java heap size");
     }
+    String persistentPath = c.get(BUCKET_CACHE_PERSISTENT_PATH_KEY);
+    String tier2IOEngineName = c.get(BUCKET_CACHE_TIER2_IOENGINE_KEY, null);
+    if (tier2IOEngineName == null || tier2IOEngineName.length() <= 0) {
+      return createBucketCache(c, bucketCacheIOEngineName, bucketCacheSize, persistentPath);
+    }
+    final long tier2Size = (long) (c.getFloat(BUCKET_CACHE_TIER2_SIZE_KEY, 0F) * 1024 * 1024);
+    if (tier2Size <= 0) {
+      throw new IllegalArgumentException("Second bucket cache tier should be minimum 1 MB in "
+          + "size. Configure '" + BUCKET_CACHE_TIER2_SIZE_KEY + "' with > 1 value");
+    }
+    LOG.info("Tiered bucket cache: hot tier {} of {}, cold tier {} of {}", bucketCacheIOEngineName,
+      StringUtils.byteDesc(bucketCacheSize), tier2IOEngineName, StringUtils.byteDesc(tier2Size));
+    BucketCache hotCache = createBucketCache(c, bucketCacheIOEngineName, bucketCacheSize, null);
+    BucketCache coldCache = createBucketCache(c, tier2IOEngineName, tier2Size, persistentPath);
+    return new TieredBucketCache(hotCache, coldCache, c.getInt(
+      TieredBucketCache.PROMOTION_HITS_KEY, TieredBucketCache.DEFAULT_PROMOTION_HITS));
+  }
+
+  private static BucketCache createBucketCache(Configuration c, String bucketCacheIOEngineName,
+      long bucketCacheSize, String persistentPath) {
+    int blockSize = c.getInt(BLOCKCACHE_BLOCKSIZE_KEY, HConstants.DEFAULT_BLOCKSIZE);
     if (c.get("hbase.bucketcache.percentage.in.combinedcache") != null) {
       LOG.warn("Configuration 'hbase.bucketcache.percentage.in.combinedcache' is no longer "
           + "respected. See comments in http://hbase.apache.org/book.html#_changes_of_note");
@@ -221,7 +310,6 @@ public final class BlockCacheFactory {
         DEFAULT_BUCKET_CACHE_WRITER_THREADS);
     int writerQueueLen = c.getInt(BUCKET_CACHE_WRITER_QUEUE_KEY,
         DEFAULT_BUCKET_CACHE_WRITER_QUEUE);
-    String persistentPath = c.get(BUCKET_CACHE_PERSISTENT_PATH_KEY);
     String[] configuredBucketSizes = c.getStrings(BUCKET_CACHE_BUCKETS_KEY);
     int [] bucketSizes = null;
     if (configuredBucketSizes != null) {
@@ -32,6 +32,7 @@ public class BlockCacheKey implements HeapSize, java.io.Serializable {
   private final long offset;
   private final BlockType blockType;
   private final boolean isPrimaryReplicaBlock;
+  private final String partition;
 
   /**
    * Construct a new BlockCacheKey
@@ -43,10 +44,25 @@ public class BlockCacheKey implements HeapSize, java.io.Serializable {
   }
 
   public BlockCacheKey(String hfileName, long offset, boolean isPrimaryReplica, BlockType blockType) {
+    this(hfileName, offset, isPrimaryReplica, blockType, null);
+  }
+
+  /**
+   * Construct a new BlockCacheKey
+   * @param hfileName The name of the HFile this block belongs to.
+   * @param offset Offset of the block into the file
+   * @param isPrimaryReplica Whether the block belongs to a primary replica
+   * @param blockType Type of the block
+   * @param partition Block cache partition of the block, or null. It is not part of the identity
+   *          of the key.
+   */
+  public BlockCacheKey(String hfileName, long offset, boolean isPrimaryReplica,
+      BlockType blockType, String partition) {
     this.isPrimaryReplicaBlock = isPrimaryReplica;
     this.hfileName = hfileName;
     this.offset = offset;
     this.blockType = blockType;
+    this.partition = partition;
   }
 
   @Override
@@ -76,6 +92,7 @@ public class BlockCacheKey implements HeapSize, java.io.Serializable {
       Bytes.SIZEOF_BOOLEAN +
       ClassSize.REFERENCE + // this.hfileName
       ClassSize.REFERENCE + // this.blockType
+      ClassSize.REFERENCE + // this.partition
       Bytes.SIZEOF_LONG);    // this.offset
 
   /**
@@ -107,4 +124,11 @@ public class BlockCacheKey implements HeapSize, java.io.Serializable {
   public BlockType getBlockType() {
     return blockType;
   }
+
+  /**
+   * @return the block cache partition of the block, or null if it has none
+   */
+  public String getPartition() {
+    return partition;
+  }
 }
@@ -0,0 +1,151 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Tracks how much of a block cache each named partition takes up, and how much it may take up.
+ * <p>
+ * A partition is named by the column families whose blocks belong to it, see
+ * {@link BlockCacheKey#getPartition()}. Its share is a fraction of the cache capacity. Blocks
+ * without a partition, and partitions without a share, are not limited.
+ * <p>
+ * Every store of a family naming a partition asks for its share when it opens, and withdraws it
+ * when it closes. When the open stores of a partition ask for different shares, the largest one
+ * wins, whatever order they open in, so that no family gets less of the cache than it asked for.
+ * A share lowered by altering the families applies once their regions have reopened.
+ */
+@InterfaceAudience.Private
+public class BlockCachePartitions {
+
+  private final ConcurrentMap<String, Float> shares = new ConcurrentHashMap<>();
+  /** The shares asked for by the owners of each partition, shares holds the largest */
+  private final Map<String, Map<String, Float>> requests = new HashMap<>();
+  private final ConcurrentMap<String, LongAdder> sizes = new ConcurrentHashMap<>();
+
+  /**
+   * Records the share an owner asks for the partition, replacing the one it asked for before. The
+   * partition gets the largest share its owners ask for.
+   * @param partition name of the partition
+   * @param owner what asks for the share, typically an open store
+   * @param share fraction of the cache capacity the partition may take up, 0 or 1 to not limit it
+   */
+  public synchronized void setShare(String partition, String owner, float share) {
+    float limit = share <= 0 || share >= 1.0f ? 1.0f : share;
+    requests.computeIfAbsent(partition, p -> new HashMap<>()).put(owner, limit);
+    updateShare(partition);
+  }
+
+  /**
+   * Withdraws the share an owner asked for the partition. The partition is no longer limited once
+   * no owner asks for a share.
+   */
+  public synchronized void removeShare(String partition, String owner) {
+    Map<String, Float> owners = requests.get(partition);
+    if (owners != null && owners.remove(owner) != null) {
+      if (owners.isEmpty()) {
+        requests.remove(partition);
+      }
+      updateShare(partition);
+    }
+  }
+
+  private void updateShare(String partition) {
+    Map<String, Float> owners = requests.get(partition);
+    if (owners == null) {
+      shares.remove(partition);
+    } else {
+      shares.put(partition, Collections.max(owners.values()));
+    }
+  }
+
+  /**
+   * @return the fraction of the cache capacity the partition may take up
+   */
+  public float getShare(String partition) {
+    return shares.getOrDefault(partition, 1.0f);
+  }
+
+  /**
+   * Records that blocks of the partition were cached, or evicted if <code>delta</code> is
+   * negative. Does nothing for a null partition.
+   */
+  public void add(String partition, long delta) {
+    if (partition != null) {
+      sizes.computeIfAbsent(partition, p -> new LongAdder()).add(delta);
+    }
+  }
+
+  /**
+   * @return the size of the blocks of the partition in the cache
+   */
+  public long getSize(String partition) {
+    LongAdder size = sizes.get(partition);
+    return size == null ? 0 : size.sum();
+  }
+
+  /**
+   * @param capacity the size the shares are fractions of
+   * @return true if the partition takes up more than its share of <code>capacity</code>
+   */
+  public boolean isOverShare(String partition, long capacity) {
+    if (partition == null) {
+      return false;
+    }
+    Float share = shares.get(partition);
+    return share != null && share < 1.0f && getSize(partition) > (long) (share * capacity);
+  }
+
+  /**
+   * @param capacity the size the shares are fractions of
+   * @return true if any partition takes up more than its share of <code>capacity</code>
+   */
+  public boolean isAnyOverShare(long capacity) {
+    for (String partition : shares.keySet()) {
+      if (isOverShare(partition, capacity)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Computes what has to be evicted from the partitions over their share of
+   * <code>acceptableSize</code> to bring them back to their share of <code>minSize</code>, the
+   * same hysteresis the caches use for their total size.
+   * @return bytes to free by partition, empty if no partition is over its share
+   */
+  public Map<String, Long> getBytesToFree(long acceptableSize, long minSize) {
+    Map<String, Long> bytesToFree = new HashMap<>();
+    for (Map.Entry<String, Float> entry : shares.entrySet()) {
+      String partition = entry.getKey();
+      if (isOverShare(partition, acceptableSize)) {
+        bytesToFree.put(partition, getSize(partition) - (long) (entry.getValue() * minSize));
+      }
+    }
+    return bytesToFree;
+  }
+}
@@ -0,0 +1,168 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.yetus.audience.InterfaceAudience;
+
+import org.apache.hbase.thirdparty.com.google.common.util.concurrent.MoreExecutors;
+import org.apache.hbase.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Plans the reads of a set of blocks of a file, coalescing blocks close to each other into one
+ * larger read. Used to load the data blocks a batch of gets needs at once, rather than with one
+ * positional read per block.
+ */
+@InterfaceAudience.Private
+public final class BlockReadPlanner {
+
+  /** Largest gap between two blocks still read together, in bytes */
+  public static final String MAX_GAP_KEY = "hbase.hfile.coalesced.read.max.gap";
+  public static final int DEFAULT_MAX_GAP = 64 * 1024;
+
+  /** Largest coalesced read, in bytes. A single larger block is still read. */
+  public static final String MAX_READ_SIZE_KEY = "hbase.hfile.coalesced.read.max.size";
+  public static final int DEFAULT_MAX_READ_SIZE = 1024 * 1024;
+
+  /**
+   * Number of threads shared by all files to issue coalesced reads concurrently, and the
+   * asynchronous reads of {@link HFileBlock.FSReader#readBlockDataAsync(long, long, boolean,
+   * boolean)}
+   */
+  public static final String THREADS_KEY = "hbase.hfile.coalesced.read.threads";
+  public static final int DEFAULT_THREADS = 8;
+
+  /**
+   * Number of reads queued for the pool. A read that does not fit runs on the thread issuing it.
+   */
+  public static final String QUEUE_SIZE_KEY = "hbase.hfile.coalesced.read.queue.size";
+  public static final int DEFAULT_QUEUE_SIZE = 256;
+
+  /**
+   * Runs the reads in the issuing thread when no region server started the pool, e.g. in tools
+   * reading HFiles directly.
+   */
+  private static final ExecutorService DIRECT_EXECUTOR = MoreExecutors.newDirectExecutorService();
+
+  // Shared among all HFiles of the JVM, there may be several region servers in a mini cluster.
+  private static volatile ExecutorService readPool;
+  private static int readPoolUsers = 0;
+
+  /**
+   * Blocks read with one positional read.
+   */
+  static final class Read {
+    final long[] offsets;
+    final int[] onDiskSizes;
+
+    Read(long[] offsets, int[] onDiskSizes) {
+      this.offsets = offsets;
+      this.onDiskSizes = onDiskSizes;
+    }
+
+    long getLength() {
+      int last = offsets.length - 1;
+      return offsets[last] + onDiskSizes[last] - offsets[0];
+    }
+  }
+
+  private BlockReadPlanner() {
+  }
+
+  /**
+   * Starts the read pool, configured by the given configuration if it is not running yet. Every
+   * call must be matched by a call to {@link #shutdownReadPool()}.
+   */
+  public static synchronized void startReadPool(Configuration conf) {
+    if (readPoolUsers++ > 0) {
+      return;
+    }
+    int threads = conf.getInt(THREADS_KEY, DEFAULT_THREADS);
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(conf.getInt(QUEUE_SIZE_KEY, DEFAULT_QUEUE_SIZE)),
+        new ThreadFactoryBuilder().setNameFormat("hfile-block-read-%d").setDaemon(true).build(),
+        // Also after shutdown, a dropped task would leave its reader waiting forever.
+        (task, executor) -> task.run());
+    pool.allowCoreThreadTimeOut(true);
+    readPool = pool;
+  }
+
+  /**
+   * Shuts the read pool down once every user that started it is done with it.
+   */
+  public static synchronized void shutdownReadPool() {
+    if (readPoolUsers == 0 || --readPoolUsers > 0) {
+      return;
+    }
+    readPool.shutdown();
+    readPool = null;
+  }
+
+  /**
+   * @return the pool coalesced and asynchronous reads are issued on
+   */
+  static ExecutorService getReadPool() {
+    ExecutorService pool = readPool;
+    return pool != null ? pool : DIRECT_EXECUTOR;
+  }
+
+  /**
+   * Groups blocks into reads. A block joins the read of the blocks before it if the gap between
+   * them is at most <code>maxGap</code> and the read stays within <code>maxReadSize</code>.
+   * @param blocks on-disk sizes of the blocks, by offset
+   */
+  static List<Read> plan(SortedMap<Long, Integer> blocks, long maxGap, long maxReadSize) {
+    List<Read> reads = new ArrayList<>();
+    List<Long> offsets = new ArrayList<>();
+    List<Integer> sizes = new ArrayList<>();
+    long start = -1;
+    long end = -1;
+    for (Map.Entry<Long, Integer> block : blocks.entrySet()) {
+      long offset = block.getKey();
+      long blockEnd = offset + block.getValue();
+      if (!offsets.isEmpty() && (offset - end > maxGap || blockEnd - start > maxReadSize)) {
+        reads.add(toRead(offsets, sizes));
+        offsets.clear();
+        sizes.clear();
+      }
+      if (offsets.isEmpty()) {
+        start = offset;
+      }
+      offsets.add(offset);
+      sizes.add(block.getValue());
+      end = blockEnd;
+    }
+    if (!offsets.isEmpty()) {
+      reads.add(toRead(offsets, sizes));
+    }
+    return reads;
+  }
+
+  private static Read toRead(List<Long> offsets, List<Integer> sizes) {
+    return new Read(offsets.stream().mapToLong(Long::longValue).toArray(),
+        sizes.stream().mapToInt(Integer::intValue).toArray());
+  }
+}
@@ -126,6 +126,9 @@ public class CacheConfig {
 
   private final boolean dropBehindCompaction;
 
+  /** Block cache partition of the blocks of this HFile, or null */
+  private final String blockCachePartition;
+
   // Local reference to the block cache
   private final BlockCache blockCache;
 
@@ -176,6 +179,7 @@ public class CacheConfig {
         (family == null ? false : family.isPrefetchBlocksOnOpen());
     this.blockCache = blockCache;
     this.byteBuffAllocator = byteBuffAllocator;
+    this.blockCachePartition = family == null ? null : family.getBlockCachePartition();
     LOG.info("Created cacheConfig: " + this + (family == null ? "" : " for family " + family) +
         " with blockCache=" + blockCache);
   }
@@ -196,6 +200,7 @@ public class CacheConfig {
     this.dropBehindCompaction = cacheConf.dropBehindCompaction;
     this.blockCache = cacheConf.blockCache;
     this.byteBuffAllocator = cacheConf.byteBuffAllocator;
+    this.blockCachePartition = cacheConf.blockCachePartition;
   }
 
   private CacheConfig() {
@@ -210,6 +215,7 @@ public class CacheConfig {
     this.dropBehindCompaction = false;
     this.blockCache = null;
     this.byteBuffAllocator = ByteBuffAllocator.HEAP;
+    this.blockCachePartition = null;
   }
 
   /**
@@ -235,6 +241,13 @@ public class CacheConfig {
         (prefetchOnOpen && (category != BlockCategory.META && category != BlockCategory.UNKNOWN));
   }
 
+  /**
+   * @return the block cache partition of the blocks of this HFile, or null if it has none
+   */
+  public String getBlockCachePartition() {
+    return this.blockCachePartition;
+  }
+
   /**
    * @return true if blocks in this file should be flagged as in-memory
    */
@@ -381,6 +394,7 @@ public class CacheConfig {
         + shouldCacheDataOnWrite() + ", cacheIndexesOnWrite=" + shouldCacheIndexesOnWrite()
         + ", cacheBloomsOnWrite=" + shouldCacheBloomsOnWrite() + ", cacheEvictOnClose="
         + shouldEvictOnClose() + ", cacheDataCompressed=" + shouldCacheDataCompressed()
-        + ", prefetchOnOpen=" + shouldPrefetchOnOpen();
+        + ", prefetchOnOpen=" + shouldPrefetchOnOpen() + ", blockCachePartition="
+        + getBlockCachePartition();
   }
 }
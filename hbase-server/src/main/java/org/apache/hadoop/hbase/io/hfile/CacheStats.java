@@ -19,6 +19,10 @@
 package org.apache.hadoop.hbase.io.hfile;
 
 import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 import org.apache.hadoop.hbase.metrics.impl.FastLongHistogram;
@@ -73,6 +77,12 @@ public class CacheStats {
   /** The total number of blocks that were not inserted. */
   private final AtomicLong failedInserts = new AtomicLong(0);
 
+  /** The number of blocks the admission policy let into a full cache */
+  private final LongAdder admittedCount = new LongAdder();
+
+  /** The number of blocks the admission policy kept out of a full cache */
+  private final LongAdder rejectedCount = new LongAdder();
+
   /** Per Block Type Counts */
   private final LongAdder dataMissCount = new LongAdder();
   private final LongAdder leafIndexMissCount = new LongAdder();
@@ -96,6 +106,10 @@ public class CacheStats {
   private final LongAdder deleteFamilyBloomHitCount = new LongAdder();
   private final LongAdder trailerHitCount = new LongAdder();
 
+  /** Hit and miss counts of each block cache partition, see {@link BlockCachePartitions} */
+  private final ConcurrentMap<String, LongAdder> partitionHitCounts = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, LongAdder> partitionMissCounts = new ConcurrentHashMap<>();
+
   /** The number of metrics periods to include in window */
   private final int numPeriodsInWindow;
   /** Hit counts for each period in window */
@@ -120,6 +134,10 @@ public class CacheStats {
    * Keep running age at eviction time
    */
   private FastLongHistogram ageAtEviction;
+  /**
+   * Keep running time spent per eviction, in microseconds
+   */
+  private FastLongHistogram evictionTime;
   private long startTime = System.nanoTime();
 
   public CacheStats(final String name) {
@@ -133,6 +151,7 @@ public class CacheStats {
     this.requestCounts =  new long[numPeriodsInWindow];
     this.requestCachingCounts =  new long[numPeriodsInWindow];
     this.ageAtEviction = new FastLongHistogram();
+    this.evictionTime = new FastLongHistogram();
   }
 
   @Override
@@ -148,6 +167,16 @@ public class CacheStats {
   }
 
 
+  /**
+   * Records a miss, and counts it for the block cache partition too if not null.
+   */
+  public void miss(boolean caching, boolean primary, BlockType type, String partition) {
+    miss(caching, primary, type);
+    if (partition != null) {
+      partitionMissCounts.computeIfAbsent(partition, p -> new LongAdder()).increment();
+    }
+  }
+
   public void miss(boolean caching, boolean primary, BlockType type) {
     missCount.increment();
     if (primary) primaryMissCount.increment();
@@ -194,6 +223,16 @@ public class CacheStats {
     }
   }
 
+  /**
+   * Records a hit, and counts it for the block cache partition too if not null.
+   */
+  public void hit(boolean caching, boolean primary, BlockType type, String partition) {
+    hit(caching, primary, type);
+    if (partition != null) {
+      partitionHitCounts.computeIfAbsent(partition, p -> new LongAdder()).increment();
+    }
+  }
+
   public void hit(boolean caching, boolean primary, BlockType type) {
     hitCount.increment();
     if (primary) primaryHitCount.increment();
@@ -246,6 +285,15 @@ public class CacheStats {
     evictionCount.increment();
   }
 
+  /**
+   * Records an eviction and how long it took.
+   * @param startNanos {@link System#nanoTime()} when the eviction started
+   */
+  public void evict(long startNanos) {
+    evict();
+    this.evictionTime.add((System.nanoTime() - startNanos) / 1000, 1);
+  }
+
   public void evicted(final long t, boolean primary) {
     if (t > this.startTime) {
       this.ageAtEviction.add((t - this.startTime) / BlockCacheUtil.NANOS_PER_SECOND, 1);
@@ -260,6 +308,14 @@ public class CacheStats {
     return failedInserts.incrementAndGet();
   }
 
+  public void admitted() {
+    admittedCount.increment();
+  }
+
+  public void rejected() {
+    rejectedCount.increment();
+  }
+
 
   // All of the counts of misses and hits.
   public long getDataMissCount() {
@@ -440,6 +496,38 @@ public class CacheStats {
     return failedInserts.get();
   }
 
+  public long getAdmittedCount() {
+    return admittedCount.sum();
+  }
+
+  public long getRejectedCount() {
+    return rejectedCount.sum();
+  }
+
+  /**
+   * @return the block cache partitions that were looked up
+   */
+  public Set<String> getPartitions() {
+    Set<String> partitions = new TreeSet<>(partitionHitCounts.keySet());
+    partitions.addAll(partitionMissCounts.keySet());
+    return partitions;
+  }
+
+  public long getPartitionHitCount(String partition) {
+    LongAdder count = partitionHitCounts.get(partition);
+    return count == null ? 0 : count.sum();
+  }
+
+  public long getPartitionMissCount(String partition) {
+    LongAdder count = partitionMissCounts.get(partition);
+    return count == null ? 0 : count.sum();
+  }
+
+  public double getPartitionHitRatio(String partition) {
+    double requestCount = getPartitionHitCount(partition) + getPartitionMissCount(partition);
+    return requestCount == 0 ? 0 : getPartitionHitCount(partition) / requestCount;
+  }
+
   public void rollMetricsPeriod() {
     hitCounts[windowIndex] = getHitCount() - lastHitCount;
     lastHitCount = getHitCount();
@@ -486,6 +574,13 @@ public class CacheStats {
     return new AgeSnapshot(this.ageAtEviction);
   }
 
+  /**
+   * @return snapshot of the time spent per eviction, in microseconds
+   */
+  public AgeSnapshot getEvictionTimeSnapshot() {
+    return new AgeSnapshot(this.evictionTime);
+  }
+
   private static long sum(long[] counts) {
     return Arrays.stream(counts).sum();
   }
@@ -19,6 +19,8 @@
 package org.apache.hadoop.hbase.io.hfile;
 
 import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
 
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.hadoop.hbase.io.HeapSize;
@@ -36,18 +38,38 @@ import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesti
  * first from the smaller l1Cache before looking for the block in the l2Cache.  Blocks evicted
  * from l1Cache are put into the bucket cache.
  * Metrics are the combined size and hits and misses of both caches.
+ * <p>
+ * When the l2Cache keeps DATA blocks compressed, an optional small on-heap cache holds unpacked
+ * copies of the hottest of them, see {@link #getDecompressedBlockCache()}. It is carved out of the
+ * l1Cache budget and is counted in the sizes, but not in the block counts, since its blocks are
+ * also in the l2Cache. Its hits are counted in the combined stats, as reads it serves never reach
+ * the l2Cache. Its misses are not, the lookup in the l2Cache that follows counts them.
  */
 @InterfaceAudience.Private
 public class CombinedBlockCache implements ResizableBlockCache, HeapSize {
   protected final FirstLevelBlockCache l1Cache;
   protected final BlockCache l2Cache;
   protected final CombinedCacheStats combinedCacheStats;
+  private final FirstLevelBlockCache decompressedCache;
+  private final float decompressedRatio;
 
   public CombinedBlockCache(FirstLevelBlockCache l1Cache, BlockCache l2Cache) {
+    this(l1Cache, l2Cache, null);
+  }
+
+  /**
+   * @param decompressedCache cache for unpacked copies of the DATA blocks the l2Cache keeps
+   *          compressed, or null
+   */
+  public CombinedBlockCache(FirstLevelBlockCache l1Cache, BlockCache l2Cache,
+      FirstLevelBlockCache decompressedCache) {
     this.l1Cache = l1Cache;
     this.l2Cache = l2Cache;
+    this.decompressedCache = decompressedCache;
+    this.decompressedRatio = decompressedCache == null ? 0 : (float) decompressedCache.getMaxSize()
+        / (l1Cache.getMaxSize() + decompressedCache.getMaxSize());
     this.combinedCacheStats = new CombinedCacheStats(l1Cache.getStats(),
-        l2Cache.getStats());
+        l2Cache.getStats(), decompressedCache == null ? null : decompressedCache.getStats());
   }
 
   @Override
@@ -56,7 +78,13 @@ public class CombinedBlockCache implements ResizableBlockCache, HeapSize {
     if (l2Cache instanceof HeapSize) {
       l2size = ((HeapSize) l2Cache).heapSize();
     }
-    return l1Cache.heapSize() + l2size;
+    return l1Cache.heapSize() + l2size
+        + (decompressedCache == null ? 0 : decompressedCache.heapSize());
+  }
+
+  @Override
+  public Optional<BlockCache> getDecompressedBlockCache() {
+    return Optional.ofNullable(decompressedCache);
   }
 
   @Override
@@ -86,51 +114,94 @@ public class CombinedBlockCache implements ResizableBlockCache, HeapSize {
         l2Cache.getBlock(cacheKey, caching, repeat, updateCacheMetrics);
   }
 
+  @Override
+  public boolean containsBlock(BlockCacheKey cacheKey) {
+    return l1Cache.containsBlock(cacheKey) || l2Cache.containsBlock(cacheKey);
+  }
+
+  @Override
+  public void touchBlock(BlockCacheKey cacheKey) {
+    // The DATA blocks the decompressed cache holds copies of are in the l2Cache
+    l2Cache.touchBlock(cacheKey);
+  }
+
   @Override
   public boolean evictBlock(BlockCacheKey cacheKey) {
+    if (decompressedCache != null) {
+      decompressedCache.evictBlock(cacheKey);
+    }
     return l1Cache.evictBlock(cacheKey) || l2Cache.evictBlock(cacheKey);
   }
 
   @Override
   public int evictBlocksByHfileName(String hfileName) {
+    if (decompressedCache != null) {
+      decompressedCache.evictBlocksByHfileName(hfileName);
+    }
     return l1Cache.evictBlocksByHfileName(hfileName)
         + l2Cache.evictBlocksByHfileName(hfileName);
   }
 
+  @Override
+  public int getBlockCountByHfileName(String hfileName) {
+    return l1Cache.getBlockCountByHfileName(hfileName)
+        + l2Cache.getBlockCountByHfileName(hfileName);
+  }
+
   @Override
   public CacheStats getStats() {
     return this.combinedCacheStats;
   }
 
+  @Override
+  public void setPartitionShare(String partition, String owner, float share) {
+    l1Cache.setPartitionShare(partition, owner, share);
+    l2Cache.setPartitionShare(partition, owner, share);
+  }
+
+  @Override
+  public void removePartitionShare(String partition, String owner) {
+    l1Cache.removePartitionShare(partition, owner);
+    l2Cache.removePartitionShare(partition, owner);
+  }
+
   @Override
   public void shutdown() {
     l1Cache.shutdown();
     l2Cache.shutdown();
+    if (decompressedCache != null) {
+      decompressedCache.shutdown();
+    }
   }
 
   @Override
   public long size() {
-    return l1Cache.size() + l2Cache.size();
+    return l1Cache.size() + l2Cache.size()
+        + (decompressedCache == null ? 0 : decompressedCache.size());
   }
 
   @Override
   public long getMaxSize() {
-    return l1Cache.getMaxSize() + l2Cache.getMaxSize();
+    return l1Cache.getMaxSize() + l2Cache.getMaxSize()
+        + (decompressedCache == null ? 0 : decompressedCache.getMaxSize());
   }
 
   @Override
   public long getCurrentDataSize() {
-    return l1Cache.getCurrentDataSize() + l2Cache.getCurrentDataSize();
+    return l1Cache.getCurrentDataSize() + l2Cache.getCurrentDataSize()
+        + (decompressedCache == null ? 0 : decompressedCache.getCurrentDataSize());
   }
 
   @Override
   public long getFreeSize() {
-    return l1Cache.getFreeSize() + l2Cache.getFreeSize();
+    return l1Cache.getFreeSize() + l2Cache.getFreeSize()
+        + (decompressedCache == null ? 0 : decompressedCache.getFreeSize());
   }
 
   @Override
   public long getCurrentSize() {
-    return l1Cache.getCurrentSize() + l2Cache.getCurrentSize();
+    return l1Cache.getCurrentSize() + l2Cache.getCurrentSize()
+        + (decompressedCache == null ? 0 : decompressedCache.getCurrentSize());
   }
 
   @Override
@@ -146,11 +217,22 @@ public class CombinedBlockCache implements ResizableBlockCache, HeapSize {
   public static class CombinedCacheStats extends CacheStats {
     private final CacheStats lruCacheStats;
     private final CacheStats bucketCacheStats;
+    private final CacheStats decompressedCacheStats;
+
+    public CombinedCacheStats(CacheStats lbcStats, CacheStats fcStats) {
+      this(lbcStats, fcStats, null);
+    }
 
-    CombinedCacheStats(CacheStats lbcStats, CacheStats fcStats) {
+    /**
+     * @param decompressedStats stats of the cache of unpacked DATA blocks, or null if there is none
+     */
+    public CombinedCacheStats(CacheStats lbcStats, CacheStats fcStats,
+        CacheStats decompressedStats) {
       super("CombinedBlockCache");
       this.lruCacheStats = lbcStats;
       this.bucketCacheStats = fcStats;
+      this.decompressedCacheStats =
+          decompressedStats == null ? new CacheStats("DecompressedBlockCache") : decompressedStats;
     }
 
     public CacheStats getLruCacheStats() {
@@ -163,204 +245,268 @@ public class CombinedBlockCache implements ResizableBlockCache, HeapSize {
 
     @Override
     public long getDataMissCount() {
-      return lruCacheStats.getDataMissCount() + bucketCacheStats.getDataMissCount();
+      return lruCacheStats.getDataMissCount() + bucketCacheStats.getDataMissCount()
+          + decompressedCacheStats.getDataMissCount();
     }
 
     @Override
     public long getLeafIndexMissCount() {
-      return lruCacheStats.getLeafIndexMissCount() + bucketCacheStats.getLeafIndexMissCount();
+      return lruCacheStats.getLeafIndexMissCount() + bucketCacheStats.getLeafIndexMissCount()
+          + decompressedCacheStats.getLeafIndexMissCount();
     }
 
     @Override
     public long getBloomChunkMissCount() {
-      return lruCacheStats.getBloomChunkMissCount() + bucketCacheStats.getBloomChunkMissCount();
+      return lruCacheStats.getBloomChunkMissCount() + bucketCacheStats.getBloomChunkMissCount()
+          + decompressedCacheStats.getBloomChunkMissCount();
     }
 
     @Override
     public long getMetaMissCount() {
-      return lruCacheStats.getMetaMissCount() + bucketCacheStats.getMetaMissCount();
+      return lruCacheStats.getMetaMissCount() + bucketCacheStats.getMetaMissCount()
+          + decompressedCacheStats.getMetaMissCount();
     }
 
     @Override
     public long getRootIndexMissCount() {
-      return lruCacheStats.getRootIndexMissCount() + bucketCacheStats.getRootIndexMissCount();
+      return lruCacheStats.getRootIndexMissCount() + bucketCacheStats.getRootIndexMissCount()
+          + decompressedCacheStats.getRootIndexMissCount();
     }
 
     @Override
     public long getIntermediateIndexMissCount() {
-      return lruCacheStats.getIntermediateIndexMissCount() +
-          bucketCacheStats.getIntermediateIndexMissCount();
+      return lruCacheStats.getIntermediateIndexMissCount()
+          + bucketCacheStats.getIntermediateIndexMissCount()
+          + decompressedCacheStats.getIntermediateIndexMissCount();
     }
 
     @Override
     public long getFileInfoMissCount() {
-      return lruCacheStats.getFileInfoMissCount() + bucketCacheStats.getFileInfoMissCount();
+      return lruCacheStats.getFileInfoMissCount() + bucketCacheStats.getFileInfoMissCount()
+          + decompressedCacheStats.getFileInfoMissCount();
     }
 
     @Override
     public long getGeneralBloomMetaMissCount() {
-      return lruCacheStats.getGeneralBloomMetaMissCount() +
-          bucketCacheStats.getGeneralBloomMetaMissCount();
+      return lruCacheStats.getGeneralBloomMetaMissCount()
+          + bucketCacheStats.getGeneralBloomMetaMissCount()
+          + decompressedCacheStats.getGeneralBloomMetaMissCount();
     }
 
     @Override
     public long getDeleteFamilyBloomMissCount() {
-      return lruCacheStats.getDeleteFamilyBloomMissCount() +
-          bucketCacheStats.getDeleteFamilyBloomMissCount();
+      return lruCacheStats.getDeleteFamilyBloomMissCount()
+          + bucketCacheStats.getDeleteFamilyBloomMissCount()
+          + decompressedCacheStats.getDeleteFamilyBloomMissCount();
     }
 
     @Override
     public long getTrailerMissCount() {
-      return lruCacheStats.getTrailerMissCount() + bucketCacheStats.getTrailerMissCount();
+      return lruCacheStats.getTrailerMissCount() + bucketCacheStats.getTrailerMissCount()
+          + decompressedCacheStats.getTrailerMissCount();
     }
 
     @Override
     public long getDataHitCount() {
-      return lruCacheStats.getDataHitCount() + bucketCacheStats.getDataHitCount();
+      return lruCacheStats.getDataHitCount() + bucketCacheStats.getDataHitCount()
+          + decompressedCacheStats.getDataHitCount();
     }
 
     @Override
     public long getLeafIndexHitCount() {
-      return lruCacheStats.getLeafIndexHitCount() + bucketCacheStats.getLeafIndexHitCount();
+      return lruCacheStats.getLeafIndexHitCount() + bucketCacheStats.getLeafIndexHitCount()
+          + decompressedCacheStats.getLeafIndexHitCount();
     }
 
     @Override
     public long getBloomChunkHitCount() {
-      return lruCacheStats.getBloomChunkHitCount() + bucketCacheStats.getBloomChunkHitCount();
+      return lruCacheStats.getBloomChunkHitCount() + bucketCacheStats.getBloomChunkHitCount()
+          + decompressedCacheStats.getBloomChunkHitCount();
     }
 
     @Override
     public long getMetaHitCount() {
-      return lruCacheStats.getMetaHitCount() + bucketCacheStats.getMetaHitCount();
+      return lruCacheStats.getMetaHitCount() + bucketCacheStats.getMetaHitCount()
+          + decompressedCacheStats.getMetaHitCount();
     }
 
     @Override
     public long getRootIndexHitCount() {
-      return lruCacheStats.getRootIndexHitCount() + bucketCacheStats.getRootIndexHitCount();
+      return lruCacheStats.getRootIndexHitCount() + bucketCacheStats.getRootIndexHitCount()
+          + decompressedCacheStats.getRootIndexHitCount();
     }
 
     @Override
     public long getIntermediateIndexHitCount() {
-      return lruCacheStats.getIntermediateIndexHitCount() +
-          bucketCacheStats.getIntermediateIndexHitCount();
+      return lruCacheStats.getIntermediateIndexHitCount()
+          + bucketCacheStats.getIntermediateIndexHitCount()
+          + decompressedCacheStats.getIntermediateIndexHitCount();
     }
 
     @Override
     public long getFileInfoHitCount() {
-      return lruCacheStats.getFileInfoHitCount() + bucketCacheStats.getFileInfoHitCount();
+      return lruCacheStats.getFileInfoHitCount() + bucketCacheStats.getFileInfoHitCount()
+          + decompressedCacheStats.getFileInfoHitCount();
     }
 
     @Override
     public long getGeneralBloomMetaHitCount() {
-      return lruCacheStats.getGeneralBloomMetaHitCount() +
-          bucketCacheStats.getGeneralBloomMetaHitCount();
+      return lruCacheStats.getGeneralBloomMetaHitCount()
+          + bucketCacheStats.getGeneralBloomMetaHitCount()
+          + decompressedCacheStats.getGeneralBloomMetaHitCount();
     }
 
     @Override
     public long getDeleteFamilyBloomHitCount() {
-      return lruCacheStats.getDeleteFamilyBloomHitCount() +
-          bucketCacheStats.getDeleteFamilyBloomHitCount();
+      return lruCacheStats.getDeleteFamilyBloomHitCount()
+          + bucketCacheStats.getDeleteFamilyBloomHitCount()
+          + decompressedCacheStats.getDeleteFamilyBloomHitCount();
     }
 
     @Override
     public long getTrailerHitCount() {
-      return lruCacheStats.getTrailerHitCount() + bucketCacheStats.getTrailerHitCount();
+      return lruCacheStats.getTrailerHitCount() + bucketCacheStats.getTrailerHitCount()
+          + decompressedCacheStats.getTrailerHitCount();
     }
 
     @Override
     public long getRequestCount() {
-      return lruCacheStats.getRequestCount()
-          + bucketCacheStats.getRequestCount();
+      return lruCacheStats.getRequestCount() + bucketCacheStats.getRequestCount()
+          + decompressedCacheStats.getRequestCount();
     }
 
     @Override
     public long getRequestCachingCount() {
-      return lruCacheStats.getRequestCachingCount()
-          + bucketCacheStats.getRequestCachingCount();
+      return lruCacheStats.getRequestCachingCount() + bucketCacheStats.getRequestCachingCount()
+          + decompressedCacheStats.getRequestCachingCount();
     }
 
     @Override
     public long getMissCount() {
-      return lruCacheStats.getMissCount() + bucketCacheStats.getMissCount();
+      return lruCacheStats.getMissCount() + bucketCacheStats.getMissCount()
+          + decompressedCacheStats.getMissCount();
     }
 
     @Override
     public long getPrimaryMissCount() {
-      return lruCacheStats.getPrimaryMissCount() + bucketCacheStats.getPrimaryMissCount();
+      return lruCacheStats.getPrimaryMissCount() + bucketCacheStats.getPrimaryMissCount()
+          + decompressedCacheStats.getPrimaryMissCount();
     }
 
     @Override
     public long getMissCachingCount() {
-      return lruCacheStats.getMissCachingCount()
-          + bucketCacheStats.getMissCachingCount();
+      return lruCacheStats.getMissCachingCount() + bucketCacheStats.getMissCachingCount()
+          + decompressedCacheStats.getMissCachingCount();
     }
 
     @Override
     public long getHitCount() {
-      return lruCacheStats.getHitCount() + bucketCacheStats.getHitCount();
+      return lruCacheStats.getHitCount() + bucketCacheStats.getHitCount()
+          + decompressedCacheStats.getHitCount();
     }
 
     @Override
     public long getPrimaryHitCount() {
-      return lruCacheStats.getPrimaryHitCount() + bucketCacheStats.getPrimaryHitCount();
+      return lruCacheStats.getPrimaryHitCount() + bucketCacheStats.getPrimaryHitCount()
+          + decompressedCacheStats.getPrimaryHitCount();
     }
     @Override
     public long getHitCachingCount() {
-      return lruCacheStats.getHitCachingCount()
-          + bucketCacheStats.getHitCachingCount();
+      return lruCacheStats.getHitCachingCount() + bucketCacheStats.getHitCachingCount()
+          + decompressedCacheStats.getHitCachingCount();
     }
 
     @Override
     public long getEvictionCount() {
-      return lruCacheStats.getEvictionCount()
-          + bucketCacheStats.getEvictionCount();
+      return lruCacheStats.getEvictionCount() + bucketCacheStats.getEvictionCount()
+          + decompressedCacheStats.getEvictionCount();
     }
 
     @Override
     public long getEvictedCount() {
-      return lruCacheStats.getEvictedCount()
-          + bucketCacheStats.getEvictedCount();
+      return lruCacheStats.getEvictedCount() + bucketCacheStats.getEvictedCount()
+          + decompressedCacheStats.getEvictedCount();
     }
 
     @Override
     public long getPrimaryEvictedCount() {
-      return lruCacheStats.getPrimaryEvictedCount()
-          + bucketCacheStats.getPrimaryEvictedCount();
+      return lruCacheStats.getPrimaryEvictedCount() + bucketCacheStats.getPrimaryEvictedCount()
+          + decompressedCacheStats.getPrimaryEvictedCount();
     }
 
     @Override
     public void rollMetricsPeriod() {
       lruCacheStats.rollMetricsPeriod();
       bucketCacheStats.rollMetricsPeriod();
+      decompressedCacheStats.rollMetricsPeriod();
     }
 
     @Override
     public long getFailedInserts() {
-      return lruCacheStats.getFailedInserts() + bucketCacheStats.getFailedInserts();
+      return lruCacheStats.getFailedInserts() + bucketCacheStats.getFailedInserts()
+          + decompressedCacheStats.getFailedInserts();
+    }
+
+    @Override
+    public long getAdmittedCount() {
+      return lruCacheStats.getAdmittedCount() + bucketCacheStats.getAdmittedCount()
+          + decompressedCacheStats.getAdmittedCount();
+    }
+
+    @Override
+    public long getRejectedCount() {
+      return lruCacheStats.getRejectedCount() + bucketCacheStats.getRejectedCount()
+          + decompressedCacheStats.getRejectedCount();
+    }
+
+    @Override
+    public Set<String> getPartitions() {
+      Set<String> partitions = lruCacheStats.getPartitions();
+      partitions.addAll(bucketCacheStats.getPartitions());
+      partitions.addAll(decompressedCacheStats.getPartitions());
+      return partitions;
+    }
+
+    @Override
+    public long getPartitionHitCount(String partition) {
+      return lruCacheStats.getPartitionHitCount(partition)
+          + bucketCacheStats.getPartitionHitCount(partition)
+          + decompressedCacheStats.getPartitionHitCount(partition);
+    }
+
+    @Override
+    public long getPartitionMissCount(String partition) {
+      return lruCacheStats.getPartitionMissCount(partition)
+          + bucketCacheStats.getPartitionMissCount(partition)
+          + decompressedCacheStats.getPartitionMissCount(partition);
     }
 
     @Override
     public long getSumHitCountsPastNPeriods() {
       return lruCacheStats.getSumHitCountsPastNPeriods()
-          + bucketCacheStats.getSumHitCountsPastNPeriods();
+          + bucketCacheStats.getSumHitCountsPastNPeriods()
+          + decompressedCacheStats.getSumHitCountsPastNPeriods();
     }
 
     @Override
     public long getSumRequestCountsPastNPeriods() {
       return lruCacheStats.getSumRequestCountsPastNPeriods()
-          + bucketCacheStats.getSumRequestCountsPastNPeriods();
+          + bucketCacheStats.getSumRequestCountsPastNPeriods()
+          + decompressedCacheStats.getSumRequestCountsPastNPeriods();
     }
 
     @Override
     public long getSumHitCachingCountsPastNPeriods() {
       return lruCacheStats.getSumHitCachingCountsPastNPeriods()
-          + bucketCacheStats.getSumHitCachingCountsPastNPeriods();
+          + bucketCacheStats.getSumHitCachingCountsPastNPeriods()
+          + decompressedCacheStats.getSumHitCachingCountsPastNPeriods();
     }
 
     @Override
     public long getSumRequestCachingCountsPastNPeriods() {
       return lruCacheStats.getSumRequestCachingCountsPastNPeriods()
-          + bucketCacheStats.getSumRequestCachingCountsPastNPeriods();
+          + bucketCacheStats.getSumRequestCachingCountsPastNPeriods()
+          + decompressedCacheStats.getSumRequestCachingCountsPastNPeriods();
     }
   }
 
@@ -376,7 +522,13 @@ public class CombinedBlockCache implements ResizableBlockCache, HeapSize {
 
   @Override
   public void setMaxSize(long size) {
-    this.l1Cache.setMaxSize(size);
+    if (decompressedCache == null) {
+      this.l1Cache.setMaxSize(size);
+    } else {
+      long decompressedSize = (long) (size * decompressedRatio);
+      this.l1Cache.setMaxSize(size - decompressedSize);
+      this.decompressedCache.setMaxSize(decompressedSize);
+    }
   }
 
   @VisibleForTesting
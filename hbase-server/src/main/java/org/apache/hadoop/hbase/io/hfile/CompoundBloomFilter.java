@@ -30,6 +30,7 @@ import org.apache.hadoop.hbase.util.BloomFilter;
 import org.apache.hadoop.hbase.util.BloomFilterUtil;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Hash;
+import org.apache.hadoop.hbase.util.XorFilterChunk;
 
 /**
  * A Bloom filter implementation built on top of 
@@ -63,7 +64,16 @@ public class CompoundBloomFilter extends CompoundBloomFilterBase
    */
   public CompoundBloomFilter(DataInput meta, HFile.Reader reader)
       throws IOException {
+    this(meta, reader, VERSION);
+  }
+
+  /**
+   * @param version the version the filter was written with, which tells what its chunks are
+   */
+  public CompoundBloomFilter(DataInput meta, HFile.Reader reader, int version)
+      throws IOException {
     this.reader = reader;
+    this.version = version;
 
     totalByteSize = meta.readLong();
     hashCount = meta.readInt();
@@ -102,8 +112,14 @@ public class CompoundBloomFilter extends CompoundBloomFilterBase
     HFileBlock bloomBlock = getBloomBlock(block);
     try {
       ByteBuff bloomBuf = bloomBlock.getBufferReadOnly();
-      result = BloomFilterUtil.contains(key, keyOffset, keyLength, bloomBuf,
-          bloomBlock.headerSize(), bloomBlock.getUncompressedSizeWithoutHeader(), hash, hashCount);
+      if (isXor()) {
+        result = XorFilterChunk.contains(key, keyOffset, keyLength, bloomBuf,
+          bloomBlock.headerSize(), hash, hashCount);
+      } else {
+        result = BloomFilterUtil.contains(key, keyOffset, keyLength, bloomBuf,
+          bloomBlock.headerSize(), bloomBlock.getUncompressedSizeWithoutHeader(), hash, hashCount,
+          isBlocked());
+      }
     } finally {
       // After the use, should release the block to deallocate byte buffers.
       bloomBlock.release();
@@ -143,8 +159,13 @@ public class CompoundBloomFilter extends CompoundBloomFilterBase
     HFileBlock bloomBlock = getBloomBlock(block);
     try {
       ByteBuff bloomBuf = bloomBlock.getBufferReadOnly();
-      result = BloomFilterUtil.contains(keyCell, bloomBuf, bloomBlock.headerSize(),
-        bloomBlock.getUncompressedSizeWithoutHeader(), hash, hashCount, type);
+      if (isXor()) {
+        result = XorFilterChunk.contains(keyCell, bloomBuf, bloomBlock.headerSize(), hash,
+          hashCount, type);
+      } else {
+        result = BloomFilterUtil.contains(keyCell, bloomBuf, bloomBlock.headerSize(),
+          bloomBlock.getUncompressedSizeWithoutHeader(), hash, hashCount, type, isBlocked());
+      }
     } finally {
       // After the use, should release the block to deallocate the byte buffers.
       bloomBlock.release();
@@ -40,6 +40,20 @@ public class CompoundBloomFilterBase implements BloomFilterBase {
    */
   public static final int VERSION = 3;
 
+  /**
+   * The version of blocked Bloom filters, whose chunks keep all the bits of a key in one block,
+   * see {@link org.apache.hadoop.hbase.util.BloomFilterUtil#BLOOM_BLOCK_BYTES}. The metadata is
+   * the same as for {@link #VERSION}.
+   */
+  public static final int BLOCKED_VERSION = 4;
+
+  /**
+   * The version of compound filters whose chunks are binary fuse filters, see
+   * {@link org.apache.hadoop.hbase.util.XorFilterChunk}. The metadata is the same as for
+   * {@link #VERSION}, with the number of fingerprint bits as the hash count.
+   */
+  public static final int XOR_VERSION = 5;
+
   /** Target error rate for configuring the filter and for information */
   protected float errorRate;
 
@@ -52,6 +66,8 @@ public class CompoundBloomFilterBase implements BloomFilterBase {
   protected int hashType;
   /** Comparator used to compare Bloom filter keys */
   protected CellComparator comparator;
+  /** The version of the filter, which tells what its chunks are */
+  protected int version = VERSION;
 
   @Override
   public long getMaxKeys() {
@@ -68,4 +84,18 @@ public class CompoundBloomFilterBase implements BloomFilterBase {
     return totalByteSize;
   }
 
+  public int getVersion() {
+    return version;
+  }
+
+  /** @return true if the chunks are blocked Bloom filters */
+  public boolean isBlocked() {
+    return version == BLOCKED_VERSION;
+  }
+
+  /** @return true if the chunks are binary fuse filters */
+  public boolean isXor() {
+    return version == XOR_VERSION;
+  }
+
 }
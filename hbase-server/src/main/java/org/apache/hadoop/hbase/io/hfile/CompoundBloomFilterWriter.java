@@ -36,6 +36,7 @@ import org.apache.hadoop.hbase.util.BloomFilterChunk;
 import org.apache.hadoop.hbase.util.BloomFilterUtil;
 import org.apache.hadoop.hbase.util.BloomFilterWriter;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.XorFilterChunk;
 import org.apache.hadoop.io.Writable;
 
 /**
@@ -100,8 +101,22 @@ public class CompoundBloomFilterWriter extends CompoundBloomFilterBase
   public CompoundBloomFilterWriter(int chunkByteSizeHint, float errorRate,
       int hashType, int maxFold, boolean cacheOnWrite,
       CellComparator comparator, BloomType bloomType) {
-    chunkByteSize = BloomFilterUtil.computeFoldableByteSize(
-        chunkByteSizeHint * 8L, maxFold);
+    this(chunkByteSizeHint, errorRate, hashType, maxFold, cacheOnWrite, comparator, bloomType,
+        VERSION);
+  }
+
+  /**
+   * @param version
+   *          the version of the filter to write, {@link #VERSION}, {@link #BLOCKED_VERSION} or
+   *          {@link #XOR_VERSION}
+   * @see #CompoundBloomFilterWriter(int, float, int, int, boolean, CellComparator, BloomType)
+   */
+  public CompoundBloomFilterWriter(int chunkByteSizeHint, float errorRate,
+      int hashType, int maxFold, boolean cacheOnWrite,
+      CellComparator comparator, BloomType bloomType, int version) {
+    // Blocked and XOR chunks are sized when they are created
+    chunkByteSize = version != VERSION ? chunkByteSizeHint
+        : BloomFilterUtil.computeFoldableByteSize(chunkByteSizeHint * 8L, maxFold);
 
     this.errorRate = errorRate;
     this.hashType = hashType;
@@ -109,6 +124,7 @@ public class CompoundBloomFilterWriter extends CompoundBloomFilterBase
     this.cacheOnWrite = cacheOnWrite;
     this.comparator = comparator;
     this.bloomType = bloomType;
+    this.version = version;
   }
 
   @Override
@@ -202,10 +218,14 @@ public class CompoundBloomFilterWriter extends CompoundBloomFilterBase
   }
 
   private void allocateNewChunk() {
-    if (prevChunk == null) {
+    if (prevChunk == null && isXor()) {
+      int fingerprintBits = XorFilterChunk.computeFingerprintBits(errorRate);
+      chunk = new XorFilterChunk(hashType, bloomType, fingerprintBits,
+          XorFilterChunk.computeMaxKeys(chunkByteSize, fingerprintBits));
+    } else if (prevChunk == null) {
       // First chunk
       chunk = BloomFilterUtil.createBySize(chunkByteSize, errorRate,
-          hashType, maxFold, bloomType);
+          hashType, maxFold, bloomType, isBlocked());
     } else {
       // Use the same parameters as the last chunk, but a new array and
       // a zero key count.
@@ -258,7 +278,7 @@ public class CompoundBloomFilterWriter extends CompoundBloomFilterBase
      */
     @Override
     public void write(DataOutput out) throws IOException {
-      out.writeInt(VERSION);
+      out.writeInt(version);
 
       out.writeLong(getByteSize());
       out.writeInt(prevChunk.getHashCount());
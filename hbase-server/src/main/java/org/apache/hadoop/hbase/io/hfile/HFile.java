@@ -35,6 +35,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.commons.io.IOUtils;
@@ -492,6 +493,39 @@ public class HFile {
     @VisibleForTesting
     boolean prefetchComplete();
 
+    /**
+     * Reads a block like {@link #readBlock(long, long, boolean, boolean, boolean, boolean,
+     * BlockType, DataBlockEncoding)} with a positional read, but without blocking the calling
+     * thread on a cache miss.
+     * @return a future completed with the block, which the caller has to release, or
+     *         exceptionally if it could not be read
+     */
+    CompletableFuture<HFileBlock> readBlockAsync(long offset, long onDiskBlockSize,
+        boolean cacheBlock, boolean isCompaction, boolean updateCacheMetrics,
+        BlockType expectedBlockType, DataBlockEncoding expectedDataBlockEncoding);
+
+    /**
+     * Tells whether the data block a seek to the given key ends up in is in the block cache, that
+     * is whether the seek is expected to be served without reading from disk. Only the index
+     * blocks on the way are read, from the cache if there.
+     */
+    boolean isDataBlockCached(Cell key) throws IOException;
+
+    /**
+     * Starts loading into the block cache the data block a seek to the given key ends up in, see
+     * {@link #readBlockAsync(long, long, boolean, boolean, boolean, BlockType, DataBlockEncoding)}.
+     * @return a future completed once the block is cached, or exceptionally if it could not be
+     *         read
+     */
+    CompletableFuture<Void> loadDataBlockAsync(Cell key);
+
+    /**
+     * Loads into the block cache the data blocks that may contain the given keys, coalescing
+     * reads of blocks close to each other in the file. Blocks already cached are not read again.
+     * @param keys keys to load the blocks of, in any order
+     */
+    void loadDataBlocks(List<Cell> keys) throws IOException;
+
     /**
      * To close the stream's socket. Note: This can be concurrently called from multiple threads and
      * implementation should take care of thread safety.
@@ -662,6 +696,8 @@ public class HFile {
     static final byte [] COMPARATOR = Bytes.toBytes(RESERVED_PREFIX + "COMPARATOR");
     static final byte [] TAGS_COMPRESSED = Bytes.toBytes(RESERVED_PREFIX + "TAGS_COMPRESSED");
     public static final byte [] MAX_TAGS_LEN = Bytes.toBytes(RESERVED_PREFIX + "MAX_TAGS_LEN");
+    static final byte [] COMPRESSION_DICTIONARY =
+        Bytes.toBytes(RESERVED_PREFIX + "COMPRESSION_DICTIONARY");
     private final SortedMap<byte [], byte []> map = new TreeMap<>(Bytes.BYTES_COMPARATOR);
 
     public FileInfo() {
@@ -26,6 +26,8 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -652,7 +654,7 @@ public class HFileBlock implements Cacheable {
     unpacked.allocateBuffer(); // allocates space for the decompressed block
     boolean succ = false;
     try {
-      HFileBlockDecodingContext ctx = blockType == BlockType.ENCODED_DATA
+      HFileBlockDecodingContext ctx = blockType.isData()
           ? reader.getBlockDecodingContext() : reader.getDefaultBlockDecodingContext();
       // Create a duplicated buffer without the header part.
       ByteBuff dup = this.buf.duplicate();
@@ -1065,6 +1067,15 @@ public class HFileBlock implements Cacheable {
       return output;
     }
 
+    /**
+     * Sets the dictionary to compress the next data blocks with.
+     * @see HFileBlockDefaultEncodingContext#setCompressionDictionary(byte[])
+     */
+    void setDataBlockCompressionDictionary(byte[] dictionary) {
+      ((HFileBlockDefaultEncodingContext) dataBlockEncodingCtx)
+          .setCompressionDictionary(dictionary);
+    }
+
     /**
      * Releases resources used by this writer.
      */
@@ -1323,6 +1334,28 @@ public class HFileBlock implements Cacheable {
     HFileBlock readBlockData(long offset, long onDiskSize, boolean pread, boolean updateMetrics,
         boolean intoHeap) throws IOException;
 
+    /**
+     * Reads a block like {@link #readBlockData(long, long, boolean, boolean, boolean)} with a
+     * positional read, but without blocking the calling thread. The read is issued on the pool
+     * shared by all files, see {@link BlockReadPlanner}.
+     * @return a future completed with the newly read block, or exceptionally if the read failed
+     */
+    CompletableFuture<HFileBlock> readBlockDataAsync(long offset, long onDiskSize,
+        boolean updateMetrics, boolean intoHeap);
+
+    /**
+     * Reads several blocks with a single positional read of the range of the file they span.
+     * Bytes between the blocks are read and dropped.
+     * @param offsets offsets of the blocks in the file, ascending
+     * @param onDiskSizes on-disk sizes of the blocks, including all applicable headers
+     * @param updateMetrics update the metrics or not.
+     * @param intoHeap allocate the blocks' ByteBuffs from JVM heap, see
+     *          {@link #readBlockData(long, long, boolean, boolean, boolean)}
+     * @return the newly read blocks, in the order of <code>offsets</code>
+     */
+    List<HFileBlock> readBlocksData(long[] offsets, int[] onDiskSizes, boolean updateMetrics,
+        boolean intoHeap) throws IOException;
+
     /**
      * Creates a block iterator over the given portion of the {@link HFile}.
      * The iterator returns blocks starting with offset such that offset &lt;=
@@ -1339,7 +1372,7 @@ public class HFileBlock implements Cacheable {
     /** Closes the backing streams */
     void closeStreams() throws IOException;
 
-    /** Get a decoder for {@link BlockType#ENCODED_DATA} blocks from this file. */
+    /** Get a decoder for {@link BlockType#DATA} and {@link BlockType#ENCODED_DATA} blocks. */
     HFileBlockDecodingContext getBlockDecodingContext();
 
     /** Get the default decoder for blocks from this file. */
@@ -1348,6 +1381,12 @@ public class HFileBlock implements Cacheable {
     void setIncludesMemStoreTS(boolean includesMemstoreTS);
     void setDataBlockEncoder(HFileDataBlockEncoder encoder);
 
+    /**
+     * Sets the dictionary the data blocks were compressed with, to be called after
+     * {@link #setDataBlockEncoder(HFileDataBlockEncoder)}.
+     */
+    void setDataBlockCompressionDictionary(byte[] dictionary);
+
     /**
      * To close the stream's socket. Note: This can be concurrently called from multiple threads and
      * implementation should take care of thread safety.
@@ -1612,6 +1651,78 @@ public class HFileBlock implements Cacheable {
       return blk;
     }
 
+    @Override
+    public CompletableFuture<HFileBlock> readBlockDataAsync(long offset, long onDiskSize,
+        boolean updateMetrics, boolean intoHeap) {
+      CompletableFuture<HFileBlock> future = new CompletableFuture<>();
+      try {
+        BlockReadPlanner.getReadPool().execute(() -> {
+          try {
+            future.complete(readBlockData(offset, onDiskSize, true, updateMetrics, intoHeap));
+          } catch (Throwable t) {
+            future.completeExceptionally(t);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        future.completeExceptionally(e);
+      }
+      return future;
+    }
+
+    @Override
+    public List<HFileBlock> readBlocksData(long[] offsets, int[] onDiskSizes,
+        boolean updateMetrics, boolean intoHeap) throws IOException {
+      boolean verifyChecksum = streamWrapper.shouldUseHBaseChecksum();
+      FSDataInputStream is = streamWrapper.getStream(verifyChecksum);
+      boolean checksumSupport = this.fileContext.isUseHBaseChecksum();
+      long start = offsets[0];
+      int length = checkAndGetSizeAsInt(
+        offsets[offsets.length - 1] + onDiskSizes[offsets.length - 1] - start, hdrSize);
+      ByteBuff range = HEAP.allocate(length);
+      List<HFileBlock> blocks = new ArrayList<>(offsets.length);
+      boolean success = false;
+      try {
+        long startTime = System.currentTimeMillis();
+        readAtOffset(is, range, length, false, start, true);
+        if (updateMetrics) {
+          HFile.updateReadLatency(System.currentTimeMillis() - startTime, true);
+        }
+        for (int i = 0; i < offsets.length; i++) {
+          ByteBuff onDiskBlock = allocate(onDiskSizes[i], intoHeap);
+          HFileBlock block = null;
+          try {
+            onDiskBlock.put(0, range, (int) (offsets[i] - start), onDiskSizes[i]);
+            ByteBuff headerBuf = onDiskBlock.duplicate().position(0).limit(hdrSize);
+            verifyOnDiskSizeMatchesHeader(onDiskSizes[i], headerBuf, offsets[i], checksumSupport);
+            if (verifyChecksum && !validateChecksum(offsets[i], onDiskBlock, hdrSize)) {
+              // Read it again on its own, which falls back to HDFS checksums
+              block = readBlockData(offsets[i], onDiskSizes[i], true, updateMetrics, intoHeap);
+              onDiskBlock.release();
+            } else {
+              block = createFromBuff(onDiskBlock, checksumSupport, offsets[i], -1, fileContext,
+                intoHeap ? HEAP : allocator);
+              if (!fileContext.isCompressedOrEncrypted()) {
+                block.sanityCheckUncompressed();
+              }
+            }
+          } finally {
+            if (block == null) {
+              onDiskBlock.release();
+            }
+          }
+          blocks.add(block);
+        }
+        streamWrapper.checksumOk();
+        success = true;
+        return blocks;
+      } finally {
+        range.release();
+        if (!success) {
+          blocks.forEach(HFileBlock::release);
+        }
+      }
+    }
+
     /**
      * @return Check <code>onDiskSizeWithHeaderL</code> size is healthy and then return it as an int
      * @throws IOException
@@ -1806,6 +1917,16 @@ public class HFileBlock implements Cacheable {
       encodedBlockDecodingCtx = encoder.newDataBlockDecodingContext(this.fileContext);
     }
 
+    @Override
+    public void setDataBlockCompressionDictionary(byte[] dictionary) {
+      if (encodedBlockDecodingCtx == defaultDecodingCtx) {
+        // Other blocks are compressed without the dictionary
+        encodedBlockDecodingCtx = new HFileBlockDefaultDecodingContext(fileContext);
+      }
+      ((HFileBlockDefaultDecodingContext) encodedBlockDecodingCtx)
+          .setCompressionDictionary(dictionary);
+    }
+
     @Override
     public HFileBlockDecodingContext getBlockDecodingContext() {
       return this.encodedBlockDecodingCtx;
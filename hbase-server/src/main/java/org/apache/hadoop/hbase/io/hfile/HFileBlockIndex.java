@@ -405,6 +405,42 @@ public class HFileBlockIndex {
       return new BlockWithScanInfo(block, nextIndexedKey);
     }
 
+    /**
+     * Finds the data block a seek to the given key ends up in, like
+     * {@link #loadDataBlockWithScanInfo(Cell, HFileBlock, boolean, boolean, boolean,
+     * DataBlockEncoding)}, but reads index blocks only. A key before the first key of the file is
+     * located in the first data block.
+     * @return the offset and the on-disk size of the data block, or null if the index is empty
+     */
+    public long[] locateDataBlock(Cell key, boolean pread) throws IOException {
+      int rootLevelIndex = Math.max(rootBlockContainingKey(key), 0);
+      if (rootLevelIndex >= blockOffsets.length) {
+        return null;
+      }
+      long currentOffset = blockOffsets[rootLevelIndex];
+      int currentOnDiskSize = blockDataSizes[rootLevelIndex];
+      for (int lookupLevel = 1; lookupLevel < searchTreeLevel; lookupLevel++) {
+        BlockType expectedBlockType = lookupLevel < searchTreeLevel - 1
+            ? BlockType.INTERMEDIATE_INDEX : BlockType.LEAF_INDEX;
+        HFileBlock block = cachingBlockReader.readBlock(currentOffset, currentOnDiskSize, true,
+          pread, false, true, expectedBlockType, null);
+        try {
+          ByteBuff buffer = block.getBufferWithoutHeader();
+          if (locateNonRootIndexEntry(buffer, key, comparator) == -1) {
+            // Before the first key of this index block, so in its first data block
+            int numEntries = buffer.getIntAfterPosition(0);
+            buffer.position(Bytes.SIZEOF_INT * (numEntries + 2)
+                + buffer.getIntAfterPosition(Bytes.SIZEOF_INT));
+          }
+          currentOffset = buffer.getLong();
+          currentOnDiskSize = buffer.getInt();
+        } finally {
+          block.release();
+        }
+      }
+      return new long[] { currentOffset, currentOnDiskSize };
+    }
+
     @Override
     public Cell midkey() throws IOException {
       if (rootCount == 0)
@@ -1105,7 +1141,8 @@ public class HFileBlockIndex {
           cacheConf.getBlockCache().ifPresent(cache -> {
             HFileBlock blockForCaching = blockWriter.getBlockForCaching(cacheConf);
             cache.cacheBlock(new BlockCacheKey(nameForCaching, rootLevelIndexPos, true,
-                blockForCaching.getBlockType()), blockForCaching);
+                blockForCaching.getBlockType(), cacheConf.getBlockCachePartition()),
+                blockForCaching);
           });
         }
       }
@@ -1210,8 +1247,8 @@ public class HFileBlockIndex {
       if (getCacheOnWrite()) {
         cacheConf.getBlockCache().ifPresent(cache -> {
           HFileBlock blockForCaching = blockWriter.getBlockForCaching(cacheConf);
-          cache.cacheBlock(
-              new BlockCacheKey(nameForCaching, beginOffset, true, blockForCaching.getBlockType()),
+          cache.cacheBlock(new BlockCacheKey(nameForCaching, beginOffset, true,
+              blockForCaching.getBlockType(), cacheConf.getBlockCachePartition()),
               blockForCaching);
         });
       }
@@ -19,11 +19,17 @@ package org.apache.hadoop.hbase.io.hfile;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.security.Key;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
@@ -251,6 +257,10 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
     // Read data block encoding algorithm name from file info.
     dataBlockEncoder = HFileDataBlockEncoderImpl.createFromFileInfo(fileInfo);
     fsBlockReader.setDataBlockEncoder(dataBlockEncoder);
+    byte[] compressionDictionary = fileInfo.get(FileInfo.COMPRESSION_DICTIONARY);
+    if (compressionDictionary != null) {
+      fsBlockReader.setDataBlockCompressionDictionary(compressionDictionary);
+    }
 
     // Store all other load-on-open blocks for further consumption.
     HFileBlock b;
@@ -260,54 +270,17 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
 
     // Prefetch file blocks upon open if requested
     if (cacheConf.shouldPrefetchOnOpen()) {
-      PrefetchExecutor.request(path, new Runnable() {
-        @Override
-        public void run() {
-          long offset = 0;
-          long end = 0;
-          try {
-            end = getTrailer().getLoadOnOpenDataOffset();
-            if (LOG.isTraceEnabled()) {
-              LOG.trace("Prefetch start " + getPathOffsetEndStr(path, offset, end));
-            }
-            // Don't use BlockIterator here, because it's designed to read load-on-open section.
-            long onDiskSizeOfNextBlock = -1;
-            while (offset < end) {
-              if (Thread.interrupted()) {
-                break;
-              }
-              // Perhaps we got our block from cache? Unlikely as this may be, if it happens, then
-              // the internal-to-hfileblock thread local which holds the overread that gets the
-              // next header, will not have happened...so, pass in the onDiskSize gotten from the
-              // cached block. This 'optimization' triggers extremely rarely I'd say.
-              HFileBlock block = readBlock(offset, onDiskSizeOfNextBlock, /* cacheBlock= */true,
-                /* pread= */true, false, false, null, null);
-              try {
-                onDiskSizeOfNextBlock = block.getNextBlockOnDiskSize();
-                offset += block.getOnDiskSizeWithHeader();
-              } finally {
-                // Ideally here the readBlock won't find the block in cache. We call this
-                // readBlock so that block data is read from FS and cached in BC. we must call
-                // returnBlock here to decrease the reference count of block.
-                block.release();
-              }
-            }
-          } catch (IOException e) {
-            // IOExceptions are probably due to region closes (relocation, etc.)
-            if (LOG.isTraceEnabled()) {
-              LOG.trace("Prefetch " + getPathOffsetEndStr(path, offset, end), e);
-            }
-          } catch (NullPointerException e) {
-            LOG.warn("Stream moved/closed or prefetch cancelled?" +
-                getPathOffsetEndStr(path, offset, end), e);
-          } catch (Exception e) {
-            // Other exceptions are interesting
-            LOG.warn("Prefetch " + getPathOffsetEndStr(path, offset, end), e);
-          } finally {
-            PrefetchExecutor.complete(path);
-          }
-        }
-      });
+      long[] boundaries = getPrefetchRangeBoundaries(PrefetchExecutor.getPrefetchRanges());
+      List<Runnable> ranges = new ArrayList<>(boundaries.length - 1);
+      for (int i = 0; i + 1 < boundaries.length; i++) {
+        long start = boundaries[i];
+        long end = boundaries[i + 1];
+        ranges.add(() -> prefetchRange(start, end));
+      }
+      // Blocks of the file that survived a restart in a persistent cache mark it as recently hot
+      long priority =
+          cacheConf.getBlockCache().map(cache -> cache.getBlockCountByHfileName(name)).orElse(0);
+      PrefetchExecutor.request(path, priority, ranges);
     }
 
     byte[] tmp = fileInfo.get(FileInfo.MAX_TAGS_LEN);
@@ -325,6 +298,78 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
     return "path=" + path.toString() + ", offset=" + offset + ", end=" + end;
   }
 
+  /**
+   * Splits the blocks before the load-on-open section in up to <code>maxRanges</code> ranges of
+   * about the same size, so that they can be prefetched in parallel. The ranges start at blocks
+   * the root index points to.
+   * @return the offsets the ranges start at, followed by the offset the last one ends at
+   */
+  @VisibleForTesting
+  long[] getPrefetchRangeBoundaries(int maxRanges) {
+    long end = trailer.getLoadOnOpenDataOffset();
+    List<Long> boundaries = new ArrayList<>(maxRanges + 1);
+    boundaries.add(0L);
+    for (int i = 0; i < dataBlockIndexReader.getRootBlockCount()
+        && boundaries.size() < maxRanges; i++) {
+      long offset = dataBlockIndexReader.getRootBlockOffset(i);
+      if (offset < end && offset >= boundaries.size() * end / maxRanges) {
+        boundaries.add(offset);
+      }
+    }
+    boundaries.add(end);
+    return boundaries.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  /**
+   * Reads the blocks in [<code>offset</code>, <code>end</code>) into the block cache.
+   */
+  private void prefetchRange(long offset, long end) {
+    try {
+      if (LOG.isTraceEnabled()) {
+        LOG.trace("Prefetch start " + getPathOffsetEndStr(path, offset, end));
+      }
+      // Don't use BlockIterator here, because it's designed to read load-on-open section.
+      long onDiskSizeOfNextBlock = -1;
+      while (offset < end) {
+        if (Thread.interrupted()) {
+          break;
+        }
+        // Perhaps we got our block from cache? Unlikely as this may be, if it happens, then
+        // the internal-to-hfileblock thread local which holds the overread that gets the
+        // next header, will not have happened...so, pass in the onDiskSize gotten from the
+        // cached block. This 'optimization' triggers extremely rarely I'd say.
+        HFileBlock block = readBlock(offset, onDiskSizeOfNextBlock, /* cacheBlock= */true,
+          /* pread= */true, false, false, null, null);
+        int onDiskSize;
+        try {
+          onDiskSizeOfNextBlock = block.getNextBlockOnDiskSize();
+          onDiskSize = block.getOnDiskSizeWithHeader();
+          offset += onDiskSize;
+        } finally {
+          // Ideally here the readBlock won't find the block in cache. We call this
+          // readBlock so that block data is read from FS and cached in BC. we must call
+          // returnBlock here to decrease the reference count of block.
+          block.release();
+        }
+        PrefetchExecutor.acquire(onDiskSize);
+      }
+    } catch (InterruptedException e) {
+      // Prefetch cancelled
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      // IOExceptions are probably due to region closes (relocation, etc.)
+      if (LOG.isTraceEnabled()) {
+        LOG.trace("Prefetch " + getPathOffsetEndStr(path, offset, end), e);
+      }
+    } catch (NullPointerException e) {
+      LOG.warn("Stream moved/closed or prefetch cancelled?" +
+          getPathOffsetEndStr(path, offset, end), e);
+    } catch (Exception e) {
+      // Other exceptions are interesting
+      LOG.warn("Prefetch " + getPathOffsetEndStr(path, offset, end), e);
+    }
+  }
+
   /**
    * File version check is a little sloppy. We read v3 files but can also read v2 files if their
    * content has been pb'd; files written with 0.98.
@@ -1297,17 +1342,25 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
     // Check cache for block. If found return.
     BlockCache cache = cacheConf.getBlockCache().orElse(null);
     if (cache != null) {
-      HFileBlock cachedBlock =
-          (HFileBlock) cache.getBlock(cacheKey, cacheBlock, useLock, updateCacheMetrics);
-      if (cachedBlock != null) {
-        if (cacheConf.shouldCacheCompressed(cachedBlock.getBlockType().getCategory())) {
+      HFileBlock cachedBlock = getDecompressedCachedBlock(cache, cacheKey, cacheBlock, useLock,
+        updateCacheMetrics, expectedBlockType);
+      if (cachedBlock == null) {
+        cachedBlock =
+            (HFileBlock) cache.getBlock(cacheKey, cacheBlock, useLock, updateCacheMetrics);
+        if (cachedBlock != null
+            && cacheConf.shouldCacheCompressed(cachedBlock.getBlockType().getCategory())) {
           HFileBlock compressedBlock = cachedBlock;
           cachedBlock = compressedBlock.unpack(hfileContext, fsBlockReader);
           // In case of compressed block after unpacking we can release the compressed block
           if (compressedBlock != cachedBlock) {
             compressedBlock.release();
+            if (cacheBlock) {
+              cacheDecompressedBlock(cache, cacheKey, cachedBlock);
+            }
           }
         }
+      }
+      if (cachedBlock != null) {
         validateBlockType(cachedBlock, expectedBlockType);
 
         if (expectedDataBlockEncoding == null) {
@@ -1352,6 +1405,47 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
     return null;
   }
 
+  /**
+   * Looks a DATA block up in the cache of unpacked blocks that sits in front of a block cache
+   * keeping DATA blocks compressed, see {@link BlockCache#getDecompressedBlockCache()}. Only a hit
+   * is counted, a miss is counted by the lookup in the block cache that follows it. A hit counts
+   * as an access to the compressed block too, which is what is left once the unpacked copy ages
+   * out.
+   * @return the unpacked block, or null if there is no such cache or the block is not in it
+   */
+  private HFileBlock getDecompressedCachedBlock(BlockCache cache, BlockCacheKey cacheKey,
+      boolean cacheBlock, boolean useLock, boolean updateCacheMetrics,
+      BlockType expectedBlockType) {
+    if (!cacheConf.shouldCacheCompressed(BlockType.BlockCategory.DATA)
+        || (expectedBlockType != null && !expectedBlockType.isData())) {
+      return null;
+    }
+    BlockCache decompressedCache = cache.getDecompressedBlockCache().orElse(null);
+    if (decompressedCache == null) {
+      return null;
+    }
+    HFileBlock block =
+        (HFileBlock) decompressedCache.getBlock(cacheKey, cacheBlock, useLock, false);
+    if (block != null) {
+      if (updateCacheMetrics) {
+        decompressedCache.getStats().hit(cacheBlock, cacheKey.isPrimary(),
+          cacheKey.getBlockType(), cacheKey.getPartition());
+      }
+      cache.touchBlock(cacheKey);
+    }
+    return block;
+  }
+
+  /**
+   * Keeps an unpacked copy of a DATA block the block cache holds compressed, so that the next
+   * read of it need not decompress it again.
+   */
+  private void cacheDecompressedBlock(BlockCache cache, BlockCacheKey cacheKey,
+      HFileBlock unpacked) {
+    cache.getDecompressedBlockCache()
+        .ifPresent(c -> c.cacheBlock(cacheKey, unpacked, cacheConf.isInMemory()));
+  }
+
   /**
    * @param metaBlockName
    * @param cacheBlock Add block to cache, if found
@@ -1381,8 +1475,8 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
     synchronized (metaBlockIndexReader.getRootBlockKey(block)) {
       // Check cache for block. If found return.
       long metaBlockOffset = metaBlockIndexReader.getRootBlockOffset(block);
-      BlockCacheKey cacheKey =
-          new BlockCacheKey(name, metaBlockOffset, this.isPrimaryReplicaReader(), BlockType.META);
+      BlockCacheKey cacheKey = new BlockCacheKey(name, metaBlockOffset,
+          this.isPrimaryReplicaReader(), BlockType.META, cacheConf.getBlockCachePartition());
 
       cacheBlock &= cacheConf.shouldCacheBlockOnRead(BlockType.META.getCategory());
       HFileBlock cachedBlock =
@@ -1435,16 +1529,7 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
       boolean updateCacheMetrics, BlockType expectedBlockType,
       DataBlockEncoding expectedDataBlockEncoding)
       throws IOException {
-    if (dataBlockIndexReader == null) {
-      throw new IOException(path + " block index not loaded");
-    }
-    long trailerOffset = trailer.getLoadOnOpenDataOffset();
-    if (dataBlockOffset < 0 || dataBlockOffset >= trailerOffset) {
-      throw new IOException("Requested block is out of range: " + dataBlockOffset +
-        ", lastDataBlockOffset: " + trailer.getLastDataBlockOffset() +
-        ", trailer.getLoadOnOpenDataOffset: " + trailerOffset +
-        ", path=" + path);
-    }
+    checkBlockOffset(dataBlockOffset);
     // For any given block from any given file, synchronize reads for said
     // block.
     // Without a cache, this synchronizing is needless overhead, but really
@@ -1452,7 +1537,7 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
     // from doing).
 
     BlockCacheKey cacheKey = new BlockCacheKey(name, dataBlockOffset,
-      this.isPrimaryReplicaReader(), expectedBlockType);
+      this.isPrimaryReplicaReader(), expectedBlockType, cacheConf.getBlockCachePartition());
 
     boolean useLock = false;
     IdLock.Entry lockEntry = null;
@@ -1468,27 +1553,8 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
           HFileBlock cachedBlock = getCachedBlock(cacheKey, cacheBlock, useLock, isCompaction,
             updateCacheMetrics, expectedBlockType, expectedDataBlockEncoding);
           if (cachedBlock != null) {
-            if (LOG.isTraceEnabled()) {
-              LOG.trace("From Cache " + cachedBlock);
-            }
-            TraceUtil.addTimelineAnnotation("blockCacheHit");
-            assert cachedBlock.isUnpacked() : "Packed block leak.";
-            if (cachedBlock.getBlockType().isData()) {
-              if (updateCacheMetrics) {
-                HFile.DATABLOCK_READ_COUNT.increment();
-              }
-              // Validate encoding type for data blocks. We include encoding
-              // type in the cache key, and we expect it to match on a cache hit.
-              if (cachedBlock.getDataBlockEncoding() != dataBlockEncoder.getDataBlockEncoding()) {
-                // Remember to release the block when in exceptional path.
-                cachedBlock.release();
-                throw new IOException("Cached block under key " + cacheKey + " "
-                    + "has wrong encoding: " + cachedBlock.getDataBlockEncoding() + " (expected: "
-                    + dataBlockEncoder.getDataBlockEncoding() + "), path=" + path);
-              }
-            }
             // Cache-hit. Return!
-            return cachedBlock;
+            return checkCachedBlock(cacheKey, cachedBlock, updateCacheMetrics);
           }
 
           if (!useLock && cacheBlock && cacheConf.shouldLockOnCacheMiss(expectedBlockType)) {
@@ -1503,35 +1569,258 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
         // Load block from filesystem.
         HFileBlock hfileBlock = fsBlockReader.readBlockData(dataBlockOffset, onDiskBlockSize, pread,
           !isCompaction, shouldUseHeap(expectedBlockType));
-        validateBlockType(hfileBlock, expectedBlockType);
-        HFileBlock unpacked = hfileBlock.unpack(hfileContext, fsBlockReader);
-        BlockType.BlockCategory category = hfileBlock.getBlockType().getCategory();
-
-        // Cache the block if necessary
-        cacheConf.getBlockCache().ifPresent(cache -> {
-          if (cacheBlock && cacheConf.shouldCacheBlockOnRead(category)) {
-            cache.cacheBlock(cacheKey,
-              cacheConf.shouldCacheCompressed(category) ? hfileBlock : unpacked,
-              cacheConf.isInMemory());
-          }
-        });
-        if (unpacked != hfileBlock) {
-          // End of life here if hfileBlock is an independent block.
-          hfileBlock.release();
+        return onBlockReadFromFs(cacheKey, hfileBlock, cacheBlock, updateCacheMetrics,
+          expectedBlockType);
+      }
+    } finally {
+      if (lockEntry != null) {
+        offsetLock.releaseLockEntry(lockEntry);
+      }
+    }
+  }
+
+  @Override
+  public CompletableFuture<HFileBlock> readBlockAsync(long dataBlockOffset, long onDiskBlockSize,
+      boolean cacheBlock, boolean isCompaction, boolean updateCacheMetrics,
+      BlockType expectedBlockType, DataBlockEncoding expectedDataBlockEncoding) {
+    CompletableFuture<HFileBlock> future = new CompletableFuture<>();
+    BlockCacheKey cacheKey = new BlockCacheKey(name, dataBlockOffset,
+      this.isPrimaryReplicaReader(), expectedBlockType, cacheConf.getBlockCachePartition());
+    try {
+      checkBlockOffset(dataBlockOffset);
+      if (cacheConf.shouldReadBlockFromCache(expectedBlockType)) {
+        HFileBlock cachedBlock = getCachedBlock(cacheKey, cacheBlock, false, isCompaction,
+          updateCacheMetrics, expectedBlockType, expectedDataBlockEncoding);
+        if (cachedBlock != null) {
+          future.complete(checkCachedBlock(cacheKey, cachedBlock, updateCacheMetrics));
+          return future;
         }
-        if (updateCacheMetrics && hfileBlock.getBlockType().isData()) {
-          HFile.DATABLOCK_READ_COUNT.increment();
+      }
+    } catch (IOException e) {
+      future.completeExceptionally(e);
+      return future;
+    }
+    // Unlike readBlock no lock is taken on a miss, at worst a concurrent reader of the same block
+    // reads it too.
+    fsBlockReader.readBlockDataAsync(dataBlockOffset, onDiskBlockSize, !isCompaction,
+      shouldUseHeap(expectedBlockType)).whenComplete((hfileBlock, error) -> {
+        if (error != null) {
+          future.completeExceptionally(error);
+          return;
+        }
+        try {
+          future.complete(onBlockReadFromFs(cacheKey, hfileBlock, cacheBlock, updateCacheMetrics,
+            expectedBlockType));
+        } catch (Throwable t) {
+          future.completeExceptionally(t);
+        }
+      });
+    return future;
+  }
+
+  @Override
+  public boolean isDataBlockCached(Cell key) throws IOException {
+    BlockCache cache = cacheConf.getBlockCache().orElse(null);
+    if (cache == null || dataBlockIndexReader == null || dataBlockIndexReader.isEmpty()) {
+      return false;
+    }
+    long[] block = dataBlockIndexReader.locateDataBlock(key, true);
+    return block != null && cache.containsBlock(newDataBlockCacheKey(block[0]));
+  }
+
+  @Override
+  public CompletableFuture<Void> loadDataBlockAsync(Cell key) {
+    long[] block;
+    try {
+      block = dataBlockIndexReader == null || dataBlockIndexReader.isEmpty() ? null
+          : dataBlockIndexReader.locateDataBlock(key, true);
+    } catch (IOException e) {
+      CompletableFuture<Void> future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+      return future;
+    }
+    if (block == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return readBlockAsync(block[0], block[1], true, false, true, BlockType.DATA,
+      dataBlockEncoder.getEffectiveEncodingInCache(false)).thenAccept(HFileBlock::release);
+  }
+
+  private void checkBlockOffset(long dataBlockOffset) throws IOException {
+    if (dataBlockIndexReader == null) {
+      throw new IOException(path + " block index not loaded");
+    }
+    long trailerOffset = trailer.getLoadOnOpenDataOffset();
+    if (dataBlockOffset < 0 || dataBlockOffset >= trailerOffset) {
+      throw new IOException("Requested block is out of range: " + dataBlockOffset +
+        ", lastDataBlockOffset: " + trailer.getLastDataBlockOffset() +
+        ", trailer.getLoadOnOpenDataOffset: " + trailerOffset +
+        ", path=" + path);
+    }
+  }
+
+  /**
+   * Validates a block found in the block cache.
+   * @return the block, released if it is not valid
+   */
+  private HFileBlock checkCachedBlock(BlockCacheKey cacheKey, HFileBlock cachedBlock,
+      boolean updateCacheMetrics) throws IOException {
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("From Cache " + cachedBlock);
+    }
+    TraceUtil.addTimelineAnnotation("blockCacheHit");
+    assert cachedBlock.isUnpacked() : "Packed block leak.";
+    if (cachedBlock.getBlockType().isData()) {
+      if (updateCacheMetrics) {
+        HFile.DATABLOCK_READ_COUNT.increment();
+      }
+      // Validate encoding type for data blocks. We include encoding
+      // type in the cache key, and we expect it to match on a cache hit.
+      if (cachedBlock.getDataBlockEncoding() != dataBlockEncoder.getDataBlockEncoding()) {
+        // Remember to release the block when in exceptional path.
+        cachedBlock.release();
+        throw new IOException("Cached block under key " + cacheKey + " "
+            + "has wrong encoding: " + cachedBlock.getDataBlockEncoding() + " (expected: "
+            + dataBlockEncoder.getDataBlockEncoding() + "), path=" + path);
+      }
+    }
+    return cachedBlock;
+  }
+
+  /**
+   * Unpacks a block just read from the filesystem and caches it if necessary.
+   * @return the unpacked block
+   */
+  private HFileBlock onBlockReadFromFs(BlockCacheKey cacheKey, HFileBlock hfileBlock,
+      boolean cacheBlock, boolean updateCacheMetrics, BlockType expectedBlockType)
+      throws IOException {
+    HFileBlock unpacked;
+    try {
+      validateBlockType(hfileBlock, expectedBlockType);
+      unpacked = hfileBlock.unpack(hfileContext, fsBlockReader);
+    } catch (IOException e) {
+      hfileBlock.release();
+      throw e;
+    }
+    BlockType.BlockCategory category = hfileBlock.getBlockType().getCategory();
+
+    // Cache the block if necessary
+    cacheConf.getBlockCache().ifPresent(cache -> {
+      if (cacheBlock && cacheConf.shouldCacheBlockOnRead(category)) {
+        cacheBlockFromFs(cache, cacheKey, hfileBlock, unpacked);
+      }
+    });
+    if (unpacked != hfileBlock) {
+      // End of life here if hfileBlock is an independent block.
+      hfileBlock.release();
+    }
+    if (updateCacheMetrics && hfileBlock.getBlockType().isData()) {
+      HFile.DATABLOCK_READ_COUNT.increment();
+    }
+    return unpacked;
+  }
+
+  /**
+   * Caches a block just read from the filesystem, compressed or not depending on the cache
+   * configuration.
+   * @param hfileBlock the block as read
+   * @param unpacked the block unpacked, the same as <code>hfileBlock</code> if not compressed
+   */
+  private void cacheBlockFromFs(BlockCache cache, BlockCacheKey cacheKey, HFileBlock hfileBlock,
+      HFileBlock unpacked) {
+    BlockType.BlockCategory category = hfileBlock.getBlockType().getCategory();
+    cache.cacheBlock(cacheKey, cacheConf.shouldCacheCompressed(category) ? hfileBlock : unpacked,
+      cacheConf.isInMemory());
+    if (cacheConf.shouldCacheCompressed(category) && unpacked != hfileBlock) {
+      cacheDecompressedBlock(cache, cacheKey, unpacked);
+    }
+  }
+
+  @Override
+  public void loadDataBlocks(List<Cell> keys) throws IOException {
+    BlockCache cache = cacheConf.getBlockCache().orElse(null);
+    if (cache == null || keys.size() < 2
+        || !cacheConf.shouldCacheBlockOnRead(BlockType.BlockCategory.DATA)
+        || dataBlockIndexReader == null || dataBlockIndexReader.isEmpty()) {
+      return;
+    }
+    SortedMap<Long, Integer> blocks = new TreeMap<>();
+    for (Cell key : keys) {
+      long[] block = dataBlockIndexReader.locateDataBlock(key, true);
+      if (block == null || blocks.containsKey(block[0])) {
+        continue;
+      }
+      if (!cache.containsBlock(newDataBlockCacheKey(block[0]))) {
+        blocks.put(block[0], (int) block[1]);
+      }
+    }
+    if (blocks.size() < 2) {
+      // Nothing to coalesce, the gets will read the block themselves
+      return;
+    }
+    List<BlockReadPlanner.Read> reads = BlockReadPlanner.plan(blocks,
+      conf.getLong(BlockReadPlanner.MAX_GAP_KEY, BlockReadPlanner.DEFAULT_MAX_GAP),
+      conf.getLong(BlockReadPlanner.MAX_READ_SIZE_KEY, BlockReadPlanner.DEFAULT_MAX_READ_SIZE));
+    List<Future<?>> futures = new ArrayList<>(reads.size());
+    for (BlockReadPlanner.Read read : reads) {
+      if (read.offsets.length == 1) {
+        continue;
+      }
+      futures.add(BlockReadPlanner.getReadPool().submit(() -> {
+        loadDataBlocks(cache, read);
+        return null;
+      }));
+    }
+    IOException error = null;
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        throw (IOException) new InterruptedIOException().initCause(e);
+      } catch (ExecutionException e) {
+        if (error == null) {
+          error = e.getCause() instanceof IOException ? (IOException) e.getCause()
+              : new IOException(e.getCause());
         }
+      }
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
 
-        return unpacked;
+  private void loadDataBlocks(BlockCache cache, BlockReadPlanner.Read read) throws IOException {
+    List<HFileBlock> hfileBlocks = fsBlockReader.readBlocksData(read.offsets, read.onDiskSizes,
+      true, shouldUseHeap(BlockType.DATA));
+    int released = 0;
+    try {
+      for (HFileBlock hfileBlock : hfileBlocks) {
+        try {
+          validateBlockType(hfileBlock, BlockType.DATA);
+          HFileBlock unpacked = hfileBlock.unpack(hfileContext, fsBlockReader);
+          cacheBlockFromFs(cache, newDataBlockCacheKey(hfileBlock.getOffset()), hfileBlock,
+            unpacked);
+          if (unpacked != hfileBlock) {
+            unpacked.release();
+          }
+        } finally {
+          hfileBlock.release();
+          released++;
+        }
       }
     } finally {
-      if (lockEntry != null) {
-        offsetLock.releaseLockEntry(lockEntry);
+      // A block failing validation or unpacking must not leak the buffers of the blocks after it
+      for (int i = released; i < hfileBlocks.size(); i++) {
+        hfileBlocks.get(i).release();
       }
     }
   }
 
+  private BlockCacheKey newDataBlockCacheKey(long offset) {
+    return new BlockCacheKey(name, offset, isPrimaryReplicaReader(), BlockType.DATA,
+        cacheConf.getBlockCachePartition());
+  }
+
   @Override
   public boolean hasMVCCInfo() {
     return includesMemstoreTS && decodeMemstoreTS;
@@ -36,6 +36,7 @@ import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellComparator;
 import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.PrivateCellUtil;
 import org.apache.hadoop.hbase.KeyValueUtil;
 import org.apache.hadoop.hbase.CellComparatorImpl.MetaCellComparator;
@@ -72,6 +73,23 @@ public class HFileWriterImpl implements HFile.Writer {
   /** Block size limit after encoding, used to unify encoded block Cache entry size*/
   private final int encodedBlockSizeLimit;
 
+  /**
+   * Size of the dictionary to compress data blocks with, trained from the first cells of each
+   * file. 0, the default, to compress without one. Only used by compression algorithms with a
+   * block codec, and limited by the window of the algorithm, 64KB for LZ4. Can be set per column
+   * family.
+   */
+  public static final String COMPRESSION_DICTIONARY_SIZE_KEY =
+      "hbase.hfile.compression.dictionary.size";
+
+  /**
+   * Copies of the first cells, held back until there are enough of them to train the compression
+   * dictionary, or null if there is no dictionary to train.
+   */
+  private List<KeyValue> dictionarySamples;
+  private int dictionarySampleSize;
+  private final int dictionarySize;
+
   /** The Cell previously appended. Becomes the last cell in the file.*/
   protected Cell lastCell = null;
 
@@ -185,6 +203,14 @@ public class HFileWriterImpl implements HFile.Writer {
     this.cacheConf = cacheConf;
     float encodeBlockSizeRatio = conf.getFloat(UNIFIED_ENCODED_BLOCKSIZE_RATIO, 1f);
     this.encodedBlockSizeLimit = (int)(hFileContext.getBlocksize() * encodeBlockSizeRatio);
+    if (hFileContext.getCompression().getBlockCodec() != null) {
+      this.dictionarySize = conf.getInt(COMPRESSION_DICTIONARY_SIZE_KEY, 0);
+    } else {
+      this.dictionarySize = 0;
+    }
+    if (dictionarySize > 0) {
+      this.dictionarySamples = new ArrayList<>();
+    }
     finishInit(conf);
     if (LOG.isTraceEnabled()) {
       LOG.trace("Writer" + (path != null ? " for " + path : "") +
@@ -546,8 +572,8 @@ public class HFileWriterImpl implements HFile.Writer {
   private void doCacheOnWrite(long offset) {
     cacheConf.getBlockCache().ifPresent(cache -> {
       HFileBlock cacheFormatBlock = blockWriter.getBlockForCaching(cacheConf);
-      cache.cacheBlock(new BlockCacheKey(name, offset, true, cacheFormatBlock.getBlockType()),
-          cacheFormatBlock);
+      cache.cacheBlock(new BlockCacheKey(name, offset, true, cacheFormatBlock.getBlockType(),
+          cacheConf.getBlockCachePartition()), cacheFormatBlock);
     });
   }
 
@@ -597,6 +623,10 @@ public class HFileWriterImpl implements HFile.Writer {
     if (outputStream == null) {
       return;
     }
+    if (dictionarySamples != null) {
+      // Fewer cells than the dictionary size, trained from all of them
+      trainCompressionDictionary();
+    }
     // Save data block encoder metadata in the file info.
     blockEncoder.saveMetadata(this);
     // Write out the end of the data blocks, then write meta data blocks.
@@ -730,6 +760,17 @@ public class HFileWriterImpl implements HFile.Writer {
    */
   @Override
   public void append(final Cell cell) throws IOException {
+    if (dictionarySamples != null) {
+      checkKey(cell);
+      KeyValue sample = KeyValueUtil.copyToNewKeyValue(cell);
+      dictionarySamples.add(sample);
+      dictionarySampleSize += sample.getLength();
+      lastCell = sample;
+      if (dictionarySampleSize >= dictionarySize) {
+        trainCompressionDictionary();
+      }
+      return;
+    }
     // checkKey uses comparator to check we are writing in order.
     boolean dupKey = checkKey(cell);
     if (!dupKey) {
@@ -762,6 +803,35 @@ public class HFileWriterImpl implements HFile.Writer {
     }
   }
 
+  /**
+   * Trains the dictionary the data blocks are compressed with from the cells held back, then
+   * appends them. The dictionary is their serialized form, which shares rows, column names and
+   * common values with the cells that follow.
+   */
+  private void trainCompressionDictionary() throws IOException {
+    List<KeyValue> samples = dictionarySamples;
+    dictionarySamples = null;
+    if (samples.isEmpty()) {
+      return;
+    }
+    byte[] dictionary = new byte[Math.min(dictionarySampleSize, dictionarySize)];
+    int offset = 0;
+    for (KeyValue sample : samples) {
+      int length = Math.min(sample.getLength(), dictionary.length - offset);
+      System.arraycopy(sample.getBuffer(), sample.getOffset(), dictionary, offset, length);
+      offset += length;
+      if (offset == dictionary.length) {
+        break;
+      }
+    }
+    blockWriter.setDataBlockCompressionDictionary(dictionary);
+    fileInfo.append(FileInfo.COMPRESSION_DICTIONARY, dictionary, false);
+    lastCell = null;
+    for (KeyValue sample : samples) {
+      append(sample);
+    }
+  }
+
   @Override
   public void beforeShipped() throws IOException {
     // Add clone methods for every cell
@@ -21,6 +21,7 @@ import static java.util.Objects.requireNonNull;
 
 import java.lang.ref.WeakReference;
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -90,7 +91,19 @@ import org.apache.hbase.thirdparty.com.google.common.util.concurrent.ThreadFacto
  * size, and then while scanning determines the fewest least-recently-used
  * blocks necessary from each of the three priorities (would be 3 times bytes
  * to free).  It then uses the priority chunk sizes to evict fairly according
- * to the relative sizes and usage.
+ * to the relative sizes and usage.<p>
+ *
+ * With a very large number of blocks a full scan takes long enough for the cache to overshoot
+ * during bursts of inserts. Setting {@link #LRU_EVICTION_SAMPLE_SIZE_CONFIG_NAME} instead evicts
+ * on the insert path, a few blocks per insert: a clock hand walks the map, and of every sample of
+ * that many blocks the least recently used single-access block is evicted, or the least recently
+ * used multi-access block if there is none, then in-memory ones. This replaces the priority chunk
+ * sizes with a fixed order and needs no eviction thread.<p>
+ *
+ * Blocks of a partition, see {@link BlockCacheKey#getPartition()}, can be limited to a share of
+ * the cache with {@link #setPartitionShare(String, String, float)}. A partition over its share of
+ * the acceptable size is brought back to its share of the minimum size by evicting its least
+ * recently used blocks first, regardless of their priority.
  */
 @InterfaceAudience.Private
 public class LruBlockCache implements FirstLevelBlockCache {
@@ -129,6 +142,13 @@ public class LruBlockCache implements FirstLevelBlockCache {
   private static final String LRU_IN_MEMORY_FORCE_MODE_CONFIG_NAME =
       "hbase.lru.rs.inmemoryforcemode";
 
+  /**
+   * Number of blocks sampled per eviction when evicting on the insert path, see the class
+   * comment. Zero or less uses the eviction thread and full scans.
+   */
+  static final String LRU_EVICTION_SAMPLE_SIZE_CONFIG_NAME =
+      "hbase.lru.blockcache.eviction.sample.size";
+
   /* Default Configuration Parameters*/
 
   /* Backing Concurrent Map Configuration */
@@ -148,6 +168,17 @@ public class LruBlockCache implements FirstLevelBlockCache {
 
   private static final boolean DEFAULT_IN_MEMORY_FORCE_MODE = false;
 
+  private static final int DEFAULT_EVICTION_SAMPLE_SIZE = 0;
+
+  /** Most blocks one insert evicts when evicting on the insert path */
+  private static final int MAX_EVICTIONS_PER_INSERT = 8;
+
+  /**
+   * When only a partition is over its share, at most this many samples worth of blocks are walked
+   * looking for blocks of the partition. A sparse partition is then sampled over several inserts.
+   */
+  private static final int MAX_SAMPLES_SCANNED_PER_EVICTION = 4;
+
   /* Statistics thread */
   private static final int STAT_THREAD_PERIOD = 60 * 5;
   private static final String LRU_MAX_BLOCK_SIZE = "hbase.lru.max.block.size";
@@ -233,6 +264,21 @@ public class LruBlockCache implements FirstLevelBlockCache {
    */
   private transient BlockCache victimHandler = null;
 
+  /**
+   * Consulted before caching a new block once the cache is full, null to cache every block.
+   * See {@link BlockCacheFactory#BLOCKCACHE_ADMISSION_POLICY_KEY}.
+   */
+  private transient BlockCacheAdmissionPolicy admissionPolicy = null;
+
+  /** Blocks sampled per eviction on the insert path, or zero to evict with full scans */
+  private int evictionSampleSize = DEFAULT_EVICTION_SAMPLE_SIZE;
+
+  /** Clock hand of the eviction on the insert path, guarded by {@link #evictionLock} */
+  private transient Iterator<LruCachedBlock> evictionHand = null;
+
+  /** Sizes and shares of the block cache partitions */
+  private transient final BlockCachePartitions partitions = new BlockCachePartitions();
+
   /**
    * Default constructor.  Specify maximum size and expected average block
    * size (approximation is fine).
@@ -264,7 +310,8 @@ public class LruBlockCache implements FirstLevelBlockCache {
   }
 
   public LruBlockCache(long maxSize, long blockSize, boolean evictionThread, Configuration conf) {
-    this(maxSize, blockSize, evictionThread,
+    this(maxSize, blockSize, evictionThread
+        && conf.getInt(LRU_EVICTION_SAMPLE_SIZE_CONFIG_NAME, DEFAULT_EVICTION_SAMPLE_SIZE) <= 0,
         (int) Math.ceil(1.2 * maxSize / blockSize),
         DEFAULT_LOAD_FACTOR,
         DEFAULT_CONCURRENCY_LEVEL,
@@ -277,6 +324,9 @@ public class LruBlockCache implements FirstLevelBlockCache {
                       DEFAULT_HARD_CAPACITY_LIMIT_FACTOR),
         conf.getBoolean(LRU_IN_MEMORY_FORCE_MODE_CONFIG_NAME, DEFAULT_IN_MEMORY_FORCE_MODE),
         conf.getLong(LRU_MAX_BLOCK_SIZE, DEFAULT_MAX_BLOCK_SIZE));
+    this.admissionPolicy = BlockCacheFactory.createAdmissionPolicy(conf);
+    this.evictionSampleSize =
+        conf.getInt(LRU_EVICTION_SAMPLE_SIZE_CONFIG_NAME, DEFAULT_EVICTION_SAMPLE_SIZE);
   }
 
   public LruBlockCache(long maxSize, long blockSize, Configuration conf) {
@@ -419,6 +469,14 @@ public class LruBlockCache implements FirstLevelBlockCache {
       return;
     }
     long currentSize = size.get();
+    if (cb == null && !inMemory && admissionPolicy != null && currentSize >= minSize()) {
+      // Caching the block would evict another one, only do it if the block is worth it.
+      if (!admissionPolicy.admit(cacheKey, buf)) {
+        stats.rejected();
+        return;
+      }
+      stats.admitted();
+    }
     long currentAcceptableSize = acceptableSize();
     long hardLimitSize = (long) (hardCapacityLimitFactor * currentAcceptableSize);
     if (currentSize >= hardLimitSize) {
@@ -447,8 +505,13 @@ public class LruBlockCache implements FirstLevelBlockCache {
       long size = map.size();
       assertCounterSanity(size, val);
     }
-    if (newSize > currentAcceptableSize && !evictionInProgress) {
-      runEviction();
+    if (newSize > currentAcceptableSize
+        || partitions.isOverShare(cacheKey.getPartition(), currentAcceptableSize)) {
+      if (evictionSampleSize > 0) {
+        evictSampled(cacheKey.getPartition());
+      } else if (!evictionInProgress) {
+        runEviction();
+      }
     }
   }
 
@@ -500,6 +563,7 @@ public class LruBlockCache implements FirstLevelBlockCache {
     if (bt != null && bt.isData()) {
        dataBlockSize.add(heapsize);
     }
+    partitions.add(cb.getCacheKey().getPartition(), heapsize);
     return size.addAndGet(heapsize);
   }
 
@@ -518,6 +582,9 @@ public class LruBlockCache implements FirstLevelBlockCache {
   @Override
   public Cacheable getBlock(BlockCacheKey cacheKey, boolean caching, boolean repeat,
       boolean updateCacheMetrics) {
+    if (admissionPolicy != null && !repeat) {
+      admissionPolicy.recordAccess(cacheKey);
+    }
     LruCachedBlock cb = map.computeIfPresent(cacheKey, (key, val) -> {
       // It will be referenced by RPC path, so increase here. NOTICE: Must do the retain inside
       // this block. because if retain outside the map#computeIfPresent, the evictBlock may remove
@@ -528,7 +595,8 @@ public class LruBlockCache implements FirstLevelBlockCache {
     });
     if (cb == null) {
       if (!repeat && updateCacheMetrics) {
-        stats.miss(caching, cacheKey.isPrimary(), cacheKey.getBlockType());
+        stats.miss(caching, cacheKey.isPrimary(), cacheKey.getBlockType(),
+          cacheKey.getPartition());
       }
       // If there is another block cache then try and read there.
       // However if this is a retry ( second time in double checked locking )
@@ -547,7 +615,7 @@ public class LruBlockCache implements FirstLevelBlockCache {
       return null;
     }
     if (updateCacheMetrics) {
-      stats.hit(caching, cacheKey.isPrimary(), cacheKey.getBlockType());
+      stats.hit(caching, cacheKey.isPrimary(), cacheKey.getBlockType(), cacheKey.getPartition());
     }
     cb.access(count.incrementAndGet());
     return cb.getBuffer();
@@ -563,6 +631,14 @@ public class LruBlockCache implements FirstLevelBlockCache {
     return map.containsKey(cacheKey);
   }
 
+  @Override
+  public void touchBlock(BlockCacheKey cacheKey) {
+    LruCachedBlock cb = map.get(cacheKey);
+    if (cb != null) {
+      cb.access(count.incrementAndGet());
+    }
+  }
+
   @Override
   public boolean evictBlock(BlockCacheKey cacheKey) {
     LruCachedBlock cb = map.get(cacheKey);
@@ -652,6 +728,112 @@ public class LruBlockCache implements FirstLevelBlockCache {
     return overhead;
   }
 
+  /**
+   * Evicts blocks until the cache, and the partition of the inserted block, are back under their
+   * acceptable size, but at most {@link #MAX_EVICTIONS_PER_INSERT}, each the oldest of the next
+   * {@link #evictionSampleSize} blocks under the clock hand. Only blocks of the partition are
+   * sampled if just the partition is over its share. Returns at once while another thread evicts,
+   * the inserts that go on meanwhile are bounded by the hard capacity limit of
+   * {@link #cacheBlock(BlockCacheKey, Cacheable, boolean)}.
+   * @param partition partition of the inserted block, or null
+   */
+  private void evictSampled(String partition) {
+    if (!evictionLock.tryLock()) {
+      return;
+    }
+    // Another thread may have evicted enough already, only runs that evict are recorded.
+    long start = System.nanoTime();
+    int evicted = 0;
+    try {
+      for (int i = 0; i < MAX_EVICTIONS_PER_INSERT; i++) {
+        long currentAcceptableSize = acceptableSize();
+        boolean cacheOverSize = size.get() > currentAcceptableSize;
+        if (!cacheOverSize && !partitions.isOverShare(partition, currentAcceptableSize)) {
+          break;
+        }
+        LruCachedBlock victim = null;
+        long scanLimit = elements.get();
+        if (!cacheOverSize) {
+          scanLimit = Math.min(scanLimit,
+            (long) evictionSampleSize * MAX_SAMPLES_SCANNED_PER_EVICTION);
+        }
+        for (int j = 0; j < evictionSampleSize && scanLimit-- > 0;) {
+          if (evictionHand == null || !evictionHand.hasNext()) {
+            evictionHand = map.values().iterator();
+            if (!evictionHand.hasNext()) {
+              break;
+            }
+          }
+          LruCachedBlock candidate = evictionHand.next();
+          if (!cacheOverSize && !partition.equals(candidate.getCacheKey().getPartition())) {
+            // Only blocks of the partition make up the sample
+            continue;
+          }
+          j++;
+          if (victim == null || isBetterVictim(candidate, victim)) {
+            victim = candidate;
+          }
+        }
+        if (victim == null) {
+          break;
+        }
+        evictBlock(victim, true);
+        evicted++;
+      }
+    } finally {
+      if (evicted > 0) {
+        stats.evict(start);
+      }
+      evictionLock.unlock();
+    }
+  }
+
+  private static boolean isBetterVictim(LruCachedBlock candidate, LruCachedBlock victim) {
+    int byPriority = candidate.getPriority().compareTo(victim.getPriority());
+    if (byPriority != 0) {
+      // SINGLE before MULTI before MEMORY
+      return byPriority < 0;
+    }
+    // LruCachedBlock orders the least recently used last.
+    return candidate.compareTo(victim) > 0;
+  }
+
+  /**
+   * Evicts the least recently used blocks of the partitions over their share, see
+   * {@link BlockCachePartitions#getBytesToFree(long, long)}.
+   * @return the heap size of the evicted blocks
+   */
+  private long evictPartitions() {
+    Map<String, Long> bytesToFree = partitions.getBytesToFree(acceptableSize(), minSize());
+    if (bytesToFree.isEmpty()) {
+      return 0;
+    }
+    Map<String, LruCachedBlockQueue> queues = new HashMap<>();
+    bytesToFree.forEach((partition, bytes) ->
+        queues.put(partition, new LruCachedBlockQueue(bytes, blockSize)));
+    for (LruCachedBlock cachedBlock : map.values()) {
+      String partition = cachedBlock.getCacheKey().getPartition();
+      LruCachedBlockQueue queue = partition == null ? null : queues.get(partition);
+      if (queue != null) {
+        queue.add(cachedBlock);
+      }
+    }
+    long bytesFreed = 0;
+    for (Map.Entry<String, LruCachedBlockQueue> entry : queues.entrySet()) {
+      long toFree = bytesToFree.get(entry.getKey());
+      long freed = 0;
+      LruCachedBlock cb;
+      while (freed < toFree && (cb = entry.getValue().pollLast()) != null) {
+        freed += evictBlock(cb, true);
+      }
+      if (LOG.isTraceEnabled()) {
+        LOG.trace("freed " + StringUtils.byteDesc(freed) + " from partition " + entry.getKey());
+      }
+      bytesFreed += freed;
+    }
+    return bytesFreed;
+  }
+
   /**
    * Eviction method.
    */
@@ -660,9 +842,15 @@ public class LruBlockCache implements FirstLevelBlockCache {
     // Ensure only one eviction at a time
     if(!evictionLock.tryLock()) return;
 
+    long start = System.nanoTime();
     try {
       evictionInProgress = true;
+      long partitionBytesFreed = evictPartitions();
       long currentSize = this.size.get();
+      if (partitionBytesFreed > 0 && currentSize <= acceptableSize()) {
+        // Only partitions were over their share
+        return;
+      }
       long bytesToFree = currentSize - minSize();
 
       if (LOG.isTraceEnabled()) {
@@ -767,7 +955,7 @@ public class LruBlockCache implements FirstLevelBlockCache {
           "memory=" + StringUtils.byteDesc(memory));
       }
     } finally {
-      stats.evict();
+      stats.evict(start);
       evictionInProgress = false;
       evictionLock.unlock();
     }
@@ -910,6 +1098,21 @@ public class LruBlockCache implements FirstLevelBlockCache {
     return this.dataBlockElements.sum();
   }
 
+  @Override
+  public void setPartitionShare(String partition, String owner, float share) {
+    partitions.setShare(partition, owner, share);
+  }
+
+  @Override
+  public void removePartitionShare(String partition, String owner) {
+    partitions.removeShare(partition, owner);
+  }
+
+  @VisibleForTesting
+  BlockCachePartitions getPartitions() {
+    return partitions;
+  }
+
   EvictionThread getEvictionThread() {
     return this.evictionThread;
   }
@@ -1024,8 +1227,8 @@ public class LruBlockCache implements FirstLevelBlockCache {
   }
 
   public final static long CACHE_FIXED_OVERHEAD = ClassSize.align(
-      (4 * Bytes.SIZEOF_LONG) + (11 * ClassSize.REFERENCE) +
-      (6 * Bytes.SIZEOF_FLOAT) + (2 * Bytes.SIZEOF_BOOLEAN)
+      (4 * Bytes.SIZEOF_LONG) + (14 * ClassSize.REFERENCE) +
+      (6 * Bytes.SIZEOF_FLOAT) + (2 * Bytes.SIZEOF_BOOLEAN) + Bytes.SIZEOF_INT
       + ClassSize.OBJECT);
 
   @Override
@@ -18,15 +18,24 @@
  */
 package org.apache.hadoop.hbase.io.hfile;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
@@ -36,19 +45,51 @@ import org.apache.yetus.audience.InterfaceAudience;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Prefetches the blocks of HFiles into the block cache after they are opened.
+ * <p>
+ * A file is read in up to {@value #PREFETCH_RANGES_KEY} ranges, in parallel. The ranges of all
+ * files share one pool of threads, and the ranges of the files with the highest priority are read
+ * first. All prefetches together read no more than {@value #PREFETCH_BYTES_PER_SECOND_KEY} bytes
+ * per second, so that they do not starve the reads of clients after a restart.
+ */
 @InterfaceAudience.Private
 public final class PrefetchExecutor {
 
   private static final Logger LOG = LoggerFactory.getLogger(PrefetchExecutor.class);
 
-  /** Futures for tracking block prefetch activity */
-  private static final Map<Path,Future<?>> prefetchFutures = new ConcurrentSkipListMap<>();
-  /** Executor pool shared among all HFiles for block prefetch */
-  private static final ScheduledExecutorService prefetchExecutorPool;
+  /** Maximum number of ranges a file is split in to be prefetched in parallel */
+  public static final String PREFETCH_RANGES_KEY = "hbase.hfile.prefetch.ranges";
+  public static final int DEFAULT_PREFETCH_RANGES = 4;
+
+  /** Bytes per second all prefetches together may read, 0 for no limit */
+  public static final String PREFETCH_BYTES_PER_SECOND_KEY =
+      "hbase.hfile.prefetch.max.bytes.per.second";
+
+  /** Prefetches in progress, by file */
+  private static final Map<Path, FilePrefetch> prefetchFutures = new ConcurrentSkipListMap<>();
+  /** Schedules the ranges of a file once its prefetch delay has passed */
+  private static final ScheduledExecutorService prefetchScheduler;
+  /** Executor pool shared among all HFiles for block prefetch, highest priority first */
+  private static final ThreadPoolExecutor prefetchExecutorPool;
   /** Delay before beginning prefetch */
   private static final int prefetchDelayMillis;
   /** Variation in prefetch delay times, to mitigate stampedes */
   private static final float prefetchDelayVariation;
+  /** Maximum number of ranges a file is split in */
+  private static final int prefetchRanges;
+  /** Bytes per second all prefetches together may read, 0 for no limit */
+  private static volatile long prefetchBytesPerSecond;
+  /** Time at which the I/O budget allows the next read */
+  private static long budgetNanos;
+  private static final Object budgetLock = new Object();
+
+  private static final AtomicLong sequence = new AtomicLong();
+  private static final LongAdder prefetchedBytes = new LongAdder();
+  private static final LongAdder completedFiles = new LongAdder();
+
   static {
     // Consider doing this on demand with a configuration passed in rather
     // than in a static initializer.
@@ -57,17 +98,21 @@ public final class PrefetchExecutor {
     // Set to 0 for no delay
     prefetchDelayMillis = conf.getInt("hbase.hfile.prefetch.delay", 1000);
     prefetchDelayVariation = conf.getFloat("hbase.hfile.prefetch.delay.variation", 0.2f);
+    prefetchRanges = Math.max(1, conf.getInt(PREFETCH_RANGES_KEY, DEFAULT_PREFETCH_RANGES));
+    prefetchBytesPerSecond = conf.getLong(PREFETCH_BYTES_PER_SECOND_KEY, 0);
     int prefetchThreads = conf.getInt("hbase.hfile.thread.prefetch", 4);
-    prefetchExecutorPool = new ScheduledThreadPoolExecutor(prefetchThreads,
-      new ThreadFactory() {
-        @Override
-        public Thread newThread(Runnable r) {
-          String name = "hfile-prefetch-" + System.currentTimeMillis();
-          Thread t = new Thread(r, name);
-          t.setDaemon(true);
-          return t;
-        }
-    });
+    ThreadFactory threadFactory = new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        String name = "hfile-prefetch-" + System.currentTimeMillis();
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+      }
+    };
+    prefetchScheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+    prefetchExecutorPool = new ThreadPoolExecutor(prefetchThreads, prefetchThreads, 0,
+        TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), threadFactory);
   }
 
   private static final Random RNG = new Random();
@@ -87,8 +132,95 @@ public final class PrefetchExecutor {
             Path.SEPARATOR_CHAR +
         ")");
 
+  /**
+   * A range of a file to prefetch. Ranges of files with a higher priority come first, then ranges
+   * in the order they were requested.
+   */
+  private static final class RangeTask extends FutureTask<Void>
+      implements Comparable<RangeTask> {
+    private final FilePrefetch file;
+    private final long seq = sequence.getAndIncrement();
+
+    RangeTask(FilePrefetch file, Runnable range) {
+      super(range, null);
+      this.file = file;
+    }
+
+    @Override
+    protected void done() {
+      file.rangeDone();
+    }
+
+    @Override
+    public int compareTo(RangeTask other) {
+      int c = Long.compare(other.file.priority, file.priority);
+      return c != 0 ? c : Long.compare(seq, other.seq);
+    }
+  }
+
+  /**
+   * The prefetch of one file, done once all of its ranges are.
+   */
+  private static final class FilePrefetch {
+    private final Path path;
+    private final long priority;
+    private final List<RangeTask> ranges = new ArrayList<>();
+    private final AtomicInteger remaining;
+    private volatile Future<?> scheduled;
+
+    FilePrefetch(Path path, long priority, List<Runnable> ranges) {
+      this.path = path;
+      this.priority = priority;
+      for (Runnable range : ranges) {
+        this.ranges.add(new RangeTask(this, range));
+      }
+      this.remaining = new AtomicInteger(ranges.size());
+    }
+
+    void submit() {
+      for (RangeTask range : ranges) {
+        prefetchExecutorPool.execute(range);
+      }
+    }
+
+    void rangeDone() {
+      if (remaining.decrementAndGet() == 0) {
+        complete(this);
+      }
+    }
+
+    void cancel() {
+      if (scheduled != null) {
+        scheduled.cancel(true);
+      }
+      for (RangeTask range : ranges) {
+        range.cancel(true);
+      }
+    }
+
+    boolean isDone() {
+      return remaining.get() == 0;
+    }
+  }
+
+  /**
+   * @return the maximum number of ranges a file is split in to be prefetched in parallel
+   */
+  public static int getPrefetchRanges() {
+    return prefetchRanges;
+  }
+
   public static void request(Path path, Runnable runnable) {
-    if (!prefetchPathExclude.matcher(path.toString()).find()) {
+    request(path, 0, Collections.singletonList(runnable));
+  }
+
+  /**
+   * Requests the prefetch of a file.
+   * @param priority files with a higher priority are prefetched first
+   * @param ranges the reads of the ranges of the file, run in parallel
+   */
+  public static void request(Path path, long priority, List<Runnable> ranges) {
+    if (!prefetchPathExclude.matcher(path.toString()).find() && !ranges.isEmpty()) {
       long delay;
       if (prefetchDelayMillis > 0) {
         delay = (long)((prefetchDelayMillis * (1.0f - (prefetchDelayVariation/2))) +
@@ -96,32 +228,70 @@ public final class PrefetchExecutor {
       } else {
         delay = 0;
       }
+      FilePrefetch prefetch = new FilePrefetch(path, priority, ranges);
       try {
         if (LOG.isDebugEnabled()) {
-          LOG.debug("Prefetch requested for " + path + ", delay=" + delay + " ms");
+          LOG.debug("Prefetch requested for " + path + ", delay=" + delay + " ms, ranges="
+              + ranges.size() + ", priority=" + priority);
         }
-        prefetchFutures.put(path, prefetchExecutorPool.schedule(runnable, delay,
-          TimeUnit.MILLISECONDS));
+        prefetchFutures.put(path, prefetch);
+        prefetch.scheduled = prefetchScheduler.schedule(() -> {
+          try {
+            prefetch.submit();
+          } catch (RejectedExecutionException e) {
+            LOG.warn("Prefetch request rejected for " + path);
+            prefetch.cancel();
+          }
+        }, delay, TimeUnit.MILLISECONDS);
       } catch (RejectedExecutionException e) {
-        prefetchFutures.remove(path);
+        prefetchFutures.remove(path, prefetch);
         LOG.warn("Prefetch request rejected for " + path);
       }
     }
   }
 
-  public static void complete(Path path) {
-    prefetchFutures.remove(path);
+  /**
+   * Waits until the I/O budget allows prefetching <code>bytes</code> more bytes, and counts them as
+   * prefetched.
+   */
+  static void acquire(long bytes) throws InterruptedException {
+    prefetchedBytes.add(bytes);
+    long rate = prefetchBytesPerSecond;
+    if (rate <= 0) {
+      return;
+    }
+    long now = System.nanoTime();
+    long waitNanos;
+    synchronized (budgetLock) {
+      long start = Math.max(now, budgetNanos);
+      budgetNanos = start + TimeUnit.SECONDS.toNanos(bytes) / rate;
+      waitNanos = start - now;
+    }
+    if (waitNanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  }
+
+  @VisibleForTesting
+  static void setPrefetchBytesPerSecond(long bytesPerSecond) {
+    prefetchBytesPerSecond = bytesPerSecond;
+  }
+
+  private static void complete(FilePrefetch prefetch) {
+    if (prefetchFutures.remove(prefetch.path, prefetch)) {
+      completedFiles.increment();
+    }
     if (LOG.isDebugEnabled()) {
-      LOG.debug("Prefetch completed for " + path);
+      LOG.debug("Prefetch completed for " + prefetch.path);
     }
   }
 
   public static void cancel(Path path) {
-    Future<?> future = prefetchFutures.get(path);
-    if (future != null) {
+    FilePrefetch prefetch = prefetchFutures.get(path);
+    if (prefetch != null) {
       // ok to race with other cancellation attempts
-      future.cancel(true);
-      prefetchFutures.remove(path);
+      prefetchFutures.remove(path, prefetch);
+      prefetch.cancel();
       if (LOG.isDebugEnabled()) {
         LOG.debug("Prefetch cancelled for " + path);
       }
@@ -129,12 +299,33 @@ public final class PrefetchExecutor {
   }
 
   public static boolean isCompleted(Path path) {
-    Future<?> future = prefetchFutures.get(path);
-    if (future != null) {
-      return future.isDone();
+    FilePrefetch prefetch = prefetchFutures.get(path);
+    if (prefetch != null) {
+      return prefetch.isDone();
     }
     return true;
   }
 
+  /**
+   * @return the number of files whose prefetch was requested but is not done yet
+   */
+  public static int getPendingFileCount() {
+    return prefetchFutures.size();
+  }
+
+  /**
+   * @return the number of files prefetched completely
+   */
+  public static long getCompletedFileCount() {
+    return completedFiles.sum();
+  }
+
+  /**
+   * @return the number of bytes read by prefetches
+   */
+  public static long getPrefetchedBytes() {
+    return prefetchedBytes.sum();
+  }
+
   private PrefetchExecutor() {}
 }
@@ -0,0 +1,161 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.yetus.audience.InterfaceAudience;
+
+import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A {@link BlockCacheAdmissionPolicy} that admits a data block only once it has been looked up
+ * {@link #ADMISSION_THRESHOLD_KEY} times recently, so that the blocks of a one-off scan do not
+ * push out blocks that are read over and over. Index, bloom and other non data blocks are always
+ * admitted.
+ * <p>
+ * Lookups are counted in a count-min sketch of 4 bit counters, as in TinyLFU: every key maps to
+ * four counters and its frequency is the smallest of them. Once the number of recorded lookups
+ * reaches ten times the sketch width, all counters are halved so that old popularity fades.
+ */
+@InterfaceAudience.Private
+public class TinyLfuAdmissionPolicy implements BlockCacheAdmissionPolicy {
+
+  /**
+   * Number of distinct blocks the frequency sketch is sized for, usually about the number of
+   * blocks the cache holds. A sketch that is too small overestimates frequencies.
+   */
+  public static final String SKETCH_SIZE_KEY = "hbase.blockcache.admission.tinylfu.sketch.size";
+  public static final int DEFAULT_SKETCH_SIZE = 64 * 1024;
+
+  /** Number of recent lookups after which a data block is admitted. */
+  public static final String ADMISSION_THRESHOLD_KEY =
+      "hbase.blockcache.admission.tinylfu.threshold";
+  public static final int DEFAULT_ADMISSION_THRESHOLD = 2;
+
+  private static final long[] SEEDS = new long[] { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+    0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final int MAX_COUNT = 15;
+
+  /** Each long holds sixteen 4 bit counters. */
+  private final AtomicLongArray table;
+  private final int tableMask;
+  private final int sampleSize;
+  private final int threshold;
+  private final AtomicInteger additions = new AtomicInteger();
+
+  public TinyLfuAdmissionPolicy(Configuration conf) {
+    this(conf.getInt(SKETCH_SIZE_KEY, DEFAULT_SKETCH_SIZE),
+        conf.getInt(ADMISSION_THRESHOLD_KEY, DEFAULT_ADMISSION_THRESHOLD));
+  }
+
+  @VisibleForTesting
+  TinyLfuAdmissionPolicy(int sketchSize, int threshold) {
+    int length = Integer.highestOneBit(Math.max(sketchSize, 1) - 1) << 1;
+    this.table = new AtomicLongArray(Math.max(length, 1));
+    this.tableMask = table.length() - 1;
+    this.sampleSize = 10 * table.length();
+    this.threshold = Math.min(threshold, MAX_COUNT);
+  }
+
+  @Override
+  public void recordAccess(BlockCacheKey cacheKey) {
+    int hash = spread(cacheKey.hashCode());
+    int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < SEEDS.length; i++) {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+    if (added && additions.incrementAndGet() == sampleSize) {
+      reset();
+    }
+  }
+
+  @Override
+  public boolean admit(BlockCacheKey cacheKey, Cacheable block) {
+    BlockType blockType = block.getBlockType();
+    if (blockType != null && !blockType.isData()) {
+      return true;
+    }
+    return frequency(cacheKey) >= threshold;
+  }
+
+  /**
+   * @return the estimated number of recent lookups of the block, at most 15
+   */
+  @VisibleForTesting
+  int frequency(BlockCacheKey cacheKey) {
+    int hash = spread(cacheKey.hashCode());
+    int start = (hash & 3) << 2;
+    int frequency = MAX_COUNT;
+    for (int i = 0; i < SEEDS.length; i++) {
+      int shift = (start + i) << 2;
+      int count = (int) ((table.get(indexOf(hash, i)) >>> shift) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /**
+   * Increments the counter at <code>counter</code> in the long at <code>index</code>, unless it
+   * is saturated.
+   * @return true if the counter was incremented
+   */
+  private boolean incrementAt(int index, int counter) {
+    int shift = counter << 2;
+    long mask = 0xfL << shift;
+    while (true) {
+      long value = table.get(index);
+      if ((value & mask) == mask) {
+        return false;
+      }
+      if (table.compareAndSet(index, value, value + (1L << shift))) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Halves every counter. Lookups recorded concurrently may be halved or not, which only makes
+   * the estimate a little less accurate.
+   */
+  private void reset() {
+    for (int i = 0; i < table.length(); i++) {
+      long value;
+      do {
+        value = table.get(i);
+      } while (!table.compareAndSet(i, value, (value >>> 1) & RESET_MASK));
+    }
+    additions.addAndGet(-sampleSize / 2);
+  }
+
+  private int indexOf(int hash, int i) {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    h += h >>> 32;
+    return ((int) h) & tableMask;
+  }
+
+  private static int spread(int x) {
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    return (x >>> 16) ^ x;
+  }
+}
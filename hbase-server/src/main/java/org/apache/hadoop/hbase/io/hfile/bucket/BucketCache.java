@@ -25,22 +25,26 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.NavigableSet;
 import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -49,6 +53,7 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
+import java.util.zip.CRC32;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HBaseConfiguration;
@@ -58,7 +63,10 @@ import org.apache.hadoop.hbase.io.ByteBuffAllocator;
 import org.apache.hadoop.hbase.io.ByteBuffAllocator.Recycler;
 import org.apache.hadoop.hbase.io.HeapSize;
 import org.apache.hadoop.hbase.io.hfile.BlockCache;
+import org.apache.hadoop.hbase.io.hfile.BlockCacheAdmissionPolicy;
+import org.apache.hadoop.hbase.io.hfile.BlockCacheFactory;
 import org.apache.hadoop.hbase.io.hfile.BlockCacheKey;
+import org.apache.hadoop.hbase.io.hfile.BlockCachePartitions;
 import org.apache.hadoop.hbase.io.hfile.BlockCacheUtil;
 import org.apache.hadoop.hbase.io.hfile.BlockPriority;
 import org.apache.hadoop.hbase.io.hfile.BlockType;
@@ -68,6 +76,7 @@ import org.apache.hadoop.hbase.io.hfile.CachedBlock;
 import org.apache.hadoop.hbase.io.hfile.HFileBlock;
 import org.apache.hadoop.hbase.nio.ByteBuff;
 import org.apache.hadoop.hbase.nio.RefCnt;
+import org.apache.hadoop.hbase.nio.SingleByteBuff;
 import org.apache.hadoop.hbase.protobuf.ProtobufMagic;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.hadoop.hbase.util.HasThread;
@@ -123,6 +132,16 @@ public class BucketCache implements BlockCache, HeapSize {
   private static final float DEFAULT_EXTRA_FREE_FACTOR = 0.10f;
   private static final float DEFAULT_ACCEPT_FACTOR = 0.95f;
 
+  /**
+   * How often to checkpoint the backing map of a persistent IOEngine to the persistence path, so
+   * that its content can be reused after the server dies without a clean shutdown. Checkpoints
+   * append the changes since the previous one and only rewrite the whole map once the appended
+   * changes outgrow it. Zero or less, the default, persists on shutdown only.
+   */
+  public static final String BUCKETCACHE_PERSIST_INTERVAL_KEY =
+      "hbase.bucketcache.persist.intervalinmillis";
+  public static final long DEFAULT_BUCKETCACHE_PERSIST_INTERVAL = 0;
+
   // Number of blocks to clear for each of the bucket size that is full
   private static final int DEFAULT_FREE_ENTIRE_BLOCK_FACTOR = 2;
 
@@ -140,7 +159,17 @@ public class BucketCache implements BlockCache, HeapSize {
   transient final RAMCache ramCache;
   // In this map, store the block's meta data like offset, length
   @VisibleForTesting
-  transient ConcurrentHashMap<BlockCacheKey, BucketEntry> backingMap;
+  transient CompactBackingMap backingMap;
+
+  /**
+   * Keys whose backingMap entry changed since the last checkpoint. Null if we do not checkpoint,
+   * see {@link #BUCKETCACHE_PERSIST_INTERVAL_KEY}.
+   */
+  private transient final Set<BlockCacheKey> changedKeys;
+  /** Serializes checkpoints and the final persist on shutdown. */
+  private transient final Object persistLock = new Object();
+  /** Entries appended to the persistence file since it was last rewritten, -1 if it never was. */
+  private long appendedEntries = -1;
 
   /**
    * Flag if the cache is enabled or not... We shut it off if there are IO
@@ -204,14 +233,6 @@ public class BucketCache implements BlockCache, HeapSize {
   @VisibleForTesting
   transient final IdReadWriteLock<Long> offsetLock = new IdReadWriteLock<>(ReferenceType.SOFT);
 
-  private final NavigableSet<BlockCacheKey> blocksByHFile = new ConcurrentSkipListSet<>((a, b) -> {
-    int nameComparison = a.getHfileName().compareTo(b.getHfileName());
-    if (nameComparison != 0) {
-      return nameComparison;
-    }
-    return Long.compare(a.getOffset(), b.getOffset());
-  });
-
   /** Statistics thread schedule pool (for heavy debugging, could remove) */
   private transient final ScheduledExecutorService scheduleThreadPool =
     Executors.newScheduledThreadPool(1,
@@ -238,6 +259,30 @@ public class BucketCache implements BlockCache, HeapSize {
   /** In-memory bucket size */
   private float memoryFactor;
 
+  /**
+   * Where blocks evicted to make room go instead of being dropped. Set when this cache is the hot
+   * tier of a {@link TieredBucketCache}.
+   */
+  private transient BlockCache victimHandler = null;
+
+  /**
+   * Copies the blocks evicted to make room out of the IOEngine and into the victim cache, so that
+   * {@link #freeSpace(String)} does not read them. The queue is bounded, blocks evicted while it is
+   * full are dropped.
+   */
+  private transient ThreadPoolExecutor demotionExecutor = null;
+  private static final int DEMOTION_QUEUE_SIZE = 256;
+  private static final long DEMOTION_SHUTDOWN_WAIT_MS = 10000;
+
+  /**
+   * Consulted before caching a new block once the cache is full, null to cache every block.
+   * See {@link BlockCacheFactory#BLOCKCACHE_ADMISSION_POLICY_KEY}.
+   */
+  private transient final BlockCacheAdmissionPolicy admissionPolicy;
+
+  /** Sizes and shares of the block cache partitions, see {@link #setPartitionShare} */
+  private final BlockCachePartitions partitions = new BlockCachePartitions();
+
   public BucketCache(String ioEngineName, long capacity, int blockSize, int[] bucketSizes,
       int writerThreadNum, int writerQLen, String persistencePath) throws IOException {
     this(ioEngineName, capacity, blockSize, bucketSizes, writerThreadNum, writerQLen,
@@ -257,6 +302,7 @@ public class BucketCache implements BlockCache, HeapSize {
 
     this.acceptableFactor = conf.getFloat(ACCEPT_FACTOR_CONFIG_NAME, DEFAULT_ACCEPT_FACTOR);
     this.minFactor = conf.getFloat(MIN_FACTOR_CONFIG_NAME, DEFAULT_MIN_FACTOR);
+    this.admissionPolicy = BlockCacheFactory.createAdmissionPolicy(conf);
     this.extraFreeFactor = conf.getFloat(EXTRA_FREE_FACTOR_CONFIG_NAME, DEFAULT_EXTRA_FREE_FACTOR);
     this.singleFactor = conf.getFloat(SINGLE_FACTOR_CONFIG_NAME, DEFAULT_SINGLE_FACTOR);
     this.multiFactor = conf.getFloat(MULTI_FACTOR_CONFIG_NAME, DEFAULT_MULTI_FACTOR);
@@ -281,9 +327,13 @@ public class BucketCache implements BlockCache, HeapSize {
     assert writerQueues.size() == writerThreads.length;
     this.ramCache = new RAMCache();
 
-    this.backingMap = new ConcurrentHashMap<>((int) blockNumCapacity);
+    this.backingMap = new CompactBackingMap();
 
-    if (ioEngine.isPersistent() && persistencePath != null) {
+    long persistInterval =
+        conf.getLong(BUCKETCACHE_PERSIST_INTERVAL_KEY, DEFAULT_BUCKETCACHE_PERSIST_INTERVAL);
+    boolean persistent = ioEngine.isPersistent() && persistencePath != null;
+    this.changedKeys = persistent && persistInterval > 0 ? ConcurrentHashMap.newKeySet() : null;
+    if (persistent) {
       try {
         retrieveFromFile(bucketSizes);
       } catch (IOException ioex) {
@@ -304,6 +354,10 @@ public class BucketCache implements BlockCache, HeapSize {
     // every five minutes.
     this.scheduleThreadPool.scheduleAtFixedRate(new StatisticsThread(this),
         statThreadPeriod, statThreadPeriod, TimeUnit.SECONDS);
+    if (changedKeys != null) {
+      this.scheduleThreadPool.scheduleWithFixedDelay(this::checkpoint, persistInterval,
+        persistInterval, TimeUnit.MILLISECONDS);
+    }
     LOG.info("Started bucket cache; ioengine=" + ioEngineName +
         ", capacity=" + StringUtils.byteDesc(capacity) +
       ", blockSize=" + StringUtils.byteDesc(blockSize) + ", writerThreadNum=" +
@@ -348,6 +402,21 @@ public class BucketCache implements BlockCache, HeapSize {
     return ioEngine.toString();
   }
 
+  /**
+   * Specifies the secondary cache that blocks evicted by {@link #freeSpace(String)} are copied to.
+   * Blocks evicted explicitly, e.g. on HFile close, are not passed on. Unlike the first level
+   * caches, the victim cache is not shut down along with this cache.
+   */
+  public void setVictimCache(BlockCache victimCache) {
+    if (victimHandler != null) {
+      throw new IllegalArgumentException("The victim cache has already been set");
+    }
+    victimHandler = Preconditions.checkNotNull(victimCache);
+    demotionExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(DEMOTION_QUEUE_SIZE),
+        new ThreadFactoryBuilder().setNameFormat("BucketCacheDemotion").setDaemon(true).build());
+  }
+
   /**
    * Get the IOEngine from the IO engine name
    * @param ioEngineName
@@ -418,12 +487,28 @@ public class BucketCache implements BlockCache, HeapSize {
         if (BlockCacheUtil.shouldReplaceExistingCacheBlock(this, cacheKey, cachedItem)) {
           cacheBlockWithWaitInternal(cacheKey, cachedItem, inMemory, wait);
         }
-      } else {
+      } else if (inMemory || isAdmitted(cacheKey, cachedItem)) {
         cacheBlockWithWaitInternal(cacheKey, cachedItem, inMemory, wait);
       }
     }
   }
 
+  /**
+   * Consults the admission policy, if any, once caching a new block would make us evict.
+   */
+  private boolean isAdmitted(BlockCacheKey cacheKey, Cacheable cachedItem) {
+    if (admissionPolicy == null
+        || bucketAllocator.getUsedSize() < bucketAllocator.getTotalSize() * minFactor) {
+      return true;
+    }
+    if (!admissionPolicy.admit(cacheKey, cachedItem)) {
+      cacheStats.rejected();
+      return false;
+    }
+    cacheStats.admitted();
+    return true;
+  }
+
   private void cacheBlockWithWaitInternal(BlockCacheKey cacheKey, Cacheable cachedItem,
       boolean inMemory, boolean wait) {
     if (!cacheEnabled) {
@@ -462,7 +547,25 @@ public class BucketCache implements BlockCache, HeapSize {
     } else {
       this.blockNumber.increment();
       this.heapSize.add(cachedItem.heapSize());
-      blocksByHFile.add(cacheKey);
+    }
+  }
+
+  @Override
+  public boolean containsBlock(BlockCacheKey cacheKey) {
+    return ramCache.containsKey(cacheKey) || backingMap.containsKey(cacheKey);
+  }
+
+  @Override
+  public void touchBlock(BlockCacheKey cacheKey) {
+    // Not RAMCache#get, which retains the block for a reader
+    RAMQueueEntry re = ramCache.delegate.get(cacheKey);
+    if (re != null) {
+      re.access(accessCount.incrementAndGet());
+      return;
+    }
+    BucketEntry bucketEntry = backingMap.get(cacheKey);
+    if (bucketEntry != null) {
+      bucketEntry.access(accessCount.incrementAndGet());
     }
   }
 
@@ -480,16 +583,20 @@ public class BucketCache implements BlockCache, HeapSize {
     if (!cacheEnabled) {
       return null;
     }
+    if (admissionPolicy != null && !repeat) {
+      admissionPolicy.recordAccess(key);
+    }
     RAMQueueEntry re = ramCache.get(key);
     if (re != null) {
       if (updateCacheMetrics) {
-        cacheStats.hit(caching, key.isPrimary(), key.getBlockType());
+        cacheStats.hit(caching, key.isPrimary(), key.getBlockType(), key.getPartition());
       }
       re.access(accessCount.incrementAndGet());
       return re.getData();
     }
     BucketEntry bucketEntry = backingMap.get(key);
     if (bucketEntry != null) {
+      boolean restoredBlockInvalid = false;
       long start = System.nanoTime();
       ReentrantReadWriteLock lock = offsetLock.getLock(bucketEntry.offset());
       try {
@@ -502,11 +609,17 @@ public class BucketCache implements BlockCache, HeapSize {
           // block will use the refCnt of bucketEntry, which means if two HFileBlock mapping to
           // the same BucketEntry, then all of the three will share the same refCnt.
           Cacheable cachedBlock = ioEngine.read(bucketEntry);
+          if (bucketEntry.isUnverified()) {
+            if (checksumOf(cachedBlock) != bucketEntry.getChecksum()) {
+              throw new ChecksumMismatchException();
+            }
+            bucketEntry.setUnverified(false);
+          }
           // RPC start to reference, so retain here.
           cachedBlock.retain();
           // Update the cache statistics.
           if (updateCacheMetrics) {
-            cacheStats.hit(caching, key.isPrimary(), key.getBlockType());
+            cacheStats.hit(caching, key.isPrimary(), key.getBlockType(), key.getPartition());
             cacheStats.ioHit(System.nanoTime() - start);
           }
           bucketEntry.access(accessCount.incrementAndGet());
@@ -515,24 +628,46 @@ public class BucketCache implements BlockCache, HeapSize {
           }
           return cachedBlock;
         }
+      } catch (ChecksumMismatchException e) {
+        restoredBlockInvalid = true;
       } catch (IOException ioex) {
-        LOG.error("Failed reading block " + key + " from bucket cache", ioex);
-        checkIOErrorIsTolerated();
+        if (bucketEntry.isUnverified()) {
+          // Most likely the restored entry points at bytes another block has since overwritten.
+          LOG.debug("Failed reading restored block " + key + " from bucket cache", ioex);
+          restoredBlockInvalid = true;
+        } else {
+          LOG.error("Failed reading block " + key + " from bucket cache", ioex);
+          checkIOErrorIsTolerated();
+        }
+      } catch (RuntimeException e) {
+        if (!bucketEntry.isUnverified()) {
+          throw e;
+        }
+        // Overwritten bytes may also fail the deserialization of the block.
+        LOG.debug("Failed decoding restored block " + key + " from bucket cache", e);
+        restoredBlockInvalid = true;
       } finally {
         lock.readLock().unlock();
       }
+      if (restoredBlockInvalid) {
+        LOG.warn("Dropping block {} restored from {}, its content changed since the checkpoint",
+          key, persistencePath);
+        bucketEntry.withWriteLock(offsetLock, bucketEntry::markAsEvicted);
+      }
     }
     if (!repeat && updateCacheMetrics) {
-      cacheStats.miss(caching, key.isPrimary(), key.getBlockType());
+      cacheStats.miss(caching, key.isPrimary(), key.getBlockType(), key.getPartition());
     }
     return null;
   }
 
   @VisibleForTesting
   void blockEvicted(BlockCacheKey cacheKey, BucketEntry bucketEntry, boolean decrementBlockNumber) {
+    // Record the change before the space can be reused by another block.
+    markChanged(cacheKey);
     bucketAllocator.freeBlock(bucketEntry.offset());
     realCacheSize.add(-1 * bucketEntry.getLength());
-    blocksByHFile.remove(cacheKey);
+    partitions.add(cacheKey.getPartition(), -1 * bucketEntry.getLength());
     if (decrementBlockNumber) {
       this.blockNumber.decrement();
     }
@@ -571,6 +706,105 @@ public class BucketCache implements BlockCache, HeapSize {
     }
   }
 
+  /**
+   * Evict the block to make room if no RPC refers to it, see
+   * {@link BucketEntry#markStaleAsEvicted()}. If a victim cache is set, the evicted entry keeps a
+   * reference for the demotion executor, which copies the block into the victim cache and then
+   * releases it. The space is reused once the copy is done.
+   * @return true if the entry was evicted
+   */
+  private boolean evictStale(BlockCacheKey cacheKey, BucketEntry bucketEntry) {
+    if (victimHandler == null) {
+      return bucketEntry.withWriteLock(offsetLock, bucketEntry::markStaleAsEvicted);
+    }
+    boolean evicted = bucketEntry.withWriteLock(offsetLock, () -> {
+      if (bucketEntry.markedAsEvicted.get() || bucketEntry.refCnt() != 1) {
+        return false;
+      }
+      bucketEntry.retain();
+      bucketEntry.markAsEvicted();
+      return true;
+    });
+    if (evicted) {
+      try {
+        demotionExecutor.execute(new Demotion(cacheKey, bucketEntry));
+      } catch (RejectedExecutionException e) {
+        bucketEntry.release();
+      }
+    }
+    return evicted;
+  }
+
+  /**
+   * Copy the block of an evicted entry into the victim cache and release the entry's last
+   * reference. The block returned by the IOEngine shares the entry's reference count, and with
+   * some engines its memory, so the victim cache gets a fresh on-heap copy.
+   */
+  private void demote(BlockCacheKey cacheKey, BucketEntry bucketEntry) {
+    Cacheable copy = null;
+    try {
+      Cacheable block = ioEngine.read(bucketEntry);
+      ByteBuffer bb = ByteBuffer.allocate(block.getSerializedLength());
+      block.serialize(bb, true);
+      bb.rewind();
+      copy = bucketEntry.deserializerReference().deserialize(ByteBuff.wrap(bb),
+        ByteBuffAllocator.HEAP);
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Failed reading block " + cacheKey + " for the victim cache", e);
+    } finally {
+      bucketEntry.release();
+    }
+    if (copy != null) {
+      victimHandler.cacheBlock(cacheKey, copy,
+        bucketEntry.getPriority() == BlockPriority.MEMORY);
+      // The victim cache holds its own reference now.
+      copy.release();
+    }
+  }
+
+  /**
+   * A queued {@link #demote(BlockCacheKey, BucketEntry)}, which keeps the entry so that the
+   * reference it holds can be released when the demotion never runs.
+   */
+  private final class Demotion implements Runnable {
+    private final BlockCacheKey cacheKey;
+    private final BucketEntry bucketEntry;
+
+    Demotion(BlockCacheKey cacheKey, BucketEntry bucketEntry) {
+      this.cacheKey = cacheKey;
+      this.bucketEntry = bucketEntry;
+    }
+
+    @Override
+    public void run() {
+      demote(cacheKey, bucketEntry);
+    }
+  }
+
+  /**
+   * Drops the queued demotions and waits for the running one, so that none reads from the IOEngine
+   * once it is shut down.
+   */
+  private void stopDemotions() {
+    if (demotionExecutor == null) {
+      return;
+    }
+    demotionExecutor.shutdown();
+    List<Runnable> queued = new ArrayList<>();
+    demotionExecutor.getQueue().drainTo(queued);
+    for (Runnable demotion : queued) {
+      ((Demotion) demotion).bucketEntry.release();
+    }
+    try {
+      if (!demotionExecutor.awaitTermination(DEMOTION_SHUTDOWN_WAIT_MS, TimeUnit.MILLISECONDS)) {
+        LOG.warn("Demotion to the victim cache did not finish in " + DEMOTION_SHUTDOWN_WAIT_MS
+            + " ms");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
   private Recycler createRecycler(BlockCacheKey cacheKey) {
     return () -> {
       if (!cacheEnabled) {
@@ -697,12 +931,40 @@ public class BucketCache implements BlockCache, HeapSize {
           bucketAllocator.getLeastFilledBuckets(inUseBuckets, completelyFreeBucketsNeeded);
       for (Map.Entry<BlockCacheKey, BucketEntry> entry : backingMap.entrySet()) {
         if (candidateBuckets.contains(bucketAllocator.getBucketIndex(entry.getValue().offset()))) {
-          entry.getValue().withWriteLock(offsetLock, entry.getValue()::markStaleAsEvicted);
+          evictStale(entry.getKey(), entry.getValue());
         }
       }
     }
   }
 
+  /**
+   * Evicts the least recently used blocks of the partitions over their share, see
+   * {@link BlockCachePartitions#getBytesToFree(long, long)}.
+   */
+  private void freePartitions() {
+    long minSize = (long) Math.floor(bucketAllocator.getTotalSize() * minFactor);
+    Map<String, Long> bytesToFree = partitions.getBytesToFree(acceptableSize(), minSize);
+    if (bytesToFree.isEmpty()) {
+      return;
+    }
+    Map<String, BucketEntryGroup> groups = new HashMap<>();
+    bytesToFree.forEach((partition, bytes) ->
+        groups.put(partition, new BucketEntryGroup(bytes, blockSize, 0)));
+    for (Map.Entry<BlockCacheKey, BucketEntry> bucketEntryWithKey : backingMap.entrySet()) {
+      String partition = bucketEntryWithKey.getKey().getPartition();
+      BucketEntryGroup group = partition == null ? null : groups.get(partition);
+      if (group != null) {
+        group.add(bucketEntryWithKey);
+      }
+    }
+    groups.forEach((partition, group) -> {
+      long freed = group.free(bytesToFree.get(partition));
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Freed " + StringUtils.byteDesc(freed) + " from partition " + partition);
+      }
+    });
+  }
+
   /**
    * Free the space if the used size reaches acceptableSize() or one size block
    * couldn't be allocated. When freeing the space, we use the LRU algorithm and
@@ -714,8 +976,10 @@ public class BucketCache implements BlockCache, HeapSize {
     if (!freeSpaceLock.tryLock()) {
       return;
     }
+    long start = System.nanoTime();
     try {
       freeInProgress = true;
+      freePartitions();
       long bytesToFreeWithoutExtra = 0;
       // Calculate free byte for each bucketSizeinfo
       StringBuilder msgBuffer = LOG.isDebugEnabled()? new StringBuilder(): null;
@@ -841,7 +1105,7 @@ public class BucketCache implements BlockCache, HeapSize {
     } catch (Throwable t) {
       LOG.warn("Failed freeing space", t);
     } finally {
-      cacheStats.evict();
+      cacheStats.evict(start);
       freeInProgress = false;
       freeSpaceLock.unlock();
     }
@@ -903,6 +1167,8 @@ public class BucketCache implements BlockCache, HeapSize {
      */
     private void putIntoBackingMap(BlockCacheKey key, BucketEntry bucketEntry) {
       BucketEntry previousEntry = backingMap.put(key, bucketEntry);
+      partitions.add(key.getPartition(), bucketEntry.getLength());
+      markChanged(key);
       if (previousEntry != null && previousEntry != bucketEntry) {
         previousEntry.withWriteLock(offsetLock, () -> {
           blockEvicted(key, previousEntry, false);
@@ -945,6 +1211,9 @@ public class BucketCache implements BlockCache, HeapSize {
             continue;
           }
           BucketEntry bucketEntry = re.writeToCache(ioEngine, bucketAllocator, realCacheSize);
+          if (bucketEntry != null && changedKeys != null) {
+            bucketEntry.setChecksum(checksumOf(re.getData()));
+          }
           // Successfully added. Up index and add bucketEntry. Clear io exceptions.
           bucketEntries[index] = bucketEntry;
           if (ioErrorStartTime > 0) {
@@ -1014,6 +1283,8 @@ public class BucketCache implements BlockCache, HeapSize {
       long used = bucketAllocator.getUsedSize();
       if (used > acceptableSize()) {
         freeSpace("Used=" + used + " > acceptable=" + acceptableSize());
+      } else if (partitions.isAnyOverShare(acceptableSize())) {
+        freeSpace("A partition is over its share of acceptable=" + acceptableSize());
       }
       return;
     }
@@ -1038,24 +1309,110 @@ public class BucketCache implements BlockCache, HeapSize {
     return receptacle;
   }
 
+  private void markChanged(BlockCacheKey key) {
+    if (changedKeys != null) {
+      changedKeys.add(key);
+    }
+  }
+
+  /**
+   * CRC32 of the bytes a block is stored as in the IOEngine, see
+   * {@link RAMQueueEntry#writeToCache(IOEngine, BucketAllocator, LongAdder)}.
+   */
+  @VisibleForTesting
+  static int checksumOf(Cacheable block) {
+    CRC32 crc = new CRC32();
+    if (block instanceof HFileBlock) {
+      HFileBlock hfileBlock = (HFileBlock) block;
+      ByteBuff buf = hfileBlock.getBufferReadOnly();
+      if (buf instanceof SingleByteBuff) {
+        crc.update(buf.nioByteBuffers()[0].duplicate());
+      } else {
+        crc.update(buf.toBytes(0, buf.limit()));
+      }
+      crc.update(hfileBlock.getMetaData());
+    } else {
+      ByteBuffer bb = ByteBuffer.allocate(block.getSerializedLength());
+      block.serialize(bb, true);
+      bb.rewind();
+      crc.update(bb);
+    }
+    return (int) crc.getValue();
+  }
+
+  /**
+   * Append the backing map changes since the last checkpoint to the persistence file, or rewrite
+   * it if this is the first checkpoint or the appended changes outgrew the map. Failures are
+   * logged; the changes are then picked up by a later full rewrite.
+   */
+  @VisibleForTesting
+  void checkpoint() {
+    synchronized (persistLock) {
+      if (!cacheEnabled) {
+        // Shutting down, the final persist writes everything.
+        return;
+      }
+      try {
+        if (appendedEntries < 0 || appendedEntries > backingMap.size()) {
+          changedKeys.clear();
+          writePersistenceFile();
+          appendedEntries = 0;
+          return;
+        }
+        if (changedKeys.isEmpty()) {
+          return;
+        }
+        List<BlockCacheKey> keys = new ArrayList<>(changedKeys.size());
+        for (Iterator<BlockCacheKey> it = changedKeys.iterator(); it.hasNext();) {
+          // Remove before reading the entry, a change racing with us marks the key again.
+          keys.add(it.next());
+          it.remove();
+        }
+        try (FileOutputStream fos = new FileOutputStream(persistencePath, true)) {
+          BucketProtoUtils.toDeltaPB(keys, backingMap).writeDelimitedTo(fos);
+          fos.getChannel().force(false);
+        }
+        appendedEntries += keys.size();
+      } catch (IOException ioex) {
+        LOG.warn("Failed checkpointing bucket cache to " + persistencePath, ioex);
+        appendedEntries = -1;
+      }
+    }
+  }
+
   /**
    * @see #retrieveFromFile(int[])
    */
-  @edu.umd.cs.findbugs.annotations.SuppressWarnings(value="OBL_UNSATISFIED_OBLIGATION",
-      justification = "false positive, try-with-resources ensures close is called.")
   private void persistToFile() throws IOException {
     assert !cacheEnabled;
     if (!ioEngine.isPersistent()) {
       throw new IOException("Attempt to persist non-persistent cache mappings!");
     }
-    try (FileOutputStream fos = new FileOutputStream(persistencePath, false)) {
+    synchronized (persistLock) {
+      writePersistenceFile();
+    }
+  }
+
+  /**
+   * Write the whole backing map next to the persistence file and then move it in place, so a crash
+   * never leaves a partially written map behind.
+   */
+  @edu.umd.cs.findbugs.annotations.SuppressWarnings(value="OBL_UNSATISFIED_OBLIGATION",
+      justification = "false positive, try-with-resources ensures close is called.")
+  private void writePersistenceFile() throws IOException {
+    File tmp = new File(persistencePath + ".tmp");
+    try (FileOutputStream fos = new FileOutputStream(tmp, false)) {
       fos.write(ProtobufMagic.PB_MAGIC);
       BucketProtoUtils.toPB(this).writeDelimitedTo(fos);
+      fos.getChannel().force(false);
     }
+    Files.move(tmp.toPath(), Paths.get(persistencePath), StandardCopyOption.REPLACE_EXISTING,
+      StandardCopyOption.ATOMIC_MOVE);
   }
 
   /**
    * @see #persistToFile()
+   * @see #checkpoint()
    */
   private void retrieveFromFile(int[] bucketSizes) throws IOException {
     File persistenceFile = new File(persistencePath);
@@ -1078,11 +1435,68 @@ public class BucketCache implements BlockCache, HeapSize {
         throw new IOException("Persistence file does not start with protobuf magic number. " +
             persistencePath);
       }
-      parsePB(BucketCacheProtos.BucketCacheEntry.parseDelimitedFrom(in));
-      bucketAllocator = new BucketAllocator(cacheCapacity, bucketSizes, backingMap, realCacheSize);
+      BucketCacheProtos.BucketCacheEntry proto =
+          BucketCacheProtos.BucketCacheEntry.parseDelimitedFrom(in);
+      parsePB(proto);
+      int deltas = 0;
+      try {
+        BucketCacheProtos.BackingMapDelta delta;
+        while ((delta = BucketCacheProtos.BackingMapDelta.parseDelimitedFrom(in)) != null) {
+          BucketProtoUtils.applyDelta(proto.getDeserializersMap(), delta, backingMap,
+            this::createRecycler);
+          deltas++;
+        }
+      } catch (IOException e) {
+        // The server died while appending the last checkpoint; the ones before it are complete.
+        LOG.warn("Ignoring incomplete checkpoint at the end of " + persistencePath, e);
+      }
+      if (deltas > 0) {
+        // Checkpoints are not atomic snapshots, a block and the block that replaced it at the same
+        // offset can both be recorded. Neither can be trusted.
+        removeOverlappingEntries();
+      }
+      try {
+        bucketAllocator =
+            new BucketAllocator(cacheCapacity, bucketSizes, backingMap, realCacheSize);
+      } catch (BucketAllocatorException e) {
+        if (deltas == 0) {
+          throw e;
+        }
+        // A bucket was reused for another block size between checkpoints. Start empty.
+        LOG.warn("Discarding blocks restored from " + persistencePath, e);
+        backingMap.clear();
+        realCacheSize.reset();
+        return;
+      }
+      backingMap.forEach((key, be) -> partitions.add(key.getPartition(), be.getLength()));
+      LOG.info("Restored {} blocks from {} with {} checkpoints applied", backingMap.size(),
+        persistencePath, deltas);
+    }
+  }
+
+  private void removeOverlappingEntries() {
+    Map<Long, BlockCacheKey> byOffset = new HashMap<>(backingMap.size());
+    Set<BlockCacheKey> overlapping = new HashSet<>();
+    for (Map.Entry<BlockCacheKey, BucketEntry> entry : backingMap.entrySet()) {
+      BlockCacheKey previous = byOffset.put(entry.getValue().offset(), entry.getKey());
+      if (previous != null) {
+        overlapping.add(previous);
+        overlapping.add(entry.getKey());
+      }
+    }
+    if (!overlapping.isEmpty()) {
+      LOG.info("Dropping {} restored blocks sharing an offset", overlapping.size());
+      overlapping.forEach(backingMap::remove);
     }
   }
 
+  /**
+   * Thrown when a block restored from a checkpoint no longer matches its checksum.
+   */
+  private static class ChecksumMismatchException extends IOException {
+    private static final long serialVersionUID = 1L;
+  }
+
   /**
    * Create an input stream that deletes the file after reading it. Use in try-with-resources to
    * avoid this pattern where an exception thrown from a finally block may mask earlier exceptions:
@@ -1129,7 +1543,8 @@ public class BucketCache implements BlockCache, HeapSize {
 
   private void parsePB(BucketCacheProtos.BucketCacheEntry proto) throws IOException {
     verifyCapacityAndClasses(proto.getCacheCapacity(), proto.getIoClass(), proto.getMapClass());
-    backingMap = BucketProtoUtils.fromPB(proto.getDeserializersMap(), proto.getBackingMap());
+    backingMap = BucketProtoUtils.fromPB(proto.getDeserializersMap(), proto.getBackingMap(),
+      this::createRecycler);
   }
 
   /**
@@ -1156,6 +1571,7 @@ public class BucketCache implements BlockCache, HeapSize {
   private void disableCache() {
     if (!cacheEnabled) return;
     cacheEnabled = false;
+    stopDemotions();
     ioEngine.shutdown();
     this.scheduleThreadPool.shutdown();
     for (int i = 0; i < writerThreads.length; ++i) writerThreads[i].interrupt();
@@ -1193,6 +1609,21 @@ public class BucketCache implements BlockCache, HeapSize {
     return cacheStats;
   }
 
+  @Override
+  public void setPartitionShare(String partition, String owner, float share) {
+    partitions.setShare(partition, owner, share);
+  }
+
+  @Override
+  public void removePartitionShare(String partition, String owner) {
+    partitions.removeShare(partition, owner);
+  }
+
+  @VisibleForTesting
+  public BlockCachePartitions getPartitions() {
+    return partitions;
+  }
+
   public BucketAllocator getAllocator() {
     return this.bucketAllocator;
   }
@@ -1241,9 +1672,7 @@ public class BucketCache implements BlockCache, HeapSize {
    */
   @Override
   public int evictBlocksByHfileName(String hfileName) {
-    Set<BlockCacheKey> keySet = blocksByHFile.subSet(
-        new BlockCacheKey(hfileName, Long.MIN_VALUE), true,
-        new BlockCacheKey(hfileName, Long.MAX_VALUE), true);
+    Set<BlockCacheKey> keySet = getBlocksByHfileName(hfileName);
 
     int numEvicted = 0;
     for (BlockCacheKey key : keySet) {
@@ -1255,6 +1684,25 @@ public class BucketCache implements BlockCache, HeapSize {
     return numEvicted;
   }
 
+  /**
+   * Counts the blocks of a specific HFile, including those restored from the persistence file.
+   */
+  @Override
+  public int getBlockCountByHfileName(String hfileName) {
+    return getBlocksByHfileName(hfileName).size();
+  }
+
+  private Set<BlockCacheKey> getBlocksByHfileName(String hfileName) {
+    Set<BlockCacheKey> keys = new HashSet<>();
+    for (BlockCacheKey key : ramCache.delegate.keySet()) {
+      if (key.getHfileName().equals(hfileName)) {
+        keys.add(key);
+      }
+    }
+    keys.addAll(backingMap.getKeys(hfileName));
+    return keys;
+  }
+
   /**
    * Used to group bucket entries into priority buckets. There will be a
    * BucketEntryGroup for each priority (single, multi, memory). Once bucketed,
@@ -1285,7 +1733,7 @@ public class BucketCache implements BlockCache, HeapSize {
       // What to do then? Caching attempt fail? Need some changes in cacheBlock API?
       while ((entry = queue.pollLast()) != null) {
         BucketEntry be = entry.getValue();
-        if (be.withWriteLock(offsetLock, be::markStaleAsEvicted)) {
+        if (evictStale(entry.getKey(), be)) {
           freedBytes += be.getLength();
         }
         if (freedBytes >= toFree) {
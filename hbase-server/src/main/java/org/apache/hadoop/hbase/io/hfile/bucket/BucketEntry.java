@@ -63,6 +63,17 @@ class BucketEntry implements HBaseReferenceCounted {
   private volatile long accessCounter;
   private BlockPriority priority;
 
+  /**
+   * CRC32 of the cached bytes, see {@link BucketCache#checksumOf(Cacheable)}. Only computed when
+   * the backing map is checkpointed, so that a restore can tell whether the bytes at the offset
+   * are still the ones this entry was written with.
+   */
+  private int checksum;
+  private boolean hasChecksum;
+
+  /** True for entries restored from a checkpoint that have not been read since. */
+  private volatile boolean unverified;
+
   /**
    * The RefCnt means how many paths are referring the {@link BucketEntry}, each RPC reading path is
    * considering as one path, the {@link BucketCache#backingMap} reference is also considered a
@@ -144,6 +155,27 @@ class BucketEntry implements HBaseReferenceCounted {
     }
   }
 
+  boolean hasChecksum() {
+    return hasChecksum;
+  }
+
+  int getChecksum() {
+    return checksum;
+  }
+
+  void setChecksum(int checksum) {
+    this.checksum = checksum;
+    this.hasChecksum = true;
+  }
+
+  boolean isUnverified() {
+    return unverified;
+  }
+
+  void setUnverified(boolean unverified) {
+    this.unverified = unverified;
+  }
+
   public BlockPriority getPriority() {
     return this.priority;
   }
@@ -22,13 +22,16 @@ package org.apache.hadoop.hbase.io.hfile.bucket;
 
 import java.io.IOException;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
+import org.apache.hadoop.hbase.io.ByteBuffAllocator;
+import org.apache.hadoop.hbase.io.ByteBuffAllocator.Recycler;
 import org.apache.hadoop.hbase.io.hfile.BlockCacheKey;
 import org.apache.hadoop.hbase.io.hfile.BlockPriority;
 import org.apache.hadoop.hbase.io.hfile.BlockType;
 import org.apache.hadoop.hbase.io.hfile.CacheableDeserializerIdManager;
 import org.apache.hadoop.hbase.io.hfile.HFileBlock;
+import org.apache.hadoop.hbase.nio.RefCnt;
 import org.apache.yetus.audience.InterfaceAudience;
 
 import org.apache.hadoop.hbase.shaded.protobuf.generated.BucketCacheProtos;
@@ -62,12 +65,15 @@ final class BucketProtoUtils {
   }
 
   private static BucketCacheProtos.BlockCacheKey toPB(BlockCacheKey key) {
-    return BucketCacheProtos.BlockCacheKey.newBuilder()
+    BucketCacheProtos.BlockCacheKey.Builder builder = BucketCacheProtos.BlockCacheKey.newBuilder()
         .setHfilename(key.getHfileName())
         .setOffset(key.getOffset())
         .setPrimaryReplicaBlock(key.isPrimary())
-        .setBlockType(toPB(key.getBlockType()))
-        .build();
+        .setBlockType(toPB(key.getBlockType()));
+    if (key.getPartition() != null) {
+      builder.setPartition(key.getPartition());
+    }
+    return builder.build();
   }
 
   private static BucketCacheProtos.BlockType toPB(BlockType blockType) {
@@ -102,13 +108,38 @@ final class BucketProtoUtils {
   }
 
   private static BucketCacheProtos.BucketEntry toPB(BucketEntry entry) {
-    return BucketCacheProtos.BucketEntry.newBuilder()
+    BucketCacheProtos.BucketEntry.Builder builder = BucketCacheProtos.BucketEntry.newBuilder()
         .setOffset(entry.offset())
         .setLength(entry.getLength())
         .setDeserialiserIndex(entry.deserializerIndex)
         .setAccessCounter(entry.getAccessCounter())
-        .setPriority(toPB(entry.getPriority()))
-        .build();
+        .setPriority(toPB(entry.getPriority()));
+    if (entry.hasChecksum()) {
+      builder.setChecksum(entry.getChecksum());
+    }
+    return builder.build();
+  }
+
+  /**
+   * @param keys the keys changed since the last checkpoint
+   * @return the current state of the given keys in the backing map
+   */
+  static BucketCacheProtos.BackingMapDelta toDeltaPB(Iterable<BlockCacheKey> keys,
+      Map<BlockCacheKey, BucketEntry> backingMap) {
+    BucketCacheProtos.BackingMapDelta.Builder builder =
+        BucketCacheProtos.BackingMapDelta.newBuilder();
+    for (BlockCacheKey key : keys) {
+      BucketEntry entry = backingMap.get(key);
+      if (entry == null) {
+        builder.addRemoved(toPB(key));
+      } else {
+        builder.addAdded(BucketCacheProtos.BackingMapEntry.newBuilder()
+            .setKey(toPB(key))
+            .setValue(toPB(entry))
+            .build());
+      }
+    }
+    return builder.build();
   }
 
   private static BucketCacheProtos.BlockPriority toPB(BlockPriority p) {
@@ -124,40 +155,69 @@ final class BucketProtoUtils {
     }
   }
 
-  static ConcurrentHashMap<BlockCacheKey, BucketEntry> fromPB(
-      Map<Integer, String> deserializers, BucketCacheProtos.BackingMap backingMap)
-      throws IOException {
-    ConcurrentHashMap<BlockCacheKey, BucketEntry> result = new ConcurrentHashMap<>();
+  static CompactBackingMap fromPB(
+      Map<Integer, String> deserializers, BucketCacheProtos.BackingMap backingMap,
+      Function<BlockCacheKey, Recycler> createRecycler) throws IOException {
+    CompactBackingMap result = new CompactBackingMap();
     for (BucketCacheProtos.BackingMapEntry entry : backingMap.getEntryList()) {
-      BucketCacheProtos.BlockCacheKey protoKey = entry.getKey();
-      BlockCacheKey key = new BlockCacheKey(protoKey.getHfilename(), protoKey.getOffset(),
-          protoKey.getPrimaryReplicaBlock(), fromPb(protoKey.getBlockType()));
-      BucketCacheProtos.BucketEntry protoValue = entry.getValue();
-      BucketEntry value = new BucketEntry(
-          protoValue.getOffset(),
-          protoValue.getLength(),
-          protoValue.getAccessCounter(),
-          protoValue.getPriority() == BucketCacheProtos.BlockPriority.memory);
-      // This is the deserializer that we stored
-      int oldIndex = protoValue.getDeserialiserIndex();
-      String deserializerClass = deserializers.get(oldIndex);
-      if (deserializerClass == null) {
-        throw new IOException("Found deserializer index without matching entry.");
-      }
-      // Convert it to the identifier for the deserializer that we have in this runtime
-      if (deserializerClass.equals(HFileBlock.BlockDeserializer.class.getName())) {
-        int actualIndex = HFileBlock.BLOCK_DESERIALIZER.getDeserializerIdentifier();
-        value.deserializerIndex = (byte) actualIndex;
-      } else {
-        // We could make this more plugable, but right now HFileBlock is the only implementation
-        // of Cacheable outside of tests, so this might not ever matter.
-        throw new IOException("Unknown deserializer class found: " + deserializerClass);
-      }
-      result.put(key, value);
+      BlockCacheKey key = fromPB(entry.getKey());
+      result.put(key, fromPB(deserializers, entry.getValue(), createRecycler.apply(key)));
     }
     return result;
   }
 
+  /**
+   * Apply the changes of a checkpoint to a backing map restored from an earlier one.
+   */
+  static void applyDelta(Map<Integer, String> deserializers,
+      BucketCacheProtos.BackingMapDelta delta, Map<BlockCacheKey, BucketEntry> backingMap,
+      Function<BlockCacheKey, Recycler> createRecycler) throws IOException {
+    for (BucketCacheProtos.BlockCacheKey protoKey : delta.getRemovedList()) {
+      backingMap.remove(fromPB(protoKey));
+    }
+    for (BucketCacheProtos.BackingMapEntry entry : delta.getAddedList()) {
+      BlockCacheKey key = fromPB(entry.getKey());
+      backingMap.put(key, fromPB(deserializers, entry.getValue(), createRecycler.apply(key)));
+    }
+  }
+
+  private static BlockCacheKey fromPB(BucketCacheProtos.BlockCacheKey protoKey) {
+    return new BlockCacheKey(protoKey.getHfilename(), protoKey.getOffset(),
+        protoKey.getPrimaryReplicaBlock(), fromPb(protoKey.getBlockType()),
+        protoKey.hasPartition() ? protoKey.getPartition() : null);
+  }
+
+  private static BucketEntry fromPB(Map<Integer, String> deserializers,
+      BucketCacheProtos.BucketEntry protoValue, Recycler recycler) throws IOException {
+    BucketEntry value = new BucketEntry(
+        protoValue.getOffset(),
+        protoValue.getLength(),
+        protoValue.getAccessCounter(),
+        protoValue.getPriority() == BucketCacheProtos.BlockPriority.memory,
+        RefCnt.create(recycler), ByteBuffAllocator.HEAP);
+    if (protoValue.hasChecksum()) {
+      value.setChecksum(protoValue.getChecksum());
+      // The bytes at the offset may have been overwritten after the checkpoint was taken.
+      value.setUnverified(true);
+    }
+    // This is the deserializer that we stored
+    int oldIndex = protoValue.getDeserialiserIndex();
+    String deserializerClass = deserializers.get(oldIndex);
+    if (deserializerClass == null) {
+      throw new IOException("Found deserializer index without matching entry.");
+    }
+    // Convert it to the identifier for the deserializer that we have in this runtime
+    if (deserializerClass.equals(HFileBlock.BlockDeserializer.class.getName())) {
+      int actualIndex = HFileBlock.BLOCK_DESERIALIZER.getDeserializerIdentifier();
+      value.deserializerIndex = (byte) actualIndex;
+    } else {
+      // We could make this more plugable, but right now HFileBlock is the only implementation
+      // of Cacheable outside of tests, so this might not ever matter.
+      throw new IOException("Unknown deserializer class found: " + deserializerClass);
+    }
+    return value;
+  }
+
   private static BlockType fromPb(BucketCacheProtos.BlockType blockType) {
     switch (blockType) {
       case data:
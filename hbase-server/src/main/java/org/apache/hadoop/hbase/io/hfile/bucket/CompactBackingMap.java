@@ -0,0 +1,501 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile.bucket;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+import org.apache.hadoop.hbase.io.hfile.BlockCacheKey;
+import org.apache.hadoop.hbase.io.hfile.BlockType;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * The backing map of a {@link BucketCache}, which keeps no object per block but its
+ * {@link BucketEntry}.
+ * <p>
+ * Keyed by {@link BlockCacheKey} in a ConcurrentHashMap, every block costs a map node and a key
+ * object besides its entry, and with hundreds of millions of blocks the heap rather than the
+ * IOEngine limits the capacity of the cache. This map keeps a dictionary of the files it holds
+ * blocks of instead. Each file holds its name and partition once, and an open-addressing hash table
+ * of the offsets of its blocks in primitive arrays, with the block type and replica of each block
+ * in a byte. Keys are rebuilt when the map is iterated.
+ * <p>
+ * Lookups do not lock, they read the table of the file under an optimistic stamp and only retry
+ * under the read lock if the table changed meanwhile. Changes lock the table of their file. A file
+ * leaves the dictionary with its last block. Iterators are weakly consistent, as the ones of a
+ * ConcurrentHashMap.
+ */
+@InterfaceAudience.Private
+class CompactBackingMap extends AbstractMap<BlockCacheKey, BucketEntry>
+    implements ConcurrentMap<BlockCacheKey, BucketEntry> {
+
+  private static final BlockType[] BLOCK_TYPES = BlockType.values();
+  // Of the attributes of a block, the rest is the ordinal of the block type plus one, 0 for none
+  private static final int SECONDARY_REPLICA = 0x80;
+
+  private final ConcurrentMap<String, FileBlocks> files = new ConcurrentHashMap<>();
+  private final LongAdder size = new LongAdder();
+
+  @Override
+  public BucketEntry get(Object key) {
+    if (!(key instanceof BlockCacheKey)) {
+      return null;
+    }
+    BlockCacheKey cacheKey = (BlockCacheKey) key;
+    FileBlocks file = files.get(cacheKey.getHfileName());
+    return file == null ? null : file.get(cacheKey.getOffset());
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public BucketEntry put(BlockCacheKey key, BucketEntry value) {
+    return put(key, value, false);
+  }
+
+  @Override
+  public BucketEntry putIfAbsent(BlockCacheKey key, BucketEntry value) {
+    return put(key, value, true);
+  }
+
+  private BucketEntry put(BlockCacheKey key, BucketEntry value, boolean onlyIfAbsent) {
+    Objects.requireNonNull(value);
+    while (true) {
+      FileBlocks file = files.computeIfAbsent(key.getHfileName(),
+        name -> new FileBlocks(name, key.getPartition()));
+      long stamp = file.lock.writeLock();
+      try {
+        if (file.removed) {
+          // Its last block was removed after we found it, the file has to be added again
+          continue;
+        }
+        BucketEntry previous = file.put(key, value, onlyIfAbsent);
+        if (previous == null) {
+          size.increment();
+        }
+        return previous;
+      } finally {
+        file.lock.unlockWrite(stamp);
+      }
+    }
+  }
+
+  @Override
+  public BucketEntry remove(Object key) {
+    return key instanceof BlockCacheKey ? remove((BlockCacheKey) key, null) : null;
+  }
+
+  @Override
+  public boolean remove(Object key, Object value) {
+    return key instanceof BlockCacheKey && value != null
+        && remove((BlockCacheKey) key, value) != null;
+  }
+
+  /**
+   * @param expected the entry to remove, null to remove any
+   * @return the removed entry, null if none was
+   */
+  private BucketEntry remove(BlockCacheKey key, Object expected) {
+    FileBlocks file = files.get(key.getHfileName());
+    if (file == null) {
+      return null;
+    }
+    long stamp = file.lock.writeLock();
+    try {
+      int slot = file.find(key.getOffset());
+      if (file.removed || slot < 0
+          || (expected != null && !expected.equals(file.table.entries[slot]))) {
+        return null;
+      }
+      BucketEntry previous = file.table.entries[slot];
+      file.delete(slot);
+      size.decrement();
+      if (file.size == 0) {
+        file.removed = true;
+        files.remove(file.hfileName, file);
+      }
+      return previous;
+    } finally {
+      file.lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public boolean replace(BlockCacheKey key, BucketEntry oldValue, BucketEntry newValue) {
+    Objects.requireNonNull(newValue);
+    FileBlocks file = files.get(key.getHfileName());
+    if (file == null) {
+      return false;
+    }
+    long stamp = file.lock.writeLock();
+    try {
+      int slot = file.find(key.getOffset());
+      if (file.removed || slot < 0 || !file.table.entries[slot].equals(oldValue)) {
+        return false;
+      }
+      file.table.entries[slot] = newValue;
+      return true;
+    } finally {
+      file.lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public BucketEntry replace(BlockCacheKey key, BucketEntry value) {
+    Objects.requireNonNull(value);
+    FileBlocks file = files.get(key.getHfileName());
+    if (file == null) {
+      return null;
+    }
+    long stamp = file.lock.writeLock();
+    try {
+      int slot = file.find(key.getOffset());
+      if (file.removed || slot < 0) {
+        return null;
+      }
+      BucketEntry previous = file.table.entries[slot];
+      file.table.entries[slot] = value;
+      return previous;
+    } finally {
+      file.lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public int size() {
+    return (int) Math.min(size.sum(), Integer.MAX_VALUE);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return files.isEmpty();
+  }
+
+  @Override
+  public void clear() {
+    for (FileBlocks file : files.values()) {
+      long stamp = file.lock.writeLock();
+      try {
+        if (!file.removed) {
+          file.removed = true;
+          files.remove(file.hfileName, file);
+          size.add(-file.size);
+        }
+      } finally {
+        file.lock.unlockWrite(stamp);
+      }
+    }
+  }
+
+  /**
+   * @return the keys of the blocks of the file, empty if there are none
+   */
+  List<BlockCacheKey> getKeys(String hfileName) {
+    FileBlocks file = files.get(hfileName);
+    if (file == null) {
+      return Collections.emptyList();
+    }
+    Table table = file.snapshot();
+    List<BlockCacheKey> keys = new ArrayList<>();
+    for (int i = 0; i < table.entries.length; i++) {
+      if (table.entries[i] != null) {
+        keys.add(file.key(table, i));
+      }
+    }
+    return keys;
+  }
+
+  @Override
+  public Set<Map.Entry<BlockCacheKey, BucketEntry>> entrySet() {
+    return new AbstractSet<Map.Entry<BlockCacheKey, BucketEntry>>() {
+      @Override
+      public Iterator<Map.Entry<BlockCacheKey, BucketEntry>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return CompactBackingMap.this.size();
+      }
+
+      @Override
+      public void clear() {
+        CompactBackingMap.this.clear();
+      }
+    };
+  }
+
+  /**
+   * Iterates over a copy of the table of each file in turn.
+   */
+  private final class EntryIterator implements Iterator<Map.Entry<BlockCacheKey, BucketEntry>> {
+    private final Iterator<FileBlocks> fileIterator = files.values().iterator();
+    private FileBlocks file;
+    private Table table;
+    private int slot;
+    private BlockCacheKey lastKey;
+
+    @Override
+    public boolean hasNext() {
+      while (true) {
+        if (table != null) {
+          while (slot < table.entries.length && table.entries[slot] == null) {
+            slot++;
+          }
+          if (slot < table.entries.length) {
+            return true;
+          }
+        }
+        if (!fileIterator.hasNext()) {
+          return false;
+        }
+        file = fileIterator.next();
+        table = file.snapshot();
+        slot = 0;
+      }
+    }
+
+    @Override
+    public Map.Entry<BlockCacheKey, BucketEntry> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      lastKey = file.key(table, slot);
+      BucketEntry entry = table.entries[slot++];
+      return new AbstractMap.SimpleImmutableEntry<>(lastKey, entry);
+    }
+
+    @Override
+    public void remove() {
+      if (lastKey == null) {
+        throw new IllegalStateException();
+      }
+      CompactBackingMap.this.remove(lastKey);
+      lastKey = null;
+    }
+  }
+
+  /**
+   * An open-addressing hash table with linear probing of the offsets of the blocks of a file. A
+   * slot is free if its entry is null.
+   */
+  private static final class Table {
+    final long[] offsets;
+    final BucketEntry[] entries;
+    final byte[] attributes;
+    final int shift;
+
+    Table(int capacity) {
+      offsets = new long[capacity];
+      entries = new BucketEntry[capacity];
+      attributes = new byte[capacity];
+      shift = Long.numberOfLeadingZeros(capacity) + 1;
+    }
+
+    private Table(Table table) {
+      offsets = table.offsets.clone();
+      entries = table.entries.clone();
+      attributes = table.attributes.clone();
+      shift = table.shift;
+    }
+
+    int home(long offset) {
+      // Fibonacci hashing, offsets of blocks are spaced evenly
+      return (int) ((offset * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    /**
+     * @return the slot of the offset, or -1 if it is not in the table
+     */
+    int find(long offset) {
+      int mask = entries.length - 1;
+      for (int i = home(offset), n = 0; n <= mask; i = (i + 1) & mask, n++) {
+        if (entries[i] == null) {
+          return -1;
+        }
+        if (offsets[i] == offset) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * @return the free slot the offset goes to, the table must not hold it
+     */
+    int freeSlot(long offset) {
+      int mask = entries.length - 1;
+      int i = home(offset);
+      while (entries[i] != null) {
+        i = (i + 1) & mask;
+      }
+      return i;
+    }
+  }
+
+  /**
+   * The blocks of a file. The table is read under an optimistic stamp of the lock, or its read
+   * lock, and changed under its write lock.
+   */
+  private static final class FileBlocks {
+    private static final int MIN_CAPACITY = 8;
+
+    final String hfileName;
+    final String partition;
+    final StampedLock lock = new StampedLock();
+    // Guarded by lock
+    Table table = new Table(MIN_CAPACITY);
+    int size;
+    // Set once the file left the dictionary, guarded by lock
+    boolean removed;
+
+    FileBlocks(String hfileName, String partition) {
+      this.hfileName = hfileName;
+      this.partition = partition;
+    }
+
+    BucketEntry get(long offset) {
+      long stamp = lock.tryOptimisticRead();
+      BucketEntry entry = getUnlocked(offset);
+      if (!lock.validate(stamp)) {
+        stamp = lock.readLock();
+        try {
+          entry = getUnlocked(offset);
+        } finally {
+          lock.unlockRead(stamp);
+        }
+      }
+      return entry;
+    }
+
+    private BucketEntry getUnlocked(long offset) {
+      Table t = table;
+      int slot = t.find(offset);
+      return slot < 0 ? null : t.entries[slot];
+    }
+
+    int find(long offset) {
+      return table.find(offset);
+    }
+
+    BucketEntry put(BlockCacheKey key, BucketEntry value, boolean onlyIfAbsent) {
+      int slot = table.find(key.getOffset());
+      if (slot >= 0) {
+        BucketEntry previous = table.entries[slot];
+        if (!onlyIfAbsent) {
+          table.entries[slot] = value;
+          table.attributes[slot] = attributes(key);
+        }
+        return previous;
+      }
+      if ((size + 1) * 4L > table.entries.length * 3L) {
+        resize(table.entries.length * 2);
+      }
+      slot = table.freeSlot(key.getOffset());
+      table.offsets[slot] = key.getOffset();
+      table.attributes[slot] = attributes(key);
+      table.entries[slot] = value;
+      size++;
+      return null;
+    }
+
+    /**
+     * Frees the slot, moving back the offsets after it that would no longer be found.
+     */
+    void delete(int slot) {
+      Table t = table;
+      int mask = t.entries.length - 1;
+      int free = slot;
+      t.entries[free] = null;
+      for (int i = (free + 1) & mask; t.entries[i] != null; i = (i + 1) & mask) {
+        int home = t.home(t.offsets[i]);
+        // The offset stays if its home is cyclically in (free, i]
+        boolean stays = free < i ? free < home && home <= i : free < home || home <= i;
+        if (!stays) {
+          t.offsets[free] = t.offsets[i];
+          t.attributes[free] = t.attributes[i];
+          t.entries[free] = t.entries[i];
+          t.entries[i] = null;
+          free = i;
+        }
+      }
+      size--;
+      if (size * 8L < t.entries.length && t.entries.length > MIN_CAPACITY) {
+        resize(t.entries.length / 2);
+      }
+    }
+
+    private void resize(int capacity) {
+      Table old = table;
+      Table resized = new Table(capacity);
+      for (int i = 0; i < old.entries.length; i++) {
+        if (old.entries[i] != null) {
+          int slot = resized.freeSlot(old.offsets[i]);
+          resized.offsets[slot] = old.offsets[i];
+          resized.attributes[slot] = old.attributes[i];
+          resized.entries[slot] = old.entries[i];
+        }
+      }
+      table = resized;
+    }
+
+    /**
+     * @return a copy of the table, for iteration
+     */
+    Table snapshot() {
+      long stamp = lock.readLock();
+      try {
+        return new Table(table);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+    BlockCacheKey key(Table t, int slot) {
+      int attributes = t.attributes[slot];
+      int blockType = attributes & ~SECONDARY_REPLICA;
+      return new BlockCacheKey(hfileName, t.offsets[slot],
+          (attributes & SECONDARY_REPLICA) == 0, blockType == 0 ? null : BLOCK_TYPES[blockType - 1],
+          partition);
+    }
+
+    private static byte attributes(BlockCacheKey key) {
+      int attributes = key.getBlockType() == null ? 0 : key.getBlockType().ordinal() + 1;
+      if (!key.isPrimary()) {
+        attributes |= SECONDARY_REPLICA;
+      }
+      return (byte) attributes;
+    }
+  }
+}
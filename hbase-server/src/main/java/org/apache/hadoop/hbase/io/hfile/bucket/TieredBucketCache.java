@@ -0,0 +1,231 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile.bucket;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.apache.hadoop.hbase.io.HeapSize;
+import org.apache.hadoop.hbase.io.hfile.BlockCache;
+import org.apache.hadoop.hbase.io.hfile.BlockCacheKey;
+import org.apache.hadoop.hbase.io.hfile.BlockPriority;
+import org.apache.hadoop.hbase.io.hfile.CacheStats;
+import org.apache.hadoop.hbase.io.hfile.Cacheable;
+import org.apache.hadoop.hbase.io.hfile.CachedBlock;
+import org.apache.hadoop.hbase.io.hfile.CombinedBlockCache.CombinedCacheStats;
+import org.apache.yetus.audience.InterfaceAudience;
+
+import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesting;
+import org.apache.hbase.thirdparty.com.google.common.collect.Iterators;
+
+/**
+ * Two {@link BucketCache}s stacked as one cache: a small, fast hot tier, usually on a
+ * {@link ByteBufferIOEngine}, in front of a big cold tier, usually a {@link FileIOEngine} on local
+ * flash.
+ * <p>
+ * New blocks are cached in the hot tier. Blocks the hot tier evicts to make room are demoted to
+ * the cold tier in the background instead of being dropped, see
+ * {@link BucketCache#setVictimCache(BlockCache)}. A
+ * block read from the cold tier is promoted back to the hot tier once it has been hit
+ * {@link #PROMOTION_HITS_KEY} times there. Promotion does not remove the block from the cold tier;
+ * that copy ages out through the cold tier's own eviction.
+ * <p>
+ * Cold tier hits are counted in a fixed array of counters indexed by the hash of the block key, so
+ * the bookkeeping does not grow with the cold tier. Colliding keys share a counter and may be
+ * promoted early, which only costs a copy.
+ */
+@InterfaceAudience.Private
+public class TieredBucketCache implements BlockCache, HeapSize {
+
+  /** Number of cold tier hits after which a block is promoted to the hot tier. */
+  public static final String PROMOTION_HITS_KEY = "hbase.bucketcache.tiered.promotion.hits";
+  public static final int DEFAULT_PROMOTION_HITS = 2;
+
+  private static final int HIT_COUNTERS = 1 << 16;
+
+  private final BucketCache hotCache;
+  private final BucketCache coldCache;
+  private final int promotionHits;
+  private final AtomicIntegerArray coldHits = new AtomicIntegerArray(HIT_COUNTERS);
+  private final CombinedCacheStats stats;
+
+  public TieredBucketCache(BucketCache hotCache, BucketCache coldCache, int promotionHits) {
+    this.hotCache = hotCache;
+    this.coldCache = coldCache;
+    this.promotionHits = Math.max(1, promotionHits);
+    this.stats = new CombinedCacheStats(hotCache.getStats(), coldCache.getStats());
+    hotCache.setVictimCache(coldCache);
+  }
+
+  @Override
+  public void cacheBlock(BlockCacheKey cacheKey, Cacheable buf, boolean inMemory) {
+    hotCache.cacheBlock(cacheKey, buf, inMemory);
+  }
+
+  @Override
+  public void cacheBlock(BlockCacheKey cacheKey, Cacheable buf) {
+    cacheBlock(cacheKey, buf, false);
+  }
+
+  @Override
+  public boolean containsBlock(BlockCacheKey cacheKey) {
+    return hotCache.containsBlock(cacheKey) || coldCache.containsBlock(cacheKey);
+  }
+
+  @Override
+  public void touchBlock(BlockCacheKey cacheKey) {
+    hotCache.touchBlock(cacheKey);
+    coldCache.touchBlock(cacheKey);
+  }
+
+  @Override
+  public Cacheable getBlock(BlockCacheKey cacheKey, boolean caching, boolean repeat,
+      boolean updateCacheMetrics) {
+    // Only the tier answering the lookup counts it, a cold tier hit is not also a hot tier miss.
+    Cacheable block = hotCache.getBlock(cacheKey, caching, repeat, false);
+    if (block != null) {
+      if (updateCacheMetrics) {
+        hotCache.getStats().hit(caching, cacheKey.isPrimary(), cacheKey.getBlockType(),
+          cacheKey.getPartition());
+      }
+      return block;
+    }
+    block = coldCache.getBlock(cacheKey, caching, repeat, updateCacheMetrics);
+    if (block != null && caching && shouldPromote(cacheKey)) {
+      BucketEntry bucketEntry = coldCache.backingMap.get(cacheKey);
+      // The hot tier writes out its own copy, the returned block stays owned by the caller.
+      hotCache.cacheBlock(cacheKey, block,
+        bucketEntry != null && bucketEntry.getPriority() == BlockPriority.MEMORY);
+    }
+    return block;
+  }
+
+  private boolean shouldPromote(BlockCacheKey cacheKey) {
+    int index = (cacheKey.hashCode() & 0x7FFFFFFF) % HIT_COUNTERS;
+    if (coldHits.incrementAndGet(index) < promotionHits) {
+      return false;
+    }
+    coldHits.set(index, 0);
+    return true;
+  }
+
+  @Override
+  public boolean evictBlock(BlockCacheKey cacheKey) {
+    // A promoted block may be in both tiers.
+    boolean evictedHot = hotCache.evictBlock(cacheKey);
+    return coldCache.evictBlock(cacheKey) || evictedHot;
+  }
+
+  @Override
+  public int evictBlocksByHfileName(String hfileName) {
+    return hotCache.evictBlocksByHfileName(hfileName)
+        + coldCache.evictBlocksByHfileName(hfileName);
+  }
+
+  @Override
+  public int getBlockCountByHfileName(String hfileName) {
+    return hotCache.getBlockCountByHfileName(hfileName)
+        + coldCache.getBlockCountByHfileName(hfileName);
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return this.stats;
+  }
+
+  @Override
+  public void setPartitionShare(String partition, String owner, float share) {
+    hotCache.setPartitionShare(partition, owner, share);
+    coldCache.setPartitionShare(partition, owner, share);
+  }
+
+  @Override
+  public void removePartitionShare(String partition, String owner) {
+    hotCache.removePartitionShare(partition, owner);
+    coldCache.removePartitionShare(partition, owner);
+  }
+
+  @Override
+  public void shutdown() {
+    hotCache.shutdown();
+    coldCache.shutdown();
+  }
+
+  @Override
+  public long heapSize() {
+    return hotCache.heapSize() + coldCache.heapSize();
+  }
+
+  @Override
+  public long size() {
+    return hotCache.size() + coldCache.size();
+  }
+
+  @Override
+  public long getMaxSize() {
+    return hotCache.getMaxSize() + coldCache.getMaxSize();
+  }
+
+  @Override
+  public long getFreeSize() {
+    return hotCache.getFreeSize() + coldCache.getFreeSize();
+  }
+
+  @Override
+  public long getCurrentSize() {
+    return hotCache.getCurrentSize() + coldCache.getCurrentSize();
+  }
+
+  @Override
+  public long getCurrentDataSize() {
+    return hotCache.getCurrentDataSize() + coldCache.getCurrentDataSize();
+  }
+
+  @Override
+  public long getBlockCount() {
+    return hotCache.getBlockCount() + coldCache.getBlockCount();
+  }
+
+  @Override
+  public long getDataBlockCount() {
+    return hotCache.getDataBlockCount() + coldCache.getDataBlockCount();
+  }
+
+  @Override
+  public Iterator<CachedBlock> iterator() {
+    return Iterators.concat(hotCache.iterator(), coldCache.iterator());
+  }
+
+  @Override
+  public BlockCache[] getBlockCaches() {
+    return new BlockCache[] { hotCache, coldCache };
+  }
+
+  @VisibleForTesting
+  public int getRpcRefCount(BlockCacheKey cacheKey) {
+    return hotCache.getRpcRefCount(cacheKey) + coldCache.getRpcRefCount(cacheKey);
+  }
+
+  public BucketCache getHotCache() {
+    return hotCache;
+  }
+
+  public BucketCache getColdCache() {
+    return coldCache;
+  }
+}
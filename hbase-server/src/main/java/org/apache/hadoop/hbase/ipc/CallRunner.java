@@ -158,6 +158,13 @@ public class CallRunner {
           sucessful = true;
         }
       }
+      if (resultPair == null && errorThrowable == null && call.isSuspended()) {
+        // The call was suspended and is queued again once resumed. It may already run in another
+        // handler, so leave it alone.
+        this.status.markComplete("Suspended call");
+        this.status.pause("Waiting for a call");
+        return;
+      }
       // return back the RPC request read BB we can do here. It is done by now.
       call.cleanup();
       // Set the response
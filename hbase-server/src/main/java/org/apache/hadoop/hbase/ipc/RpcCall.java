@@ -23,6 +23,7 @@ import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.yetus.audience.InterfaceStability;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.hadoop.hbase.CellScanner;
 import org.apache.hadoop.hbase.HBaseInterfaceAudience;
@@ -128,6 +129,20 @@ public interface RpcCall extends RpcCallContext {
    */
   void cleanup();
 
+  /**
+   * Suspends this call until the given future completes, so that the handler running it is free
+   * to run other calls meanwhile. The service method that suspends the call returns null, and the
+   * call is queued to run again once the future completes, normally or not. A call is only
+   * suspended once.
+   * @return false if the call can not be suspended, the service method then has to complete it
+   */
+  boolean suspendUntil(CompletableFuture<?> future);
+
+  /**
+   * @return true if the call was suspended, see {@link #suspendUntil(CompletableFuture)}
+   */
+  boolean isSuspended();
+
   /**
    * @return A short string format of this call without possibly lengthy params
    */
@@ -372,6 +372,10 @@ public abstract class RpcServer implements RpcServerInterface,
       HBaseRpcController controller = new HBaseRpcControllerImpl(call.getCellScanner());
       controller.setCallTimeout(call.getTimeout());
       Message result = call.getService().callBlockingMethod(md, controller, param);
+      if (result == null && call.isSuspended()) {
+        // The call runs again once resumed, see RpcCall#suspendUntil
+        return null;
+      }
       long receiveTime = call.getReceiveTime();
       long startTime = call.getStartTime();
       long endTime = System.currentTimeMillis();
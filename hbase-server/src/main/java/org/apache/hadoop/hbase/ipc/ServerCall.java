@@ -23,6 +23,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.hadoop.hbase.CellScanner;
 import org.apache.hadoop.hbase.DoNotRetryIOException;
@@ -97,6 +98,9 @@ public abstract class ServerCall<T extends ServerRpcConnection> implements RpcCa
   // the current implementation. We should fix this in the future.
   private final AtomicInteger reference = new AtomicInteger(0b01);
 
+  // Set once the call was suspended, see suspendUntil
+  private volatile boolean suspended = false;
+
   @edu.umd.cs.findbugs.annotations.SuppressWarnings(value = "NP_NULL_ON_SOME_PATH",
       justification = "Can't figure why this complaint is happening... see below")
   ServerCall(int id, BlockingService service, MethodDescriptor md, RequestHeader header,
@@ -184,6 +188,52 @@ public abstract class ServerCall<T extends ServerRpcConnection> implements RpcCa
     release(0b10);
   }
 
+  @Override
+  public boolean suspendUntil(CompletableFuture<?> future) {
+    if (suspended || connection == null) {
+      return false;
+    }
+    suspended = true;
+    future.whenComplete((r, e) -> resume());
+    return true;
+  }
+
+  @Override
+  public boolean isSuspended() {
+    return suspended;
+  }
+
+  /**
+   * Queues a suspended call to run again, as the connection queues a call it has read.
+   */
+  private void resume() {
+    RpcServer rpcServer = connection.rpcServer;
+    rpcServer.addCallSize(size);
+    boolean dispatched;
+    try {
+      dispatched = rpcServer.scheduler.dispatch(new CallRunner(rpcServer, this));
+    } catch (IOException e) {
+      RpcServer.LOG.warn("Failed to queue the resumed call " + toShortString(), e);
+      dispatched = false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      dispatched = false;
+    }
+    if (!dispatched) {
+      rpcServer.addCallSize(-1 * size);
+      rpcServer.metrics.exception(RpcServer.CALL_QUEUE_TOO_BIG_EXCEPTION);
+      setResponse(null, null, RpcServer.CALL_QUEUE_TOO_BIG_EXCEPTION,
+        "Call queue is full on " + rpcServer.server.getServerName() +
+            ", too many items queued ?");
+      try {
+        sendResponseIfReady();
+      } catch (IOException e) {
+        RpcServer.LOG.warn("Failed to send the response of a suspended call " + toShortString(),
+          e);
+      }
+    }
+  }
+
   @Override
   public String toString() {
     return toShortString() + " param: " +
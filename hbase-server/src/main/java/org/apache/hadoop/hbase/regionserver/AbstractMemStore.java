@@ -88,7 +88,8 @@ public abstract class AbstractMemStore implements MemStore {
     // Record the MutableSegment' heap overhead when initialing
     MemStoreSizing memstoreAccounting = new NonThreadSafeMemStoreSizing();
     // Reset heap to not include any keys
-    active = SegmentFactory.instance().createMutableSegment(conf, comparator, memstoreAccounting);
+    active = SegmentFactory.instance().createMutableSegment(conf, comparator, memstoreAccounting,
+      getActiveShardCount());
     // regionServices can be null when testing
     if (regionServices != null) {
       regionServices.addMemStoreSize(memstoreAccounting.getDataSize(),
@@ -268,6 +269,14 @@ public abstract class AbstractMemStore implements MemStore {
     return buf.toString();
   }
 
+  /**
+   * @return the number of shards the index of the active segment is spread over. Called from the
+   *         constructor, so it may only depend on the configuration.
+   */
+  protected int getActiveShardCount() {
+    return 1;
+  }
+
   protected Configuration getConfiguration() {
     return conf;
   }
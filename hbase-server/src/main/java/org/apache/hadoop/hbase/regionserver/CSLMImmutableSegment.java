@@ -48,7 +48,8 @@ public class CSLMImmutableSegment extends ImmutableSegment {
 
   @Override
   protected long indexEntrySize() {
-    return ClassSize.CONCURRENT_SKIPLISTMAP_ENTRY;
+    // An index on chunks is accounted for by its chunks, which stay in the MSLAB
+    return getCellSet().isIndexOnChunks() ? 0 : ClassSize.CONCURRENT_SKIPLISTMAP_ENTRY;
   }
 
   @Override protected boolean canBeFlattened() {
@@ -0,0 +1,928 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.hadoop.hbase.ByteBufferKeyOnlyKeyValue;
+import org.apache.hadoop.hbase.ByteBufferKeyValue;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.ExtendedCell;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.ByteBufferUtils;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.UnsafeAccess;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * A concurrent skip list of Cells whose nodes are allocated in the chunks of a
+ * {@link MemStoreLAB} rather than on the Java heap, to be used as the index of the active segment.
+ * Like {@link CellChunkMap} it refers to Cells whose data is in chunks by chunk, offset, length
+ * and sequence id, but it is mutable and concurrent like a
+ * {@link java.util.concurrent.ConcurrentSkipListMap}, so adding a Cell leaves no index object
+ * on the heap for the garbage collector to promote and later collect.
+ * <p>
+ * Nodes are linked in lock-free, by a compare-and-set of the next reference of their predecessor
+ * on each level, and are never unlinked: a removed node is only marked as such, its space is
+ * reclaimed with the chunks when the MemStoreLAB is closed. Overwriting a Cell swaps the Cell
+ * record its node refers to.
+ * <p>
+ * The node layout on an index chunk, the references are 8 byte aligned to be compare-and-set:
+ * <pre>
+ * --------------------------------------------------------------------------------------------
+ *  long        | integer | integer | long          |     | long              | 24 bytes
+ *  reference   | level   | unused  | reference to  | ... | reference to      | Cell record
+ *  to the Cell |         |         | next node on  |     | next node on      | of the node
+ *  record      |         |         | level 0       |     | level (level - 1) |
+ * --------------------------------------------------------------------------------------------
+ * </pre>
+ * A Cell record holds the index of the data chunk (integer), the offset (integer) and the length
+ * (integer) of the Cell's data in it, 4 unused bytes and the sequence id of the Cell (long).
+ * References hold the index of an index chunk in the high integer and the offset in it in the low
+ * integer. The lowest bit of the reference to the Cell record marks a removed node.
+ * <p>
+ * Only Cells whose data is in a chunk can be added, see {@link #isOnChunk(Cell)}. The value of an
+ * entry is the Cell itself, as in a {@link CellSet}.
+ */
+@InterfaceAudience.Private
+public class CellChunkSkipListMap implements NavigableMap<Cell, Cell> {
+
+  /** The maximal number of levels, a quarter of the nodes of a level are on the next one too */
+  static final int MAX_LEVEL = 16;
+
+  private static final int RECORD_REF = 0;
+  private static final int LEVEL = RECORD_REF + Bytes.SIZEOF_LONG;
+  private static final int NEXT = LEVEL + 2 * Bytes.SIZEOF_INT;
+  private static final int RECORD_SIZE = 3 * Bytes.SIZEOF_INT + 4 + Bytes.SIZEOF_LONG;
+  private static final long REMOVED = 1;
+
+  private final SkipList list;
+  // The bounds of this view in the natural order, null if not bounded
+  private final Cell lo;
+  private final boolean loInclusive;
+  private final Cell hi;
+  private final boolean hiInclusive;
+  private final boolean descending;
+
+  public CellChunkSkipListMap(CellComparator comparator, MemStoreLAB memStoreLAB) {
+    this(new SkipList(comparator, memStoreLAB), null, false, null, false, false);
+  }
+
+  private CellChunkSkipListMap(SkipList list, Cell lo, boolean loInclusive, Cell hi,
+      boolean hiInclusive, boolean descending) {
+    this.list = list;
+    this.lo = lo;
+    this.loInclusive = loInclusive;
+    this.hi = hi;
+    this.hiInclusive = hiInclusive;
+    this.descending = descending;
+  }
+
+  /**
+   * @return the size of the index chunks this map, and the views of its map, took from the
+   *         MemStoreLAB so far
+   */
+  long getIndexChunksSize() {
+    return list.chunksSize;
+  }
+
+  /**
+   * @return true if the Cell's data is in a chunk, so that it can be added to this map
+   */
+  static boolean isOnChunk(Cell cell) {
+    return cell instanceof ByteBufferKeyValue
+        && ((ByteBufferKeyValue) cell).getChunkId() != ExtendedCell.CELL_NOT_BASED_ON_CHUNK;
+  }
+
+  /**
+   * The skip list shared by a map and its views.
+   */
+  private static final class SkipList {
+    private final CellComparator comparator;
+    private final MemStoreLAB memStoreLAB;
+
+    // The index chunks, a reference holds the index of its chunk in this array
+    private volatile Chunk[] chunks = new Chunk[4];
+    private volatile int chunkCount = 0;
+    // The size of the index chunks taken from the MSLAB
+    private volatile long chunksSize = 0;
+    // The node before the first one on every level, 0 until the first Cell is added
+    private volatile long head = 0;
+    // Searches start from this level, it may lag behind the highest level of a node
+    private volatile int maxLevel = 1;
+
+    // The chunks holding the data of the Cells, a Cell record holds the index in this array
+    private volatile ByteBuffer[] dataBuffers = new ByteBuffer[16];
+    private int dataBufferCount = 0;
+    private final Map<Integer, Integer> dataBufferIndexes = new HashMap<>();
+    // The chunk id of the last added data chunk in the high integer, its index in the low one
+    private volatile long lastDataBuffer = -1;
+
+    SkipList(CellComparator comparator, MemStoreLAB memStoreLAB) {
+      this.comparator = comparator;
+      this.memStoreLAB = memStoreLAB;
+    }
+
+    private ByteBuffer buffer(long ref) {
+      return chunks[(int) (ref >>> 32)].getData();
+    }
+
+    private static int offset(long ref) {
+      return (int) ref;
+    }
+
+    private long next(long node, int level) {
+      return UnsafeAccess.toLongVolatile(buffer(node),
+        offset(node) + NEXT + level * Bytes.SIZEOF_LONG);
+    }
+
+    private void setNext(long node, int level, long next) {
+      ByteBufferUtils.putLong(buffer(node), offset(node) + NEXT + level * Bytes.SIZEOF_LONG,
+        next);
+    }
+
+    private boolean casNext(long node, int level, long expected, long next) {
+      return UnsafeAccess.compareAndSetLong(buffer(node),
+        offset(node) + NEXT + level * Bytes.SIZEOF_LONG, expected, next);
+    }
+
+    private long record(long node) {
+      return UnsafeAccess.toLongVolatile(buffer(node), offset(node) + RECORD_REF);
+    }
+
+    private boolean casRecord(long node, long expected, long record) {
+      return UnsafeAccess.compareAndSetLong(buffer(node), offset(node) + RECORD_REF, expected,
+        record);
+    }
+
+    private boolean isRemoved(long node) {
+      return (record(node) & REMOVED) != 0;
+    }
+
+    private Cell toCell(long record) {
+      ByteBuffer buf = buffer(record);
+      int offset = offset(record);
+      ByteBuffer data = dataBuffers[ByteBufferUtils.toInt(buf, offset)];
+      return new ByteBufferChunkKeyValue(data, ByteBufferUtils.toInt(buf, offset + 4),
+          ByteBufferUtils.toInt(buf, offset + 8), ByteBufferUtils.toLong(buf, offset + 16));
+    }
+
+    /**
+     * @return the Cell of the node, even if it is removed
+     */
+    Cell cell(long node) {
+      return toCell(record(node) & ~REMOVED);
+    }
+
+    /**
+     * Compares the key with the Cell of the node, reading the key of the node into the
+     * <code>flyweight</code> rather than creating a Cell for it.
+     */
+    private int compare(Cell key, long node, ByteBufferKeyOnlyKeyValue flyweight) {
+      long record = record(node) & ~REMOVED;
+      ByteBuffer buf = buffer(record);
+      int offset = offset(record);
+      ByteBuffer data = dataBuffers[ByteBufferUtils.toInt(buf, offset)];
+      int cellOffset = ByteBufferUtils.toInt(buf, offset + 4);
+      flyweight.setKey(data, cellOffset + KeyValue.ROW_OFFSET,
+        ByteBufferUtils.toInt(data, cellOffset));
+      int diff = comparator.compare(key, flyweight, true);
+      if (diff != 0) {
+        return diff;
+      }
+      // Newer Cells first, as in CellComparator#compare(Cell, Cell)
+      return Long.compare(ByteBufferUtils.toLong(buf, offset + 16), key.getSequenceId());
+    }
+
+    /**
+     * Finds the last node before the key and the node after it on each level from
+     * <code>top</code> down.
+     * @return the node of the key, or 0 if there is none
+     */
+    private long findPredecessors(Cell key, long[] preds, long[] succs, int top,
+        ByteBufferKeyOnlyKeyValue flyweight) {
+      long found = 0;
+      long pred = head;
+      for (int level = top - 1; level >= 0; level--) {
+        long succ = next(pred, level);
+        while (succ != 0) {
+          int diff = compare(key, succ, flyweight);
+          if (diff > 0) {
+            pred = succ;
+            succ = next(pred, level);
+          } else {
+            if (diff == 0) {
+              found = succ;
+            }
+            break;
+          }
+        }
+        preds[level] = pred;
+        succs[level] = succ;
+      }
+      return found;
+    }
+
+    /**
+     * @return the node of the key, even if it is removed, or 0 if there is none
+     */
+    long find(Cell key) {
+      long pred = head;
+      if (pred == 0) {
+        return 0;
+      }
+      ByteBufferKeyOnlyKeyValue flyweight = new ByteBufferKeyOnlyKeyValue();
+      for (int level = maxLevel - 1; level >= 0; level--) {
+        long succ = next(pred, level);
+        while (succ != 0) {
+          int diff = compare(key, succ, flyweight);
+          if (diff == 0) {
+            return succ;
+          } else if (diff < 0) {
+            break;
+          }
+          pred = succ;
+          succ = next(pred, level);
+        }
+      }
+      return 0;
+    }
+
+    /**
+     * @return the first node after the key, or of the key if <code>inclusive</code>, which is not
+     *         removed, or 0 if there is none
+     */
+    long ceiling(Cell key, boolean inclusive) {
+      long pred = head;
+      if (pred == 0) {
+        return 0;
+      }
+      ByteBufferKeyOnlyKeyValue flyweight = new ByteBufferKeyOnlyKeyValue();
+      long succ = 0;
+      for (int level = maxLevel - 1; level >= 0; level--) {
+        succ = next(pred, level);
+        while (succ != 0) {
+          int diff = compare(key, succ, flyweight);
+          if (diff < 0 || (diff == 0 && inclusive)) {
+            break;
+          }
+          pred = succ;
+          succ = next(pred, level);
+        }
+      }
+      return succ == 0 || !isRemoved(succ) ? succ : higher(succ);
+    }
+
+    /**
+     * @return the last node before the key, or of the key if <code>inclusive</code>, which is not
+     *         removed, or 0 if there is none
+     */
+    long floor(Cell key, boolean inclusive) {
+      while (true) {
+        long pred = head;
+        if (pred == 0) {
+          return 0;
+        }
+        ByteBufferKeyOnlyKeyValue flyweight = new ByteBufferKeyOnlyKeyValue();
+        for (int level = maxLevel - 1; level >= 0; level--) {
+          long succ = next(pred, level);
+          while (succ != 0) {
+            int diff = compare(key, succ, flyweight);
+            if (diff < 0 || (diff == 0 && !inclusive)) {
+              break;
+            }
+            pred = succ;
+            succ = next(pred, level);
+          }
+        }
+        if (pred == head) {
+          return 0;
+        }
+        if (!isRemoved(pred)) {
+          return pred;
+        }
+        key = cell(pred);
+        inclusive = false;
+      }
+    }
+
+    /**
+     * @return the node after the given one which is not removed, or 0 if there is none
+     */
+    long higher(long node) {
+      long next = next(node, 0);
+      while (next != 0 && isRemoved(next)) {
+        next = next(next, 0);
+      }
+      return next;
+    }
+
+    long first() {
+      long first = head;
+      return first == 0 ? 0 : higher(first);
+    }
+
+    long last() {
+      long pred = head;
+      if (pred == 0) {
+        return 0;
+      }
+      for (int level = maxLevel - 1; level >= 0; level--) {
+        long succ = next(pred, level);
+        while (succ != 0) {
+          pred = succ;
+          succ = next(pred, level);
+        }
+      }
+      if (pred == head) {
+        return 0;
+      }
+      return isRemoved(pred) ? floor(cell(pred), false) : pred;
+    }
+
+    /**
+     * Adds the Cell, or replaces the Cell with the same key.
+     * @return the replaced Cell, or null if there was none
+     */
+    Cell put(Cell cell) {
+      if (!isOnChunk(cell)) {
+        throw new IllegalArgumentException("The data of the cell must be in a chunk: " + cell);
+      }
+      ByteBufferKeyValue bbCell = (ByteBufferKeyValue) cell;
+      if (head == 0) {
+        initHead();
+      }
+      int dataIndex = getDataBufferIndex(bbCell);
+      ByteBufferKeyOnlyKeyValue flyweight = new ByteBufferKeyOnlyKeyValue();
+      long[] preds = new long[MAX_LEVEL];
+      long[] succs = new long[MAX_LEVEL];
+      int level = randomLevel();
+      long node = 0;
+      while (true) {
+        long found = findPredecessors(cell, preds, succs, Math.max(maxLevel, level), flyweight);
+        if (found != 0) {
+          // Reuse the record of the node if we lost the race to add the key
+          long record = node != 0 ? node + NEXT + level * Bytes.SIZEOF_LONG
+              : newRecord(bbCell, dataIndex);
+          return replace(found, record);
+        }
+        if (node == 0) {
+          node = newNode(level, bbCell, dataIndex);
+        }
+        for (int i = 0; i < level; i++) {
+          setNext(node, i, succs[i]);
+        }
+        if (casNext(preds[0], 0, succs[0], node)) {
+          break;
+        }
+      }
+      // The node is in the list, link it on the levels above too
+      for (int i = 1; i < level; i++) {
+        while (!casNext(preds[i], i, succs[i], node)) {
+          findPredecessors(cell, preds, succs, Math.max(maxLevel, level), flyweight);
+          setNext(node, i, succs[i]);
+        }
+      }
+      if (level > maxLevel) {
+        maxLevel = level;
+      }
+      return null;
+    }
+
+    private Cell replace(long node, long record) {
+      while (true) {
+        long old = record(node);
+        if (casRecord(node, old, record)) {
+          return (old & REMOVED) != 0 ? null : toCell(old);
+        }
+      }
+    }
+
+    /**
+     * Marks the node removed.
+     * @return the removed Cell, or null if it was already removed
+     */
+    Cell remove(long node) {
+      while (true) {
+        long record = record(node);
+        if ((record & REMOVED) != 0) {
+          return null;
+        }
+        if (casRecord(node, record, record | REMOVED)) {
+          return toCell(record);
+        }
+      }
+    }
+
+    private static int randomLevel() {
+      int random = ThreadLocalRandom.current().nextInt();
+      int level = 1;
+      while ((random & 3) == 0 && level < MAX_LEVEL) {
+        level++;
+        random >>>= 2;
+      }
+      return level;
+    }
+
+    private synchronized void initHead() {
+      if (head == 0) {
+        long node = allocate(NEXT + MAX_LEVEL * Bytes.SIZEOF_LONG);
+        ByteBuffer buf = buffer(node);
+        int offset = offset(node);
+        ByteBufferUtils.putLong(buf, offset + RECORD_REF, 0);
+        ByteBufferUtils.putInt(buf, offset + LEVEL, MAX_LEVEL);
+        for (int i = 0; i < MAX_LEVEL; i++) {
+          setNext(node, i, 0);
+        }
+        head = node;
+      }
+    }
+
+    private long newNode(int level, ByteBufferKeyValue cell, int dataIndex) {
+      int recordOffset = NEXT + level * Bytes.SIZEOF_LONG;
+      long node = allocate(recordOffset + RECORD_SIZE);
+      writeRecord(node + recordOffset, cell, dataIndex);
+      ByteBuffer buf = buffer(node);
+      int offset = offset(node);
+      ByteBufferUtils.putLong(buf, offset + RECORD_REF, node + recordOffset);
+      ByteBufferUtils.putInt(buf, offset + LEVEL, level);
+      return node;
+    }
+
+    private long newRecord(ByteBufferKeyValue cell, int dataIndex) {
+      long record = allocate(RECORD_SIZE);
+      writeRecord(record, cell, dataIndex);
+      return record;
+    }
+
+    private void writeRecord(long record, ByteBufferKeyValue cell, int dataIndex) {
+      ByteBuffer buf = buffer(record);
+      int offset = offset(record);
+      offset = ByteBufferUtils.putInt(buf, offset, dataIndex);
+      offset = ByteBufferUtils.putInt(buf, offset, cell.getOffset());
+      offset = ByteBufferUtils.putInt(buf, offset, cell.getSerializedSize());
+      offset = ByteBufferUtils.putInt(buf, offset, 0);
+      ByteBufferUtils.putLong(buf, offset, cell.getSequenceId());
+    }
+
+    /**
+     * @param size a multiple of 8
+     * @return the reference to the allocated space
+     */
+    private long allocate(int size) {
+      while (true) {
+        int index = chunkCount - 1;
+        if (index >= 0) {
+          int offset = chunks[index].alloc(size);
+          if (offset >= 0) {
+            return ((long) index << 32) | offset;
+          }
+        }
+        addChunk(index);
+      }
+    }
+
+    private synchronized void addChunk(int fullIndex) {
+      int index = chunkCount;
+      if (index - 1 != fullIndex) {
+        // Another thread added one
+        return;
+      }
+      Chunk chunk = memStoreLAB.getNewExternalChunk(ChunkCreator.ChunkType.INDEX_CHUNK);
+      // Align the allocations after the chunk id
+      chunk.alloc(Bytes.SIZEOF_LONG - ChunkCreator.SIZEOF_CHUNK_HEADER);
+      Chunk[] newChunks = chunks;
+      if (index == newChunks.length) {
+        newChunks = Arrays.copyOf(newChunks, index * 2);
+      }
+      newChunks[index] = chunk;
+      chunks = newChunks;
+      chunkCount = index + 1;
+      chunksSize += chunk.size;
+    }
+
+    private int getDataBufferIndex(ByteBufferKeyValue cell) {
+      int chunkId = cell.getChunkId();
+      long last = lastDataBuffer;
+      if ((int) (last >>> 32) == chunkId) {
+        return (int) last;
+      }
+      synchronized (this) {
+        Integer index = dataBufferIndexes.get(chunkId);
+        if (index == null) {
+          index = dataBufferCount;
+          ByteBuffer[] buffers = dataBuffers;
+          if (index == buffers.length) {
+            buffers = Arrays.copyOf(buffers, index * 2);
+          }
+          buffers[index] = cell.getBuffer();
+          dataBuffers = buffers;
+          dataBufferCount++;
+          dataBufferIndexes.put(chunkId, index);
+        }
+        lastDataBuffer = ((long) chunkId << 32) | index;
+        return index;
+      }
+    }
+  }
+
+  /////////////////////  VIEW BOUNDS  /////////////////////
+
+  private boolean tooLow(Cell cell) {
+    if (lo == null) {
+      return false;
+    }
+    int diff = list.comparator.compare(cell, lo);
+    return diff < 0 || (diff == 0 && !loInclusive);
+  }
+
+  private boolean tooHigh(Cell cell) {
+    if (hi == null) {
+      return false;
+    }
+    int diff = list.comparator.compare(cell, hi);
+    return diff > 0 || (diff == 0 && !hiInclusive);
+  }
+
+  private boolean inRange(Cell cell) {
+    return !tooLow(cell) && !tooHigh(cell);
+  }
+
+  /**
+   * @return the Cell of the node if it is in this view, or null
+   */
+  private Cell cellInRange(long node) {
+    if (node == 0) {
+      return null;
+    }
+    Cell cell = list.cell(node);
+    return inRange(cell) ? cell : null;
+  }
+
+  private long lowestNode() {
+    return lo == null ? list.first() : list.ceiling(lo, loInclusive);
+  }
+
+  private long highestNode() {
+    return hi == null ? list.last() : list.floor(hi, hiInclusive);
+  }
+
+  // The first Cell after the key in the natural order
+  private Cell ceilingCell(Cell key, boolean inclusive) {
+    return cellInRange(tooLow(key) ? lowestNode() : list.ceiling(key, inclusive));
+  }
+
+  // The last Cell before the key in the natural order
+  private Cell floorCell(Cell key, boolean inclusive) {
+    return cellInRange(tooHigh(key) ? highestNode() : list.floor(key, inclusive));
+  }
+
+  private CellChunkSkipListMap view(Cell fromKey, boolean fromInclusive, Cell toKey,
+      boolean toInclusive) {
+    if (descending) {
+      Cell key = fromKey;
+      fromKey = toKey;
+      toKey = key;
+      boolean inclusive = fromInclusive;
+      fromInclusive = toInclusive;
+      toInclusive = inclusive;
+    }
+    Cell newLo = lo;
+    boolean newLoInclusive = loInclusive;
+    if (fromKey != null) {
+      int diff = lo == null ? 1 : list.comparator.compare(fromKey, lo);
+      if (diff > 0) {
+        newLo = fromKey;
+        newLoInclusive = fromInclusive;
+      } else if (diff == 0) {
+        newLoInclusive = loInclusive && fromInclusive;
+      }
+    }
+    Cell newHi = hi;
+    boolean newHiInclusive = hiInclusive;
+    if (toKey != null) {
+      int diff = hi == null ? -1 : list.comparator.compare(toKey, hi);
+      if (diff < 0) {
+        newHi = toKey;
+        newHiInclusive = toInclusive;
+      } else if (diff == 0) {
+        newHiInclusive = hiInclusive && toInclusive;
+      }
+    }
+    return new CellChunkSkipListMap(list, newLo, newLoInclusive, newHi, newHiInclusive,
+        descending);
+  }
+
+  private static Entry<Cell, Cell> entry(Cell cell) {
+    return cell == null ? null : new AbstractMap.SimpleImmutableEntry<>(cell, cell);
+  }
+
+  private static Cell key(Entry<Cell, Cell> entry) {
+    if (entry == null) {
+      throw new NoSuchElementException();
+    }
+    return entry.getKey();
+  }
+
+  /////////////////////  NAVIGABLE MAP  /////////////////////
+
+  @Override
+  public CellComparator comparator() {
+    return list.comparator;
+  }
+
+  @Override
+  public Entry<Cell, Cell> firstEntry() {
+    return entry(cellInRange(descending ? highestNode() : lowestNode()));
+  }
+
+  @Override
+  public Entry<Cell, Cell> lastEntry() {
+    return entry(cellInRange(descending ? lowestNode() : highestNode()));
+  }
+
+  @Override
+  public Cell firstKey() {
+    return key(firstEntry());
+  }
+
+  @Override
+  public Cell lastKey() {
+    return key(lastEntry());
+  }
+
+  @Override
+  public Entry<Cell, Cell> lowerEntry(Cell key) {
+    return entry(descending ? ceilingCell(key, false) : floorCell(key, false));
+  }
+
+  @Override
+  public Cell lowerKey(Cell key) {
+    return descending ? ceilingCell(key, false) : floorCell(key, false);
+  }
+
+  @Override
+  public Entry<Cell, Cell> floorEntry(Cell key) {
+    return entry(floorKey(key));
+  }
+
+  @Override
+  public Cell floorKey(Cell key) {
+    return descending ? ceilingCell(key, true) : floorCell(key, true);
+  }
+
+  @Override
+  public Entry<Cell, Cell> ceilingEntry(Cell key) {
+    return entry(ceilingKey(key));
+  }
+
+  @Override
+  public Cell ceilingKey(Cell key) {
+    return descending ? floorCell(key, true) : ceilingCell(key, true);
+  }
+
+  @Override
+  public Entry<Cell, Cell> higherEntry(Cell key) {
+    return entry(higherKey(key));
+  }
+
+  @Override
+  public Cell higherKey(Cell key) {
+    return descending ? floorCell(key, false) : ceilingCell(key, false);
+  }
+
+  @Override
+  public Entry<Cell, Cell> pollFirstEntry() {
+    throw new UnsupportedOperationException(HConstants.NOT_IMPLEMENTED);
+  }
+
+  @Override
+  public Entry<Cell, Cell> pollLastEntry() {
+    throw new UnsupportedOperationException(HConstants.NOT_IMPLEMENTED);
+  }
+
+  @Override
+  public NavigableMap<Cell, Cell> descendingMap() {
+    return new CellChunkSkipListMap(list, lo, loInclusive, hi, hiInclusive, !descending);
+  }
+
+  @Override
+  public NavigableMap<Cell, Cell> subMap(Cell fromKey, boolean fromInclusive, Cell toKey,
+      boolean toInclusive) {
+    return view(fromKey, fromInclusive, toKey, toInclusive);
+  }
+
+  @Override
+  public NavigableMap<Cell, Cell> headMap(Cell toKey, boolean inclusive) {
+    return view(null, false, toKey, inclusive);
+  }
+
+  @Override
+  public NavigableMap<Cell, Cell> tailMap(Cell fromKey, boolean inclusive) {
+    return view(fromKey, inclusive, null, false);
+  }
+
+  @Override
+  public SortedMap<Cell, Cell> subMap(Cell fromKey, Cell toKey) {
+    return subMap(fromKey, true, toKey, false);
+  }
+
+  @Override
+  public SortedMap<Cell, Cell> headMap(Cell toKey) {
+    return headMap(toKey, false);
+  }
+
+  @Override
+  public SortedMap<Cell, Cell> tailMap(Cell fromKey) {
+    return tailMap(fromKey, true);
+  }
+
+  @Override
+  public NavigableSet<Cell> navigableKeySet() {
+    throw new UnsupportedOperationException(HConstants.NOT_IMPLEMENTED);
+  }
+
+  @Override
+  public NavigableSet<Cell> descendingKeySet() {
+    throw new UnsupportedOperationException(HConstants.NOT_IMPLEMENTED);
+  }
+
+  @Override
+  public Set<Cell> keySet() {
+    throw new UnsupportedOperationException(HConstants.NOT_IMPLEMENTED);
+  }
+
+  @Override
+  public Set<Entry<Cell, Cell>> entrySet() {
+    throw new UnsupportedOperationException(HConstants.NOT_IMPLEMENTED);
+  }
+
+  @Override
+  public Collection<Cell> values() {
+    return new AbstractCollection<Cell>() {
+      @Override
+      public Iterator<Cell> iterator() {
+        return new CellChunkSkipListIterator();
+      }
+
+      @Override
+      public int size() {
+        return CellChunkSkipListMap.this.size();
+      }
+
+      @Override
+      public boolean isEmpty() {
+        return CellChunkSkipListMap.this.isEmpty();
+      }
+    };
+  }
+
+  /**
+   * Counts the Cells, so it takes linear time.
+   */
+  @Override
+  public int size() {
+    int size = 0;
+    for (Iterator<Cell> it = new CellChunkSkipListIterator(); it.hasNext(); it.next()) {
+      size++;
+    }
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return firstEntry() == null;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    throw new UnsupportedOperationException(HConstants.NOT_IMPLEMENTED);
+  }
+
+  @Override
+  public Cell get(Object key) {
+    Cell cell = (Cell) key;
+    if (!inRange(cell)) {
+      return null;
+    }
+    long node = list.find(cell);
+    if (node == 0) {
+      return null;
+    }
+    long record = list.record(node);
+    return (record & REMOVED) != 0 ? null : list.toCell(record);
+  }
+
+  /**
+   * @param key the key of the Cell
+   * @param value the Cell, whose data must be in a chunk
+   */
+  @Override
+  public Cell put(Cell key, Cell value) {
+    if (!inRange(key)) {
+      throw new IllegalArgumentException("key out of range");
+    }
+    return list.put(value);
+  }
+
+  @Override
+  public void putAll(Map<? extends Cell, ? extends Cell> map) {
+    for (Entry<? extends Cell, ? extends Cell> entry : map.entrySet()) {
+      put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Override
+  public Cell remove(Object key) {
+    Cell cell = (Cell) key;
+    if (!inRange(cell)) {
+      return null;
+    }
+    long node = list.find(cell);
+    return node == 0 ? null : list.remove(node);
+  }
+
+  @Override
+  public void clear() {
+    for (Iterator<Cell> it = new CellChunkSkipListIterator(); it.hasNext();) {
+      it.next();
+      it.remove();
+    }
+  }
+
+  /**
+   * Iterates the Cells of the view in its order. Like the iterators of a
+   * {@link java.util.concurrent.ConcurrentSkipListMap} it is weakly consistent.
+   */
+  private final class CellChunkSkipListIterator implements Iterator<Cell> {
+    private long nextNode;
+    private Cell nextCell;
+    private long lastNode = 0;
+
+    CellChunkSkipListIterator() {
+      nextNode = descending ? highestNode() : lowestNode();
+      nextCell = cellInRange(nextNode);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return nextCell != null;
+    }
+
+    @Override
+    public Cell next() {
+      Cell cell = nextCell;
+      if (cell == null) {
+        throw new NoSuchElementException();
+      }
+      lastNode = nextNode;
+      nextNode = descending ? list.floor(cell, false) : list.higher(nextNode);
+      nextCell = cellInRange(nextNode);
+      return cell;
+    }
+
+    @Override
+    public void remove() {
+      if (lastNode == 0) {
+        throw new IllegalStateException();
+      }
+      list.remove(lastNode);
+      lastNode = 0;
+    }
+  }
+}
@@ -68,6 +68,29 @@ public class CellSet implements NavigableSet<Cell>  {
     this.numUniqueKeys = UNKNOWN_NUM_UNIQUES;
   }
 
+  /**
+   * @return true if the index refers to the Cells by their place in the MSLAB chunks, so that
+   *         only Cells copied into a chunk can be added
+   */
+  boolean isIndexOnChunks() {
+    return delegatee instanceof CellChunkSkipListMap || (delegatee instanceof CellShardedMap
+        && ((CellShardedMap) delegatee).isIndexOnChunks());
+  }
+
+  /**
+   * @return the size of the chunks an index on chunks took from the MSLAB so far, 0 for another
+   *         index
+   */
+  long getIndexChunksSize() {
+    if (delegatee instanceof CellChunkSkipListMap) {
+      return ((CellChunkSkipListMap) delegatee).getIndexChunksSize();
+    }
+    if (delegatee instanceof CellShardedMap && ((CellShardedMap) delegatee).isIndexOnChunks()) {
+      return ((CellShardedMap) delegatee).getIndexChunksSize();
+    }
+    return 0;
+  }
+
   @VisibleForTesting
   NavigableMap<Cell, Cell> getDelegatee() {
     return delegatee;
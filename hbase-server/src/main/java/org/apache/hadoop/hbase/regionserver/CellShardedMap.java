@@ -0,0 +1,437 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.function.Function;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * A map of Cells spread over several shards, each a concurrent sorted map, to be used as the index
+ * of the active segment. A writer adds to the shard of its thread, so concurrent writers of
+ * monotonically increasing keys do not all contend for the tail of one skip list. Reads merge
+ * the shards: lookups consult every shard and iterators merge the shard iterators, which is how
+ * the shards are merged into one flat index when the segment is flattened.
+ * <p>
+ * A key is normally in a single shard, as Cells of the same key and sequence id come from the
+ * same writer. Should it be in several, the merged views show it once.
+ */
+@InterfaceAudience.Private
+public class CellShardedMap implements NavigableMap<Cell, Cell> {
+
+  private final NavigableMap<Cell, Cell>[] shards;
+  // The order of this view, reversed for a descending view
+  private final Comparator<Cell> comparator;
+
+  /**
+   * @param comparator the order of the shards
+   * @param shards the shards, empty concurrent maps
+   */
+  public CellShardedMap(CellComparator comparator, NavigableMap<Cell, Cell>[] shards) {
+    this(shards, comparator);
+  }
+
+  private CellShardedMap(NavigableMap<Cell, Cell>[] shards, Comparator<Cell> comparator) {
+    this.shards = shards;
+    this.comparator = comparator;
+  }
+
+  /**
+   * @return the shard the current thread adds to
+   */
+  private NavigableMap<Cell, Cell> shard() {
+    return shards[(int) (Thread.currentThread().getId() % shards.length)];
+  }
+
+  /**
+   * @return the number of shards
+   */
+  int getShardCount() {
+    return shards.length;
+  }
+
+  /**
+   * @return true if the shards refer to the Cells by their place in the MSLAB chunks
+   */
+  boolean isIndexOnChunks() {
+    return shards[0] instanceof CellChunkSkipListMap;
+  }
+
+  /**
+   * @return the size of the index chunks the shards took from the MSLAB so far, see
+   *         {@link CellChunkSkipListMap#getIndexChunksSize()}
+   */
+  long getIndexChunksSize() {
+    long size = 0;
+    for (NavigableMap<Cell, Cell> shard : shards) {
+      size += ((CellChunkSkipListMap) shard).getIndexChunksSize();
+    }
+    return size;
+  }
+
+  @SuppressWarnings("unchecked")
+  private CellShardedMap view(Function<NavigableMap<Cell, Cell>, NavigableMap<Cell, Cell>> f,
+      Comparator<Cell> viewComparator) {
+    NavigableMap<Cell, Cell>[] views = new NavigableMap[shards.length];
+    for (int i = 0; i < shards.length; i++) {
+      views[i] = f.apply(shards[i]);
+    }
+    return new CellShardedMap(views, viewComparator);
+  }
+
+  /**
+   * @return the lowest of the entries in the order of this view if <code>lowest</code>, the
+   *         highest otherwise, or null if all are null
+   */
+  private Entry<Cell, Cell> select(Function<NavigableMap<Cell, Cell>, Entry<Cell, Cell>> f,
+      boolean lowest) {
+    Entry<Cell, Cell> res = null;
+    for (NavigableMap<Cell, Cell> shard : shards) {
+      Entry<Cell, Cell> entry = f.apply(shard);
+      if (entry != null && (res == null
+          || (comparator.compare(entry.getKey(), res.getKey()) < 0) == lowest)) {
+        res = entry;
+      }
+    }
+    return res;
+  }
+
+  private static Cell key(Entry<Cell, Cell> entry) {
+    return entry == null ? null : entry.getKey();
+  }
+
+  @Override
+  public Comparator<? super Cell> comparator() {
+    return comparator;
+  }
+
+  @Override
+  public Entry<Cell, Cell> firstEntry() {
+    return select(NavigableMap::firstEntry, true);
+  }
+
+  @Override
+  public Entry<Cell, Cell> lastEntry() {
+    return select(NavigableMap::lastEntry, false);
+  }
+
+  @Override
+  public Cell firstKey() {
+    Entry<Cell, Cell> entry = firstEntry();
+    if (entry == null) {
+      throw new NoSuchElementException();
+    }
+    return entry.getKey();
+  }
+
+  @Override
+  public Cell lastKey() {
+    Entry<Cell, Cell> entry = lastEntry();
+    if (entry == null) {
+      throw new NoSuchElementException();
+    }
+    return entry.getKey();
+  }
+
+  @Override
+  public Entry<Cell, Cell> lowerEntry(Cell key) {
+    return select(shard -> shard.lowerEntry(key), false);
+  }
+
+  @Override
+  public Cell lowerKey(Cell key) {
+    return key(lowerEntry(key));
+  }
+
+  @Override
+  public Entry<Cell, Cell> floorEntry(Cell key) {
+    return select(shard -> shard.floorEntry(key), false);
+  }
+
+  @Override
+  public Cell floorKey(Cell key) {
+    return key(floorEntry(key));
+  }
+
+  @Override
+  public Entry<Cell, Cell> ceilingEntry(Cell key) {
+    return select(shard -> shard.ceilingEntry(key), true);
+  }
+
+  @Override
+  public Cell ceilingKey(Cell key) {
+    return key(ceilingEntry(key));
+  }
+
+  @Override
+  public Entry<Cell, Cell> higherEntry(Cell key) {
+    return select(shard -> shard.higherEntry(key), true);
+  }
+
+  @Override
+  public Cell higherKey(Cell key) {
+    return key(higherEntry(key));
+  }
+
+  @Override
+  public Entry<Cell, Cell> pollFirstEntry() {
+    throw new UnsupportedOperationException(HConstants.NOT_IMPLEMENTED);
+  }
+
+  @Override
+  public Entry<Cell, Cell> pollLastEntry() {
+    throw new UnsupportedOperationException(HConstants.NOT_IMPLEMENTED);
+  }
+
+  @Override
+  public NavigableMap<Cell, Cell> descendingMap() {
+    return view(NavigableMap::descendingMap, comparator.reversed());
+  }
+
+  @Override
+  public NavigableMap<Cell, Cell> subMap(Cell fromKey, boolean fromInclusive, Cell toKey,
+      boolean toInclusive) {
+    return view(shard -> shard.subMap(fromKey, fromInclusive, toKey, toInclusive), comparator);
+  }
+
+  @Override
+  public NavigableMap<Cell, Cell> headMap(Cell toKey, boolean inclusive) {
+    return view(shard -> shard.headMap(toKey, inclusive), comparator);
+  }
+
+  @Override
+  public NavigableMap<Cell, Cell> tailMap(Cell fromKey, boolean inclusive) {
+    return view(shard -> shard.tailMap(fromKey, inclusive), comparator);
+  }
+
+  @Override
+  public SortedMap<Cell, Cell> subMap(Cell fromKey, Cell toKey) {
+    return subMap(fromKey, true, toKey, false);
+  }
+
+  @Override
+  public SortedMap<Cell, Cell> headMap(Cell toKey) {
+    return headMap(toKey, false);
+  }
+
+  @Override
+  public SortedMap<Cell, Cell> tailMap(Cell fromKey) {
+    return tailMap(fromKey, true);
+  }
+
+  @Override
+  public NavigableSet<Cell> navigableKeySet() {
+    throw new UnsupportedOperationException(HConstants.NOT_IMPLEMENTED);
+  }
+
+  @Override
+  public NavigableSet<Cell> descendingKeySet() {
+    throw new UnsupportedOperationException(HConstants.NOT_IMPLEMENTED);
+  }
+
+  @Override
+  public Set<Cell> keySet() {
+    throw new UnsupportedOperationException(HConstants.NOT_IMPLEMENTED);
+  }
+
+  @Override
+  public Set<Entry<Cell, Cell>> entrySet() {
+    throw new UnsupportedOperationException(HConstants.NOT_IMPLEMENTED);
+  }
+
+  @Override
+  public Collection<Cell> values() {
+    return new AbstractCollection<Cell>() {
+      @Override
+      public Iterator<Cell> iterator() {
+        return new MergingIterator();
+      }
+
+      @Override
+      public int size() {
+        return CellShardedMap.this.size();
+      }
+
+      @Override
+      public boolean isEmpty() {
+        return CellShardedMap.this.isEmpty();
+      }
+    };
+  }
+
+  /**
+   * Sums the sizes of the shards, which takes linear time for skip lists.
+   */
+  @Override
+  public int size() {
+    int size = 0;
+    for (NavigableMap<Cell, Cell> shard : shards) {
+      size += shard.size();
+    }
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    for (NavigableMap<Cell, Cell> shard : shards) {
+      if (!shard.isEmpty()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    throw new UnsupportedOperationException(HConstants.NOT_IMPLEMENTED);
+  }
+
+  @Override
+  public Cell get(Object key) {
+    for (NavigableMap<Cell, Cell> shard : shards) {
+      Cell cell = shard.get(key);
+      if (cell != null) {
+        return cell;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Puts the Cell in the shard of the current thread.
+   */
+  @Override
+  public Cell put(Cell key, Cell value) {
+    return shard().put(key, value);
+  }
+
+  @Override
+  public void putAll(Map<? extends Cell, ? extends Cell> map) {
+    for (Entry<? extends Cell, ? extends Cell> entry : map.entrySet()) {
+      put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Override
+  public Cell remove(Object key) {
+    Cell res = null;
+    for (NavigableMap<Cell, Cell> shard : shards) {
+      Cell cell = shard.remove(key);
+      if (res == null) {
+        res = cell;
+      }
+    }
+    return res;
+  }
+
+  @Override
+  public void clear() {
+    for (NavigableMap<Cell, Cell> shard : shards) {
+      shard.clear();
+    }
+  }
+
+  /**
+   * Merges the iterators of the shards in the order of this view. There are few shards, so the
+   * next Cell is found by comparing the next Cell of each shard.
+   */
+  private final class MergingIterator implements Iterator<Cell> {
+    private final Iterator<Cell>[] iterators;
+    // The next Cell of each shard, null if it has no more
+    private final Cell[] heads;
+    // The shard of the Cell returned last, -1 if it cannot be removed
+    private int last = -1;
+    private Cell lastCell;
+
+    @SuppressWarnings("unchecked")
+    MergingIterator() {
+      iterators = new Iterator[shards.length];
+      heads = new Cell[shards.length];
+      for (int i = 0; i < shards.length; i++) {
+        iterators[i] = shards[i].values().iterator();
+        advance(i);
+      }
+    }
+
+    private void advance(int i) {
+      heads[i] = iterators[i].hasNext() ? iterators[i].next() : null;
+    }
+
+    @Override
+    public boolean hasNext() {
+      for (Cell head : heads) {
+        if (head != null) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public Cell next() {
+      int next = -1;
+      for (int i = 0; i < heads.length; i++) {
+        if (heads[i] == null) {
+          continue;
+        }
+        int diff = next < 0 ? -1 : comparator.compare(heads[i], heads[next]);
+        if (diff < 0) {
+          next = i;
+        } else if (diff == 0) {
+          // The same key in another shard, show it once
+          advance(i);
+        }
+      }
+      if (next < 0) {
+        throw new NoSuchElementException();
+      }
+      lastCell = heads[next];
+      last = next;
+      advance(next);
+      return lastCell;
+    }
+
+    @Override
+    public void remove() {
+      if (last < 0) {
+        throw new IllegalStateException();
+      }
+      // The shard iterator is already past the Cell
+      shards[last].remove(lastCell);
+      last = -1;
+    }
+  }
+}
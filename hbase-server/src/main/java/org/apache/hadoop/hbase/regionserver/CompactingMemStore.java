@@ -67,6 +67,9 @@ public class CompactingMemStore extends AbstractMemStore {
   public static final String IN_MEMORY_CONPACTION_POOL_SIZE_KEY =
       "hbase.regionserver.inmemory.compaction.pool.size";
   public static final int IN_MEMORY_CONPACTION_POOL_SIZE_DEFAULT = 10;
+  // The number of shards the index of the active segment is spread over, see CellShardedMap
+  public static final String ACTIVE_SHARDS_KEY = "hbase.hregion.compacting.memstore.active.shards";
+  public static final int ACTIVE_SHARDS_DEFAULT = 1;
 
   private static final Logger LOG = LoggerFactory.getLogger(CompactingMemStore.class);
   private HStore store;
@@ -153,6 +156,15 @@ public class CompactingMemStore extends AbstractMemStore {
     }
   }
 
+  /**
+   * Writers to the active segment add to the shard of their thread, the shards are merged when
+   * the segment is flattened after the in-memory flush.
+   */
+  @Override
+  protected int getActiveShardCount() {
+    return Math.max(1, getConfiguration().getInt(ACTIVE_SHARDS_KEY, ACTIVE_SHARDS_DEFAULT));
+  }
+
   /**
    * @return Total memory occupied by this MemStore. This won't include any size occupied by the
    *         snapshot. We assume the snapshot will get cleared soon. This is not thread safe and
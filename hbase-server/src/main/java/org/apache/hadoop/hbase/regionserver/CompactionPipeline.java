@@ -104,10 +104,11 @@ public class CompactionPipeline {
   }
 
   /**
-   * Swaps the versioned list at the tail of the pipeline with a new segment.
+   * Swaps the versioned list in the pipeline with a new segment.
    * Swapping only if there were no changes to the suffix of the list since the version list was
    * created.
-   * @param versionedList suffix of the pipeline to be replaced can be tail or all the pipeline
+   * @param versionedList consecutive segments of the pipeline to be replaced, can be its tail, its
+   *                      youngest segments or all the pipeline
    * @param segment new segment to replace the suffix. Can be null if the suffix just needs to be
    *                removed.
    * @param closeSuffix whether to close the suffix (to release memory), as part of swapping it out
@@ -288,8 +289,13 @@ public class CompactionPipeline {
 
   private void swapSuffix(List<? extends Segment> suffix, ImmutableSegment segment,
       boolean closeSegmentsInSuffix) {
+    // The new segment takes the place of the replaced ones, which are not the tail of the
+    // pipeline when an incremental compaction replaced its youngest segments only. This keeps the
+    // pipeline ordered from the youngest to the oldest segment, which the flush of its tail and
+    // the sequence id reported to the WAL rely on.
+    int index = suffix.isEmpty() ? pipeline.size() : pipeline.indexOf(suffix.get(0));
     pipeline.removeAll(suffix);
-    if(segment != null) pipeline.addLast(segment);
+    if(segment != null) pipeline.add(index, segment);
     // During index merge we won't be closing the segments undergoing the merge. Segment#close()
     // will release the MSLAB chunks to pool. But in case of index merge there wont be any data copy
     // from old MSLABs. So the new cells in new segment also refers to same chunks. In case of data
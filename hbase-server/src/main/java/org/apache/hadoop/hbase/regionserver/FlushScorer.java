@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Scores regions for the order in which the {@link MemStoreFlusher} flushes those with a pending
+ * flush request, the higher the score the sooner. The score adds up, each with its weight:
+ * <ul>
+ * <li>the size of the memstore relative to the flush size of the region, as a flush frees that
+ * much memory;</li>
+ * <li>the age of the oldest unflushed edit relative to the log roll period, as the edit keeps
+ * its WAL and all newer ones from being archived;</li>
+ * <li>minus the largest store file count of a store relative to the blocking store file count,
+ * as a flush adds a store file.</li>
+ * </ul>
+ * So a big region is not kept waiting behind small ones, while a small region whose edits pin old
+ * WALs still gets its turn.
+ */
+@InterfaceAudience.Private
+public class FlushScorer {
+
+  public static final String FLUSH_PRIORITY_ENABLED_KEY =
+      "hbase.regionserver.flush.priority.enabled";
+  public static final boolean FLUSH_PRIORITY_ENABLED_DEFAULT = false;
+  public static final String SIZE_WEIGHT_KEY = "hbase.regionserver.flush.priority.size.weight";
+  public static final String WAL_AGE_WEIGHT_KEY =
+      "hbase.regionserver.flush.priority.wal.age.weight";
+  public static final String STORE_FILE_WEIGHT_KEY =
+      "hbase.regionserver.flush.priority.storefile.weight";
+  public static final float DEFAULT_WEIGHT = 1.0f;
+
+  private static final String LOG_ROLL_PERIOD_KEY = "hbase.regionserver.logroll.period";
+  private static final long DEFAULT_LOG_ROLL_PERIOD = 3600000;
+
+  private final float sizeWeight;
+  private final float walAgeWeight;
+  private final float storeFileWeight;
+  private final long logRollPeriod;
+
+  public FlushScorer(Configuration conf) {
+    this.sizeWeight = conf.getFloat(SIZE_WEIGHT_KEY, DEFAULT_WEIGHT);
+    this.walAgeWeight = conf.getFloat(WAL_AGE_WEIGHT_KEY, DEFAULT_WEIGHT);
+    this.storeFileWeight = conf.getFloat(STORE_FILE_WEIGHT_KEY, DEFAULT_WEIGHT);
+    long period = conf.getLong(LOG_ROLL_PERIOD_KEY, DEFAULT_LOG_ROLL_PERIOD);
+    this.logRollPeriod = period > 0 ? period : DEFAULT_LOG_ROLL_PERIOD;
+  }
+
+  /**
+   * @return a {@link FlushScorer} if flushes are to be ordered by score, null to flush in the
+   *         order they are requested
+   */
+  static FlushScorer create(Configuration conf) {
+    return conf.getBoolean(FLUSH_PRIORITY_ENABLED_KEY, FLUSH_PRIORITY_ENABLED_DEFAULT)
+        ? new FlushScorer(conf) : null;
+  }
+
+  /**
+   * @return the score of the region, the higher the sooner it should be flushed
+   */
+  public double score(HRegion region) {
+    long now = EnvironmentEdgeManager.currentTime();
+    long oldestEdit = Long.MAX_VALUE;
+    double storeFiles = 0;
+    for (HStore store : region.getStores()) {
+      oldestEdit = Math.min(oldestEdit, store.timeOfOldestEdit());
+      long blockingFileCount = store.getBlockingFileCount();
+      if (blockingFileCount > 0) {
+        storeFiles =
+            Math.max(storeFiles, (double) store.getStorefilesCount() / blockingFileCount);
+      }
+    }
+    long flushSize = region.getMemStoreFlushSize();
+    double size = flushSize > 0 ? (double) region.getMemStoreDataSize() / flushSize : 0;
+    double walAge = oldestEdit < now ? (double) (now - oldestEdit) / logRollPeriod : 0;
+    return sizeWeight * size + walAgeWeight * walAge - storeFileWeight * storeFiles;
+  }
+}
@@ -26,6 +26,8 @@ import java.io.EOFException;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.lang.reflect.Constructor;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
@@ -49,6 +51,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -167,6 +170,7 @@ import org.apache.hadoop.hbase.util.FSUtils;
 import org.apache.hadoop.hbase.util.HashedBytes;
 import org.apache.hadoop.hbase.util.NonceKey;
 import org.apache.hadoop.hbase.util.Pair;
+import org.apache.hadoop.hbase.util.ReflectionUtils;
 import org.apache.hadoop.hbase.util.ServerRegionReplicaUtil;
 import org.apache.hadoop.hbase.util.Threads;
 import org.apache.hadoop.hbase.wal.WAL;
@@ -248,6 +252,13 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
   public static final String WAL_HSYNC_CONF_KEY = "hbase.wal.hsync";
   public static final boolean DEFAULT_WAL_HSYNC = false;
 
+  /**
+   * The {@link MultiVersionConcurrencyControl} implementation a region uses. Can be set per table
+   * in the table descriptor. {@link RingBufferMultiVersionConcurrencyControl} does not serialize
+   * write completion behind one lock, which helps regions with many concurrent writers.
+   */
+  public static final String MVCC_IMPL_KEY = "hbase.hregion.mvcc.impl";
+
   final AtomicBoolean closed = new AtomicBoolean(false);
 
   /* Closing can take some time; use the closing flag if there is stuff we don't
@@ -679,7 +690,7 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
   private boolean splitRequest;
   private byte[] explicitSplitPoint = null;
 
-  private final MultiVersionConcurrencyControl mvcc = new MultiVersionConcurrencyControl();
+  private final MultiVersionConcurrencyControl mvcc;
 
   // Coprocessor host
   private RegionCoprocessorHost coprocessorHost;
@@ -772,6 +783,8 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     }
     this.rowLockWaitDuration = conf.getInt("hbase.rowlock.wait.duration",
                     DEFAULT_ROWLOCK_WAIT_DURATION);
+    this.mvcc = ReflectionUtils.newInstance(conf.getClass(MVCC_IMPL_KEY,
+      MultiVersionConcurrencyControl.class, MultiVersionConcurrencyControl.class));
 
     this.isLoadingCfsOnDemandDefault = conf.getBoolean(LOAD_CFS_ON_DEMAND_CONFIG_KEY, true);
     this.htableDescriptor = htd;
@@ -1509,6 +1522,10 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
       "hbase.regionserver.optionalcacheflushinterval";
   /** Default interval for the memstore flush */
   public static final int DEFAULT_CACHE_FLUSH_INTERVAL = 3600000;
+  /** The max number of threads a flush writes the memstore snapshots of its stores with */
+  public static final String FLUSH_STORES_THREADS_MAX_KEY =
+      "hbase.hregion.flush.stores.threads.max";
+  public static final int DEFAULT_FLUSH_STORES_THREADS_MAX = 1;
   /** Default interval for System tables memstore flush */
   public static final int SYSTEM_CACHE_FLUSH_INTERVAL = 300000; // 5 minutes
 
@@ -2808,8 +2825,12 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
       // just-made new flush store file. The new flushed file is still in the
       // tmp directory.
 
-      for (StoreFlushContext flush : storeFlushCtxs.values()) {
-        flush.flushCache(status);
+      long flushStoresStart = EnvironmentEdgeManager.currentTime();
+      long flushStoresCpuTime = flushStores(storeFlushCtxs, status);
+      if (rsServices != null && rsServices.getMetrics() != null) {
+        rsServices.getMetrics().updateFlushStores(
+          EnvironmentEdgeManager.currentTime() - flushStoresStart,
+          TimeUnit.NANOSECONDS.toMillis(flushStoresCpuTime));
       }
 
       // Switch snapshot (in memstore) -> new hfile (thus causing
@@ -2935,6 +2956,81 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
           FlushResult.Result.FLUSHED_NO_COMPACTION_NEEDED, flushOpSeqId);
   }
 
+  /**
+   * Writes the memstore snapshots of the stores, in parallel on up to
+   * {@link #FLUSH_STORES_THREADS_MAX_KEY} threads if there are several. When writing some of them
+   * fails, the others are still written before the failure is thrown.
+   * @return the CPU time of the threads writing the snapshots, in nanoseconds
+   */
+  private long flushStores(Map<byte[], StoreFlushContext> flushes, MonitoredTask status)
+      throws IOException {
+    int maxThreads = Math.min(flushes.size(),
+      conf.getInt(FLUSH_STORES_THREADS_MAX_KEY, DEFAULT_FLUSH_STORES_THREADS_MAX));
+    if (maxThreads <= 1) {
+      long cpuTime = 0;
+      for (StoreFlushContext flush : flushes.values()) {
+        cpuTime += flushStore(flush, status);
+      }
+      return cpuTime;
+    }
+    ThreadPoolExecutor storeFlusherThreadPool = getOpenAndCloseThreadPool(maxThreads,
+      "StoreFlusher-" + getRegionInfo().getShortNameToLog());
+    CompletionService<Long> completionService =
+        new ExecutorCompletionService<>(storeFlusherThreadPool);
+    try {
+      for (Map.Entry<byte[], StoreFlushContext> flush : flushes.entrySet()) {
+        // MonitoredTask is not thread safe, each store reports to its own
+        completionService.submit(() -> {
+          MonitoredTask storeStatus = TaskMonitor.get().createStatus(
+            "Flushing " + Bytes.toString(flush.getKey()) + " of " + this);
+          storeStatus.enableStatusJournal(false);
+          try {
+            long cpuTime = flushStore(flush.getValue(), storeStatus);
+            storeStatus.markComplete("Flush successful");
+            return cpuTime;
+          } finally {
+            storeStatus.cleanup();
+          }
+        });
+      }
+      long cpuTime = 0;
+      IOException error = null;
+      for (int i = 0; i < flushes.size(); i++) {
+        try {
+          cpuTime += completionService.take().get();
+          status.setStatus("Flushed " + (i + 1) + " of " + flushes.size() + " stores of " + this);
+        } catch (ExecutionException e) {
+          if (error == null) {
+            error = new IOException("Failed flushing stores of " + this, e.getCause());
+          } else {
+            error.addSuppressed(e.getCause());
+          }
+        }
+      }
+      if (error != null) {
+        throw error;
+      }
+      return cpuTime;
+    } catch (InterruptedException e) {
+      throw (InterruptedIOException) new InterruptedIOException().initCause(e);
+    } finally {
+      storeFlusherThreadPool.shutdown();
+    }
+  }
+
+  /**
+   * @return the CPU time of the current thread writing the snapshot, in nanoseconds, 0 if it
+   *         can not be measured
+   */
+  private static long flushStore(StoreFlushContext flush, MonitoredTask status)
+      throws IOException {
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    boolean measure = threadBean.isCurrentThreadCpuTimeSupported();
+    long start = measure ? threadBean.getCurrentThreadCpuTime() : 0;
+    flush.flushCache(status);
+    return measure ? threadBean.getCurrentThreadCpuTime() - start : 0;
+  }
+
   /**
    * Method to safely get the next sequence number.
    * @return Next sequence number unassociated with any actual edit.
@@ -7495,6 +7591,67 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     return Result.create(results, get.isCheckExistenceOnly() ? !results.isEmpty() : null, stale);
   }
 
+  /**
+   * Loads into the block cache, with coalesced reads, the data blocks a batch of gets is about to
+   * read, so that the gets themselves mostly hit the cache.
+   * @param rows rows of the gets
+   * @param families families the gets read, or null for all of them
+   */
+  void loadDataBlocksForGets(List<byte[]> rows, Set<byte[]> families) throws IOException {
+    startRegionOperation(Operation.GET);
+    try {
+      for (HStore store : stores.values()) {
+        if (families == null || families.contains(store.getColumnFamilyDescriptor().getName())) {
+          store.loadDataBlocks(rows);
+        }
+      }
+    } finally {
+      closeRegionOperation(Operation.GET);
+    }
+  }
+
+  /**
+   * Starts reading the data blocks a get is about to read from disk into the block cache
+   * concurrently, rather than one store file after the other as the get's scanners do. The store
+   * files are selected as the get's scanners select them. Nothing is read unless at least two of
+   * their blocks miss the cache.
+   * @return a future that completes once the blocks are read, it never completes exceptionally
+   *   as the get reads whatever is not loaded itself
+   */
+  CompletableFuture<Void> loadDataBlocksForGet(Get get) throws IOException {
+    startRegionOperation(Operation.GET);
+    try {
+      Scan scan = new Scan(get);
+      List<StoreFileReader> readers = new ArrayList<>();
+      for (HStore store : stores.values()) {
+        if (!get.hasFamilies() || get.familySet().contains(
+            store.getColumnFamilyDescriptor().getName())) {
+          store.addReadersMissingCache(scan, readers);
+        }
+      }
+      if (readers.size() < 2) {
+        // Nothing to gain, the get reads the block itself
+        readers.forEach(StoreFileReader::readCompleted);
+        return CompletableFuture.completedFuture(null);
+      }
+      List<CompletableFuture<Void>> futures = new ArrayList<>(readers.size());
+      for (StoreFileReader reader : readers) {
+        futures.add(
+          reader.loadDataBlockAsync(get.getRow()).whenComplete((r, e) -> reader.readCompleted()));
+      }
+      return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+          .handle((r, e) -> {
+            if (e != null) {
+              LOG.debug("Failed to load the data blocks of a get of {}",
+                getRegionInfo().getEncodedName(), e);
+            }
+            return null;
+          });
+    } finally {
+      closeRegionOperation(Operation.GET);
+    }
+  }
+
   void prepareGet(final Get get) throws IOException {
     checkRow(get.getRow(), "Get");
     // Verify families are all valid
@@ -8237,8 +8394,7 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
       (2 * ClassSize.CONCURRENT_HASHMAP) +  // lockedRows, scannerReadPoints
       WriteState.HEAP_SIZE + // writestate
       ClassSize.CONCURRENT_SKIPLISTMAP + ClassSize.CONCURRENT_SKIPLISTMAP_ENTRY + // stores
-      (2 * ClassSize.REENTRANT_LOCK) + // lock, updatesLock
-      MultiVersionConcurrencyControl.FIXED_SIZE // mvcc
+      (2 * ClassSize.REENTRANT_LOCK) // lock, updatesLock
       + 2 * ClassSize.TREEMAP // maxSeqIdInStores, replicationScopes
       + 2 * ClassSize.ATOMIC_INTEGER // majorInProgress, minorInProgress
       + ClassSize.STORE_SERVICES // store services
@@ -8248,7 +8404,8 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
   @Override
   public long heapSize() {
     // this does not take into account row locks, recent flushes, mvcc entries, and more
-    return DEEP_OVERHEAD + stores.values().stream().mapToLong(HStore::heapSize).sum();
+    return DEEP_OVERHEAD + mvcc.heapSize()
+        + stores.values().stream().mapToLong(HStore::heapSize).sum();
   }
 
   /**
@@ -106,6 +106,7 @@ import org.apache.hadoop.hbase.fs.HFileSystem;
 import org.apache.hadoop.hbase.http.InfoServer;
 import org.apache.hadoop.hbase.io.hfile.BlockCache;
 import org.apache.hadoop.hbase.io.hfile.BlockCacheFactory;
+import org.apache.hadoop.hbase.io.hfile.BlockReadPlanner;
 import org.apache.hadoop.hbase.io.hfile.HFile;
 import org.apache.hadoop.hbase.io.util.MemorySizeUtil;
 import org.apache.hadoop.hbase.ipc.CoprocessorRpcUtils;
@@ -438,6 +439,8 @@ public class HRegionServer extends HasThread implements
   private BlockCache blockCache;
   // The cache for mob files
   private MobFileCache mobFileCache;
+  // Seeks store files in parallel, if enabled
+  private ParallelSeekExecutor parallelSeekExecutor;
 
   /** The health check chore. */
   private HealthCheckChore healthCheckChore;
@@ -627,6 +630,7 @@ public class HRegionServer extends HasThread implements
       if (!isMasterNotCarryTable) {
         blockCache = BlockCacheFactory.createBlockCache(conf);
         mobFileCache = new MobFileCache(conf);
+        BlockReadPlanner.startReadPool(conf);
       }
 
       uncaughtExceptionHandler = new UncaughtExceptionHandler() {
@@ -1072,6 +1076,7 @@ public class HRegionServer extends HasThread implements
     }
     if (mobFileCache != null) {
       mobFileCache.shutdown();
+      BlockReadPlanner.shutdownReadPool();
     }
 
     if (movedRegionsCleaner != null) {
@@ -1949,8 +1954,7 @@ public class HRegionServer extends HasThread implements
     this.executorService.startExecutorService(ExecutorType.RS_CLOSE_META,
         conf.getInt("hbase.regionserver.executor.closemeta.threads", 1));
     if (conf.getBoolean(StoreScanner.STORESCANNER_PARALLEL_SEEK_ENABLE, false)) {
-      this.executorService.startExecutorService(ExecutorType.RS_PARALLEL_SEEK,
-          conf.getInt("hbase.storescanner.parallel.seek.threads", 10));
+      this.parallelSeekExecutor = new ParallelSeekExecutor(conf);
     }
     this.executorService.startExecutorService(ExecutorType.RS_LOG_REPLAY_OPS, conf.getInt(
         HBASE_SPLIT_WAL_MAX_SPLITTER, DEFAULT_HBASE_SPLIT_WAL_MAX_SPLITTER));
@@ -2519,6 +2523,9 @@ public class HRegionServer extends HasThread implements
       this.compactSplitThread.join();
     }
     if (this.executorService != null) this.executorService.shutdown();
+    if (this.parallelSeekExecutor != null) {
+      this.parallelSeekExecutor.shutdown();
+    }
     if (this.replicationSourceHandler != null &&
         this.replicationSourceHandler == this.replicationSinkHandler) {
       this.replicationSourceHandler.stopReplicationService();
@@ -3651,6 +3658,11 @@ public class HRegionServer extends HasThread implements
     return Optional.ofNullable(this.mobFileCache);
   }
 
+  @Override
+  public Optional<ParallelSeekExecutor> getParallelSeekExecutor() {
+    return Optional.ofNullable(this.parallelSeekExecutor);
+  }
+
   @Override
   public AccessChecker getAccessChecker() {
     return rpcServices.getAccessChecker();
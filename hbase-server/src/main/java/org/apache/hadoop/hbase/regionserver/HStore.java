@@ -332,6 +332,7 @@ public class HStore implements Store, HeapSize, StoreConfigInformation, Propagat
       confPrintThreshold = 10;
     }
     this.parallelPutCountPrintThreshold = confPrintThreshold;
+    setBlockCachePartitionShare(family);
     LOG.info("Store={},  memstore type={}, storagePolicy={}, verifyBulkLoads={}, "
             + "parallelPutCountPrintThreshold={}, encoding={}, compression={}",
         getColumnFamilyName(), memstore.getClass().getSimpleName(), policyName, verifyBulkLoads,
@@ -372,6 +373,29 @@ public class HStore implements Store, HeapSize, StoreConfigInformation, Propagat
     return ms;
   }
 
+  /**
+   * Asks the block cache for the share of the partition of the family, until the store closes.
+   */
+  private void setBlockCachePartitionShare(ColumnFamilyDescriptor family) {
+    String partition = cacheConf.getBlockCachePartition();
+    if (partition != null) {
+      cacheConf.getBlockCache().ifPresent(cache -> cache.setPartitionShare(partition,
+        getBlockCachePartitionShareOwner(), family.getBlockCachePartitionShare()));
+    }
+  }
+
+  private void removeBlockCachePartitionShare() {
+    String partition = cacheConf == null ? null : cacheConf.getBlockCachePartition();
+    if (partition != null) {
+      cacheConf.getBlockCache().ifPresent(
+        cache -> cache.removePartitionShare(partition, getBlockCachePartitionShareOwner()));
+    }
+  }
+
+  private String getBlockCachePartitionShareOwner() {
+    return getRegionInfo().getEncodedName() + "/" + getColumnFamilyName();
+  }
+
   /**
    * Creates the cache config.
    * @param family The current column family.
@@ -792,6 +816,71 @@ public class HStore implements Store, HeapSize, StoreConfigInformation, Propagat
     return this.storeEngine.getStoreFileManager().getStorefiles();
   }
 
+  /**
+   * Loads into the block cache the data blocks of the store files holding the given rows, see
+   * {@link StoreFileReader#loadDataBlocks(List)}.
+   */
+  void loadDataBlocks(List<byte[]> rows) throws IOException {
+    for (HStoreFile sf : getStorefiles()) {
+      StoreFileReader reader = sf.getReader();
+      if (reader == null) {
+        continue;
+      }
+      // Keeps the reader open should the file be compacted away meanwhile
+      reader.incrementRefCount();
+      try {
+        reader.loadDataBlocks(rows);
+      } finally {
+        reader.readCompleted();
+      }
+    }
+  }
+
+  /**
+   * Adds the readers of the store files a get is going to read from disk: those its scanner
+   * selects, by time range, key range and Bloom filter, whose data block holding the row of the
+   * get is not in the block cache. The readers are kept open, the caller has to call
+   * {@link StoreFileReader#readCompleted()} on each of them.
+   * @param scan the scan of the get
+   * @param readers where to add the readers
+   */
+  void addReadersMissingCache(Scan scan, List<StoreFileReader> readers) {
+    Collection<HStoreFile> storeFiles;
+    this.lock.readLock().lock();
+    try {
+      storeFiles = this.storeEngine.getStoreFileManager().getFilesForScan(scan.getStartRow(),
+        scan.includeStartRow(), scan.getStopRow(), scan.includeStopRow());
+    } finally {
+      this.lock.readLock().unlock();
+    }
+    // As StoreScanner, rules out files holding expired cells only if no versions are kept anyway
+    ScanInfo scanInfo = getScanInfo();
+    long oldestUnexpiredTS = scanInfo.getMinVersions() == 0
+        ? EnvironmentEdgeManager.currentTime() - scanInfo.getTtl() : Long.MIN_VALUE;
+    byte[] family = getColumnFamilyDescriptor().getName();
+    for (HStoreFile sf : storeFiles) {
+      StoreFileReader reader = sf.getReader();
+      if (reader == null) {
+        continue;
+      }
+      // Keeps the reader open should the file be compacted away meanwhile
+      reader.incrementRefCount();
+      boolean miss;
+      try {
+        miss = reader.passesScanFilters(scan, family, oldestUnexpiredTS) &&
+            !reader.isDataBlockCached(scan.getStartRow());
+      } catch (IOException e) {
+        // The get runs into it too and reports it
+        miss = false;
+      }
+      if (miss) {
+        readers.add(reader);
+      } else {
+        reader.readCompleted();
+      }
+    }
+  }
+
   @Override
   public Collection<HStoreFile> getCompactedFiles() {
     return this.storeEngine.getStoreFileManager().getCompactedfiles();
@@ -1001,6 +1090,7 @@ public class HStore implements Store, HeapSize, StoreConfigInformation, Propagat
       LOG.trace("Closed {}", this);
       return result;
     } finally {
+      removeBlockCachePartitionShare();
       this.lock.writeLock().unlock();
       this.archiveLock.unlock();
     }
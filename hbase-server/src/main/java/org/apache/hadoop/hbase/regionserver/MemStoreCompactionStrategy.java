@@ -18,6 +18,9 @@
  */
 package org.apache.hadoop.hbase.regionserver;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.hadoop.conf.Configuration;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.slf4j.Logger;
@@ -43,6 +46,11 @@ public abstract class MemStoreCompactionStrategy {
   public static final String COMPACTING_MEMSTORE_THRESHOLD_KEY =
       "hbase.hregion.compacting.pipeline.segments.limit";
   public static final int COMPACTING_MEMSTORE_THRESHOLD_DEFAULT = 2;
+  // How much larger than the younger segments an older one may be and still be compacted with
+  // them. Not positive to compact all the segments of the pipeline.
+  public static final String COMPACTING_MEMSTORE_INCREMENTAL_RATIO_KEY =
+      "hbase.hregion.compacting.memstore.incremental.ratio";
+  public static final double COMPACTING_MEMSTORE_INCREMENTAL_RATIO_DEFAULT = 0;
 
   /**
    * Types of actions to be done on the pipeline upon MemStoreCompaction invocation.
@@ -61,15 +69,20 @@ public abstract class MemStoreCompactionStrategy {
   protected final String cfName;
   // The limit on the number of the segments in the pipeline
   protected final int pipelineThreshold;
+  // The ratio deciding which segments of the pipeline a compaction rewrites
+  protected final double incrementalRatio;
 
 
   public MemStoreCompactionStrategy(Configuration conf, String cfName) {
     this.cfName = cfName;
     if(conf == null) {
       pipelineThreshold = COMPACTING_MEMSTORE_THRESHOLD_DEFAULT;
+      incrementalRatio = COMPACTING_MEMSTORE_INCREMENTAL_RATIO_DEFAULT;
     } else {
       pipelineThreshold =         // get the limit on the number of the segments in the pipeline
           conf.getInt(COMPACTING_MEMSTORE_THRESHOLD_KEY, COMPACTING_MEMSTORE_THRESHOLD_DEFAULT);
+      incrementalRatio = conf.getDouble(COMPACTING_MEMSTORE_INCREMENTAL_RATIO_KEY,
+          COMPACTING_MEMSTORE_INCREMENTAL_RATIO_DEFAULT);
     }
   }
 
@@ -115,4 +128,34 @@ public abstract class MemStoreCompactionStrategy {
         cfName, numOfSegments);
     return Action.COMPACT;
   }
+
+  /**
+   * Picks the segments of the pipeline a compaction rewrites. By default these are all of them.
+   * With an incremental ratio set, these are the youngest segments only: starting from the
+   * youngest, the next older segment is added while its data size is at most the ratio times the
+   * data size of the segments picked so far. The older and larger segments are left as they are,
+   * so a compaction copies, and holds twice until the swap, only data of similar age and size.
+   * @param versionedList the segments of the pipeline, youngest first
+   * @return the youngest segments of <code>versionedList</code> to compact, with its version
+   */
+  public VersionedSegmentsList getSegmentsToCompact(VersionedSegmentsList versionedList) {
+    List<ImmutableSegment> segments = versionedList.getStoreSegments();
+    if (incrementalRatio <= 0 || segments.size() < 2) {
+      return versionedList;
+    }
+    long dataSize = segments.get(0).getDataSize();
+    int count = 1;
+    while (count < segments.size()
+        && segments.get(count).getDataSize() <= incrementalRatio * dataSize) {
+      dataSize += segments.get(count).getDataSize();
+      count++;
+    }
+    if (count == segments.size()) {
+      return versionedList;
+    }
+    LOG.trace("Store={}; compacting the {} youngest of {} segments", cfName, count,
+        segments.size());
+    return new VersionedSegmentsList(new ArrayList<>(segments.subList(0, count)),
+        versionedList.getVersion());
+  }
 }
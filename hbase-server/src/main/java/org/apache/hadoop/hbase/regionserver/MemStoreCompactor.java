@@ -150,6 +150,10 @@ public class MemStoreCompactor {
     MemStoreCompactionStrategy.Action nextStep = strategy.getAction(versionedList);
     boolean merge = (nextStep == MemStoreCompactionStrategy.Action.MERGE ||
         nextStep == MemStoreCompactionStrategy.Action.MERGE_COUNT_UNIQUE_KEYS);
+    if (nextStep == MemStoreCompactionStrategy.Action.COMPACT) {
+      // an incremental compaction rewrites only the youngest segments of the pipeline
+      versionedList = strategy.getSegmentsToCompact(versionedList);
+    }
     try {
       if (isInterrupted.get()) {      // if the entire process is interrupted cancel flattening
         return;           // the compaction also doesn't start when interrupted
@@ -165,7 +169,7 @@ public class MemStoreCompactor {
         return;
       }
 
-      // Create one segment representing all segments in the compaction pipeline,
+      // Create one segment representing all segments in the versioned list,
       // either by compaction or by merge
       if (!isInterrupted.get()) {
         result = createSubstitution(nextStep);
@@ -56,6 +56,8 @@ import org.apache.yetus.audience.InterfaceAudience;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesting;
+
 /**
  * Thread that flushes cache on request
  *
@@ -89,6 +91,9 @@ class MemStoreFlusher implements FlushRequester {
 
   private FlushType flushType;
 
+  // Orders the ready flush requests, null to flush them in the order they were requested
+  private final FlushScorer flushScorer;
+
   /**
    * Singleton instance inserted into flush queue used for signaling.
    */
@@ -130,6 +135,7 @@ class MemStoreFlusher implements FlushRequester {
       90000);
     int handlerCount = conf.getInt("hbase.hstore.flusher.count", 2);
     this.flushHandlers = new FlushHandler[handlerCount];
+    this.flushScorer = FlushScorer.create(conf);
     LOG.info("globalMemStoreLimit="
         + TraditionalBinaryPrefix
             .long2String(this.server.getRegionServerAccounting().getGlobalMemStoreLimit(), "", 1)
@@ -333,7 +339,7 @@ class MemStoreFlusher implements FlushRequester {
         FlushQueueEntry fqe = null;
         try {
           wakeupPending.set(false); // allow someone to wake us up again
-          fqe = flushQueue.poll(threadWakeFrequency, TimeUnit.MILLISECONDS);
+          fqe = pollFlushQueue();
           if (fqe == null || fqe == WAKEUPFLUSH_INSTANCE) {
             FlushType type = isAboveLowWaterMark();
             if (type != FlushType.NORMAL) {
@@ -385,6 +391,55 @@ class MemStoreFlusher implements FlushRequester {
   }
 
 
+  /**
+   * Takes the next due request from the queue. When flushes are ordered by score, that is the due
+   * flush request whose region has the highest score.
+   * @return the request, or null if none was due within the thread wake frequency
+   */
+  @VisibleForTesting
+  FlushQueueEntry pollFlushQueue() throws InterruptedException {
+    FlushQueueEntry fqe = flushQueue.poll(threadWakeFrequency, TimeUnit.MILLISECONDS);
+    if (flushScorer != null && fqe instanceof FlushRegionEntry) {
+      return selectByScore((FlushRegionEntry) fqe);
+    }
+    return fqe;
+  }
+
+  /**
+   * Picks the ready flush request whose region has the highest score, putting the others back
+   * into the queue.
+   * @param polled the request taken from the queue
+   */
+  private FlushRegionEntry selectByScore(FlushRegionEntry polled) {
+    List<FlushQueueEntry> ready = new ArrayList<>();
+    synchronized (regionsInQueue) {
+      // Only drains the requests whose delay expired
+      flushQueue.drainTo(ready);
+      if (ready.isEmpty()) {
+        return polled;
+      }
+      ready.add(polled);
+      FlushRegionEntry selected = null;
+      double selectedScore = 0;
+      for (FlushQueueEntry entry : ready) {
+        if (entry instanceof FlushRegionEntry) {
+          FlushRegionEntry fre = (FlushRegionEntry) entry;
+          double score = flushScorer.score(fre.region);
+          if (selected == null || score > selectedScore) {
+            selected = fre;
+            selectedScore = score;
+          }
+        }
+      }
+      for (FlushQueueEntry entry : ready) {
+        if (entry != selected) {
+          flushQueue.add(entry);
+        }
+      }
+      return selected;
+    }
+  }
+
   private void wakeupFlushThread() {
     if (wakeupPending.compareAndSet(false, true)) {
       flushQueue.add(WAKEUPFLUSH_INSTANCE);
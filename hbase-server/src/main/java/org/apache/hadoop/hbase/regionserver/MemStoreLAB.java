@@ -58,6 +58,10 @@ public interface MemStoreLAB {
   int MAX_ALLOC_DEFAULT = 256 * 1024; // allocs bigger than this don't go through
                                                    // allocator
 
+  // Whether the index of the active segment is allocated in the chunks, see CellChunkSkipListMap
+  String CHUNK_SKIPLIST_KEY = "hbase.hregion.memstore.mslab.skiplist.enabled";
+  boolean CHUNK_SKIPLIST_DEFAULT = false;
+
   // MSLAB pool related configs
   String CHUNK_POOL_MAXSIZE_KEY = "hbase.hregion.memstore.chunkpool.maxsize";
   String CHUNK_POOL_INITIALSIZE_KEY = "hbase.hregion.memstore.chunkpool.initialsize";
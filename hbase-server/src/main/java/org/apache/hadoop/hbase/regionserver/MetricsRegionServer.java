@@ -201,6 +201,10 @@ public class MetricsRegionServer {
     serverSource.incrSplitSuccess();
   }
 
+  public void updateFlushStores(long t, long cpuTime) {
+    serverSource.updateFlushStoresTime(t, cpuTime);
+  }
+
   public void updateFlush(String table, long t, long memstoreSize, long fileSize) {
     serverSource.updateFlushTime(t);
     serverSource.updateFlushMemStoreSize(memstoreSize);
@@ -36,6 +36,7 @@ import org.apache.hadoop.hbase.io.ByteBuffAllocator;
 import org.apache.hadoop.hbase.io.hfile.BlockCache;
 import org.apache.hadoop.hbase.io.hfile.CacheStats;
 import org.apache.hadoop.hbase.io.hfile.CombinedBlockCache;
+import org.apache.hadoop.hbase.io.hfile.PrefetchExecutor;
 import org.apache.hadoop.hbase.mob.MobFileCache;
 import org.apache.hadoop.hbase.regionserver.wal.MetricsWALSource;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
@@ -346,6 +347,16 @@ class MetricsRegionServerWrapperImpl
     return this.cacheStats.map(CacheStats::getFailedInserts).orElse(0L);
   }
 
+  @Override
+  public long getBlockCacheAdmittedCount() {
+    return this.cacheStats.map(CacheStats::getAdmittedCount).orElse(0L);
+  }
+
+  @Override
+  public long getBlockCacheRejectedCount() {
+    return this.cacheStats.map(CacheStats::getRejectedCount).orElse(0L);
+  }
+
   @Override
   public long getL1CacheHitCount() {
     return this.l1Stats.map(CacheStats::getHitCount).orElse(0L);
@@ -386,6 +397,53 @@ class MetricsRegionServerWrapperImpl
     return this.l2Stats.map(CacheStats::getMissRatio).orElse(0.0);
   }
 
+  @Override
+  public double getL1CacheEvictionTimeMean() {
+    return this.l1Stats.map(s -> s.getEvictionTimeSnapshot().getMean()).orElse(0.0);
+  }
+
+  @Override
+  public double getL1CacheEvictionTime99thPercentile() {
+    return this.l1Stats.map(s -> s.getEvictionTimeSnapshot().get99thPercentile()).orElse(0.0);
+  }
+
+  @Override
+  public double getL2CacheEvictionTimeMean() {
+    return this.l2Stats.map(s -> s.getEvictionTimeSnapshot().getMean()).orElse(0.0);
+  }
+
+  @Override
+  public double getL2CacheEvictionTime99thPercentile() {
+    return this.l2Stats.map(s -> s.getEvictionTimeSnapshot().get99thPercentile()).orElse(0.0);
+  }
+
+  @Override
+  public long getPrefetchPendingFiles() {
+    return PrefetchExecutor.getPendingFileCount();
+  }
+
+  @Override
+  public long getPrefetchCompletedFiles() {
+    return PrefetchExecutor.getCompletedFileCount();
+  }
+
+  @Override
+  public long getPrefetchedBytes() {
+    return PrefetchExecutor.getPrefetchedBytes();
+  }
+
+  @Override
+  public long getParallelSeekCount() {
+    return regionServer.getParallelSeekExecutor().map(ParallelSeekExecutor::getParallelSeekCount)
+        .orElse(0L);
+  }
+
+  @Override
+  public long getParallelSeekTimeSaved() {
+    return regionServer.getParallelSeekExecutor()
+        .map(ParallelSeekExecutor::getParallelSeekTimeSaved).orElse(0L);
+  }
+
   @Override public void forceRecompute() {
     this.runnable.run();
   }
@@ -27,6 +27,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.apache.hadoop.hbase.io.HeapSize;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.ClassSize;
 
@@ -35,9 +36,13 @@ import org.apache.hadoop.hbase.util.ClassSize;
  * Manages the read/write consistency. This provides an interface for readers to determine what
  * entries to ignore, and a mechanism for writers to obtain new write numbers, then "commit"
  * the new writes for readers to read (thus forming atomic transactions).
+ * <p>
+ * All begins and completions go through one lock here. See
+ * {@link RingBufferMultiVersionConcurrencyControl} for an implementation that completes writes
+ * without it; {@link HRegion#MVCC_IMPL_KEY} selects the implementation a region uses.
  */
 @InterfaceAudience.Private
-public class MultiVersionConcurrencyControl {
+public class MultiVersionConcurrencyControl implements HeapSize {
   private static final Logger LOG = LoggerFactory.getLogger(MultiVersionConcurrencyControl.class);
 
   final AtomicLong readPoint = new AtomicLong(0);
@@ -294,4 +299,9 @@ public class MultiVersionConcurrencyControl {
       ClassSize.OBJECT +
       2 * Bytes.SIZEOF_LONG +
       2 * ClassSize.REFERENCE);
+
+  @Override
+  public long heapSize() {
+    return FIXED_SIZE;
+  }
 }
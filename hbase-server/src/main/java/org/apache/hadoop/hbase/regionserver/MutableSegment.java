@@ -21,6 +21,7 @@ package org.apache.hadoop.hbase.regionserver;
 import java.util.Iterator;
 import java.util.SortedSet;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellComparator;
@@ -40,6 +41,10 @@ import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesti
 public class MutableSegment extends Segment {
 
   private final AtomicBoolean flushed = new AtomicBoolean(false);
+  // Whether the index refers to the Cells by their place in the MSLAB chunks
+  private final boolean indexOnChunks;
+  // The size of the index chunks accounted for in the size of the segment
+  private final AtomicLong indexChunksSize = new AtomicLong();
 
   public final static long DEEP_OVERHEAD = ClassSize.align(Segment.DEEP_OVERHEAD
       + ClassSize.CONCURRENT_SKIPLISTMAP
@@ -50,6 +55,7 @@ public class MutableSegment extends Segment {
   protected MutableSegment(CellSet cellSet, CellComparator comparator,
       MemStoreLAB memStoreLAB, MemStoreSizing memstoreSizing) {
     super(cellSet, comparator, memStoreLAB, TimeRangeTracker.create(TimeRangeTracker.Type.SYNC));
+    this.indexOnChunks = cellSet.isIndexOnChunks();
     incMemStoreSize(0, DEEP_OVERHEAD, 0, 0); // update the mutable segment metadata
     if (memstoreSizing != null) {
       memstoreSizing.incMemStoreSize(0, DEEP_OVERHEAD, 0, 0);
@@ -63,12 +69,50 @@ public class MutableSegment extends Segment {
    */
   public void add(Cell cell, boolean mslabUsed, MemStoreSizing memStoreSizing,
       boolean sizeAddedPreOperation) {
+    if (indexOnChunks && !CellChunkSkipListMap.isOnChunk(cell)) {
+      cell = maybeCloneWithAllocator(cell, true);
+      mslabUsed = true;
+    }
     internalAdd(cell, mslabUsed, memStoreSizing, sizeAddedPreOperation);
+    if (indexOnChunks) {
+      updateIndexChunksSize(memStoreSizing);
+    }
+  }
+
+  /**
+   * Accounts for the index chunks the index took from the MSLAB since the last update, the
+   * entries of an index on chunks have no size of their own.
+   */
+  private void updateIndexChunksSize(MemStoreSizing memStoreSizing) {
+    long size = getCellSet().getIndexChunksSize();
+    long accounted = indexChunksSize.get();
+    while (size > accounted) {
+      if (indexChunksSize.compareAndSet(accounted, size)) {
+        long delta = size - accounted;
+        long heapSize = getMemStoreLAB().isOffHeap() ? 0 : delta;
+        long offHeapSize = delta - heapSize;
+        incMemStoreSize(0, heapSize, offHeapSize, 0);
+        if (memStoreSizing != null) {
+          memStoreSizing.incMemStoreSize(0, heapSize, offHeapSize, 0);
+        }
+        return;
+      }
+      accounted = indexChunksSize.get();
+    }
   }
 
   public void upsert(Cell cell, long readpoint, MemStoreSizing memStoreSizing,
       boolean sizeAddedPreOperation) {
-    internalAdd(cell, false, memStoreSizing, sizeAddedPreOperation);
+    boolean mslabUsed = false;
+    if (indexOnChunks && !CellChunkSkipListMap.isOnChunk(cell)) {
+      // The index can only refer to Cells in the MSLAB chunks, so copy even for an upsert
+      cell = maybeCloneWithAllocator(cell, true);
+      mslabUsed = true;
+    }
+    internalAdd(cell, mslabUsed, memStoreSizing, sizeAddedPreOperation);
+    if (indexOnChunks) {
+      updateIndexChunksSize(memStoreSizing);
+    }
 
     // Get the Cells for the row/family/qualifier regardless of timestamp.
     // For this case we want to clean up any other puts
@@ -80,8 +124,8 @@ public class MutableSegment extends Segment {
     while (it.hasNext()) {
       Cell cur = it.next();
 
-      if (cell == cur) {
-        // ignore the one just put in
+      if (cell == cur || (indexOnChunks && getComparator().compare(cell, cur) == 0)) {
+        // ignore the one just put in, an index on chunks returns a new Cell for it
         continue;
       }
       // check that this is the row and column we are interested in, otherwise bail
@@ -130,6 +174,7 @@ public class MutableSegment extends Segment {
   }
 
   @Override protected long indexEntrySize() {
-      return ClassSize.CONCURRENT_SKIPLISTMAP_ENTRY;
+      // An index on chunks is accounted for by its chunks, see updateIndexChunksSize
+      return indexOnChunks ? 0 : ClassSize.CONCURRENT_SKIPLISTMAP_ENTRY;
   }
 }
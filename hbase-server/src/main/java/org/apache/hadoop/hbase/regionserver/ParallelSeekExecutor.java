@@ -0,0 +1,186 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.yetus.audience.InterfaceAudience;
+
+import org.apache.hbase.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Seeks the store file scanners of a {@link StoreScanner} in parallel, on a bounded pool shared
+ * by all the scanners of the region server.
+ * <p>
+ * Only the store files whose seek is expected to read from disk, because the data block the seek
+ * lands in is not in the block cache, are sought on the pool. The others are sought by the
+ * calling thread, handing a cached seek off to another thread costs more than it saves. When the
+ * pool is saturated or shut down, the calling thread seeks the store files itself.
+ */
+@InterfaceAudience.Private
+public class ParallelSeekExecutor {
+
+  public static final String PARALLEL_SEEK_THREADS_KEY = "hbase.storescanner.parallel.seek.threads";
+  public static final int DEFAULT_PARALLEL_SEEK_THREADS = 10;
+
+  /** Number of store file seeks waiting for a thread of the pool before callers seek themselves */
+  public static final String PARALLEL_SEEK_QUEUE_SIZE_KEY =
+      "hbase.storescanner.parallel.seek.queue.size";
+  public static final int DEFAULT_PARALLEL_SEEK_QUEUE_SIZE = 100;
+
+  private final ThreadPoolExecutor pool;
+
+  private final LongAdder parallelSeekCount = new LongAdder();
+  private final LongAdder timeSavedNanos = new LongAdder();
+
+  public ParallelSeekExecutor(Configuration conf) {
+    int threads = conf.getInt(PARALLEL_SEEK_THREADS_KEY, DEFAULT_PARALLEL_SEEK_THREADS);
+    this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(
+            conf.getInt(PARALLEL_SEEK_QUEUE_SIZE_KEY, DEFAULT_PARALLEL_SEEK_QUEUE_SIZE)),
+        new ThreadFactoryBuilder().setNameFormat("StoreFileParallelSeek-%d").setDaemon(true)
+            .build());
+    this.pool.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Seeks the scanners to the given key, the store file scanners missing the block cache in
+   * parallel.
+   */
+  void seek(List<? extends KeyValueScanner> scanners, Cell key) throws IOException {
+    int unchecked = 0;
+    for (KeyValueScanner scanner : scanners) {
+      if (scanner instanceof StoreFileScanner) {
+        unchecked++;
+      }
+    }
+    // Looking up the block index of a store file costs about as much as the index part of its
+    // seek, so stop looking as soon as the store files left can no longer make two cache misses.
+    List<KeyValueScanner> uncached = new ArrayList<>();
+    List<KeyValueScanner> cached = new ArrayList<>();
+    for (KeyValueScanner scanner : scanners) {
+      if (scanner instanceof StoreFileScanner && uncached.size() + unchecked >= 2) {
+        unchecked--;
+        if (!((StoreFileScanner) scanner).isSeekCached(key)) {
+          uncached.add(scanner);
+          continue;
+        }
+      }
+      cached.add(scanner);
+    }
+    if (uncached.size() < 2) {
+      for (KeyValueScanner scanner : scanners) {
+        scanner.seek(key);
+      }
+      return;
+    }
+    long start = System.nanoTime();
+    AtomicLong seekTimeNanos = new AtomicLong();
+    List<Future<?>> futures = new ArrayList<>(uncached.size());
+    for (KeyValueScanner scanner : uncached) {
+      FutureTask<Void> task = new FutureTask<>(() -> {
+        long seekStart = System.nanoTime();
+        scanner.seek(key);
+        seekTimeNanos.addAndGet(System.nanoTime() - seekStart);
+        return null;
+      });
+      try {
+        pool.execute(task);
+      } catch (RejectedExecutionException e) {
+        // The pool is saturated or shut down
+        task.run();
+      }
+      futures.add(task);
+    }
+    IOException error = null;
+    try {
+      for (KeyValueScanner scanner : cached) {
+        long seekStart = System.nanoTime();
+        scanner.seek(key);
+        seekTimeNanos.addAndGet(System.nanoTime() - seekStart);
+      }
+    } catch (IOException e) {
+      error = e;
+    }
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        futures.get(i).get();
+      } catch (CancellationException e) {
+        // Dropped from the queue by shutdown()
+        try {
+          uncached.get(i).seek(key);
+        } catch (IOException ioe) {
+          if (error == null) {
+            error = ioe;
+          }
+        }
+      } catch (InterruptedException e) {
+        throw (InterruptedIOException) new InterruptedIOException().initCause(e);
+      } catch (ExecutionException e) {
+        if (error == null) {
+          error = e.getCause() instanceof IOException ? (IOException) e.getCause()
+              : new IOException(e.getCause());
+        }
+      }
+    }
+    if (error != null) {
+      throw error;
+    }
+    parallelSeekCount.increment();
+    timeSavedNanos.add(Math.max(0, seekTimeNanos.get() - (System.nanoTime() - start)));
+  }
+
+  /**
+   * @return the number of seeks whose store file seeks ran in parallel
+   */
+  public long getParallelSeekCount() {
+    return parallelSeekCount.sum();
+  }
+
+  /**
+   * @return the time in milliseconds parallel seeks saved over seeking the store files one after
+   *         the other
+   */
+  public long getParallelSeekTimeSaved() {
+    return TimeUnit.NANOSECONDS.toMillis(timeSavedNanos.sum());
+  }
+
+  /**
+   * Stops the pool. The seeks still queued are cancelled, their callers seek the store files
+   * themselves.
+   */
+  void shutdown() {
+    for (Runnable task : pool.shutdownNow()) {
+      ((Future<?>) task).cancel(false);
+    }
+  }
+}
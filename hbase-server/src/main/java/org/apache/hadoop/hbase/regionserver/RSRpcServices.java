@@ -37,6 +37,7 @@ import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
@@ -95,6 +96,7 @@ import org.apache.hadoop.hbase.ipc.HBaseRPCErrorHandler;
 import org.apache.hadoop.hbase.ipc.HBaseRpcController;
 import org.apache.hadoop.hbase.ipc.PriorityFunction;
 import org.apache.hadoop.hbase.ipc.QosPriority;
+import org.apache.hadoop.hbase.ipc.RpcCall;
 import org.apache.hadoop.hbase.ipc.RpcCallContext;
 import org.apache.hadoop.hbase.ipc.RpcCallback;
 import org.apache.hadoop.hbase.ipc.RpcScheduler;
@@ -292,6 +294,28 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
    */
   static final int BATCH_ROWS_THRESHOLD_DEFAULT = 5000;
 
+  /**
+   * Number of gets of a region in a multi request from which the data blocks they read are first
+   * loaded into the block cache with coalesced reads. 0 disables it.
+   */
+  static final String MULTIGET_COALESCE_MIN_GETS_NAME =
+      "hbase.regionserver.multiget.coalesce.min.gets";
+  /**
+   * Default value of {@link RSRpcServices#MULTIGET_COALESCE_MIN_GETS_NAME}
+   */
+  static final int MULTIGET_COALESCE_MIN_GETS_DEFAULT = 0;
+
+  /**
+   * Whether a get reads the missing data blocks of all its store files concurrently before
+   * running, rather than one after the other. The RPC call of the get is suspended meanwhile, so
+   * that its handler can run other calls.
+   */
+  static final String GET_ASYNC_BLOCK_READ_NAME = "hbase.regionserver.get.async.block.read";
+  /**
+   * Default value of {@link RSRpcServices#GET_ASYNC_BLOCK_READ_NAME}
+   */
+  static final boolean GET_ASYNC_BLOCK_READ_DEFAULT = false;
+
   // Request counter. (Includes requests that are not serviced by regions.)
   // Count only once for requests with multiple actions like multi/caching-scan/replayBatch
   final LongAdder requestCount = new LongAdder();
@@ -345,6 +369,16 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
    */
   private final int rowSizeWarnThreshold;
 
+  /**
+   * Number of gets of a region in a multi request from which their blocks are loaded coalesced
+   */
+  private final int multiGetCoalesceMinGets;
+
+  /**
+   * Whether gets read their missing data blocks concurrently first
+   */
+  private final boolean getAsyncBlockRead;
+
   final AtomicBoolean clearCompactionQueues = new AtomicBoolean(false);
 
   private AccessChecker accessChecker;
@@ -765,6 +799,41 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
     return r == null ? Result.EMPTY_RESULT : r;
   }
 
+  /**
+   * Loads the data blocks the gets of a multi request will read with coalesced reads, if there are
+   * enough of them. Best effort, the gets read whatever is not loaded themselves.
+   */
+  private void loadDataBlocksForGets(HRegion region, RegionAction actions) {
+    if (multiGetCoalesceMinGets <= 0 || actions.getActionCount() < multiGetCoalesceMinGets) {
+      return;
+    }
+    List<byte[]> rows = new ArrayList<>();
+    Set<byte[]> families = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+    boolean allFamilies = false;
+    for (ClientProtos.Action action : actions.getActionList()) {
+      if (!action.hasGet()) {
+        continue;
+      }
+      ClientProtos.Get get = action.getGet();
+      rows.add(get.getRow().toByteArray());
+      if (get.getColumnCount() == 0) {
+        allFamilies = true;
+      }
+      for (ClientProtos.Column column : get.getColumnList()) {
+        families.add(column.getFamily().toByteArray());
+      }
+    }
+    if (rows.size() < multiGetCoalesceMinGets) {
+      return;
+    }
+    try {
+      region.loadDataBlocksForGets(rows, allFamilies ? null : families);
+    } catch (IOException e) {
+      LOG.debug("Failed to load the data blocks of {} gets of {}", rows.size(),
+        region.getRegionInfo().getEncodedName(), e);
+    }
+  }
+
   /**
    * Run through the regionMutation <code>rm</code> and per Mutation, do the work, and then when
    * done, add an instance of a {@link ResultOrException} that corresponds to each Mutation.
@@ -790,6 +859,7 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
     Object lastBlock = null;
     ClientProtos.ResultOrException.Builder resultOrExceptionBuilder = ResultOrException.newBuilder();
     boolean hasResultOrException = false;
+    loadDataBlocksForGets(region, actions);
     for (ClientProtos.Action action : actions.getActionList()) {
       hasResultOrException = false;
       resultOrExceptionBuilder.clear();
@@ -1210,6 +1280,9 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
     this.ld = ld;
     regionServer = rs;
     rowSizeWarnThreshold = rs.conf.getInt(BATCH_ROWS_THRESHOLD_NAME, BATCH_ROWS_THRESHOLD_DEFAULT);
+    multiGetCoalesceMinGets =
+        rs.conf.getInt(MULTIGET_COALESCE_MIN_GETS_NAME, MULTIGET_COALESCE_MIN_GETS_DEFAULT);
+    getAsyncBlockRead = rs.conf.getBoolean(GET_ASYNC_BLOCK_READ_NAME, GET_ASYNC_BLOCK_READ_DEFAULT);
     RpcSchedulerFactory rpcSchedulerFactory;
     try {
       rpcSchedulerFactory = getRpcSchedulerFactoryClass().asSubclass(RpcSchedulerFactory.class)
@@ -2526,10 +2599,16 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
     long before = EnvironmentEdgeManager.currentTime();
     OperationQuota quota = null;
     HRegion region = null;
+    RpcCall context = RpcServer.getCurrentCall().orElse(null);
+    // A suspended get was counted when it first ran
+    boolean resumed = context != null && context.isSuspended();
+    boolean suspended = false;
     try {
       checkOpen();
-      requestCount.increment();
-      rpcGetRequestCount.increment();
+      if (!resumed) {
+        requestCount.increment();
+        rpcGetRequestCount.increment();
+      }
       region = getRegion(request.getRegion());
       rejectIfInStandByState(region);
 
@@ -2546,10 +2625,17 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
       }
       Boolean existence = null;
       Result r = null;
-      RpcCallContext context = RpcServer.getCurrentCall().orElse(null);
+      Get clientGet = ProtobufUtil.toGet(get);
+      if (getAsyncBlockRead && context != null && !resumed) {
+        CompletableFuture<Void> loaded = region.loadDataBlocksForGet(clientGet);
+        // Free the handler while the data blocks are read, the get runs again once they are
+        if (!loaded.isDone() && context.suspendUntil(loaded)) {
+          suspended = true;
+          return null;
+        }
+      }
       quota = getRpcQuotaManager().checkQuota(region, OperationQuota.OperationType.GET);
 
-      Get clientGet = ProtobufUtil.toGet(get);
       if (get.getExistenceOnly() && region.getCoprocessorHost() != null) {
         existence = region.getCoprocessorHost().preExists(clientGet);
       }
@@ -2594,10 +2680,12 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
       throw new ServiceException(ie);
     } finally {
       MetricsRegionServer mrs = regionServer.metricsRegionServer;
-      if (mrs != null) {
+      if (mrs != null && !suspended) {
         TableDescriptor td = region != null? region.getTableDescriptor(): null;
         if (td != null) {
-          mrs.updateGet(td.getTableName(), EnvironmentEdgeManager.currentTime() - before);
+          // A resumed get was waiting for its blocks since it was received
+          long start = resumed ? context.getReceiveTime() : before;
+          mrs.updateGet(td.getTableName(), EnvironmentEdgeManager.currentTime() - start);
         }
       }
       if (quota != null) {
@@ -307,6 +307,11 @@ public interface RegionServerServices extends Server, MutableOnlineRegions, Favo
    */
   Optional<MobFileCache> getMobFileCache();
 
+  /**
+   * @return The executor seeking store files in parallel, if parallel seek is enabled.
+   */
+  Optional<ParallelSeekExecutor> getParallelSeekExecutor();
+
   /**
    * @return the {@link AccessChecker}
    */
@@ -0,0 +1,237 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.ClassSize;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A {@link MultiVersionConcurrencyControl} that does not serialize {@link #complete(WriteEntry)}
+ * behind the lock taken by {@link #begin(Runnable)}.
+ * <p>
+ * Completed write numbers are published into a ring of slots indexed by write number modulo the
+ * ring size. Completing a write stores its number in its slot and then tries to move the read
+ * point forward with compare-and-set, one write number at a time, for as long as the slot after
+ * the read point holds the expected write number. Whoever publishes a completion also tries to
+ * advance, so the read point never stalls behind a completed write.
+ * <p>
+ * {@link #begin(Runnable)} still takes a lock: the passed action must run in write number order,
+ * see {@link MultiVersionConcurrencyControl#begin(Runnable)}. It only contends with other begins,
+ * not with completions or readers. When more writes are outstanding than there are slots, begin
+ * doubles the ring; the ring never shrinks.
+ * <p>
+ * Enable it for a table by setting {@link HRegion#MVCC_IMPL_KEY} to this class name in the table
+ * descriptor, or for all regions in the site configuration.
+ */
+@InterfaceAudience.Private
+public class RingBufferMultiVersionConcurrencyControl extends MultiVersionConcurrencyControl {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(RingBufferMultiVersionConcurrencyControl.class);
+
+  /**
+   * Initial number of slots. Should cover the writes a region has in flight at once, roughly the
+   * handler count, so that the ring does not need to grow.
+   */
+  static final int INITIAL_CAPACITY = 256;
+
+  /** Serializes {@link #begin(Runnable)}, {@link #tryAdvanceTo(long, long)} and ring growth. */
+  private final Object beginLock = new Object();
+  private final Object readWaiters = new Object();
+  private final AtomicInteger waitingReaders = new AtomicInteger();
+
+  /**
+   * The slot for write number <code>w</code> is <code>w &amp; (length - 1)</code>. It holds
+   * <code>w</code> once that write has completed and until the slot is reused by the write
+   * <code>length</code> numbers later. Replaced by a bigger ring under {@link #beginLock}.
+   */
+  private volatile AtomicLongArray slots = new AtomicLongArray(INITIAL_CAPACITY);
+
+  public RingBufferMultiVersionConcurrencyControl() {
+    super();
+  }
+
+  /**
+   * Construct and set read point. Write point is uninitialized.
+   */
+  public RingBufferMultiVersionConcurrencyControl(long startPoint) {
+    tryAdvanceTo(startPoint, NONE);
+  }
+
+  @Override
+  boolean tryAdvanceTo(long newStartPoint, long expected) {
+    synchronized (beginLock) {
+      long currentRead = this.readPoint.get();
+      long currentWrite = this.writePoint.get();
+      if (currentRead != currentWrite) {
+        throw new RuntimeException("Already used this mvcc; currentRead=" + currentRead +
+          ", currentWrite=" + currentWrite + "; too late to tryAdvanceTo");
+      }
+      if (expected != NONE && expected != currentRead) {
+        return false;
+      }
+      if (newStartPoint < currentRead) {
+        return false;
+      }
+      // Every slot holds a write number <= currentWrite <= newStartPoint, so none of them can be
+      // mistaken for a completion of a write begun after this.
+      readPoint.set(newStartPoint);
+      writePoint.set(newStartPoint);
+    }
+    return true;
+  }
+
+  @Override
+  public WriteEntry begin(Runnable action) {
+    synchronized (beginLock) {
+      long nextWriteNumber = writePoint.get() + 1;
+      // The slot is reused only once the read point passed the write it held before.
+      if (nextWriteNumber - readPoint.get() > slots.length()) {
+        grow();
+      }
+      writePoint.set(nextWriteNumber);
+      WriteEntry e = new WriteEntry(nextWriteNumber);
+      action.run();
+      return e;
+    }
+  }
+
+  /**
+   * Doubles the ring. Must hold {@link #beginLock}. The new ring is published before the pending
+   * completions are copied over, so a completion racing with the copy is either copied or is
+   * written to the new ring by its completer, see {@link #publish(long)}.
+   */
+  private void grow() {
+    AtomicLongArray oldSlots = slots;
+    AtomicLongArray newSlots = new AtomicLongArray(oldSlots.length() * 2);
+    slots = newSlots;
+    long mask = oldSlots.length() - 1;
+    long newMask = newSlots.length() - 1;
+    for (long w = readPoint.get() + 1, end = writePoint.get(); w <= end; w++) {
+      if (oldSlots.get((int) (w & mask)) == w) {
+        newSlots.set((int) (w & newMask), w);
+      }
+    }
+    LOG.debug("Grew mvcc ring to {} slots; {}", newSlots.length(), this);
+    // We may have copied completions whose completers already gave up advancing.
+    advanceReadPoint();
+  }
+
+  /**
+   * Record that write number <code>writeNumber</code> completed.
+   */
+  private void publish(long writeNumber) {
+    AtomicLongArray current = slots;
+    while (true) {
+      current.set((int) (writeNumber & (current.length() - 1)), writeNumber);
+      AtomicLongArray latest = slots;
+      if (latest == current) {
+        return;
+      }
+      // The ring was replaced while we were writing; make sure the new one has it too.
+      current = latest;
+    }
+  }
+
+  /**
+   * Move the read point over every consecutive completed write.
+   * @return true if this call moved the read point
+   */
+  private boolean advanceReadPoint() {
+    boolean advanced = false;
+    while (true) {
+      long current = readPoint.get();
+      long next = current + 1;
+      AtomicLongArray ring = slots;
+      if (ring.get((int) (next & (ring.length() - 1))) != next) {
+        return advanced;
+      }
+      if (readPoint.compareAndSet(current, next)) {
+        advanced = true;
+      }
+    }
+  }
+
+  @Override
+  public boolean complete(WriteEntry writeEntry) {
+    writeEntry.markCompleted();
+    publish(writeEntry.getWriteNumber());
+    if (advanceReadPoint() && waitingReaders.get() > 0) {
+      synchronized (readWaiters) {
+        readWaiters.notifyAll();
+      }
+    }
+    return readPoint.get() >= writeEntry.getWriteNumber();
+  }
+
+  @Override
+  void waitForRead(WriteEntry e) {
+    boolean interrupted = false;
+    int count = 0;
+    waitingReaders.incrementAndGet();
+    try {
+      synchronized (readWaiters) {
+        while (readPoint.get() < e.getWriteNumber()) {
+          if (count % 100 == 0 && count > 0) {
+            LOG.warn("STUCK: " + this);
+          }
+          count++;
+          try {
+            // Timed, a completion may have checked waitingReaders just before we registered.
+            readWaiters.wait(10);
+          } catch (InterruptedException ie) {
+            // We were interrupted... finish the loop -- i.e. cleanup --and then
+            // on our way out, reset the interrupt flag.
+            interrupted = true;
+          }
+        }
+      }
+    } finally {
+      waitingReaders.decrementAndGet();
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @VisibleForTesting
+  int getCapacity() {
+    return slots.length();
+  }
+
+  public static final long FIXED_SIZE = ClassSize.align(ClassSize.OBJECT + 8 * ClassSize.REFERENCE);
+
+  /**
+   * @return the size of this mvcc with its locks and its ring, at the capacity the ring grew to
+   */
+  @Override
+  public long heapSize() {
+    return FIXED_SIZE +
+        2 * ClassSize.OBJECT + // beginLock, readWaiters
+        ClassSize.ATOMIC_INTEGER + // waitingReaders
+        ClassSize.align(ClassSize.OBJECT + ClassSize.REFERENCE) + // slots
+        ClassSize.align(ClassSize.ARRAY + (long) slots.length() * Bytes.SIZEOF_LONG);
+  }
+}
@@ -19,12 +19,16 @@
 package org.apache.hadoop.hbase.regionserver;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.util.UnsafeAvailChecker;
 import org.apache.yetus.audience.InterfaceAudience;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * A singleton store segment factory.
@@ -69,7 +73,7 @@ public final class SegmentFactory {
    * @return ImmutableSegment
    */
   public ImmutableSegment createImmutableSegment(CellComparator comparator) {
-    MutableSegment segment = generateMutableSegment(null, comparator, null, null);
+    MutableSegment segment = generateMutableSegment(null, comparator, null, null, 1);
     return createImmutableSegment(segment, null);
   }
 
@@ -82,8 +86,14 @@ public final class SegmentFactory {
   // create mutable segment
   public MutableSegment createMutableSegment(final Configuration conf,
       CellComparator comparator, MemStoreSizing memstoreSizing) {
+    return createMutableSegment(conf, comparator, memstoreSizing, 1);
+  }
+
+  // create mutable segment whose index is spread over the given number of shards
+  public MutableSegment createMutableSegment(final Configuration conf,
+      CellComparator comparator, MemStoreSizing memstoreSizing, int shards) {
     MemStoreLAB memStoreLAB = MemStoreLAB.newInstance(conf);
-    return generateMutableSegment(conf, comparator, memStoreLAB, memstoreSizing);
+    return generateMutableSegment(conf, comparator, memStoreLAB, memstoreSizing, shards);
   }
 
   // create new flat immutable segment from merging old immutable segments
@@ -142,10 +152,26 @@ public final class SegmentFactory {
     return res;
   }
 
+  @SuppressWarnings("unchecked")
   private MutableSegment generateMutableSegment(final Configuration conf, CellComparator comparator,
-      MemStoreLAB memStoreLAB, MemStoreSizing memstoreSizing) {
-    // TBD use configuration to set type of segment
-    CellSet set = new CellSet(comparator);
+      MemStoreLAB memStoreLAB, MemStoreSizing memstoreSizing, int shards) {
+    // The index nodes are allocated in the chunks of the MSLAB, off the Java heap
+    boolean indexOnChunks = conf != null && memStoreLAB != null
+        && conf.getBoolean(MemStoreLAB.CHUNK_SKIPLIST_KEY, MemStoreLAB.CHUNK_SKIPLIST_DEFAULT)
+        && UnsafeAvailChecker.isAvailable();
+    CellSet set;
+    if (shards > 1) {
+      NavigableMap<Cell, Cell>[] maps = new NavigableMap[shards];
+      for (int i = 0; i < shards; i++) {
+        maps[i] = indexOnChunks ? new CellChunkSkipListMap(comparator, memStoreLAB)
+            : new ConcurrentSkipListMap<>(comparator.getSimpleComparator());
+      }
+      set = new CellSet(new CellShardedMap(comparator, maps));
+    } else if (indexOnChunks) {
+      set = new CellSet(new CellChunkSkipListMap(comparator, memStoreLAB));
+    } else {
+      set = new CellSet(comparator);
+    }
     return new MutableSegment(set, comparator, memStoreLAB, memstoreSizing);
   }
 
@@ -24,9 +24,12 @@ import static org.apache.hadoop.hbase.regionserver.HStoreFile.LAST_BLOOM_KEY;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.SortedSet;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.hadoop.conf.Configuration;
@@ -49,6 +52,7 @@ import org.apache.hadoop.hbase.io.hfile.HFileScanner;
 import org.apache.hadoop.hbase.nio.ByteBuff;
 import org.apache.hadoop.hbase.util.BloomFilter;
 import org.apache.hadoop.hbase.util.BloomFilterFactory;
+import org.apache.hadoop.hbase.util.BloomFilterUtil;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.yetus.audience.InterfaceStability;
@@ -76,6 +80,7 @@ public class StoreFileReader {
   private KeyValue.KeyOnlyKeyValue lastBloomKeyOnlyKV = null;
   private boolean skipResetSeqId = true;
   private int prefixLength = -1;
+  private byte[] delimiter = null;
 
   // Counter that is incremented every time a scanner is created on the
   // store file. It is decremented when the scan on the store file is
@@ -118,6 +123,7 @@ public class StoreFileReader {
     this.lastBloomKeyOnlyKV = reader.lastBloomKeyOnlyKV;
     this.skipResetSeqId = reader.skipResetSeqId;
     this.prefixLength = reader.prefixLength;
+    this.delimiter = reader.delimiter;
   }
 
   public boolean isPrimaryReplicaReader() {
@@ -221,10 +227,76 @@ public class StoreFileReader {
     return reader.getScanner(cacheBlocks, pread, isCompaction);
   }
 
+  /**
+   * Loads into the block cache the data blocks holding the given rows, with reads coalesced where
+   * the blocks are close to each other. Rows the row bloom filter rules out are skipped.
+   * @see HFile.Reader#loadDataBlocks(List)
+   */
+  public void loadDataBlocks(List<byte[]> rows) throws IOException {
+    List<Cell> keys = new ArrayList<>(rows.size());
+    for (byte[] row : rows) {
+      if (mayContainRow(row)) {
+        keys.add(PrivateCellUtil.createFirstOnRow(row));
+      }
+    }
+    reader.loadDataBlocks(keys);
+  }
+
+  /**
+   * @return whether the data block holding the given row is in the block cache
+   * @see HFile.Reader#isDataBlockCached(Cell)
+   */
+  boolean isDataBlockCached(byte[] row) throws IOException {
+    return reader.isDataBlockCached(PrivateCellUtil.createFirstOnRow(row));
+  }
+
+  /**
+   * Starts loading into the block cache the data block holding the given row, unless the row
+   * bloom filter rules the row out.
+   * @return a future completed once the block is cached
+   * @see HFile.Reader#loadDataBlockAsync(Cell)
+   */
+  public CompletableFuture<Void> loadDataBlockAsync(byte[] row) {
+    if (!mayContainRow(row)) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return reader.loadDataBlockAsync(PrivateCellUtil.createFirstOnRow(row));
+  }
+
+  /**
+   * @return false if the row is out of the key range of the file or ruled out by its row bloom
+   *         filter
+   */
+  private boolean mayContainRow(byte[] row) {
+    Optional<byte[]> firstRow = reader.getFirstRowKey();
+    Optional<byte[]> lastRow = getLastRowKey();
+    if (!firstRow.isPresent() || !lastRow.isPresent()
+        || Bytes.compareTo(row, firstRow.get()) < 0 || Bytes.compareTo(row, lastRow.get()) > 0) {
+      return false;
+    }
+    return bloomFilterType != BloomType.ROW || passesGeneralRowBloomFilter(row, 0, row.length);
+  }
+
   public void close(boolean evictOnClose) throws IOException {
     reader.close(evictOnClose);
   }
 
+  /**
+   * Checks whether the given scan may find cells of the given family in this store file, judging
+   * by its time range, its key range and its Bloom filter.
+   * @param oldestUnexpiredTS the oldest timestamp that is not expired, or {@link Long#MIN_VALUE}
+   *          to not rule out files for holding expired cells only
+   * @return false if the scan definitely finds nothing in this store file
+   */
+  boolean passesScanFilters(Scan scan, byte[] family, long oldestUnexpiredTS) {
+    TimeRange timeRange = scan.getColumnFamilyTimeRange().get(family);
+    if (timeRange == null) {
+      timeRange = scan.getTimeRange();
+    }
+    return passesTimerangeFilter(timeRange, oldestUnexpiredTS) && passesKeyRangeFilter(scan) &&
+        passesBloomFilter(scan, scan.getFamilyMap().get(family));
+  }
+
   /**
    * Check if this storeFile may contain keys within the TimeRange that
    * have not expired (i.e. not older than oldestUnexpiredTS).
@@ -279,6 +351,8 @@ public class StoreFileReader {
         return true;
       case ROWPREFIX_FIXED_LENGTH:
         return passesGeneralRowPrefixBloomFilter(scan);
+      case ROWPREFIX_DELIMITED:
+        return passesGeneralDelimitedRowPrefixBloomFilter(scan);
       default:
         return true;
     }
@@ -390,6 +464,64 @@ public class StoreFileReader {
     return checkGeneralBloomFilter(rowPrefix, null, bloomFilter);
   }
 
+  /**
+   * A method for checking Bloom filters. Called directly from
+   * StoreFileScanner in case of a multi-column query.
+   * <p>
+   * A non-get scan can be checked when all the rows it covers share the prefix of its lower bound,
+   * that is when its upper bound has that prefix too, or is the row right after the last row with
+   * the prefix as set by {@link Scan#setRowPrefixFilter(byte[])}.
+   *
+   * @return True if passes
+   */
+  private boolean passesGeneralDelimitedRowPrefixBloomFilter(Scan scan) {
+    BloomFilter bloomFilter = this.generalBloomFilter;
+    if (bloomFilter == null) {
+      return true;
+    }
+
+    byte[] rowPrefix;
+    if (scan.isGetScan()) {
+      byte[] row = scan.getStartRow();
+      int length = BloomFilterUtil.getDelimitedPrefixLength(row, delimiter);
+      rowPrefix = length < 0 ? row : Bytes.copy(row, 0, length);
+    } else {
+      // For non-get scans
+      byte[] lower = scan.isReversed() ? scan.getStopRow() : scan.getStartRow();
+      byte[] upper = scan.isReversed() ? scan.getStartRow() : scan.getStopRow();
+      int length = BloomFilterUtil.getDelimitedPrefixLength(lower, delimiter);
+      // The rows after a lower bound without the delimiter can have any prefix
+      if (length < 0) {
+        return true;
+      }
+      rowPrefix = Bytes.copy(lower, 0, length);
+      boolean stopRowExclusive = !scan.isReversed() && !scan.includeStopRow();
+      if (!Bytes.startsWith(upper, rowPrefix)
+          && !(stopRowExclusive && isClosestRowAfterPrefix(upper, rowPrefix))) {
+        return true;
+      }
+    }
+    return checkGeneralBloomFilter(rowPrefix, null, bloomFilter);
+  }
+
+  /**
+   * @return true if <code>row</code> is the first row after all the rows starting with
+   *         <code>prefix</code>
+   */
+  private static boolean isClosestRowAfterPrefix(byte[] row, byte[] prefix) {
+    // The prefix without its trailing 0xFFs, with its last byte incremented
+    int length = prefix.length;
+    while (length > 0 && prefix[length - 1] == (byte) 0xFF) {
+      length--;
+    }
+    if (length == 0) {
+      return row.length == 0;
+    }
+    return row.length == length
+        && Bytes.equals(row, 0, length - 1, prefix, 0, length - 1)
+        && row[length - 1] == (byte) (prefix[length - 1] + 1);
+  }
+
   private boolean checkGeneralBloomFilter(byte[] key, Cell kvKey, BloomFilter bloomFilter) {
     // Empty file
     if (reader.getTrailer().getEntryCount() == 0) {
@@ -502,6 +634,8 @@ public class StoreFileReader {
     byte[] p = fi.get(BLOOM_FILTER_PARAM_KEY);
     if (bloomFilterType ==  BloomType.ROWPREFIX_FIXED_LENGTH) {
       prefixLength = Bytes.toInt(p);
+    } else if (bloomFilterType == BloomType.ROWPREFIX_DELIMITED) {
+      delimiter = p;
     }
 
     lastBloomKey = fi.get(LAST_BLOOM_KEY);
@@ -700,4 +834,8 @@ public class StoreFileReader {
   public int getPrefixLength() {
     return prefixLength;
   }
+
+  public byte[] getDelimiter() {
+    return delimiter;
+  }
 }
@@ -38,7 +38,7 @@ import org.apache.hadoop.hbase.PrivateCellUtil;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.yetus.audience.InterfaceStability;
 import org.apache.hadoop.hbase.client.Scan;
-import org.apache.hadoop.hbase.io.TimeRange;
+import org.apache.hadoop.hbase.io.hfile.HFile;
 import org.apache.hadoop.hbase.io.hfile.HFileScanner;
 import org.apache.hadoop.hbase.regionserver.querymatcher.ScanQueryMatcher;
 
@@ -207,6 +207,19 @@ public class StoreFileScanner implements KeyValueScanner {
     return retKey;
   }
 
+  /**
+   * @return true if a seek to the given key is expected to be served from the block cache
+   * @see HFile.Reader#isDataBlockCached(Cell)
+   */
+  boolean isSeekCached(Cell key) {
+    try {
+      return reader.getHFileReader().isDataBlockCached(key);
+    } catch (IOException e) {
+      // The seek will run into it too and report it
+      return false;
+    }
+  }
+
   @Override
   public boolean seek(Cell key) throws IOException {
     if (seekCount != null) seekCount.increment();
@@ -482,13 +495,8 @@ public class StoreFileScanner implements KeyValueScanner {
   @Override
   public boolean shouldUseScanner(Scan scan, HStore store, long oldestUnexpiredTS) {
     // if the file has no entries, no need to validate or create a scanner.
-    byte[] cf = store.getColumnFamilyDescriptor().getName();
-    TimeRange timeRange = scan.getColumnFamilyTimeRange().get(cf);
-    if (timeRange == null) {
-      timeRange = scan.getTimeRange();
-    }
-    return reader.passesTimerangeFilter(timeRange, oldestUnexpiredTS) && reader
-        .passesKeyRangeFilter(scan) && reader.passesBloomFilter(scan, scan.getFamilyMap().get(cf));
+    return reader.passesScanFilters(scan, store.getColumnFamilyDescriptor().getName(),
+      oldestUnexpiredTS);
   }
 
   @Override
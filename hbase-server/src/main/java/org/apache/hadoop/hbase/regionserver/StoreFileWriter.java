@@ -58,6 +58,7 @@ import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.FSUtils;
 import org.apache.hadoop.hbase.util.RowBloomContext;
 import org.apache.hadoop.hbase.util.RowColBloomContext;
+import org.apache.hadoop.hbase.util.RowPrefixDelimitedBloomContext;
 import org.apache.hadoop.hbase.util.RowPrefixFixedLengthBloomContext;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.slf4j.Logger;
@@ -144,6 +145,10 @@ public class StoreFileWriter implements CellSink, ShipperListener {
           bloomContext = new RowPrefixFixedLengthBloomContext(generalBloomFilterWriter, comparator,
               Bytes.toInt(bloomParam));
           break;
+        case ROWPREFIX_DELIMITED:
+          bloomContext = new RowPrefixDelimitedBloomContext(generalBloomFilterWriter, comparator,
+              bloomParam);
+          break;
         default:
           throw new IOException(
               "Invalid Bloom filter type: " + bloomType + " (ROW or ROWCOL or ROWPREFIX expected)");
@@ -19,12 +19,10 @@
 package org.apache.hadoop.hbase.regionserver;
 
 import java.io.IOException;
-import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.NavigableSet;
 import java.util.OptionalInt;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.hadoop.hbase.Cell;
@@ -37,11 +35,9 @@ import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.KeyValueUtil;
 import org.apache.hadoop.hbase.client.IsolationLevel;
 import org.apache.hadoop.hbase.client.Scan;
-import org.apache.hadoop.hbase.executor.ExecutorService;
 import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.regionserver.ScannerContext.LimitScope;
 import org.apache.hadoop.hbase.regionserver.ScannerContext.NextState;
-import org.apache.hadoop.hbase.regionserver.handler.ParallelSeekHandler;
 import org.apache.hadoop.hbase.regionserver.querymatcher.CompactionScanQueryMatcher;
 import org.apache.hadoop.hbase.regionserver.querymatcher.ScanQueryMatcher;
 import org.apache.hadoop.hbase.regionserver.querymatcher.UserScanQueryMatcher;
@@ -87,7 +83,7 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
    * A flag that enables StoreFileScanner parallel-seeking
    */
   private boolean parallelSeekEnabled = false;
-  private ExecutorService executor;
+  private ParallelSeekExecutor parallelSeekExecutor;
   private final Scan scan;
   private final long oldestUnexpiredTS;
   private final long now;
@@ -206,8 +202,10 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
     if (store != null && store.getStorefilesCount() > 1) {
       RegionServerServices rsService = store.getHRegion().getRegionServerServices();
       if (rsService != null && scanInfo.isParallelSeekEnabled()) {
-        this.parallelSeekEnabled = true;
-        this.executor = rsService.getExecutorService();
+        rsService.getParallelSeekExecutor().ifPresent(executor -> {
+          this.parallelSeekEnabled = true;
+          this.parallelSeekExecutor = executor;
+        });
       }
     }
   }
@@ -399,7 +397,7 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
           }
         }
       } else {
-        parallelSeek(scanners, seekKey);
+        parallelSeekExecutor.seek(scanners, seekKey);
       }
     }
   }
@@ -1104,43 +1102,6 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
   }
 
 
-  /**
-   * Seek storefiles in parallel to optimize IO latency as much as possible
-   * @param scanners the list {@link KeyValueScanner}s to be read from
-   * @param kv the KeyValue on which the operation is being requested
-   * @throws IOException
-   */
-  private void parallelSeek(final List<? extends KeyValueScanner>
-      scanners, final Cell kv) throws IOException {
-    if (scanners.isEmpty()) return;
-    int storeFileScannerCount = scanners.size();
-    CountDownLatch latch = new CountDownLatch(storeFileScannerCount);
-    List<ParallelSeekHandler> handlers = new ArrayList<>(storeFileScannerCount);
-    for (KeyValueScanner scanner : scanners) {
-      if (scanner instanceof StoreFileScanner) {
-        ParallelSeekHandler seekHandler = new ParallelSeekHandler(scanner, kv,
-          this.readPt, latch);
-        executor.submit(seekHandler);
-        handlers.add(seekHandler);
-      } else {
-        scanner.seek(kv);
-        latch.countDown();
-      }
-    }
-
-    try {
-      latch.await();
-    } catch (InterruptedException ie) {
-      throw (InterruptedIOException)new InterruptedIOException().initCause(ie);
-    }
-
-    for (ParallelSeekHandler handler : handlers) {
-      if (handler.getErr() != null) {
-        throw new IOException(handler.getErr());
-      }
-    }
-  }
-
   /**
    * Used in testing.
    * @return all scanners in no particular order
@@ -50,6 +50,11 @@ public class BloomFilterChunk implements BloomFilterBase {
   protected ByteBuffer bloom;
   /** The type of bloom */
   protected BloomType bloomType;
+  /**
+   * Whether the bits of a key are all in one block, see
+   * {@link BloomFilterUtil#BLOOM_BLOCK_BYTES}
+   */
+  protected boolean blocked;
 
   /**
    * Loads bloom filter meta data from file input.
@@ -85,9 +90,14 @@ public class BloomFilterChunk implements BloomFilterBase {
   }
 
   public BloomFilterChunk(int hashType, BloomType bloomType) {
+    this(hashType, bloomType, false);
+  }
+
+  public BloomFilterChunk(int hashType, BloomType bloomType, boolean blocked) {
     this.hashType = hashType;
     this.hash = Hash.getInstance(hashType);
     this.bloomType = bloomType;
+    this.blocked = blocked;
   }
 
   /**
@@ -127,7 +137,7 @@ public class BloomFilterChunk implements BloomFilterBase {
    * @return a Bloom filter with the same configuration as this
    */
   public BloomFilterChunk createAnother() {
-    BloomFilterChunk bbf = new BloomFilterChunk(hashType, this.bloomType);
+    BloomFilterChunk bbf = new BloomFilterChunk(hashType, this.bloomType, this.blocked);
     bbf.byteSize = byteSize;
     bbf.hashCount = hashCount;
     bbf.maxKeys = maxKeys;
@@ -174,6 +184,10 @@ public class BloomFilterChunk implements BloomFilterBase {
      * http://www.eecs.harvard.edu/~kirsch/pubs/bbbf/esa06.pdf
      */
     HashKey<byte[]> hashKey = new ByteArrayHashKey(buf, offset, len);
+    if (blocked) {
+      setBlockedHashLoc(this.hash.hash64(hashKey, 0));
+      return;
+    }
     int hash1 = this.hash.hash(hashKey, 0);
     int hash2 = this.hash.hash(hashKey, hash1);
     setHashLoc(hash1, hash2);
@@ -187,6 +201,12 @@ public class BloomFilterChunk implements BloomFilterBase {
     int hash1;
     int hash2;
     HashKey<Cell> hashKey;
+    if (blocked) {
+      hashKey = this.bloomType == BloomType.ROWCOL ? new RowColBloomHashKey(cell)
+          : new RowBloomHashKey(cell);
+      setBlockedHashLoc(this.hash.hash64(hashKey, 0));
+      return;
+    }
     if (this.bloomType == BloomType.ROWCOL) {
       hashKey = new RowColBloomHashKey(cell);
       hash1 = this.hash.hash(hashKey, 0);
@@ -208,6 +228,16 @@ public class BloomFilterChunk implements BloomFilterBase {
     ++this.keyCount;
   }
 
+  private void setBlockedHashLoc(long hash64) {
+    int blockStart =
+        BloomFilterUtil.getBlockStart(hash64, (int) (byteSize / BloomFilterUtil.BLOOM_BLOCK_BYTES));
+    for (int i = 0; i < this.hashCount; i++) {
+      set(blockStart + BloomFilterUtil.getBitInBlock(hash64, i));
+    }
+
+    ++this.keyCount;
+  }
+
   //---------------------------------------------------------------------------
   /** Private helpers */
 
@@ -265,15 +295,19 @@ public class BloomFilterChunk implements BloomFilterBase {
       int newByteSize = (int)this.byteSize;
       int newMaxKeys = this.maxKeys;
 
+      // Blocked filters are folded by whole blocks
+      int foldUnit = blocked ? BloomFilterUtil.BLOOM_BLOCK_BYTES << 1 : 2;
       // while exponentially smaller & folding is lossless
-      while ((newByteSize & 1) == 0 && newMaxKeys > (this.keyCount<<1)) {
+      while (newByteSize % foldUnit == 0 && newMaxKeys > (this.keyCount<<1)) {
         pieces <<= 1;
         newByteSize >>= 1;
         newMaxKeys >>= 1;
       }
 
       // if we should fold these into pieces
-      if (pieces > 1) {
+      if (pieces > 1 && blocked) {
+        foldBlocks(pieces, newByteSize / BloomFilterUtil.BLOOM_BLOCK_BYTES);
+      } else if (pieces > 1) {
         byte[] array = this.bloom.array();
         int start = this.bloom.arrayOffset();
         int end = start + newByteSize;
@@ -283,6 +317,8 @@ public class BloomFilterChunk implements BloomFilterBase {
             array[pos] |= array[off++];
           }
         }
+      }
+      if (pieces > 1) {
         // folding done, only use a subset of this array
         this.bloom.rewind();
         this.bloom.limit(newByteSize);
@@ -293,6 +329,27 @@ public class BloomFilterChunk implements BloomFilterBase {
     }
   }
 
+  /**
+   * Folds each run of <code>pieces</code> blocks into one, as the blocks of keys are picked by
+   * {@link BloomFilterUtil#getBlockStart(long, int)}.
+   */
+  private void foldBlocks(int pieces, int newBlockCount) {
+    byte[] array = this.bloom.array();
+    int start = this.bloom.arrayOffset();
+    int blockBytes = BloomFilterUtil.BLOOM_BLOCK_BYTES;
+    for (int block = 0; block < newBlockCount; block++) {
+      int to = start + block * blockBytes;
+      int from = start + block * pieces * blockBytes;
+      System.arraycopy(array, from, array, to, blockBytes);
+      for (int p = 1; p < pieces; p++) {
+        from += blockBytes;
+        for (int i = 0; i < blockBytes; i++) {
+          array[to + i] |= array[from + i];
+        }
+      }
+    }
+  }
+
   /**
    * Writes just the bloom filter to the output array
    * @param out OutputStream to place bloom
@@ -310,6 +367,10 @@ public class BloomFilterChunk implements BloomFilterBase {
     return hashCount;
   }
 
+  public boolean isBlocked() {
+    return blocked;
+  }
+
   @Override
   public String toString() {
     return BloomFilterUtil.toString(this);
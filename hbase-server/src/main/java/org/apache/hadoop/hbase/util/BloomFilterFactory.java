@@ -81,6 +81,22 @@ public final class BloomFilterFactory {
   public static final String IO_STOREFILE_BLOOM_BLOCK_SIZE =
       "io.storefile.bloom.block.size";
 
+  /**
+   * Whether to write blocked Bloom filters, which keep all the bits of a key in one cache line so
+   * a lookup misses the CPU cache once rather than once per hash function. Their error rate is
+   * slightly higher for the same size. Files with either layout can be read.
+   */
+  public static final String IO_STOREFILE_BLOOM_BLOCKED =
+      "io.storefile.bloom.blocked";
+
+  /**
+   * Whether to write binary fuse filters, static filters that take less space than Bloom filters
+   * for the same error rate, see {@link XorFilterChunk}. They can be enabled for a column family
+   * in its configuration. Takes precedence over {@link #IO_STOREFILE_BLOOM_BLOCKED}.
+   */
+  public static final String IO_STOREFILE_BLOOM_XOR =
+      "io.storefile.bloom.xor";
+
   /** Maximum number of times a Bloom filter can be "folded" if oversized */
   private static final int MAX_ALLOWED_FOLD_FACTOR = 7;
 
@@ -102,6 +118,9 @@ public final class BloomFilterFactory {
     switch (version) {
       case CompoundBloomFilterBase.VERSION:
         return new CompoundBloomFilter(meta, reader);
+      case CompoundBloomFilterBase.BLOCKED_VERSION:
+      case CompoundBloomFilterBase.XOR_VERSION:
+        return new CompoundBloomFilter(meta, reader, version);
 
       default:
         throw new IllegalArgumentException(
@@ -144,6 +163,27 @@ public final class BloomFilterFactory {
     return conf.getInt(IO_STOREFILE_BLOOM_BLOCK_SIZE, 128 * 1024);
   }
 
+  /** @return true if blocked Bloom filters are written with the given configuration */
+  public static boolean isBloomBlocked(Configuration conf) {
+    return conf.getBoolean(IO_STOREFILE_BLOOM_BLOCKED, false);
+  }
+
+  /** @return true if binary fuse filters are written with the given configuration */
+  public static boolean isBloomXor(Configuration conf) {
+    return conf.getBoolean(IO_STOREFILE_BLOOM_XOR, false);
+  }
+
+  /**
+   * @return the version of the compound filters written with the given configuration
+   */
+  private static int getBloomVersion(Configuration conf) {
+    if (isBloomXor(conf)) {
+      return CompoundBloomFilterBase.XOR_VERSION;
+    }
+    return isBloomBlocked(conf) ? CompoundBloomFilterBase.BLOCKED_VERSION
+        : CompoundBloomFilterBase.VERSION;
+  }
+
   /**
   * @return max key for the Bloom filter from the configuration
   */
@@ -194,7 +234,8 @@ public final class BloomFilterFactory {
     // In case of compound Bloom filters we ignore the maxKeys hint.
     CompoundBloomFilterWriter bloomWriter = new CompoundBloomFilterWriter(getBloomBlockSize(conf),
         err, Hash.getHashType(conf), maxFold, cacheConf.shouldCacheBloomsOnWrite(),
-        bloomType == BloomType.ROWCOL ? CellComparatorImpl.COMPARATOR : null, bloomType);
+        bloomType == BloomType.ROWCOL ? CellComparatorImpl.COMPARATOR : null, bloomType,
+        getBloomVersion(conf));
     writer.addInlineBlockWriter(bloomWriter);
     return bloomWriter;
   }
@@ -225,7 +266,7 @@ public final class BloomFilterFactory {
     // In case of compound Bloom filters we ignore the maxKeys hint.
     CompoundBloomFilterWriter bloomWriter = new CompoundBloomFilterWriter(getBloomBlockSize(conf),
         err, Hash.getHashType(conf), maxFold, cacheConf.shouldCacheBloomsOnWrite(),
-        null, BloomType.ROW);
+        null, BloomType.ROW, getBloomVersion(conf));
     writer.addInlineBlockWriter(bloomWriter);
     return bloomWriter;
   }
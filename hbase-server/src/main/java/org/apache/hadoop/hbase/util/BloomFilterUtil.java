@@ -17,6 +17,7 @@
  */
 package org.apache.hadoop.hbase.util;
 
+import static org.apache.hadoop.hbase.regionserver.BloomType.ROWPREFIX_DELIMITED;
 import static org.apache.hadoop.hbase.regionserver.BloomType.ROWPREFIX_FIXED_LENGTH;
 
 import java.text.NumberFormat;
@@ -52,6 +53,32 @@ public final class BloomFilterUtil {
   private static Random randomGeneratorForTest;
 
   public static final String PREFIX_LENGTH_KEY = "RowPrefixBloomFilter.prefix_length";
+  public static final String DELIMITER_KEY = "RowPrefixDelimitedBloomFilter.delimiter";
+
+  /**
+   * Bytes in a block of a blocked Bloom filter, a cache line. All the bits of a key are in one
+   * block, so a lookup reads one or two cache lines instead of one per hash function.
+   */
+  public static final int BLOOM_BLOCK_BYTES = 64;
+  private static final int BLOOM_BLOCK_BITS = BLOOM_BLOCK_BYTES * 8;
+
+  /**
+   * Odd multipliers picking the bits of a key in its block, one per hash function. Independent
+   * multipliers spread the bits better than double hashing in a space as small as a block.
+   */
+  private static final int[] BLOOM_BLOCK_SALTS = new int[32];
+  static {
+    for (int i = 0; i < BLOOM_BLOCK_SALTS.length; i++) {
+      // The MurmurHash3 finalizer
+      int h = i + 1;
+      h ^= h >>> 16;
+      h *= 0x85ebca6b;
+      h ^= h >>> 13;
+      h *= 0xc2b2ae35;
+      h ^= h >>> 16;
+      BLOOM_BLOCK_SALTS[i] = h | 1;
+    }
+  }
   
   /** Bit-value lookup array to prevent doing the same work over and over */
   public static final byte [] bitvals = {
@@ -148,6 +175,58 @@ public final class BloomFilterUtil {
         / bitSize)) * functionCount);
   }
 
+  /**
+   * The maximum number of keys we can put into a blocked Bloom filter of a certain size to get the
+   * given error rate. Some blocks get more keys than others, so this is lower than
+   * {@link #computeMaxKeys(long, double, int)}.
+   *
+   * @see #blockedErrorRate(long, long, int)
+   */
+  public static long computeBlockedMaxKeys(long bitSize, double errorRate, int hashCount) {
+    long low = 0;
+    long high = computeMaxKeys(bitSize, errorRate, hashCount);
+    while (low < high) {
+      long mid = (low + high + 1) >>> 1;
+      if (blockedErrorRate(mid, bitSize, hashCount) <= errorRate) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Computes the error rate of a blocked Bloom filter: the error rate of a filter the size of a
+   * block, averaged over the Poisson distribution of the number of keys in a block. In a space as
+   * small as a block the bits of a key are not always distinct, which is accounted for too.
+   */
+  static double blockedErrorRate(long keys, long bitSize, int functionCount) {
+    // distinct[d] is the probability that the bits of a key are d distinct bits
+    double[] distinct = new double[functionCount + 1];
+    distinct[0] = 1;
+    for (int i = 0; i < functionCount; i++) {
+      for (int d = i + 1; d > 0; d--) {
+        distinct[d] = (distinct[d] * d + distinct[d - 1] * (BLOOM_BLOCK_BITS - d + 1))
+            / BLOOM_BLOCK_BITS;
+      }
+      distinct[0] = 0;
+    }
+
+    double keysPerBlock = keys * 1.0 * BLOOM_BLOCK_BITS / bitSize;
+    double probability = Math.exp(-keysPerBlock);
+    double errorRate = 0;
+    // The probabilities past a few standard deviations are negligible
+    for (int j = 0; j <= 2 * keysPerBlock + 64; j++) {
+      double setBits = 1 - Math.exp(-functionCount * j * 1.0 / BLOOM_BLOCK_BITS);
+      for (int d = 1; d <= functionCount; d++) {
+        errorRate += probability * distinct[d] * Math.pow(setBits, d);
+      }
+      probability *= keysPerBlock / (j + 1);
+    }
+    return errorRate;
+  }
+
   /**
    * Increases the given byte size of a Bloom filter until it can be folded by
    * the given factor.
@@ -193,9 +272,30 @@ public final class BloomFilterUtil {
    */
   public static BloomFilterChunk createBySize(int byteSizeHint,
       double errorRate, int hashType, int foldFactor, BloomType bloomType) {
-    BloomFilterChunk bbf = new BloomFilterChunk(hashType, bloomType);
+    return createBySize(byteSizeHint, errorRate, hashType, foldFactor, bloomType, false);
+  }
+
+  /**
+   * Creates a Bloom filter chunk of the given size.
+   *
+   * @param blocked true for a blocked Bloom filter, whose size is then a multiple of blocks that
+   *          can be folded
+   * @see #createBySize(int, double, int, int, BloomType)
+   */
+  public static BloomFilterChunk createBySize(int byteSizeHint, double errorRate, int hashType,
+      int foldFactor, BloomType bloomType, boolean blocked) {
+    BloomFilterChunk bbf = new BloomFilterChunk(hashType, bloomType, blocked);
 
-    bbf.byteSize = computeFoldableByteSize(byteSizeHint * 8L, foldFactor);
+    if (blocked) {
+      // Fold less rather than pad the filter by more than an eighth
+      while (foldFactor > 0 && (BLOOM_BLOCK_BYTES << foldFactor) > byteSizeHint / 8) {
+        foldFactor--;
+      }
+      long foldableBlocks = (long) BLOOM_BLOCK_BYTES << foldFactor;
+      bbf.byteSize = (byteSizeHint + foldableBlocks - 1) / foldableBlocks * foldableBlocks;
+    } else {
+      bbf.byteSize = computeFoldableByteSize(byteSizeHint * 8L, foldFactor);
+    }
     long bitSize = bbf.byteSize * 8;
     bbf.maxKeys = (int) idealMaxKeys(bitSize, errorRate);
     bbf.hashCount = optimalFunctionCount(bbf.maxKeys, bitSize);
@@ -203,7 +303,8 @@ public final class BloomFilterUtil {
     // Adjust max keys to bring error rate closer to what was requested,
     // because byteSize was adjusted to allow for folding, and hashCount was
     // rounded.
-    bbf.maxKeys = (int) computeMaxKeys(bitSize, errorRate, bbf.hashCount);
+    bbf.maxKeys = (int) (blocked ? computeBlockedMaxKeys(bitSize, errorRate, bbf.hashCount)
+        : computeMaxKeys(bitSize, errorRate, bbf.hashCount));
 
     return bbf;
   }
@@ -211,10 +312,52 @@ public final class BloomFilterUtil {
   public static boolean contains(byte[] buf, int offset, int length,
       ByteBuff bloomBuf, int bloomOffset, int bloomSize, Hash hash,
       int hashCount) {
+    return contains(buf, offset, length, bloomBuf, bloomOffset, bloomSize, hash, hashCount,
+      false);
+  }
+
+  /**
+   * @param blocked true if the filter is a blocked Bloom filter
+   */
+  public static boolean contains(byte[] buf, int offset, int length, ByteBuff bloomBuf,
+      int bloomOffset, int bloomSize, Hash hash, int hashCount, boolean blocked) {
     HashKey<byte[]> hashKey = new ByteArrayHashKey(buf, offset, length);
+    if (blocked) {
+      return containsBlocked(bloomBuf, bloomOffset, bloomSize, hash, hashCount, hashKey);
+    }
     return contains(bloomBuf, bloomOffset, bloomSize, hash, hashCount, hashKey);
   }
 
+  private static <T> boolean containsBlocked(ByteBuff bloomBuf, int bloomOffset, int bloomSize,
+      Hash hash, int hashCount, HashKey<T> hashKey) {
+    long hash64 = hash.hash64(hashKey, 0);
+    int blockStart = getBlockStart(hash64, bloomSize / BLOOM_BLOCK_BYTES);
+    for (int i = 0; i < hashCount; i++) {
+      if (!checkBit(blockStart + getBitInBlock(hash64, i), bloomBuf, bloomOffset)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The high half of the hash picks the block, by multiplying rather than dividing. Folding the
+   * filter in half then merges blocks two by two.
+   * @return the position of the first bit of the block of a key in a blocked Bloom filter
+   */
+  static int getBlockStart(long hash64, int blockCount) {
+    return (int) (((hash64 >>> 32) * blockCount) >>> 32) * BLOOM_BLOCK_BITS;
+  }
+
+  /**
+   * The low half of the hash picks the bits in the block, by multiplying it with a different salt
+   * for each hash function, as split block Bloom filters do.
+   * @return the position in its block of the <code>i</code>th bit of a key
+   */
+  static int getBitInBlock(long hash64, int i) {
+    return ((int) hash64 * BLOOM_BLOCK_SALTS[i % BLOOM_BLOCK_SALTS.length]) >>> 23;
+  }
+
   private static <T> boolean contains(ByteBuff bloomBuf, int bloomOffset, int bloomSize, Hash hash,
       int hashCount, HashKey<T> hashKey) {
     int hash1 = hash.hash(hashKey, 0);
@@ -245,8 +388,19 @@ public final class BloomFilterUtil {
 
   public static boolean contains(Cell cell, ByteBuff bloomBuf, int bloomOffset, int bloomSize,
       Hash hash, int hashCount, BloomType type) {
+    return contains(cell, bloomBuf, bloomOffset, bloomSize, hash, hashCount, type, false);
+  }
+
+  /**
+   * @param blocked true if the filter is a blocked Bloom filter
+   */
+  public static boolean contains(Cell cell, ByteBuff bloomBuf, int bloomOffset, int bloomSize,
+      Hash hash, int hashCount, BloomType type, boolean blocked) {
     HashKey<Cell> hashKey = type == BloomType.ROWCOL ? new RowColBloomHashKey(cell)
         : new RowBloomHashKey(cell);
+    if (blocked) {
+      return containsBlocked(bloomBuf, bloomOffset, bloomSize, hash, hashCount, hashKey);
+    }
     return contains(bloomBuf, bloomOffset, bloomSize, hash, hashCount, hashKey);
   }
 
@@ -315,7 +469,27 @@ public final class BloomFilterUtil {
         throw new IllegalArgumentException(message, nfe);
       }
       bloomParam = Bytes.toBytes(prefixLength);
+    } else if (bloomFilterType.equals(ROWPREFIX_DELIMITED)) {
+      String delimiter = conf.get(DELIMITER_KEY);
+      if (delimiter == null || delimiter.isEmpty()) {
+        message += DELIMITER_KEY + " not specified.";
+        throw new IllegalArgumentException(message);
+      }
+      bloomParam = Bytes.toBytes(delimiter);
     }
     return bloomParam;
   }
+
+  /**
+   * The prefix keeps the delimiter so that the prefixes of sorted rows are sorted too, which they
+   * would not be without it: "a0" sorts before "a:b", but "a" before "a0".
+   * @param row the row
+   * @param delimiter the delimiter ending the prefix
+   * @return the length of the prefix of the row up to and including the first occurrence of the
+   *         delimiter, or -1 if the delimiter does not occur in the row
+   */
+  public static int getDelimitedPrefixLength(byte[] row, byte[] delimiter) {
+    int index = Bytes.indexOf(row, delimiter);
+    return index < 0 ? -1 : index + delimiter.length;
+  }
 }
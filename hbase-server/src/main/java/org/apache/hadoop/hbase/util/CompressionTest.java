@@ -95,8 +95,11 @@ public class CompressionTest {
     }
 
     try {
-      Compressor c = algo.getCompressor();
-      algo.returnCompressor(c);
+      // Blocks are compressed in Java when there is a block codec, no native library needed
+      if (algo.getBlockCodec() == null) {
+        Compressor c = algo.getCompressor();
+        algo.returnCompressor(c);
+      }
       compressionTestResults[algo.ordinal()] = true; // passes
     } catch (Throwable t) {
       compressionTestResults[algo.ordinal()] = false; // failure
@@ -48,6 +48,7 @@ import org.apache.hadoop.hbase.regionserver.HRegion;
 import org.apache.hadoop.hbase.regionserver.HeapMemoryManager;
 import org.apache.hadoop.hbase.regionserver.Leases;
 import org.apache.hadoop.hbase.regionserver.MetricsRegionServer;
+import org.apache.hadoop.hbase.regionserver.ParallelSeekExecutor;
 import org.apache.hadoop.hbase.regionserver.Region;
 import org.apache.hadoop.hbase.regionserver.RegionServerAccounting;
 import org.apache.hadoop.hbase.regionserver.RegionServerServices;
@@ -364,6 +365,11 @@ public class MockRegionServerServices implements RegionServerServices {
     return Optional.empty();
   }
 
+  @Override
+  public Optional<ParallelSeekExecutor> getParallelSeekExecutor() {
+    return Optional.empty();
+  }
+
   @Override
   public AccessChecker getAccessChecker() {
     return null;
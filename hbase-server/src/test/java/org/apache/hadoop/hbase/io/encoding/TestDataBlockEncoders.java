@@ -240,6 +240,47 @@ public class TestDataBlockEncoders {
     LOG.info("Done");
   }
 
+  /**
+   * Test seeking to each key, from the start of the block and forward from the previous key, with
+   * the restart points of FAST_DIFF_INDEXED.
+   */
+  @Test
+  public void testSeekingWithRestartPoints() throws IOException {
+    List<KeyValue> sampleKv = generator.generateTestKeyValues(NUMBER_OF_KV / 10, includesTags);
+    DataBlockEncoding encoding = DataBlockEncoding.FAST_DIFF_INDEXED;
+    DataBlockEncoder encoder = encoding.getEncoder();
+    ByteBuffer encodedBuffer = encodeKeyValues(encoding, sampleKv,
+        getEncodingContext(Compression.Algorithm.NONE, encoding), this.useOffheapData);
+    HFileContext meta = new HFileContextBuilder()
+                        .withHBaseCheckSum(false)
+                        .withIncludesMvcc(includesMemstoreTS)
+                        .withIncludesTags(includesTags)
+                        .withCompression(Compression.Algorithm.NONE)
+                        .build();
+    DataBlockEncoder.EncodedSeeker seeker = encoder.createSeeker(CellComparatorImpl.COMPARATOR,
+        encoder.newDataBlockDecodingContext(meta));
+    DataBlockEncoder.EncodedSeeker forwardSeeker =
+        encoder.createSeeker(CellComparatorImpl.COMPARATOR,
+          encoder.newDataBlockDecodingContext(meta));
+    forwardSeeker.setCurrentBuffer(new SingleByteBuff(encodedBuffer.duplicate()));
+    for (int i = 0; i < sampleKv.size(); i++) {
+      KeyValue keyValue = sampleKv.get(i);
+      seeker.setCurrentBuffer(new SingleByteBuff(encodedBuffer.duplicate()));
+      assertEquals(0, seeker.seekToKeyInBlock(keyValue, false));
+      assertEquals(0, PrivateCellUtil.compareKeyIgnoresMvcc(CellComparatorImpl.COMPARATOR,
+        keyValue, seeker.getCell()));
+      assertEquals(0, forwardSeeker.seekToKeyInBlock(keyValue, false));
+      assertEquals(0, PrivateCellUtil.compareKeyIgnoresMvcc(CellComparatorImpl.COMPARATOR,
+        keyValue, forwardSeeker.getCell()));
+      if (i > 0) {
+        seeker.rewind();
+        seeker.seekToKeyInBlock(keyValue, true);
+        assertEquals(0, PrivateCellUtil.compareKeyIgnoresMvcc(CellComparatorImpl.COMPARATOR,
+          sampleKv.get(i - 1), seeker.getCell()));
+      }
+    }
+  }
+
   static ByteBuffer encodeKeyValues(DataBlockEncoding encoding, List<KeyValue> kvs,
       HFileBlockEncodingContext encodingContext, boolean useOffheapData) throws IOException {
     DataBlockEncoder encoder = encoding.getEncoder();
@@ -431,6 +472,62 @@ public class TestDataBlockEncoders {
     testEncodersOnDataset(kvList, includesMemstoreTS, includesTags);
   }
 
+  /**
+   * Test VALUE_XOR on cells of slowly changing numbers, decoding, seeking to cells and comparing
+   * the size of the block with PREFIX, which compresses keys the same way.
+   */
+  @Test
+  public void testValueXorOnTimeSeries() throws IOException {
+    List<KeyValue> kvList = new ArrayList<>();
+    byte[] family = new byte[] { 'f' };
+    for (int i = 0; i < 1000; i++) {
+      byte[] row = Bytes.toBytes("sensor" + (i / 100));
+      byte[] qualifier = Bytes.toBytes(1000000L + i % 100);
+      // Doubles, longs and a repeated string
+      byte[] value = i < 400 ? Bytes.toBytes(20.0 + (i % 7) * 0.25)
+          : i < 800 ? Bytes.toBytes(1000L + i) : Bytes.toBytes("state=running");
+      if (includesTags) {
+        kvList.add(new KeyValue(row, family, qualifier, i, value,
+            new Tag[] { new ArrayBackedTag((byte) 1, "value1") }));
+      } else {
+        kvList.add(new KeyValue(row, family, qualifier, i, Type.Put, value));
+      }
+    }
+    testEncodersOnDataset(kvList, includesMemstoreTS, includesTags);
+
+    DataBlockEncoding encoding = DataBlockEncoding.VALUE_XOR;
+    DataBlockEncoder encoder = encoding.getEncoder();
+    ByteBuffer encodedBuffer = encodeKeyValues(encoding, kvList,
+        getEncodingContext(Compression.Algorithm.NONE, encoding), this.useOffheapData);
+    ByteBuffer prefixBuffer = encodeKeyValues(DataBlockEncoding.PREFIX, kvList,
+        getEncodingContext(Compression.Algorithm.NONE, DataBlockEncoding.PREFIX), false);
+    assertTrue(encodedBuffer.capacity() < prefixBuffer.capacity() - 4 * kvList.size());
+    HFileContext meta = new HFileContextBuilder()
+                        .withHBaseCheckSum(false)
+                        .withIncludesMvcc(includesMemstoreTS)
+                        .withIncludesTags(includesTags)
+                        .withCompression(Compression.Algorithm.NONE)
+                        .build();
+    DataBlockEncoder.EncodedSeeker seeker = encoder.createSeeker(CellComparatorImpl.COMPARATOR,
+        encoder.newDataBlockDecodingContext(meta));
+    seeker.setCurrentBuffer(new SingleByteBuff(encodedBuffer));
+    for (int i = kvList.size() - 1; i >= 0; i -= 7) {
+      KeyValue keyValue = kvList.get(i);
+      seeker.rewind();
+      assertEquals(0, seeker.seekToKeyInBlock(keyValue, false));
+      Cell cell = seeker.getCell();
+      assertTrue(CellUtil.equals(keyValue, cell));
+      assertTrue(CellUtil.matchingValue(keyValue, cell));
+      assertEquals(0, Bytes.compareTo(keyValue.getValueArray(), keyValue.getValueOffset(),
+        keyValue.getValueLength(), Bytes.getBytes(seeker.getValueShallowCopy()), 0,
+        keyValue.getValueLength()));
+      if (includesTags) {
+        assertTrue(
+          Bytes.equals(PrivateCellUtil.cloneTags(keyValue), PrivateCellUtil.cloneTags(cell)));
+      }
+    }
+  }
+
   private void testAlgorithm(byte[] encodedData, ByteBuffer unencodedDataBuf,
       DataBlockEncoder encoder) throws IOException {
     // decode
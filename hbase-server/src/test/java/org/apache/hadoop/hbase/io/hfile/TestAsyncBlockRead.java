@@ -0,0 +1,139 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.PrivateCellUtil;
+import org.apache.hadoop.hbase.fs.HFileSystem;
+import org.apache.hadoop.hbase.testclassification.IOTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ IOTests.class, SmallTests.class })
+public class TestAsyncBlockRead {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestAsyncBlockRead.class);
+
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final int NUM_ROWS = 1000;
+
+  private Configuration conf;
+  private FileSystem fs;
+  private BlockCache blockCache;
+  private CacheConfig cacheConf;
+
+  @Before
+  public void setUp() throws IOException {
+    conf = TEST_UTIL.getConfiguration();
+    fs = HFileSystem.get(conf);
+    blockCache = BlockCacheFactory.createBlockCache(conf);
+    cacheConf = new CacheConfig(conf, blockCache);
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row-%05d", i));
+  }
+
+  private HFileReaderImpl writeAndOpen(String name) throws IOException {
+    Path path = new Path(TEST_UTIL.getDataTestDir(), name);
+    HFileContext meta = new HFileContextBuilder().withBlockSize(1024).build();
+    try (HFile.Writer writer = HFile.getWriterFactory(conf, cacheConf).withPath(fs, path)
+        .withFileContext(meta).create()) {
+      for (int i = 0; i < NUM_ROWS; i++) {
+        writer.append(new KeyValue(row(i), FAMILY, QUALIFIER, Bytes.toBytes(i)));
+      }
+    }
+    return (HFileReaderImpl) HFile.createReader(fs, path, cacheConf, true, conf);
+  }
+
+  @Test
+  public void testReadBlockAsync() throws Exception {
+    HFileReaderImpl reader = writeAndOpen("testReadBlockAsync");
+    try {
+      HFileBlock expected = reader.getUncachedBlockReader().readBlockData(0, -1, true, false, true);
+      HFileBlock block =
+          reader.readBlockAsync(0, -1, true, false, true, BlockType.DATA, null).get();
+      try {
+        assertEquals(expected.getUncompressedSizeWithoutHeader(),
+          block.getUncompressedSizeWithoutHeader());
+        assertEquals(expected.getBufferWithoutHeader(), block.getBufferWithoutHeader());
+      } finally {
+        expected.release();
+        block.release();
+      }
+      assertTrue(blockCache.containsBlock(new BlockCacheKey(reader.getName(), 0)));
+
+      // Served from the cache without waiting
+      CompletableFuture<HFileBlock> future =
+          reader.readBlockAsync(0, -1, true, false, true, BlockType.DATA, null);
+      assertTrue(future.isDone());
+      future.get().release();
+
+      future = reader.readBlockAsync(reader.getTrailer().getLoadOnOpenDataOffset(), -1, true,
+        false, true, BlockType.DATA, null);
+      try {
+        future.get();
+        fail("The block is out of range");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof IOException);
+      }
+    } finally {
+      reader.close(true);
+    }
+  }
+
+  @Test
+  public void testLoadDataBlockAsync() throws Exception {
+    HFileReaderImpl reader = writeAndOpen("testLoadDataBlockAsync");
+    try {
+      int i = NUM_ROWS / 2;
+      long[] block =
+          ((HFileBlockIndex.CellBasedKeyBlockIndexReader) reader.getDataBlockIndexReader())
+              .locateDataBlock(PrivateCellUtil.createFirstOnRow(row(i)), true);
+      BlockCacheKey key = new BlockCacheKey(reader.getName(), block[0]);
+      assertFalse(blockCache.containsBlock(key));
+      reader.loadDataBlockAsync(PrivateCellUtil.createFirstOnRow(row(i))).get();
+      assertTrue(blockCache.containsBlock(key));
+    } finally {
+      reader.close(true);
+    }
+  }
+}
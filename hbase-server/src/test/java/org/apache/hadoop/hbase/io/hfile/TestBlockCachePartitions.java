@@ -0,0 +1,167 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.io.ByteBuffAllocator;
+import org.apache.hadoop.hbase.nio.ByteBuff;
+import org.apache.hadoop.hbase.testclassification.IOTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ IOTests.class, SmallTests.class })
+public class TestBlockCachePartitions {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestBlockCachePartitions.class);
+
+  private static final int BLOCK_SIZE = 1500;
+  public static final String ANALYTICS = "analytics";
+
+  public static HFileBlock createBlock(int offset) {
+    byte[] content = new byte[BLOCK_SIZE];
+    Arrays.fill(content, (byte) offset);
+    return new HFileBlock(BlockType.DATA, BLOCK_SIZE, BLOCK_SIZE, -1,
+        ByteBuff.wrap(ByteBuffer.wrap(content)), HFileBlock.FILL_HEADER, offset, 52, BLOCK_SIZE,
+        new HFileContextBuilder().build(), ByteBuffAllocator.HEAP);
+  }
+
+  public static BlockCacheKey analyticsKey(int offset) {
+    return new BlockCacheKey("analytics", offset, true, BlockType.DATA, ANALYTICS);
+  }
+
+  @Test
+  public void testPartitionFromColumnFamilyDescriptor() {
+    LruBlockCache cache = new LruBlockCache(100 * 2048, 2048, false, HBaseConfiguration.create());
+    ColumnFamilyDescriptor family = ColumnFamilyDescriptorBuilder.newBuilder(Bytes.toBytes("f"))
+        .setBlockCachePartition(ANALYTICS).setBlockCachePartitionShare(0.25f).build();
+    CacheConfig cacheConf =
+        new CacheConfig(HBaseConfiguration.create(), family, cache, ByteBuffAllocator.HEAP);
+    assertEquals(ANALYTICS, cacheConf.getBlockCachePartition());
+    // The share is asked for by the store once it is open
+    assertEquals(1.0f, cache.getPartitions().getShare(ANALYTICS), 0.0f);
+  }
+
+  @Test
+  public void testLargestShareWins() {
+    BlockCachePartitions partitions = new BlockCachePartitions();
+    partitions.setShare(ANALYTICS, "r1/f", 0.25f);
+    partitions.setShare(ANALYTICS, "r2/f", 0.5f);
+    partitions.setShare(ANALYTICS, "r3/f", 0.1f);
+    assertEquals(0.5f, partitions.getShare(ANALYTICS), 0.0f);
+    // A family that does not limit the partition lifts the limit for all of them
+    partitions.setShare(ANALYTICS, "r4/g", 0);
+    assertEquals(1.0f, partitions.getShare(ANALYTICS), 0.0f);
+    partitions.add(ANALYTICS, 2048);
+    assertFalse(partitions.isOverShare(ANALYTICS, 1024));
+    partitions.setShare(ANALYTICS, "r5/f", 0.25f);
+    assertEquals(1.0f, partitions.getShare(ANALYTICS), 0.0f);
+  }
+
+  @Test
+  public void testShareFollowsOpenStores() {
+    BlockCachePartitions partitions = new BlockCachePartitions();
+    partitions.setShare(ANALYTICS, "r1/f", 0.5f);
+    partitions.setShare(ANALYTICS, "r2/f", 0.5f);
+    // The family is altered to a smaller share, its regions reopen one after the other
+    partitions.removeShare(ANALYTICS, "r1/f");
+    partitions.setShare(ANALYTICS, "r1/f", 0.1f);
+    assertEquals(0.5f, partitions.getShare(ANALYTICS), 0.0f);
+    partitions.removeShare(ANALYTICS, "r2/f");
+    partitions.setShare(ANALYTICS, "r2/f", 0.1f);
+    assertEquals(0.1f, partitions.getShare(ANALYTICS), 0.0f);
+    partitions.add(ANALYTICS, 2048);
+    assertTrue(partitions.isOverShare(ANALYTICS, 10240));
+    // Once no store of the partition is open, it is no longer limited
+    partitions.removeShare(ANALYTICS, "r1/f");
+    partitions.removeShare(ANALYTICS, "r2/f");
+    assertEquals(1.0f, partitions.getShare(ANALYTICS), 0.0f);
+    assertFalse(partitions.isOverShare(ANALYTICS, 10240));
+  }
+
+  @Test
+  public void testLruBlockCachePartitionStaysWithinShare() {
+    checkLruBlockCache(HBaseConfiguration.create());
+  }
+
+  @Test
+  public void testLruBlockCacheSampledEvictionPartitionStaysWithinShare() {
+    Configuration conf = HBaseConfiguration.create();
+    conf.setInt(LruBlockCache.LRU_EVICTION_SAMPLE_SIZE_CONFIG_NAME, 16);
+    checkLruBlockCache(conf);
+  }
+
+  private void checkLruBlockCache(Configuration conf) {
+    LruBlockCache cache = new LruBlockCache(100 * 2048, 2048, false, conf);
+    cache.setPartitionShare(ANALYTICS, "analytics/f", 0.2f);
+    List<BlockCacheKey> serving = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      BlockCacheKey key = new BlockCacheKey("serving", i);
+      cache.cacheBlock(key, createBlock(i));
+      serving.add(key);
+    }
+    long share = (long) (0.2f * cache.acceptableSize());
+    for (int i = 0; i < 200; i++) {
+      cache.cacheBlock(analyticsKey(i), createBlock(i));
+      assertTrue(cache.getPartitions().getSize(ANALYTICS) <= share);
+    }
+    assertTrue(cache.getStats().getEvictedCount() > 0);
+    // The analytics blocks only evicted each other
+    for (BlockCacheKey key : serving) {
+      assertTrue(cache.containsBlock(key));
+    }
+    checkPartitionStats(cache, 199);
+  }
+
+  /**
+   * Checks the partition hit and miss counts, the block at <code>lastOffset</code> is expected to
+   * be cached and the one at 0 evicted.
+   */
+  public static void checkPartitionStats(BlockCache cache, int lastOffset) {
+    CacheStats stats = cache.getStats();
+    assertNull(cache.getBlock(analyticsKey(0), true, false, true));
+    Cacheable block = cache.getBlock(analyticsKey(lastOffset), true, false, true);
+    assertTrue(block != null);
+    block.release();
+    // Lookups without a partition are not counted for any
+    block = cache.getBlock(new BlockCacheKey("serving", 0), true, false, true);
+    block.release();
+    assertEquals(1, stats.getPartitionHitCount(ANALYTICS));
+    assertEquals(1, stats.getPartitionMissCount(ANALYTICS));
+    assertEquals(0.5, stats.getPartitionHitRatio(ANALYTICS), 0.0);
+    assertEquals(Arrays.asList(ANALYTICS), new ArrayList<>(stats.getPartitions()));
+  }
+}
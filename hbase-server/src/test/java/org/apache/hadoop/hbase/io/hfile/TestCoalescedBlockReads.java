@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparatorImpl;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.PrivateCellUtil;
+import org.apache.hadoop.hbase.fs.HFileSystem;
+import org.apache.hadoop.hbase.testclassification.IOTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ IOTests.class, SmallTests.class })
+public class TestCoalescedBlockReads {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestCoalescedBlockReads.class);
+
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final int NUM_ROWS = 2000;
+
+  private Configuration conf;
+  private FileSystem fs;
+  private BlockCache blockCache;
+  private CacheConfig cacheConf;
+
+  @Before
+  public void setUp() throws IOException {
+    conf = TEST_UTIL.getConfiguration();
+    fs = HFileSystem.get(conf);
+    blockCache = BlockCacheFactory.createBlockCache(conf);
+    cacheConf = new CacheConfig(conf, blockCache);
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row-%05d", i));
+  }
+
+  @Test
+  public void testReadPool() throws Exception {
+    Configuration poolConf = new Configuration(conf);
+    poolConf.setInt(BlockReadPlanner.THREADS_KEY, 1);
+    poolConf.setInt(BlockReadPlanner.QUEUE_SIZE_KEY, 1);
+    BlockReadPlanner.startReadPool(poolConf);
+    try {
+      ThreadPoolExecutor pool = (ThreadPoolExecutor) BlockReadPlanner.getReadPool();
+      assertEquals(1, pool.getMaximumPoolSize());
+      CountDownLatch started = new CountDownLatch(1);
+      CountDownLatch blocked = new CountDownLatch(1);
+      pool.execute(() -> {
+        started.countDown();
+        try {
+          blocked.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      started.await();
+      pool.execute(() -> { });
+      // The thread is busy and the queue full, the read runs on the issuing thread
+      Thread caller = Thread.currentThread();
+      AtomicReference<Thread> runner = new AtomicReference<>();
+      pool.execute(() -> runner.set(Thread.currentThread()));
+      assertEquals(caller, runner.get());
+      blocked.countDown();
+    } finally {
+      BlockReadPlanner.shutdownReadPool();
+    }
+    assertFalse(BlockReadPlanner.getReadPool() instanceof ThreadPoolExecutor);
+  }
+
+  @Test
+  public void testPlan() {
+    SortedMap<Long, Integer> blocks = new TreeMap<>();
+    blocks.put(0L, 100);
+    blocks.put(100L, 100);
+    // A gap of 50 bytes
+    blocks.put(250L, 100);
+    // A gap of 650 bytes
+    blocks.put(1000L, 100);
+    blocks.put(1100L, 500);
+    List<BlockReadPlanner.Read> reads = BlockReadPlanner.plan(blocks, 100, 1000);
+    assertEquals(2, reads.size());
+    assertArrayEquals(new long[] { 0, 100, 250 }, reads.get(0).offsets);
+    assertEquals(350, reads.get(0).getLength());
+    assertArrayEquals(new int[] { 100, 500 }, reads.get(1).onDiskSizes);
+
+    // The read is cut at its maximum size
+    reads = BlockReadPlanner.plan(blocks, 1000, 400);
+    assertEquals(3, reads.size());
+    assertArrayEquals(new long[] { 0, 100, 250 }, reads.get(0).offsets);
+    assertArrayEquals(new long[] { 1000 }, reads.get(1).offsets);
+    assertArrayEquals(new long[] { 1100 }, reads.get(2).offsets);
+  }
+
+  @Test
+  public void testLoadDataBlocks() throws Exception {
+    Path path = new Path(TEST_UTIL.getDataTestDir(), "TestLoadDataBlocks");
+    HFileContext meta = new HFileContextBuilder().withBlockSize(1024).build();
+    try (HFile.Writer writer = HFile.getWriterFactory(conf, cacheConf).withPath(fs, path)
+        .withFileContext(meta).create()) {
+      for (int i = 0; i < NUM_ROWS; i++) {
+        writer.append(new KeyValue(row(i), FAMILY, QUALIFIER, Bytes.toBytes(i)));
+      }
+    }
+    HFileReaderImpl reader = (HFileReaderImpl) HFile.createReader(fs, path, cacheConf, true, conf);
+    try {
+      List<Cell> keys = new ArrayList<>();
+      for (int i = 0; i < NUM_ROWS; i += 7) {
+        keys.add(PrivateCellUtil.createFirstOnRow(row(i)));
+      }
+      reader.loadDataBlocks(keys);
+      for (Cell key : keys) {
+        long[] block =
+            ((HFileBlockIndex.CellBasedKeyBlockIndexReader) reader.getDataBlockIndexReader())
+                .locateDataBlock(key, true);
+        assertTrue(blockCache.containsBlock(new BlockCacheKey(reader.getName(), block[0])));
+      }
+
+      // The gets are all served from the cache, with the right content
+      long misses = blockCache.getStats().getMissCount();
+      HFileScanner scanner = reader.getScanner(true, true);
+      for (int i = 0; i < NUM_ROWS; i += 7) {
+        assertEquals(0, scanner.seekTo(
+          new KeyValue(row(i), FAMILY, QUALIFIER, HConstants.LATEST_TIMESTAMP, KeyValue.Type.Put)));
+        Cell cell = scanner.getCell();
+        assertTrue(CellUtil.matchingRows(cell, row(i)));
+        assertEquals(i, Bytes.toInt(CellUtil.cloneValue(cell)));
+      }
+      scanner.close();
+      assertEquals(misses, blockCache.getStats().getMissCount());
+    } finally {
+      reader.close(true);
+    }
+  }
+}
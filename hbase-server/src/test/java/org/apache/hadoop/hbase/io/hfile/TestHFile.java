@@ -60,6 +60,7 @@ import org.apache.hadoop.hbase.PrivateCellUtil;
 import org.apache.hadoop.hbase.Tag;
 import org.apache.hadoop.hbase.io.ByteBuffAllocator;
 import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.encoding.DataBlockEncoding;
 import org.apache.hadoop.hbase.io.hfile.HFile.Reader;
 import org.apache.hadoop.hbase.io.hfile.HFile.Writer;
 import org.apache.hadoop.hbase.nio.ByteBuff;
@@ -495,6 +496,67 @@ public class TestHFile  {
   protected void testHFilefeaturesInternals(boolean useTags) throws IOException {
     basicWithSomeCodec("none", useTags);
     basicWithSomeCodec("gz", useTags);
+    basicWithSomeCodec("lz4", useTags);
+  }
+
+  @Test
+  public void testCompressionDictionary() throws IOException {
+    long withoutDictionary = writeAndReadSmallBlocks(0, DataBlockEncoding.NONE);
+    long withDictionary = writeAndReadSmallBlocks(32 * 1024, DataBlockEncoding.NONE);
+    LOG.info("Small blocks without dictionary " + withoutDictionary + ", with "
+        + withDictionary);
+    assertTrue(withDictionary < withoutDictionary * 0.9);
+    writeAndReadSmallBlocks(32 * 1024, DataBlockEncoding.FAST_DIFF);
+    // Fewer cells than the dictionary size
+    writeAndReadSmallBlocks(1024 * 1024, DataBlockEncoding.NONE);
+  }
+
+  /**
+   * Writes 2KB LZ4 blocks of point lookup like cells, then reads them back.
+   * @return the size of the file
+   */
+  private long writeAndReadSmallBlocks(int dictionarySize, DataBlockEncoding encoding)
+      throws IOException {
+    Configuration conf = new Configuration(TestHFile.conf);
+    conf.setInt(HFileWriterImpl.COMPRESSION_DICTIONARY_SIZE_KEY, dictionarySize);
+    Path path = new Path(ROOT_DIR, testName.getMethodName() + dictionarySize + encoding);
+    HFileContext meta = new HFileContextBuilder().withBlockSize(2048)
+        .withCompression(Compression.Algorithm.LZ4).withDataBlockEncoding(encoding).build();
+    Writer writer = HFile.getWriterFactory(conf, cacheConf).withPath(fs, path)
+        .withFileContext(meta).create();
+    int count = 10000;
+    for (int i = 0; i < count; i++) {
+      writer.append(createSmallBlockCell(i));
+    }
+    writer.close();
+
+    Reader reader = HFile.createReader(fs, path, cacheConf, true, conf);
+    assertEquals(dictionarySize > 0,
+      reader.loadFileInfo().get(Bytes.toBytes("hfile.COMPRESSION_DICTIONARY")) != null);
+    HFileScanner scanner = reader.getScanner(false, true);
+    assertTrue(scanner.seekTo());
+    int read = 0;
+    do {
+      assertTrue(CellUtil.equals(createSmallBlockCell(read), scanner.getCell()));
+      read++;
+    } while (scanner.next());
+    assertEquals(count, read);
+    for (int i = 0; i < count; i += 97) {
+      Cell cell = createSmallBlockCell(i);
+      assertEquals(0, scanner.seekTo(cell));
+      assertTrue(CellUtil.equals(cell, scanner.getCell()));
+      assertTrue(CellUtil.matchingValue(cell, scanner.getCell()));
+    }
+    reader.close();
+    return fs.getFileStatus(path).getLen();
+  }
+
+  private static Cell createSmallBlockCell(int i) {
+    String value = String.format("{\"user\":%d,\"status\":\"%s\",\"region\":\"eu-west-%d\","
+        + "\"plan\":\"standard\",\"score\":%d}", i * 31, i % 3 == 0 ? "active" : "inactive",
+      i % 4, i % 1000);
+    return new KeyValue(Bytes.toBytes(String.format("user-%08d", i)), Bytes.toBytes("profile"),
+        Bytes.toBytes("json"), 1000L + i, Bytes.toBytes(value));
   }
 
   private void writeNumMetablocks(Writer writer, int n) {
@@ -37,6 +37,7 @@ import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.io.FSDataInputStreamWrapper;
 import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.util.MemorySizeUtil;
 import org.apache.hadoop.hbase.testclassification.IOTests;
 import org.apache.hadoop.hbase.testclassification.SmallTests;
 import org.apache.hadoop.hbase.util.Bytes;
@@ -233,4 +234,113 @@ public class TestLazyDataBlockDecompression {
       "disabledEvictedCount=" + disabledEvictedCount + ", enabledEvictedCount=" +
       enabledEvictedCount, enabledEvictedCount < disabledEvictedCount);
   }
+
+  /**
+   * Reads all data blocks of {@code path} once.
+   * @return the number of data blocks read
+   */
+  private static int readDataBlocks(Configuration conf, CacheConfig cacheConfig, FileSystem fs,
+      Path path) throws IOException {
+    FSDataInputStreamWrapper fsdis = new FSDataInputStreamWrapper(fs, path);
+    long fileSize = fs.getFileStatus(path).getLen();
+    FixedFileTrailer trailer = FixedFileTrailer.readFromStream(fsdis.getStream(false), fileSize);
+    HFile.Reader reader = new HFileReaderImpl(path, trailer, fsdis, fileSize, cacheConfig,
+      fsdis.getHfs(), conf);
+    try {
+      reader.loadFileInfo();
+      int count = 0;
+      long offset = trailer.getFirstDataBlockOffset();
+      while (offset <= trailer.getLastDataBlockOffset()) {
+        HFileBlock block = reader.readBlock(offset, -1, /* cacheBlock */ true, /* pread */ false,
+          /* isCompaction */ false, /* updateCacheMetrics */ true, BlockType.DATA, null);
+        assertTrue(block.isUnpacked());
+        offset += block.getOnDiskSizeWithHeader();
+        block.release();
+        count++;
+      }
+      return count;
+    } finally {
+      reader.close(false);
+    }
+  }
+
+  @Test
+  public void testDecompressedBlockCacheServesRepeatedReads() throws Exception {
+    Path hfilePath = new Path(TEST_UTIL.getDataTestDir(),
+      "testDecompressedBlockCacheServesRepeatedReads" + cacheOnWrite);
+    HFileContext context = new HFileContextBuilder()
+      .withCompression(Compression.Algorithm.GZ)
+      .build();
+    Configuration conf = HBaseConfiguration.create(TEST_UTIL.getConfiguration());
+    conf.setBoolean(CacheConfig.CACHE_BLOCKS_ON_WRITE_KEY, cacheOnWrite);
+    conf.setBoolean(CacheConfig.CACHE_DATA_BLOCKS_COMPRESSED_KEY, true);
+    conf.set(HConstants.BUCKET_CACHE_IOENGINE_KEY, "offheap");
+    conf.setInt(HConstants.BUCKET_CACHE_SIZE_KEY, 32);
+    conf.setFloat(BlockCacheFactory.BLOCKCACHE_DECOMPRESSED_RATIO_KEY, 0.1f);
+    BlockCache blockCache = BlockCacheFactory.createBlockCache(conf);
+    try {
+      assertTrue(blockCache instanceof CombinedBlockCache);
+      CombinedBlockCache combinedBlockCache = (CombinedBlockCache) blockCache;
+      BlockCache decompressedCache = blockCache.getDecompressedBlockCache().get();
+      // The decompressed cache is carved out of the on-heap budget
+      assertEquals(MemorySizeUtil.getOnHeapCacheSize(conf),
+        combinedBlockCache.getFirstLevelCache().getMaxSize() + decompressedCache.getMaxSize());
+
+      CacheConfig cc = new CacheConfig(conf, blockCache);
+      writeHFile(conf, cc, fs, hfilePath, context, 2000);
+      int dataBlockCount = readDataBlocks(conf, cc, fs, hfilePath);
+      assertTrue(dataBlockCount > 1);
+      assertEquals(dataBlockCount, decompressedCache.getBlockCount());
+
+      // Repeated reads are served unpacked, without going to the compressed copies
+      CacheStats bucketCacheStats = combinedBlockCache.getBlockCaches()[1].getStats();
+      long bucketCacheRequests = bucketCacheStats.getRequestCount();
+      assertEquals(dataBlockCount, readDataBlocks(conf, cc, fs, hfilePath));
+      assertEquals(dataBlockCount, decompressedCache.getStats().getHitCount());
+      assertEquals(bucketCacheRequests, bucketCacheStats.getRequestCount());
+
+      // Evicting a file also evicts its decompressed blocks
+      blockCache.evictBlocksByHfileName(hfilePath.getName());
+      assertEquals(0, decompressedCache.getBlockCount());
+    } finally {
+      blockCache.shutdown();
+    }
+  }
+
+  @Test
+  public void testCombinedStatsCountDecompressedHits() throws Exception {
+    Path hfilePath = new Path(TEST_UTIL.getDataTestDir(),
+      "testCombinedStatsCountDecompressedHits" + cacheOnWrite);
+    HFileContext context = new HFileContextBuilder()
+      .withCompression(Compression.Algorithm.GZ)
+      .build();
+    Configuration conf = HBaseConfiguration.create(TEST_UTIL.getConfiguration());
+    conf.setBoolean(CacheConfig.CACHE_BLOCKS_ON_WRITE_KEY, cacheOnWrite);
+    conf.setBoolean(CacheConfig.CACHE_DATA_BLOCKS_COMPRESSED_KEY, true);
+    conf.set(HConstants.BUCKET_CACHE_IOENGINE_KEY, "offheap");
+    conf.setInt(HConstants.BUCKET_CACHE_SIZE_KEY, 32);
+    conf.setFloat(BlockCacheFactory.BLOCKCACHE_DECOMPRESSED_RATIO_KEY, 0.1f);
+    BlockCache blockCache = BlockCacheFactory.createBlockCache(conf);
+    try {
+      CacheConfig cc = new CacheConfig(conf, blockCache);
+      writeHFile(conf, cc, fs, hfilePath, context, 2000);
+      CacheStats stats = blockCache.getStats();
+      long hits = stats.getDataHitCount();
+      long misses = stats.getDataMissCount();
+
+      // The first read misses the decompressed cache. Only the lookup that follows it counts.
+      int dataBlockCount = readDataBlocks(conf, cc, fs, hfilePath);
+      assertEquals(cacheOnWrite ? dataBlockCount : 0, stats.getDataHitCount() - hits);
+      assertEquals(cacheOnWrite ? 0 : dataBlockCount, stats.getDataMissCount() - misses);
+
+      // The second read is served by the decompressed cache and counted as hits
+      hits = stats.getDataHitCount();
+      misses = stats.getDataMissCount();
+      assertEquals(dataBlockCount, readDataBlocks(conf, cc, fs, hfilePath));
+      assertEquals(dataBlockCount, stats.getDataHitCount() - hits);
+      assertEquals(0, stats.getDataMissCount() - misses);
+    } finally {
+      blockCache.shutdown();
+    }
+  }
 }
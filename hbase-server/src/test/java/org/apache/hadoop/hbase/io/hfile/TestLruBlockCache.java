@@ -325,6 +325,43 @@ public class TestLruBlockCache {
     }
   }
 
+  @Test
+  public void testSampledEviction() throws Exception {
+    long maxSize = 100000;
+    long blockSize = calculateBlockSizeDefault(maxSize, 10);
+    Configuration conf = HBaseConfiguration.create();
+    conf.setInt(LruBlockCache.LRU_EVICTION_SAMPLE_SIZE_CONFIG_NAME, 16);
+
+    LruBlockCache cache = new LruBlockCache(maxSize, blockSize, true, conf);
+    // Blocks are evicted on the insert path, no thread needed
+    assertNull(cache.getEvictionThread());
+
+    CachedItem [] singleBlocks = generateFixedBlocks(5, 10000, "single");
+    CachedItem [] multiBlocks = generateFixedBlocks(5, 10000, "multi");
+
+    // Add and get the multi blocks
+    for (CachedItem block : multiBlocks) {
+      cache.cacheBlock(block.cacheKey, block);
+      assertEquals(cache.getBlock(block.cacheKey, true, false, true), block);
+    }
+
+    // Add the single blocks (no get), each insert stays under the acceptable limit
+    for (CachedItem block : singleBlocks) {
+      cache.cacheBlock(block.cacheKey, block);
+      assertTrue(cache.heapSize() <= maxSize * LruBlockCache.DEFAULT_ACCEPTABLE_FACTOR);
+    }
+    assertTrue(cache.getStats().getEvictionCount() > 0);
+    // Only runs that evicted a block are counted
+    assertTrue(cache.getStats().getEvictedCount() >= cache.getStats().getEvictionCount());
+
+    // Single access blocks go first, oldest first, and no multi access block is evicted
+    assertNull(cache.getBlock(singleBlocks[0].cacheKey, true, false, true));
+    for (CachedItem block : multiBlocks) {
+      assertEquals(cache.getBlock(block.cacheKey, true, false, true), block);
+    }
+    assertEquals(cache.getBlock(singleBlocks[4].cacheKey, true, false, true), singleBlocks[4]);
+  }
+
   @Test
   public void testCacheEvictionThreePriorities() throws Exception {
 
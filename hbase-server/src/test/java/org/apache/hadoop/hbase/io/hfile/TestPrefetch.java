@@ -17,11 +17,13 @@
  */
 package org.apache.hadoop.hbase.io.hfile;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
@@ -89,6 +91,48 @@ public class TestPrefetch {
     readStoreFile(storeFile);
   }
 
+  @Test
+  public void testPrefetchInRanges() throws Exception {
+    Path storeFile = writeStoreFile("TestPrefetchInRanges");
+    long completedFiles = PrefetchExecutor.getCompletedFileCount();
+    long prefetchedBytes = PrefetchExecutor.getPrefetchedBytes();
+    HFileReaderImpl reader =
+        (HFileReaderImpl) HFile.createReader(fs, storeFile, cacheConf, true, conf);
+    long end = reader.getTrailer().getLoadOnOpenDataOffset();
+    long[] boundaries = reader.getPrefetchRangeBoundaries(4);
+    assertEquals(5, boundaries.length);
+    assertEquals(0, boundaries[0]);
+    assertEquals(end, boundaries[4]);
+    for (int i = 1; i < boundaries.length; i++) {
+      assertTrue(boundaries[i] > boundaries[i - 1]);
+    }
+    // Each range starts at a block
+    for (int i = 0; i < 4; i++) {
+      HFileBlock block =
+          reader.readBlock(boundaries[i], -1, false, true, false, true, BlockType.DATA, null);
+      block.release();
+    }
+    readStoreFile(reader);
+    assertEquals(completedFiles + 1, PrefetchExecutor.getCompletedFileCount());
+    assertTrue(PrefetchExecutor.getPrefetchedBytes() - prefetchedBytes >= end);
+    reader.close(true);
+  }
+
+  @Test
+  public void testPrefetchIoBudget() throws Exception {
+    PrefetchExecutor.setPrefetchBytesPerSecond(1024 * 1024);
+    try {
+      long start = System.nanoTime();
+      for (int i = 0; i < 4; i++) {
+        PrefetchExecutor.acquire(64 * 1024);
+      }
+      // The first read is free, the other three wait for 62.5ms each
+      assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(180));
+    } finally {
+      PrefetchExecutor.setPrefetchBytesPerSecond(0);
+    }
+  }
+
   @Test
   public void testPrefetchRace() throws Exception {
     for (int i = 0; i < 10; i++) {
@@ -116,8 +160,10 @@ public class TestPrefetch {
 
   private void readStoreFile(Path storeFilePath) throws Exception {
     // Open the file
-    HFile.Reader reader = HFile.createReader(fs, storeFilePath, cacheConf, true, conf);
+    readStoreFile(HFile.createReader(fs, storeFilePath, cacheConf, true, conf));
+  }
 
+  private void readStoreFile(HFile.Reader reader) throws Exception {
     while (!reader.prefetchComplete()) {
       // Sleep for a bit
       Thread.sleep(1000);
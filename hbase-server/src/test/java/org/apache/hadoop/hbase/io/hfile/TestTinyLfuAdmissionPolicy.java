@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.io.ByteBuffAllocator;
+import org.apache.hadoop.hbase.io.hfile.bucket.BucketCache;
+import org.apache.hadoop.hbase.nio.ByteBuff;
+import org.apache.hadoop.hbase.testclassification.IOTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ IOTests.class, SmallTests.class })
+public class TestTinyLfuAdmissionPolicy {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestTinyLfuAdmissionPolicy.class);
+
+  private static final int BLOCK_SIZE = 1500;
+
+  private static HFileBlock createBlock(BlockType blockType, int offset) {
+    byte[] content = new byte[BLOCK_SIZE];
+    Arrays.fill(content, (byte) offset);
+    return new HFileBlock(blockType, BLOCK_SIZE, BLOCK_SIZE, -1,
+        ByteBuff.wrap(ByteBuffer.wrap(content)), HFileBlock.FILL_HEADER, offset, 52, BLOCK_SIZE,
+        new HFileContextBuilder().build(), ByteBuffAllocator.HEAP);
+  }
+
+  private static Configuration createConf() {
+    Configuration conf = HBaseConfiguration.create();
+    conf.setClass(BlockCacheFactory.BLOCKCACHE_ADMISSION_POLICY_KEY, TinyLfuAdmissionPolicy.class,
+      BlockCacheAdmissionPolicy.class);
+    return conf;
+  }
+
+  /**
+   * Looks the block up like a reader does, and caches it on a miss.
+   */
+  private static void read(BlockCache cache, BlockCacheKey key, HFileBlock block) {
+    Cacheable cached = cache.getBlock(key, true, false, true);
+    if (cached != null) {
+      cached.release();
+    } else {
+      cache.cacheBlock(key, block);
+    }
+  }
+
+  @Test
+  public void testFrequency() {
+    TinyLfuAdmissionPolicy policy = new TinyLfuAdmissionPolicy(1024, 2);
+    BlockCacheKey key = new BlockCacheKey("f", 0);
+    HFileBlock block = createBlock(BlockType.DATA, 0);
+    assertEquals(0, policy.frequency(key));
+    policy.recordAccess(key);
+    assertEquals(1, policy.frequency(key));
+    assertFalse(policy.admit(key, block));
+    policy.recordAccess(key);
+    assertTrue(policy.admit(key, block));
+    for (int i = 0; i < 20; i++) {
+      policy.recordAccess(key);
+    }
+    assertEquals(15, policy.frequency(key));
+
+    BlockCacheKey indexKey = new BlockCacheKey("f", 1);
+    assertTrue(policy.admit(indexKey, createBlock(BlockType.LEAF_INDEX, 1)));
+  }
+
+  @Test
+  public void testCountersAreHalvedAfterSample() {
+    // A single long of counters, halved after ten recorded lookups.
+    TinyLfuAdmissionPolicy policy = new TinyLfuAdmissionPolicy(1, 2);
+    BlockCacheKey key = new BlockCacheKey("f", 0);
+    for (int i = 0; i < 9; i++) {
+      policy.recordAccess(key);
+    }
+    assertEquals(9, policy.frequency(key));
+    policy.recordAccess(key);
+    assertEquals(5, policy.frequency(key));
+  }
+
+  @Test
+  public void testScanDoesNotEvictHotBlocksFromLruBlockCache() {
+    LruBlockCache cache = new LruBlockCache(100 * 2048, 2048, createConf());
+    try {
+      List<BlockCacheKey> hot = new ArrayList<>();
+      // Below the min size every block is cached.
+      for (int i = 0; cache.getCurrentSize() < cache.getMaxSize() * 0.95; i++) {
+        BlockCacheKey key = new BlockCacheKey("hot", i);
+        read(cache, key, createBlock(BlockType.DATA, i));
+        hot.add(key);
+      }
+      assertEquals(0, cache.getStats().getRejectedCount());
+      for (int i = 0; i < 200; i++) {
+        read(cache, new BlockCacheKey("scan", i), createBlock(BlockType.DATA, i));
+      }
+      assertEquals(200, cache.getStats().getRejectedCount());
+      for (BlockCacheKey key : hot) {
+        assertTrue(cache.containsBlock(key));
+      }
+
+      // Read twice, the block is worth evicting for.
+      BlockCacheKey key = new BlockCacheKey("scan", 0);
+      read(cache, key, createBlock(BlockType.DATA, 0));
+      assertEquals(1, cache.getStats().getAdmittedCount());
+      assertTrue(cache.containsBlock(key));
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testScanIsRejectedByBucketCache() throws Exception {
+    // Eight buckets of four 2KB blocks.
+    BucketCache cache = new BucketCache("offheap", 64 * 1024, 2048, new int[] { 2048 }, 1, 1000,
+        null, BucketCache.DEFAULT_ERROR_TOLERATION_DURATION, createConf());
+    try {
+      for (int i = 0; cache.getCurrentSize() < cache.getMaxSize() * 0.85; i++) {
+        BlockCacheKey key = new BlockCacheKey("hot", i);
+        read(cache, key, createBlock(BlockType.DATA, i));
+        while (cache.getCurrentSize() < (i + 1) * 2048L) {
+          Thread.sleep(10);
+        }
+      }
+      long blockCount = cache.getBlockCount();
+      BlockCacheKey key = new BlockCacheKey("scan", 0);
+      read(cache, key, createBlock(BlockType.DATA, 0));
+      assertEquals(1, cache.getStats().getRejectedCount());
+      assertEquals(blockCount, cache.getBlockCount());
+      assertNull(cache.getBlock(key, true, false, true));
+
+      read(cache, key, createBlock(BlockType.DATA, 0));
+      assertEquals(1, cache.getStats().getAdmittedCount());
+      Cacheable block = cache.getBlock(key, true, false, true);
+      assertNotNull(block);
+      block.release();
+    } finally {
+      cache.shutdown();
+    }
+  }
+}
@@ -22,6 +22,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -29,6 +30,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -40,6 +42,7 @@ import org.apache.hadoop.hbase.HBaseClassTestRule;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.HBaseTestingUtility;
 import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.Waiter;
 import org.apache.hadoop.hbase.io.ByteBuffAllocator;
 import org.apache.hadoop.hbase.io.hfile.BlockCacheKey;
 import org.apache.hadoop.hbase.io.hfile.BlockType;
@@ -49,6 +52,7 @@ import org.apache.hadoop.hbase.io.hfile.Cacheable;
 import org.apache.hadoop.hbase.io.hfile.HFileBlock;
 import org.apache.hadoop.hbase.io.hfile.HFileContext;
 import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.io.hfile.TestBlockCachePartitions;
 import org.apache.hadoop.hbase.io.hfile.bucket.BucketAllocator.BucketSizeInfo;
 import org.apache.hadoop.hbase.io.hfile.bucket.BucketAllocator.IndexStatistics;
 import org.apache.hadoop.hbase.nio.ByteBuff;
@@ -327,6 +331,9 @@ public class TestBucketCache {
               constructedBlockSizes, writeThreads, writerQLen, persistencePath);
       assertFalse(new File(persistencePath).exists());
       assertEquals(usedSize, bucketCache.getAllocator().getUsedSize());
+      // Restored blocks are known by file
+      String hfileName = blocks[0].getBlockName().getHfileName();
+      assertEquals(1, bucketCache.getBlockCountByHfileName(hfileName));
     } finally {
       bucketCache.shutdown();
     }
@@ -598,6 +605,80 @@ public class TestBucketCache {
     assertEquals(1, blockWithoutNextBlockMetadata.getBufferReadOnly().refCnt());
   }
 
+  @Test
+  public void testPartitionStaysWithinShare() throws Exception {
+    Configuration conf = HBaseConfiguration.create();
+    // Eight buckets of four 2KB blocks.
+    BucketCache bucketCache = new BucketCache(ioEngineName, 64 * 1024, 2048, new int[] { 2048 },
+        1, 1000, null, BucketCache.DEFAULT_ERROR_TOLERATION_DURATION, conf);
+    try {
+      bucketCache.setPartitionShare(TestBlockCachePartitions.ANALYTICS, "analytics/f", 0.25f);
+      List<BlockCacheKey> serving = new ArrayList<>();
+      for (int i = 0; i < 12; i++) {
+        BlockCacheKey key = new BlockCacheKey("serving", i);
+        bucketCache.cacheBlock(key, TestBlockCachePartitions.createBlock(i));
+        serving.add(key);
+        waitUntilWritten(bucketCache, key);
+      }
+      long share = (long) (0.25f * bucketCache.acceptableSize());
+      for (int i = 0; i < 40; i++) {
+        BlockCacheKey key = TestBlockCachePartitions.analyticsKey(i);
+        bucketCache.cacheBlock(key, TestBlockCachePartitions.createBlock(i));
+        waitUntilWritten(bucketCache, key);
+        // The writer frees space for the partition after adding the block
+        Waiter.waitFor(conf, 10000, 10, () -> bucketCache.getPartitions()
+            .getSize(TestBlockCachePartitions.ANALYTICS) <= share);
+      }
+      // The analytics blocks only evicted each other
+      for (BlockCacheKey key : serving) {
+        assertTrue(bucketCache.backingMap.containsKey(key));
+      }
+      TestBlockCachePartitions.checkPartitionStats(bucketCache, 39);
+    } finally {
+      bucketCache.shutdown();
+    }
+  }
+
+  @Test
+  public void testRestoredKeysKeepTheirPartition() throws Exception {
+    Path testDir = createAndGetTestDir();
+    String ioEngineName = "file:" + testDir + "/bucket.cache";
+    String persistencePath = testDir + "/bucket.persistence";
+    BucketCache bucketCache = new BucketCache(ioEngineName, capacitySize, constructedBlockSize,
+        constructedBlockSizes, writeThreads, writerQLen, persistencePath);
+    try {
+      for (int i = 0; i < 2; i++) {
+        BlockCacheKey key = TestBlockCachePartitions.analyticsKey(i);
+        bucketCache.cacheBlock(key, TestBlockCachePartitions.createBlock(i));
+        waitUntilWritten(bucketCache, key);
+      }
+      long partitionSize = bucketCache.getPartitions().getSize(TestBlockCachePartitions.ANALYTICS);
+      assertTrue(partitionSize > 0);
+      bucketCache.shutdown();
+      bucketCache = new BucketCache(ioEngineName, capacitySize, constructedBlockSize,
+          constructedBlockSizes, writeThreads, writerQLen, persistencePath);
+      assertEquals(2, bucketCache.backingMap.size());
+      for (BlockCacheKey key : bucketCache.backingMap.keySet()) {
+        assertEquals(TestBlockCachePartitions.ANALYTICS, key.getPartition());
+      }
+      assertEquals(partitionSize,
+        bucketCache.getPartitions().getSize(TestBlockCachePartitions.ANALYTICS));
+      // The restored keys of a file share its name
+      Iterator<BlockCacheKey> keys = bucketCache.backingMap.keySet().iterator();
+      assertSame(keys.next().getHfileName(), keys.next().getHfileName());
+    } finally {
+      bucketCache.shutdown();
+      HBASE_TESTING_UTILITY.cleanupTestDir();
+    }
+  }
+
+  private static void waitUntilWritten(BucketCache cache, BlockCacheKey key)
+      throws InterruptedException {
+    while (cache.ramCache.containsKey(key)) {
+      Thread.sleep(10);
+    }
+  }
+
   @Test
   public void testRAMCache() {
     int size = 100;
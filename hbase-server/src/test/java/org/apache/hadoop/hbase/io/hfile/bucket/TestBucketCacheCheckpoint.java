@@ -0,0 +1,212 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile.bucket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.io.hfile.BlockCacheKey;
+import org.apache.hadoop.hbase.io.hfile.CacheTestUtils;
+import org.apache.hadoop.hbase.io.hfile.CacheTestUtils.HFileBlockPair;
+import org.apache.hadoop.hbase.io.hfile.Cacheable;
+import org.apache.hadoop.hbase.testclassification.IOTests;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests restoring a file backed {@link BucketCache} from the checkpoints it takes while running,
+ * as after a region server dies without a clean shutdown.
+ */
+@Category({ IOTests.class, MediumTests.class })
+public class TestBucketCacheCheckpoint {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestBucketCacheCheckpoint.class);
+
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+
+  private static final int BLOCK_SIZE = 8 * 1024;
+  private static final long CAPACITY = 32 * 1024 * 1024;
+  private static final int[] BUCKET_SIZES = new int[] { 8 * 1024 + 1024, 16 * 1024 + 1024 };
+
+  private String ioEngineName;
+  private String persistencePath;
+  private String dataPath;
+  private Configuration conf;
+
+  @Before
+  public void setUp() throws IOException {
+    Path testDir = TEST_UTIL.getDataTestDir();
+    TEST_UTIL.getTestFileSystem().mkdirs(testDir);
+    dataPath = testDir + "/bucket.cache";
+    ioEngineName = "file:" + dataPath;
+    persistencePath = testDir + "/bucket.persistence";
+    conf = HBaseConfiguration.create();
+    // The tests take the checkpoints themselves.
+    conf.setLong(BucketCache.BUCKETCACHE_PERSIST_INTERVAL_KEY, 60 * 60 * 1000);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    TEST_UTIL.cleanupTestDir();
+  }
+
+  private BucketCache createCache() throws IOException {
+    return new BucketCache(ioEngineName, CAPACITY, BLOCK_SIZE, BUCKET_SIZES, 1, 100,
+        persistencePath, BucketCache.DEFAULT_ERROR_TOLERATION_DURATION, conf);
+  }
+
+  private static void cacheAndWait(BucketCache cache, HFileBlockPair block)
+      throws InterruptedException {
+    cache.cacheBlock(block.getBlockName(), block.getBlock());
+    while (!cache.backingMap.containsKey(block.getBlockName())
+        || cache.ramCache.containsKey(block.getBlockName())) {
+      Thread.sleep(10);
+    }
+  }
+
+  /**
+   * Shuts the cache down but keeps the persistence file as the last checkpoint left it, like a
+   * server that was killed.
+   */
+  private void kill(BucketCache cache) throws IOException {
+    File checkpoint = new File(persistencePath);
+    File saved = new File(persistencePath + ".saved");
+    Files.copy(checkpoint.toPath(), saved.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    cache.shutdown();
+    Files.move(saved.toPath(), checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  @Test
+  public void testRestoreFromCheckpoints() throws Exception {
+    HFileBlockPair[] blocks = CacheTestUtils.generateHFileBlocks(BLOCK_SIZE, 20);
+    BucketCache cache = createCache();
+    for (int i = 0; i < 10; i++) {
+      cacheAndWait(cache, blocks[i]);
+    }
+    // The first checkpoint writes the whole map, the following ones only the changes.
+    cache.checkpoint();
+    long fullSize = new File(persistencePath).length();
+    for (int i = 10; i < 20; i++) {
+      cacheAndWait(cache, blocks[i]);
+    }
+    cache.checkpoint();
+    assertTrue(cache.evictBlock(blocks[0].getBlockName()));
+    cache.checkpoint();
+    assertTrue(new File(persistencePath).length() > fullSize);
+    // Not checkpointed, so lost by the restart.
+    cacheAndWait(cache, CacheTestUtils.generateHFileBlocks(BLOCK_SIZE, 1)[0]);
+    long usedSize = cache.getAllocator().getUsedSize();
+    kill(cache);
+
+    cache = createCache();
+    try {
+      assertEquals(19, cache.backingMap.size());
+      assertEquals(usedSize - cache.getAllocator().getUsedSize(),
+        usedSize / 20);
+      assertNull(cache.getBlock(blocks[0].getBlockName(), false, false, false));
+      for (int i = 1; i < 20; i++) {
+        Cacheable block = cache.getBlock(blocks[i].getBlockName(), false, false, false);
+        assertNotNull(block);
+        try {
+          assertEquals(blocks[i].getBlock(), block);
+        } finally {
+          block.release();
+        }
+        assertFalse(cache.backingMap.get(blocks[i].getBlockName()).isUnverified());
+      }
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testOverwrittenBlockDroppedOnFirstRead() throws Exception {
+    checkOverwrittenBlockDropped((raf, offset, length) -> {
+      raf.seek(offset + 100);
+      raf.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+    });
+  }
+
+  @Test
+  public void testUndecodableBlockDroppedOnFirstRead() throws Exception {
+    // Claim the block has HBase checksums, of a type that does not exist, so that deserializing
+    // it throws a RuntimeException rather than an IOException. The flag is the first byte of the
+    // metadata serialized after the block, the checksum type follows the 24 byte header.
+    checkOverwrittenBlockDropped((raf, offset, length) -> {
+      raf.seek(offset + length - (Bytes.SIZEOF_BYTE + Bytes.SIZEOF_LONG + Bytes.SIZEOF_INT));
+      raf.write(1);
+      raf.seek(offset + 24);
+      raf.write(Byte.MAX_VALUE);
+    });
+  }
+
+  private interface Overwrite {
+    void apply(RandomAccessFile raf, long offset, int length) throws IOException;
+  }
+
+  private void checkOverwrittenBlockDropped(Overwrite overwrite) throws Exception {
+    HFileBlockPair[] blocks = CacheTestUtils.generateHFileBlocks(BLOCK_SIZE, 2);
+    BucketCache cache = createCache();
+    for (HFileBlockPair block : blocks) {
+      cacheAndWait(cache, block);
+    }
+    cache.checkpoint();
+    BucketEntry entry = cache.backingMap.get(blocks[0].getBlockName());
+    kill(cache);
+    try (RandomAccessFile raf = new RandomAccessFile(dataPath, "rw")) {
+      overwrite.apply(raf, entry.offset(), entry.getLength());
+    }
+
+    cache = createCache();
+    try {
+      BlockCacheKey overwritten = blocks[0].getBlockName();
+      assertTrue(cache.backingMap.get(overwritten).isUnverified());
+      assertNull(cache.getBlock(overwritten, false, false, false));
+      assertFalse(cache.backingMap.containsKey(overwritten));
+      Cacheable block = cache.getBlock(blocks[1].getBlockName(), false, false, false);
+      try {
+        assertEquals(blocks[1].getBlock(), block);
+      } finally {
+        block.release();
+      }
+    } finally {
+      cache.shutdown();
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile.bucket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.io.hfile.BlockCacheKey;
+import org.apache.hadoop.hbase.io.hfile.BlockType;
+import org.apache.hadoop.hbase.testclassification.IOTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ IOTests.class, SmallTests.class })
+public class TestCompactBackingMap {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestCompactBackingMap.class);
+
+  private static BucketEntry entry(long offset) {
+    return new BucketEntry(offset << 8, 100, 1L, false);
+  }
+
+  @Test
+  public void testPutGetRemove() {
+    CompactBackingMap map = new CompactBackingMap();
+    BlockCacheKey key = new BlockCacheKey("file", 4096, false, BlockType.LEAF_INDEX, "analytics");
+    BucketEntry first = entry(1);
+    BucketEntry second = entry(2);
+    assertNull(map.put(key, first));
+    assertSame(first, map.get(new BlockCacheKey("file", 4096)));
+    assertNull(map.get(new BlockCacheKey("file", 0)));
+    assertNull(map.get(new BlockCacheKey("other", 4096)));
+    assertSame(first, map.putIfAbsent(key, second));
+    assertSame(first, map.get(key));
+    assertFalse(map.replace(key, second, second));
+    assertTrue(map.replace(key, first, second));
+    assertSame(second, map.get(key));
+    assertFalse(map.remove(key, first));
+    assertEquals(1, map.size());
+
+    // The key is rebuilt with the type, replica and partition of the block
+    BlockCacheKey restored = map.keySet().iterator().next();
+    assertEquals(key, restored);
+    assertEquals(BlockType.LEAF_INDEX, restored.getBlockType());
+    assertFalse(restored.isPrimary());
+    assertEquals("analytics", restored.getPartition());
+
+    assertTrue(map.remove(key, second));
+    assertTrue(map.isEmpty());
+    assertEquals(0, map.size());
+    assertTrue(map.getKeys("file").isEmpty());
+  }
+
+  @Test
+  public void testAgainstHashMap() {
+    CompactBackingMap map = new CompactBackingMap();
+    Map<BlockCacheKey, BucketEntry> expected = new HashMap<>();
+    Random random = new Random(42);
+    for (int i = 0; i < 100000; i++) {
+      BlockCacheKey key =
+          new BlockCacheKey("file" + random.nextInt(4), random.nextInt(2000) * 65536L);
+      if (random.nextInt(3) == 0) {
+        assertSame(expected.remove(key), map.remove(key));
+      } else {
+        BucketEntry value = entry(i);
+        assertSame(expected.put(key, value), map.put(key, value));
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    for (Map.Entry<BlockCacheKey, BucketEntry> e : expected.entrySet()) {
+      assertSame(e.getValue(), map.get(e.getKey()));
+    }
+    assertEquals(expected, new HashMap<>(map));
+    for (int i = 0; i < 4; i++) {
+      String hfileName = "file" + i;
+      List<BlockCacheKey> keys = map.getKeys(hfileName);
+      assertEquals(expected.keySet().stream().filter(k -> k.getHfileName().equals(hfileName))
+          .count(), keys.size());
+      for (BlockCacheKey key : keys) {
+        assertSame(expected.get(key), map.get(key));
+      }
+    }
+  }
+
+  @Test
+  public void testIteratorRemove() {
+    CompactBackingMap map = new CompactBackingMap();
+    for (int i = 0; i < 100; i++) {
+      map.put(new BlockCacheKey("file" + (i % 2), i * 1024L), entry(i));
+    }
+    Iterator<BlockCacheKey> keys = map.keySet().iterator();
+    while (keys.hasNext()) {
+      if (keys.next().getHfileName().equals("file0")) {
+        keys.remove();
+      }
+    }
+    assertEquals(50, map.size());
+    assertTrue(map.getKeys("file0").isEmpty());
+    assertEquals(50, map.getKeys("file1").size());
+    map.clear();
+    assertTrue(map.isEmpty());
+    assertEquals(0, map.size());
+    // A file that left the map can come back
+    map.put(new BlockCacheKey("file1", 0), entry(0));
+    assertEquals(1, map.getKeys("file1").size());
+  }
+}
@@ -0,0 +1,189 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile.bucket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.io.ByteBuffAllocator;
+import org.apache.hadoop.hbase.io.hfile.BlockCache;
+import org.apache.hadoop.hbase.io.hfile.BlockCacheFactory;
+import org.apache.hadoop.hbase.io.hfile.BlockCacheKey;
+import org.apache.hadoop.hbase.io.hfile.BlockType;
+import org.apache.hadoop.hbase.io.hfile.Cacheable;
+import org.apache.hadoop.hbase.io.hfile.CombinedBlockCache;
+import org.apache.hadoop.hbase.io.hfile.HFileBlock;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.nio.ByteBuff;
+import org.apache.hadoop.hbase.testclassification.IOTests;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ IOTests.class, MediumTests.class })
+public class TestTieredBucketCache {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestTieredBucketCache.class);
+
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+
+  private static final int BLOCK_SIZE = 1500;
+  private static final int[] BUCKET_SIZES = new int[] { 2048 };
+  // Room for 32 blocks, so caching 64 forces the hot tier to evict.
+  private static final long HOT_CAPACITY = 64 * 1024;
+  private static final long COLD_CAPACITY = 4 * 1024 * 1024;
+
+  private BucketCache hotCache;
+  private BucketCache coldCache;
+  private TieredBucketCache cache;
+
+  @Before
+  public void setUp() throws IOException {
+    Path testDir = TEST_UTIL.getDataTestDir();
+    TEST_UTIL.getTestFileSystem().mkdirs(testDir);
+    hotCache = new BucketCache("offheap", HOT_CAPACITY, BLOCK_SIZE, BUCKET_SIZES, 1, 1000, null);
+    coldCache = new BucketCache("file:" + testDir + "/bucket.cache", COLD_CAPACITY, BLOCK_SIZE,
+        BUCKET_SIZES, 1, 1000, null);
+    cache = new TieredBucketCache(hotCache, coldCache, 2);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    cache.shutdown();
+    TEST_UTIL.cleanupTestDir();
+  }
+
+  private static HFileBlock createBlock(int offset) {
+    byte[] content = new byte[BLOCK_SIZE];
+    Arrays.fill(content, (byte) offset);
+    return new HFileBlock(BlockType.DATA, BLOCK_SIZE, BLOCK_SIZE, -1,
+        ByteBuff.wrap(ByteBuffer.wrap(content)), HFileBlock.FILL_HEADER, offset, 52, BLOCK_SIZE,
+        new HFileContextBuilder().build(), ByteBuffAllocator.HEAP);
+  }
+
+  private static void waitUntilFlushed(BucketCache bucketCache, BlockCacheKey key)
+      throws InterruptedException {
+    while (!bucketCache.backingMap.containsKey(key) || bucketCache.ramCache.containsKey(key)) {
+      Thread.sleep(10);
+    }
+  }
+
+  private static boolean contains(BucketCache bucketCache, BlockCacheKey key) {
+    return bucketCache.backingMap.containsKey(key) || bucketCache.ramCache.containsKey(key);
+  }
+
+  @Test
+  public void testEvictedBlocksAreDemoted() throws Exception {
+    int blocks = 64;
+    for (int i = 0; i < blocks; i++) {
+      BlockCacheKey key = new BlockCacheKey("f", i);
+      cache.cacheBlock(key, createBlock(i));
+      waitUntilFlushed(hotCache, key);
+    }
+    assertTrue(hotCache.getBlockCount() < blocks);
+    assertTrue(coldCache.getBlockCount() > 0);
+    for (int i = 0; i < blocks; i++) {
+      BlockCacheKey key = new BlockCacheKey("f", i);
+      if (!contains(hotCache, key)) {
+        waitUntilFlushed(coldCache, key);
+      }
+      Cacheable block = cache.getBlock(key, false, false, false);
+      assertNotNull("block " + i + " was dropped", block);
+      try {
+        assertEquals(createBlock(i), block);
+      } finally {
+        block.release();
+      }
+    }
+  }
+
+  @Test
+  public void testBlockPromotedAfterRepeatedHits() throws Exception {
+    BlockCacheKey key = new BlockCacheKey("f", 0);
+    coldCache.cacheBlock(key, createBlock(0));
+    waitUntilFlushed(coldCache, key);
+
+    cache.getBlock(key, true, false, true).release();
+    assertFalse(contains(hotCache, key));
+    // A cold tier hit is counted once, and not as a hot tier miss.
+    assertEquals(1, cache.getStats().getHitCount());
+    assertEquals(0, cache.getStats().getMissCount());
+    // Not caching reads are not counted.
+    cache.getBlock(key, false, false, true).release();
+    assertFalse(contains(hotCache, key));
+
+    cache.getBlock(key, true, false, true).release();
+    waitUntilFlushed(hotCache, key);
+    Cacheable block = cache.getBlock(key, true, false, true);
+    try {
+      assertEquals(createBlock(0), block);
+    } finally {
+      block.release();
+    }
+    assertEquals(1, hotCache.getStats().getHitCount());
+    assertEquals(4, cache.getStats().getHitCount());
+    assertEquals(0, cache.getStats().getMissCount());
+  }
+
+  @Test
+  public void testEvictRemovesBothTiers() throws Exception {
+    BlockCacheKey key = new BlockCacheKey("f", 0);
+    coldCache.cacheBlock(key, createBlock(0));
+    hotCache.cacheBlock(key, createBlock(0));
+    waitUntilFlushed(coldCache, key);
+    waitUntilFlushed(hotCache, key);
+    assertTrue(cache.evictBlock(key));
+    assertFalse(contains(hotCache, key));
+    assertFalse(contains(coldCache, key));
+  }
+
+  @Test
+  public void testCreatedByFactory() throws IOException {
+    Configuration conf = TEST_UTIL.getConfiguration();
+    conf.set(HConstants.BUCKET_CACHE_IOENGINE_KEY, "offheap");
+    conf.setInt(HConstants.BUCKET_CACHE_SIZE_KEY, 32);
+    conf.set(BlockCacheFactory.BUCKET_CACHE_TIER2_IOENGINE_KEY,
+      "file:" + TEST_UTIL.getDataTestDir() + "/tier2.cache");
+    conf.setInt(BlockCacheFactory.BUCKET_CACHE_TIER2_SIZE_KEY, 64);
+    BlockCache blockCache = BlockCacheFactory.createBlockCache(conf);
+    try {
+      assertTrue(blockCache instanceof CombinedBlockCache);
+      BlockCache l2 = blockCache.getBlockCaches()[1];
+      assertTrue(l2 instanceof TieredBucketCache);
+      assertEquals(96L * 1024 * 1024, l2.getMaxSize());
+    } finally {
+      blockCache.shutdown();
+    }
+  }
+}
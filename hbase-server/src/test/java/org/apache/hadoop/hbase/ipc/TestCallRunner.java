@@ -17,10 +17,13 @@
  */
 package org.apache.hadoop.hbase.ipc;
 
+import java.net.InetAddress;
+
 import org.apache.hadoop.hbase.HBaseClassTestRule;
 import org.apache.hadoop.hbase.monitoring.MonitoredRPCHandlerImpl;
 import org.apache.hadoop.hbase.testclassification.RPCTests;
 import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Pair;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -45,4 +48,40 @@ public class TestCallRunner {
     cr.setStatus(new MonitoredRPCHandlerImpl());
     cr.run();
   }
+
+  @Test
+  public void testSuspendedCallIsNotAnswered() throws Exception {
+    RpcServerInterface mockRpcServer = Mockito.mock(RpcServerInterface.class);
+    Mockito.when(mockRpcServer.isStarted()).thenReturn(true);
+    ServerCall mockCall = mockCall();
+    // The service suspended the call and returned null
+    Mockito.when(mockRpcServer.call(Mockito.any(), Mockito.any())).thenReturn(null);
+    Mockito.when(mockCall.isSuspended()).thenReturn(true);
+    CallRunner cr = new CallRunner(mockRpcServer, mockCall);
+    cr.setStatus(new MonitoredRPCHandlerImpl());
+    cr.run();
+    Mockito.verify(mockCall, Mockito.never()).cleanup();
+    Mockito.verify(mockCall, Mockito.never()).setResponse(Mockito.any(), Mockito.any(),
+      Mockito.any(), Mockito.any());
+    Mockito.verify(mockCall, Mockito.never()).sendResponseIfReady();
+
+    // Once resumed, the call runs to completion
+    mockCall = mockCall();
+    Mockito.when(mockCall.isSuspended()).thenReturn(true);
+    Mockito.when(mockRpcServer.call(Mockito.any(), Mockito.any()))
+        .thenReturn(new Pair<>(null, null));
+    cr = new CallRunner(mockRpcServer, mockCall);
+    cr.setStatus(new MonitoredRPCHandlerImpl());
+    cr.run();
+    Mockito.verify(mockCall).cleanup();
+    Mockito.verify(mockCall).sendResponseIfReady();
+  }
+
+  private static ServerCall mockCall() {
+    ServerCall mockCall = Mockito.mock(ServerCall.class);
+    Mockito.when(mockCall.disconnectSince()).thenReturn(-1L);
+    Mockito.when(mockCall.getDeadline()).thenReturn(Long.MAX_VALUE);
+    Mockito.when(mockCall.getRemoteAddress()).thenReturn(InetAddress.getLoopbackAddress());
+    return mockCall;
+  }
 }
@@ -173,13 +173,14 @@ public class CreateRandomStoreFile {
           BLOOM_FILTER_OPTION));
     }
 
-    if (bloomType == BloomType.ROWPREFIX_FIXED_LENGTH) {
+    if (bloomType == BloomType.ROWPREFIX_FIXED_LENGTH
+        || bloomType == BloomType.ROWPREFIX_DELIMITED) {
       if (!cmdLine.hasOption(BLOOM_FILTER_PARAM_OPTION)) {
         LOG.error("the parameter of bloom filter is not specified");
         return false;
       } else {
-        conf.set(BloomFilterUtil.PREFIX_LENGTH_KEY,
-            cmdLine.getOptionValue(BLOOM_FILTER_PARAM_OPTION));
+        conf.set(bloomType == BloomType.ROWPREFIX_FIXED_LENGTH ? BloomFilterUtil.PREFIX_LENGTH_KEY
+            : BloomFilterUtil.DELIMITER_KEY, cmdLine.getOptionValue(BLOOM_FILTER_PARAM_OPTION));
       }
     }
 
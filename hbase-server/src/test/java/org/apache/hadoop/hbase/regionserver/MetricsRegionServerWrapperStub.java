@@ -315,6 +315,16 @@ public class MetricsRegionServerWrapperStub implements MetricsRegionServerWrappe
     return 36;
   }
 
+  @Override
+  public long getBlockCacheAdmittedCount() {
+    return 437;
+  }
+
+  @Override
+  public long getBlockCacheRejectedCount() {
+    return 438;
+  }
+
   @Override
   public long getL1CacheHitCount() {
     return 200;
@@ -355,6 +365,51 @@ public class MetricsRegionServerWrapperStub implements MetricsRegionServerWrappe
     return 10;
   }
 
+  @Override
+  public double getL1CacheEvictionTimeMean() {
+    return 40;
+  }
+
+  @Override
+  public double getL1CacheEvictionTime99thPercentile() {
+    return 400;
+  }
+
+  @Override
+  public double getL2CacheEvictionTimeMean() {
+    return 50;
+  }
+
+  @Override
+  public double getL2CacheEvictionTime99thPercentile() {
+    return 500;
+  }
+
+  @Override
+  public long getPrefetchPendingFiles() {
+    return 60;
+  }
+
+  @Override
+  public long getPrefetchCompletedFiles() {
+    return 600;
+  }
+
+  @Override
+  public long getPrefetchedBytes() {
+    return 6000;
+  }
+
+  @Override
+  public long getParallelSeekCount() {
+    return 70;
+  }
+
+  @Override
+  public long getParallelSeekTimeSaved() {
+    return 700;
+  }
+
   @Override
   public long getUpdatesBlockedTime() {
     return 419;
@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.SortedSet;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.util.MemorySizeUtil;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.ClassSize;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({RegionServerTests.class, SmallTests.class})
+public class TestCellChunkSkipListMap {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestCellChunkSkipListMap.class);
+
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+
+  private final Configuration conf = HBaseConfiguration.create();
+  private MemStoreLAB mslab;
+  private CellChunkSkipListMap map;
+
+  @Before
+  public void setUp() {
+    long globalMemStoreLimit = (long) (ManagementFactory.getMemoryMXBean().getHeapMemoryUsage()
+        .getMax() * MemorySizeUtil.getGlobalMemStoreHeapPercent(conf, false));
+    ChunkCreator.initialize(MemStoreLABImpl.CHUNK_SIZE_DEFAULT, false, globalMemStoreLimit, 0.2f,
+      MemStoreLAB.POOL_INITIAL_SIZE_DEFAULT, null);
+    conf.setBoolean(MemStoreLAB.USEMSLAB_KEY, true);
+    mslab = new MemStoreLABImpl(conf);
+    map = new CellChunkSkipListMap(CellComparator.getInstance(), mslab);
+  }
+
+  @After
+  public void tearDown() {
+    mslab.close();
+  }
+
+  private Cell cell(int row, long seqId) {
+    KeyValue kv = new KeyValue(Bytes.toBytes(String.format("row%05d", row)), FAMILY, QUALIFIER,
+        row, Bytes.toBytes(row));
+    kv.setSequenceId(seqId);
+    return mslab.copyCellInto(kv);
+  }
+
+  private void put(Cell cell) {
+    map.put(cell, cell);
+  }
+
+  private static void assertCell(Cell expected, Cell actual) {
+    assertEquals(0, CellComparator.getInstance().compare(expected, actual));
+    assertEquals(expected.getSequenceId(), actual.getSequenceId());
+  }
+
+  @Test
+  public void testPutGetRemove() {
+    assertTrue(map.isEmpty());
+    assertNull(map.firstEntry());
+    assertNull(map.get(cell(1, 1)));
+    for (int i = 100; i > 0; i--) {
+      assertNull(map.put(cell(i, 1), cell(i, 1)));
+    }
+    assertEquals(100, map.size());
+    assertCell(cell(1, 1), map.firstKey());
+    assertCell(cell(100, 1), map.lastKey());
+    assertCell(cell(50, 1), map.get(cell(50, 1)));
+    // Newer versions of a key sort first
+    put(cell(50, 2));
+    assertEquals(101, map.size());
+    assertCell(cell(50, 2), map.higherKey(cell(49, 1)));
+    assertCell(cell(50, 1), map.higherKey(cell(50, 2)));
+
+    // The same key and sequence id overwrites
+    Cell replacing = cell(50, 1);
+    assertCell(cell(50, 1), map.put(replacing, replacing));
+    assertEquals(101, map.size());
+
+    assertCell(cell(50, 1), map.remove(cell(50, 1)));
+    assertNull(map.remove(cell(50, 1)));
+    assertNull(map.get(cell(50, 1)));
+    assertEquals(100, map.size());
+    assertCell(cell(51, 1), map.higherKey(cell(50, 2)));
+    assertCell(cell(50, 2), map.lowerKey(cell(51, 1)));
+    // A removed key can be added again
+    assertNull(map.put(cell(50, 1), cell(50, 1)));
+    assertCell(cell(50, 1), map.get(cell(50, 1)));
+    assertEquals(101, map.size());
+
+    map.remove(cell(1, 1));
+    map.remove(cell(100, 1));
+    assertCell(cell(2, 1), map.firstKey());
+    assertCell(cell(99, 1), map.lastKey());
+    map.clear();
+    assertTrue(map.isEmpty());
+  }
+
+  @Test
+  public void testViews() {
+    for (int i = 1; i <= 10; i++) {
+      put(cell(i, 1));
+    }
+    NavigableMap<Cell, Cell> tail = map.tailMap(cell(4, 1), false);
+    assertEquals(6, tail.size());
+    assertCell(cell(5, 1), tail.firstKey());
+    NavigableMap<Cell, Cell> sub = tail.headMap(cell(8, 1), true);
+    assertEquals(4, sub.size());
+    assertCell(cell(8, 1), sub.lastKey());
+    assertNull(sub.get(cell(9, 1)));
+    assertNull(sub.ceilingKey(cell(9, 1)));
+    assertCell(cell(5, 1), sub.ceilingKey(cell(2, 1)));
+
+    NavigableMap<Cell, Cell> descending = sub.descendingMap();
+    assertCell(cell(8, 1), descending.firstKey());
+    assertCell(cell(5, 1), descending.lastKey());
+    assertCell(cell(6, 1), descending.higherKey(cell(7, 1)));
+    List<Cell> cells = new ArrayList<>(descending.values());
+    assertEquals(4, cells.size());
+    for (int i = 0; i < 4; i++) {
+      assertCell(cell(8 - i, 1), cells.get(i));
+    }
+    // The head of a descending map is at the end of the natural order
+    assertEquals(2, descending.headMap(cell(6, 1), false).size());
+  }
+
+  @Test
+  public void testIteratorRemove() {
+    for (int i = 1; i <= 10; i++) {
+      put(cell(i, 1));
+    }
+    Iterator<Cell> it = map.values().iterator();
+    while (it.hasNext()) {
+      Cell cell = it.next();
+      if (Bytes.toInt(cell.getValueArray(), cell.getValueOffset()) % 2 == 0) {
+        it.remove();
+      }
+    }
+    assertEquals(5, map.size());
+    Iterator<Cell> descending = map.descendingMap().values().iterator();
+    for (int i = 9; i > 0; i -= 2) {
+      assertCell(cell(i, 1), descending.next());
+    }
+    assertFalse(descending.hasNext());
+  }
+
+  @Test
+  public void testConcurrentPuts() throws Exception {
+    int threadCount = 4;
+    int cellsPerThread = 20000;
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < threadCount; t++) {
+      int first = t;
+      threads.add(new Thread(() -> {
+        for (int i = first; i < threadCount * cellsPerThread; i += threadCount) {
+          put(cell(i, 1));
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    int i = 0;
+    for (Cell cell : map.values()) {
+      assertCell(cell(i++, 1), cell);
+    }
+    assertEquals(threadCount * cellsPerThread, i);
+  }
+
+  @Test
+  public void testSegment() {
+    conf.setBoolean(MemStoreLAB.CHUNK_SKIPLIST_KEY, true);
+    MemStoreSizing sizing = new NonThreadSafeMemStoreSizing();
+    MutableSegment segment = SegmentFactory.instance()
+        .createMutableSegment(conf, CellComparator.getInstance(), sizing);
+    assertTrue(segment.getCellSet().isIndexOnChunks());
+    byte[] row = Bytes.toBytes("row");
+    // Cells not copied into the MSLAB yet, as for upserts and big cells
+    for (long ts = 1; ts <= 3; ts++) {
+      KeyValue kv = new KeyValue(row, FAMILY, QUALIFIER, ts, Bytes.toBytes(ts));
+      kv.setSequenceId(ts);
+      segment.upsert(kv, ts, sizing, false);
+    }
+    // The upserts removed all versions but the two latest
+    SortedSet<Cell> cells = segment.getCellSet();
+    assertEquals(2, cells.size());
+    assertEquals(3, cells.first().getTimestamp());
+    assertEquals(2, cells.last().getTimestamp());
+    assertEquals(2, segment.getCellsCount());
+    // The index is accounted for by the chunks it took, not by entry
+    long indexChunksSize = segment.getCellSet().getIndexChunksSize();
+    assertTrue(indexChunksSize > 0);
+    long heapSize = MutableSegment.DEEP_OVERHEAD + indexChunksSize;
+    for (Cell cell : cells) {
+      heapSize += ClassSize.align(cell.heapSize());
+    }
+    assertEquals(heapSize, segment.getHeapSize());
+    assertEquals(0, segment.getOffHeapSize());
+    assertEquals(heapSize, sizing.getHeapSize());
+    segment.getMemStoreLAB().close();
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({RegionServerTests.class, SmallTests.class})
+public class TestCellShardedMap {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestCellShardedMap.class);
+
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final int SHARDS = 4;
+
+  private NavigableMap<Cell, Cell>[] shards;
+  private CellShardedMap map;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    shards = new NavigableMap[SHARDS];
+    for (int i = 0; i < SHARDS; i++) {
+      shards[i] = new ConcurrentSkipListMap<>(CellComparator.getInstance());
+    }
+    map = new CellShardedMap(CellComparator.getInstance(), shards);
+  }
+
+  private static Cell cell(int row) {
+    return new KeyValue(Bytes.toBytes(String.format("row%05d", row)), FAMILY, QUALIFIER, row,
+        Bytes.toBytes(row));
+  }
+
+  /**
+   * Puts the rows, each from the thread of its shard, a row modulo the number of shards.
+   */
+  private void putFromThreads(int rows) throws InterruptedException {
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < SHARDS; t++) {
+      int first = t;
+      threads.add(new Thread(() -> {
+        for (int i = first; i < rows; i += SHARDS) {
+          map.put(cell(i), cell(i));
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  @Test
+  public void testMergedOrder() throws Exception {
+    assertTrue(map.isEmpty());
+    assertNull(map.firstEntry());
+    putFromThreads(1000);
+    int used = 0;
+    for (NavigableMap<Cell, Cell> shard : shards) {
+      used += shard.isEmpty() ? 0 : 1;
+    }
+    assertTrue(used > 1);
+    assertEquals(1000, map.size());
+    int i = 0;
+    for (Cell cell : map.values()) {
+      assertEquals(0, CellComparator.getInstance().compare(cell(i++), cell));
+    }
+    assertEquals(1000, i);
+    i = 999;
+    for (Cell cell : map.descendingMap().values()) {
+      assertEquals(0, CellComparator.getInstance().compare(cell(i--), cell));
+    }
+
+    assertEquals(cell(0), map.firstKey());
+    assertEquals(cell(999), map.lastKey());
+    assertEquals(cell(500), map.get(cell(500)));
+    assertEquals(cell(501), map.higherKey(cell(500)));
+    assertEquals(cell(499), map.lowerKey(cell(500)));
+    assertEquals(cell(500), map.ceilingKey(cell(500)));
+    NavigableMap<Cell, Cell> sub = map.subMap(cell(10), false, cell(20), true);
+    assertEquals(10, sub.size());
+    assertEquals(cell(11), sub.firstKey());
+    assertEquals(cell(20), sub.descendingMap().firstKey());
+    assertEquals(cell(19), sub.descendingMap().higherKey(cell(20)));
+    assertEquals(cell(5), map.headMap(cell(5), true).lastKey());
+    assertEquals(cell(995), map.tailMap(cell(995), true).firstKey());
+  }
+
+  @Test
+  public void testRemove() throws Exception {
+    putFromThreads(100);
+    // A key in two shards is shown once
+    shards[0].put(cell(1), cell(1));
+    shards[1].put(cell(1), cell(1));
+    List<Cell> cells = new ArrayList<>(map.values());
+    assertEquals(100, cells.size());
+
+    assertEquals(cell(1), map.remove(cell(1)));
+    assertNull(map.get(cell(1)));
+    Iterator<Cell> it = map.tailMap(cell(50), true).values().iterator();
+    while (it.hasNext()) {
+      it.next();
+      it.remove();
+    }
+    assertEquals(49, map.size());
+    assertEquals(cell(49), map.lastKey());
+    assertFalse(map.containsKey(cell(50)));
+    map.clear();
+    assertTrue(map.isEmpty());
+  }
+
+  @Test
+  public void testFlattening() throws Exception {
+    Configuration conf = HBaseConfiguration.create();
+    conf.setBoolean(MemStoreLAB.USEMSLAB_KEY, false);
+    MemStoreSizing sizing = new NonThreadSafeMemStoreSizing();
+    MutableSegment active = SegmentFactory.instance()
+        .createMutableSegment(conf, CellComparator.getInstance(), sizing, SHARDS);
+    for (int i = 0; i < 100; i++) {
+      active.add(cell(i), false, sizing, false);
+    }
+    CSLMImmutableSegment immutable =
+        (CSLMImmutableSegment) SegmentFactory.instance().createImmutableSegment(active, sizing);
+    ImmutableSegment flat = SegmentFactory.instance().createImmutableSegmentByFlattening(
+      immutable, CompactingMemStore.IndexType.ARRAY_MAP, sizing,
+      MemStoreCompactionStrategy.Action.FLATTEN);
+    assertEquals(100, flat.getCellsCount());
+    int i = 0;
+    for (Cell cell : flat.getCellSet()) {
+      assertEquals(0, CellComparator.getInstance().compare(cell(i++), cell));
+    }
+  }
+}
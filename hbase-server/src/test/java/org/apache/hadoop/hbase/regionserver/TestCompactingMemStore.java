@@ -771,6 +771,60 @@ public class TestCompactingMemStore extends TestDefaultMemStore {
     memstore.clearSnapshot(snapshot.getId());
   }
 
+  @Test
+  public void testIncrementalCompaction() throws IOException {
+    MemoryCompactionPolicy compactionType = MemoryCompactionPolicy.EAGER;
+    memstore.getConfiguration().set(CompactingMemStore.COMPACTING_MEMSTORE_TYPE_KEY,
+        String.valueOf(compactionType));
+    memstore.getConfiguration().setDouble(
+        MemStoreCompactionStrategy.COMPACTING_MEMSTORE_INCREMENTAL_RATIO_KEY, 1.0);
+    ((MyCompactingMemStore) memstore).initiateType(compactionType, memstore.getConfiguration());
+    String[] keys1 = { "A", "B", "C", "D", "E", "F", "A", "B" };
+    String[] keys2 = { "A", "B" };
+
+    addRowsByKeys(memstore, keys1);
+    ((CompactingMemStore) memstore).flushInMemory(); // push keys to pipeline and compact
+    VersionedSegmentsList segments = ((CompactingMemStore) memstore).getImmutableSegments();
+    assertEquals(1, segments.getNumOfSegments());
+    assertEquals(6, segments.getNumOfCells());
+    ImmutableSegment oldest = segments.getStoreSegments().get(0);
+
+    // The new segment is much smaller than the old one, it is compacted alone
+    addRowsByKeys(memstore, keys2);
+    ((CompactingMemStore) memstore).flushInMemory();
+    segments = ((CompactingMemStore) memstore).getImmutableSegments();
+    assertEquals(2, segments.getNumOfSegments());
+    assertEquals(2, segments.getStoreSegments().get(0).getCellsCount());
+    assertTrue(oldest == segments.getStoreSegments().get(1));
+
+    // The two young segments are of the same size and are compacted together, leaving the
+    // oldest one as it is and at the tail of the pipeline
+    addRowsByKeys(memstore, keys2);
+    ((CompactingMemStore) memstore).flushInMemory();
+    segments = ((CompactingMemStore) memstore).getImmutableSegments();
+    assertEquals(2, segments.getNumOfSegments());
+    assertEquals(2, segments.getStoreSegments().get(0).getCellsCount());
+    assertTrue(oldest == segments.getStoreSegments().get(1));
+
+    // Without the ratio all the segments are compacted into one
+    memstore.getConfiguration().setDouble(
+        MemStoreCompactionStrategy.COMPACTING_MEMSTORE_INCREMENTAL_RATIO_KEY, 0);
+    ((MyCompactingMemStore) memstore).initiateType(compactionType, memstore.getConfiguration());
+    addRowsByKeys(memstore, keys2);
+    ((CompactingMemStore) memstore).flushInMemory();
+    segments = ((CompactingMemStore) memstore).getImmutableSegments();
+    assertEquals(1, segments.getNumOfSegments());
+    assertEquals(6, segments.getNumOfCells());
+
+    MemStoreSize mss = memstore.getFlushableSize();
+    MemStoreSnapshot snapshot = memstore.snapshot(); // push keys to snapshot
+    // simulate flusher
+    region.decrMemStoreSize(mss);
+    assertEquals(6, memstore.getSnapshot().getCellsCount());
+    assertEquals(0, regionServicesForStores.getMemStoreSize());
+    memstore.clearSnapshot(snapshot.getId());
+  }
+
   @Test
   public void testMagicCompaction3Buckets() throws IOException {
 
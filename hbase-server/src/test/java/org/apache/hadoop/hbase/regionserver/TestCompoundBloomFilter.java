@@ -53,6 +53,7 @@ import org.apache.hadoop.hbase.testclassification.RegionServerTests;
 import org.apache.hadoop.hbase.util.BloomFilterFactory;
 import org.apache.hadoop.hbase.util.BloomFilterUtil;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.XorFilterChunk;
 import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -167,6 +168,26 @@ public class TestCompoundBloomFilter {
     }
   }
 
+  @Test
+  public void testCompoundBlockedBloomFilter() throws IOException {
+    conf.setBoolean(BloomFilterFactory.IO_STOREFILE_BLOOM_BLOCKED, true);
+    try {
+      testCompoundBloomFilter();
+    } finally {
+      conf.unset(BloomFilterFactory.IO_STOREFILE_BLOOM_BLOCKED);
+    }
+  }
+
+  @Test
+  public void testCompoundXorFilter() throws IOException {
+    conf.setBoolean(BloomFilterFactory.IO_STOREFILE_BLOOM_XOR, true);
+    try {
+      testCompoundBloomFilter();
+    } finally {
+      conf.unset(BloomFilterFactory.IO_STOREFILE_BLOOM_XOR);
+    }
+  }
+
   /**
    * Validates the false positive ratio by computing its z-value and comparing
    * it to the provided threshold.
@@ -182,6 +203,10 @@ public class TestCompoundBloomFilter {
   private void validateFalsePosRate(double falsePosRate, int nTrials,
       double zValueBoundary, CompoundBloomFilter cbf, String additionalMsg) {
     double p = BloomFilterFactory.getErrorRate(conf);
+    if (cbf.isXor()) {
+      // XOR filters round the error rate down to a power of two
+      p = Math.pow(2, -XorFilterChunk.computeFingerprintBits(p));
+    }
     double zValue = (falsePosRate - p) / Math.sqrt(p * (1 - p) / nTrials);
 
     String assortedStatsStr = " (targetErrorRate=" + p + ", falsePosRate="
@@ -231,6 +256,9 @@ public class TestCompoundBloomFilter {
         String fakeLookupModeStr = ", fake lookup is " + (fakeLookupEnabled ?
             "enabled" : "disabled");
         CompoundBloomFilter cbf = (CompoundBloomFilter) r.getGeneralBloomFilter();
+        assertEquals(BloomFilterFactory.isBloomBlocked(conf) && !BloomFilterFactory.isBloomXor(
+          conf), cbf.isBlocked());
+        assertEquals(BloomFilterFactory.isBloomXor(conf), cbf.isXor());
         cbf.enableTestingStats();
         int numFalsePos = 0;
         Random rand = new Random(EVALUATION_SEED);
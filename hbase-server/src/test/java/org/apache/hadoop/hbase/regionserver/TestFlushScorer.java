@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import java.util.Collections;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.ManualEnvironmentEdge;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ RegionServerTests.class, SmallTests.class })
+public class TestFlushScorer {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestFlushScorer.class);
+
+  private static final long NOW = 10 * 3600000L;
+  private static final long FLUSH_SIZE = 128 * 1024 * 1024;
+
+  @BeforeClass
+  public static void setUp() {
+    ManualEnvironmentEdge edge = new ManualEnvironmentEdge();
+    edge.setValue(NOW);
+    EnvironmentEdgeManager.injectEdge(edge);
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    EnvironmentEdgeManager.reset();
+  }
+
+  private static HRegion region(long memStoreSize, long oldestEdit, int storeFiles) {
+    HStore store = mock(HStore.class);
+    doReturn(oldestEdit).when(store).timeOfOldestEdit();
+    doReturn(storeFiles).when(store).getStorefilesCount();
+    doReturn(16L).when(store).getBlockingFileCount();
+    HRegion region = mock(HRegion.class);
+    doReturn(Collections.singletonList(store)).when(region).getStores();
+    doReturn(FLUSH_SIZE).when(region).getMemStoreFlushSize();
+    doReturn(memStoreSize).when(region).getMemStoreDataSize();
+    return region;
+  }
+
+  @Test
+  public void testScore() {
+    Configuration conf = HBaseConfiguration.create();
+    assertNull(FlushScorer.create(conf));
+    conf.setBoolean(FlushScorer.FLUSH_PRIORITY_ENABLED_KEY, true);
+    FlushScorer scorer = FlushScorer.create(conf);
+
+    // Half the flush size, an edit of half an hour ago and 4 of 16 blocking store files
+    assertEquals(0.5 + 0.5 - 0.25,
+      scorer.score(region(FLUSH_SIZE / 2, NOW - 1800000, 4)), 0.0001);
+    // An empty memstore
+    assertEquals(0, scorer.score(region(0, Long.MAX_VALUE, 0)), 0.0);
+
+    HRegion big = region(FLUSH_SIZE, NOW - 60000, 2);
+    HRegion tiny = region(1024, NOW - 60000, 2);
+    HRegion pinning = region(1024, NOW - 3 * 3600000, 2);
+    HRegion manyFiles = region(FLUSH_SIZE, NOW - 60000, 15);
+    assertTrue(scorer.score(big) > scorer.score(tiny));
+    assertTrue(scorer.score(pinning) > scorer.score(big));
+    assertTrue(scorer.score(big) > scorer.score(manyFiles));
+
+    conf.setFloat(FlushScorer.WAL_AGE_WEIGHT_KEY, 0.1f);
+    scorer = FlushScorer.create(conf);
+    assertTrue(scorer.score(big) > scorer.score(pinning));
+  }
+}
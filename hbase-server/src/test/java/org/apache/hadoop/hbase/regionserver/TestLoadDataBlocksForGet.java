@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.io.hfile.BlockCache;
+import org.apache.hadoop.hbase.io.hfile.BlockCacheFactory;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ RegionServerTests.class, MediumTests.class })
+public class TestLoadDataBlocksForGet {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestLoadDataBlocksForGet.class);
+
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final int NUM_ROWS = 10;
+
+  private HRegion region;
+
+  @Before
+  public void setUp() throws IOException {
+    Configuration conf = TEST_UTIL.getConfiguration();
+    // Keeps the store files apart
+    conf.setInt("hbase.hstore.compactionThreshold", 10000);
+    BlockCache blockCache = BlockCacheFactory.createBlockCache(conf);
+    TableDescriptor td = TableDescriptorBuilder.newBuilder(TableName.valueOf("TestLoadForGet"))
+        .setColumnFamily(ColumnFamilyDescriptorBuilder.newBuilder(FAMILY).setBlocksize(1).build())
+        .build();
+    RegionInfo info = RegionInfoBuilder.newBuilder(td.getTableName()).build();
+    Path path = TEST_UTIL.getDataTestDir("TestLoadDataBlocksForGet");
+    region = HBaseTestingUtility.createRegionAndWAL(info, path, conf, td, blockCache);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    HBaseTestingUtility.closeRegionAndWAL(region);
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes("row-" + i);
+  }
+
+  /**
+   * Flushes a store file holding all the rows, at the given timestamp.
+   */
+  private void flushFile(long ts) throws IOException {
+    for (int i = 0; i < NUM_ROWS; i++) {
+      region.put(new Put(row(i)).addColumn(FAMILY, QUALIFIER, ts, Bytes.toBytes(ts)));
+    }
+    region.flush(true);
+  }
+
+  private int countCached(byte[] row) throws IOException {
+    int cached = 0;
+    for (HStoreFile sf : region.getStore(FAMILY).getStorefiles()) {
+      if (sf.getReader().isDataBlockCached(row)) {
+        cached++;
+      }
+    }
+    return cached;
+  }
+
+  @Test
+  public void testSingleMissIsLeftToTheGet() throws IOException {
+    flushFile(100);
+    assertTrue(region.loadDataBlocksForGet(new Get(row(5))).isDone());
+    assertEquals(0, countCached(row(5)));
+
+    flushFile(200);
+    // The block of the first file is cached, one miss is left
+    region.get(new Get(row(5)).setTimeRange(0, 150));
+    assertEquals(1, countCached(row(5)));
+    List<StoreFileReader> readers = new ArrayList<>();
+    region.getStore(FAMILY).addReadersMissingCache(new Scan(new Get(row(5))), readers);
+    assertEquals(1, readers.size());
+    readers.forEach(StoreFileReader::readCompleted);
+    assertTrue(region.loadDataBlocksForGet(new Get(row(5))).isDone());
+    assertEquals(1, countCached(row(5)));
+  }
+
+  @Test
+  public void testMissesLoadedForTheFilesTheGetReads() throws IOException {
+    flushFile(100);
+    flushFile(200);
+    flushFile(300);
+    assertEquals(0, countCached(row(5)));
+
+    // The file at 300 is out of the time range of the get
+    region.loadDataBlocksForGet(new Get(row(5)).setTimeRange(0, 250)).join();
+    assertEquals(2, countCached(row(5)));
+    for (HStoreFile sf : region.getStore(FAMILY).getStorefiles()) {
+      assertEquals(sf.getMaximumTimestamp().getAsLong() < 250,
+        sf.getReader().isDataBlockCached(row(5)));
+    }
+    assertTrue(region.get(new Get(row(5))).containsColumn(FAMILY, QUALIFIER));
+  }
+}
@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import java.util.Collections;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.regionserver.MemStoreFlusher.FlushRegionEntry;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ RegionServerTests.class, SmallTests.class })
+public class TestMemStoreFlusher {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestMemStoreFlusher.class);
+
+  private static final long FLUSH_SIZE = 128 * 1024 * 1024;
+
+  private static HRegion region(String name, long memStoreSize) {
+    HStore store = mock(HStore.class);
+    doReturn(Long.MAX_VALUE).when(store).timeOfOldestEdit();
+    doReturn(16L).when(store).getBlockingFileCount();
+    HRegion region = mock(HRegion.class);
+    doReturn(RegionInfoBuilder.newBuilder(TableName.valueOf(name)).build()).when(region)
+        .getRegionInfo();
+    doReturn(Collections.singletonList(store)).when(region).getStores();
+    doReturn(FLUSH_SIZE).when(region).getMemStoreFlushSize();
+    doReturn(memStoreSize).when(region).getMemStoreDataSize();
+    return region;
+  }
+
+  private static void assertPolled(HRegion expected, MemStoreFlusher flusher)
+      throws InterruptedException {
+    assertEquals(new FlushRegionEntry(expected, false, FlushLifeCycleTracker.DUMMY).toString(),
+      flusher.pollFlushQueue().toString());
+  }
+
+  @Test
+  public void testDueRequestsFlushedByScore() throws InterruptedException {
+    Configuration conf = HBaseConfiguration.create();
+    conf.setBoolean(FlushScorer.FLUSH_PRIORITY_ENABLED_KEY, true);
+    conf.setLong(HConstants.THREAD_WAKE_FREQUENCY, 100);
+    HRegionServer server = mock(HRegionServer.class);
+    doReturn(mock(RegionServerAccounting.class)).when(server).getRegionServerAccounting();
+    MemStoreFlusher flusher = new MemStoreFlusher(conf, server);
+
+    HRegion small = region("small", FLUSH_SIZE / 8);
+    HRegion medium = region("medium", FLUSH_SIZE / 2);
+    HRegion big = region("big", FLUSH_SIZE);
+    // Scores highest, but is not due yet
+    HRegion delayed = region("delayed", 2 * FLUSH_SIZE);
+    flusher.requestFlush(small, false, FlushLifeCycleTracker.DUMMY);
+    flusher.requestFlush(medium, false, FlushLifeCycleTracker.DUMMY);
+    flusher.requestFlush(big, false, FlushLifeCycleTracker.DUMMY);
+    flusher.requestDelayedFlush(delayed, 60000, false);
+    assertEquals(4, flusher.getFlushQueueSize());
+
+    assertPolled(big, flusher);
+    // The others went back to the queue and are still known to be queued, as is the selected
+    // region until its flush is done
+    assertEquals(3, flusher.getFlushQueueSize());
+    for (HRegion region : new HRegion[] { small, medium, big }) {
+      assertFalse(flusher.requestFlush(region, false, FlushLifeCycleTracker.DUMMY));
+    }
+    assertFalse(flusher.requestDelayedFlush(delayed, 0, false));
+    assertEquals(3, flusher.getFlushQueueSize());
+
+    assertPolled(medium, flusher);
+    assertPolled(small, flusher);
+    assertNull(flusher.pollFlushQueue());
+    assertEquals(1, flusher.getFlushQueueSize());
+  }
+}
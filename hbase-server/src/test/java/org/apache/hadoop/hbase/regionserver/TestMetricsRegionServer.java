@@ -108,6 +108,8 @@ public class TestMetricsRegionServer {
     HELPER.assertGauge("blockCacheCountHitPercent", 98, serverSource);
     HELPER.assertGauge("blockCacheExpressHitPercent", 97, serverSource);
     HELPER.assertCounter("blockCacheFailedInsertionCount", 36, serverSource);
+    HELPER.assertCounter("blockCacheAdmittedCount", 437, serverSource);
+    HELPER.assertCounter("blockCacheRejectedCount", 438, serverSource);
     HELPER.assertGauge("l1CacheHitCount", 200, serverSource);
     HELPER.assertGauge("l1CacheMissCount", 100, serverSource);
     HELPER.assertGauge("l1CacheHitRatio", 80, serverSource);
@@ -116,6 +118,15 @@ public class TestMetricsRegionServer {
     HELPER.assertGauge("l2CacheMissCount", 200, serverSource);
     HELPER.assertGauge("l2CacheHitRatio", 90, serverSource);
     HELPER.assertGauge("l2CacheMissRatio", 10, serverSource);
+    HELPER.assertGauge("l1CacheEvictionTimeMean", 40, serverSource);
+    HELPER.assertGauge("l1CacheEvictionTime99thPercentile", 400, serverSource);
+    HELPER.assertGauge("l2CacheEvictionTimeMean", 50, serverSource);
+    HELPER.assertGauge("l2CacheEvictionTime99thPercentile", 500, serverSource);
+    HELPER.assertGauge("prefetchPendingFiles", 60, serverSource);
+    HELPER.assertCounter("prefetchCompletedFiles", 600, serverSource);
+    HELPER.assertCounter("prefetchedBytes", 6000, serverSource);
+    HELPER.assertCounter("parallelSeekCount", 70, serverSource);
+    HELPER.assertCounter("parallelSeekTimeSaved", 700, serverSource);
     HELPER.assertCounter("updatesBlockedTime", 419, serverSource);
   }
 
@@ -199,6 +210,10 @@ public class TestMetricsRegionServer {
     HELPER.assertCounter("flushOutputSize_num_ops", 2, serverSource);
     HELPER.assertCounter("flushedMemstoreBytes", 22, serverSource);
     HELPER.assertCounter("flushedOutputBytes", 33, serverSource);
+
+    rsm.updateFlushStores(10, 25);
+    HELPER.assertCounter("flushStoresTime_num_ops", 1, serverSource);
+    HELPER.assertCounter("flushStoresCpuTime_num_ops", 1, serverSource);
   }
 
   @Test
@@ -0,0 +1,212 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.PrivateCellUtil;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.io.hfile.BlockCache;
+import org.apache.hadoop.hbase.io.hfile.BlockCacheFactory;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ RegionServerTests.class, MediumTests.class })
+public class TestParallelSeekExecutor {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestParallelSeekExecutor.class);
+
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final int NUM_FILES = 4;
+  private static final int NUM_ROWS = 10;
+
+  private HRegion region;
+  private ParallelSeekExecutor executor;
+
+  @Before
+  public void setUp() throws IOException {
+    Configuration conf = TEST_UTIL.getConfiguration();
+    // Keeps the store files apart
+    conf.setInt("hbase.hstore.compactionThreshold", 10000);
+    BlockCache blockCache = BlockCacheFactory.createBlockCache(conf);
+    TableDescriptor td = TableDescriptorBuilder.newBuilder(TableName.valueOf("TestParallelSeek"))
+        .setColumnFamily(ColumnFamilyDescriptorBuilder.newBuilder(FAMILY).setBlocksize(1).build())
+        .build();
+    RegionInfo info = RegionInfoBuilder.newBuilder(td.getTableName()).build();
+    Path path = TEST_UTIL.getDataTestDir("TestParallelSeekExecutor");
+    region = HBaseTestingUtility.createRegionAndWAL(info, path, conf, td, blockCache);
+    executor = new ParallelSeekExecutor(conf);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    executor.shutdown();
+    HBaseTestingUtility.closeRegionAndWAL(region);
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes("row-" + i);
+  }
+
+  private List<StoreFileScanner> getScanners() throws IOException {
+    return StoreFileScanner.getScannersForStoreFiles(region.getStore(FAMILY).getStorefiles(),
+      true, true, false, false, Long.MAX_VALUE);
+  }
+
+  @Test
+  public void testSeeksMissingTheCacheRunInParallel() throws Exception {
+    for (int f = 0; f < NUM_FILES; f++) {
+      for (int i = 0; i < NUM_ROWS; i++) {
+        region.put(new Put(row(i)).addColumn(FAMILY, QUALIFIER, Bytes.toBytes(f)));
+      }
+      region.flush(true);
+    }
+    Cell key = PrivateCellUtil.createFirstOnRow(row(5));
+
+    List<StoreFileScanner> scanners = getScanners();
+    assertEquals(NUM_FILES, scanners.size());
+    for (StoreFileScanner scanner : scanners) {
+      assertFalse(scanner.isSeekCached(key));
+    }
+    executor.seek(scanners, key);
+    assertEquals(1, executor.getParallelSeekCount());
+    for (StoreFileScanner scanner : scanners) {
+      assertTrue(CellUtil.matchingRows(scanner.peek(), row(5)));
+      scanner.close();
+    }
+
+    // The blocks are cached now, the scanners are sought one after the other
+    scanners = getScanners();
+    for (StoreFileScanner scanner : scanners) {
+      assertTrue(scanner.isSeekCached(key));
+    }
+    executor.seek(scanners, key);
+    assertEquals(1, executor.getParallelSeekCount());
+    for (StoreFileScanner scanner : scanners) {
+      assertTrue(CellUtil.matchingRows(scanner.peek(), row(5)));
+      scanner.close();
+    }
+  }
+
+  @Test
+  public void testNoLookupOnceTwoMissesAreOutOfReach() throws Exception {
+    Cell key = PrivateCellUtil.createFirstOnRow(row(5));
+    StoreFileScanner single = mock(StoreFileScanner.class);
+    executor.seek(Arrays.asList(single, mock(KeyValueScanner.class)), key);
+    verify(single, never()).isSeekCached(key);
+    verify(single).seek(key);
+
+    StoreFileScanner first = mock(StoreFileScanner.class);
+    StoreFileScanner second = mock(StoreFileScanner.class);
+    StoreFileScanner third = mock(StoreFileScanner.class);
+    when(first.isSeekCached(key)).thenReturn(true);
+    when(second.isSeekCached(key)).thenReturn(true);
+    executor.seek(Arrays.asList(first, second, third), key);
+    verify(third, never()).isSeekCached(key);
+    verify(first).seek(key);
+    verify(second).seek(key);
+    verify(third).seek(key);
+    assertEquals(0, executor.getParallelSeekCount());
+  }
+
+  @Test
+  public void testShutdownWhileSeeksAreQueued() throws Exception {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setInt(ParallelSeekExecutor.PARALLEL_SEEK_THREADS_KEY, 1);
+    ParallelSeekExecutor singleThreaded = new ParallelSeekExecutor(conf);
+    Cell key = PrivateCellUtil.createFirstOnRow(row(5));
+    // The first seek holds the only thread of the pool until it is interrupted, the others queue
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch interrupted = new CountDownLatch(1);
+    StoreFileScanner first = mock(StoreFileScanner.class);
+    doAnswer(invocation -> {
+      started.countDown();
+      try {
+        new CountDownLatch(1).await();
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+      }
+      return true;
+    }).when(first).seek(key);
+    StoreFileScanner second = mock(StoreFileScanner.class);
+    StoreFileScanner third = mock(StoreFileScanner.class);
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    Thread seeker = new Thread(() -> {
+      try {
+        singleThreaded.seek(Arrays.asList(first, second, third), key);
+      } catch (Throwable t) {
+        error.set(t);
+      }
+    });
+    seeker.start();
+    // Waiting for the queued seeks
+    started.await();
+    TEST_UTIL.waitFor(10000, () -> seeker.getState() == Thread.State.WAITING);
+    singleThreaded.shutdown();
+    seeker.join(10000);
+    assertFalse(seeker.isAlive());
+    assertNull(error.get());
+    assertEquals(0, interrupted.getCount());
+    // The queued seeks ran in the calling thread
+    verify(second).seek(key);
+    verify(third).seek(key);
+
+    // Once shut down, the callers seek themselves
+    StoreFileScanner fourth = mock(StoreFileScanner.class);
+    StoreFileScanner fifth = mock(StoreFileScanner.class);
+    singleThreaded.seek(Arrays.asList(fourth, fifth), key);
+    verify(fourth).seek(key);
+    verify(fifth).seek(key);
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.DroppedSnapshotException;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.monitoring.MonitoredTask;
+import org.apache.hadoop.hbase.regionserver.throttle.ThroughputController;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+@Category({ RegionServerTests.class, MediumTests.class })
+public class TestParallelStoreFlush {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestParallelStoreFlush.class);
+
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+  private static final int FAMILY_COUNT = 6;
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+
+  @Rule
+  public TestName name = new TestName();
+
+  private static byte[] family(int i) {
+    return Bytes.toBytes("f" + i);
+  }
+
+  private static CountDownLatch slowFlushStarted;
+  private static CountDownLatch flushFailed;
+  private static AtomicBoolean slowFlushInterrupted;
+  private static AtomicBoolean slowFlushDone;
+
+  /**
+   * Fails the first flush of its store once the first flush of {@link SlowStoreFlusher} started.
+   */
+  public static class FailingStoreFlusher extends DefaultStoreFlusher {
+
+    public FailingStoreFlusher(Configuration conf, HStore store) {
+      super(conf, store);
+    }
+
+    @Override
+    public List<Path> flushSnapshot(MemStoreSnapshot snapshot, long cacheFlushId,
+        MonitoredTask status, ThroughputController throughputController,
+        FlushLifeCycleTracker tracker) throws IOException {
+      if (flushFailed.getCount() > 0) {
+        try {
+          slowFlushStarted.await();
+        } catch (InterruptedException e) {
+          throw (InterruptedIOException) new InterruptedIOException().initCause(e);
+        }
+        flushFailed.countDown();
+        throw new IOException("Injected failure");
+      }
+      return super.flushSnapshot(snapshot, cacheFlushId, status, throughputController, tracker);
+    }
+  }
+
+  /**
+   * Keeps writing the first flush of its store for a second after {@link FailingStoreFlusher}
+   * failed.
+   */
+  public static class SlowStoreFlusher extends DefaultStoreFlusher {
+
+    public SlowStoreFlusher(Configuration conf, HStore store) {
+      super(conf, store);
+    }
+
+    @Override
+    public List<Path> flushSnapshot(MemStoreSnapshot snapshot, long cacheFlushId,
+        MonitoredTask status, ThroughputController throughputController,
+        FlushLifeCycleTracker tracker) throws IOException {
+      if (slowFlushStarted.getCount() == 0) {
+        return super.flushSnapshot(snapshot, cacheFlushId, status, throughputController, tracker);
+      }
+      slowFlushStarted.countDown();
+      try {
+        flushFailed.await();
+        Thread.sleep(1000);
+      } catch (InterruptedException e) {
+        slowFlushInterrupted.set(true);
+        throw (InterruptedIOException) new InterruptedIOException().initCause(e);
+      }
+      List<Path> paths =
+          super.flushSnapshot(snapshot, cacheFlushId, status, throughputController, tracker);
+      slowFlushDone.set(true);
+      return paths;
+    }
+  }
+
+  private HRegion createRegion(Configuration conf) throws IOException {
+    return createRegion(conf, new ColumnFamilyDescriptor[0]);
+  }
+
+  /**
+   * Creates a region with {@link #FAMILY_COUNT} families, the first ones described by the given
+   * descriptors.
+   */
+  private HRegion createRegion(Configuration conf, ColumnFamilyDescriptor... families)
+      throws IOException {
+    TableName tableName = TableName.valueOf(name.getMethodName());
+    TableDescriptorBuilder builder = TableDescriptorBuilder.newBuilder(tableName);
+    for (int i = 0; i < FAMILY_COUNT; i++) {
+      builder.setColumnFamily(
+        i < families.length ? families[i] : ColumnFamilyDescriptorBuilder.of(family(i)));
+    }
+    RegionInfo info = RegionInfoBuilder.newBuilder(tableName).build();
+    Path path = TEST_UTIL.getDataTestDir(name.getMethodName());
+    return HBaseTestingUtility.createRegionAndWAL(info, path, conf, builder.build());
+  }
+
+  private void checkFlush(Configuration conf) throws IOException {
+    HRegion region = createRegion(conf);
+    try {
+      for (int row = 0; row < 100; row++) {
+        Put put = new Put(Bytes.toBytes(row));
+        for (int i = 0; i < FAMILY_COUNT; i++) {
+          put.addColumn(family(i), QUALIFIER, Bytes.toBytes(row * FAMILY_COUNT + i));
+        }
+        region.put(put);
+      }
+      region.flush(true);
+      assertEquals(0, region.getMemStoreDataSize());
+      for (HStore store : region.getStores()) {
+        assertEquals(1, store.getStorefilesCount());
+        assertEquals(0, store.getMemStoreSize().getDataSize());
+      }
+      for (int row = 0; row < 100; row++) {
+        Result result = region.get(new Get(Bytes.toBytes(row)));
+        for (int i = 0; i < FAMILY_COUNT; i++) {
+          assertArrayEquals(Bytes.toBytes(row * FAMILY_COUNT + i),
+            result.getValue(family(i), QUALIFIER));
+        }
+      }
+    } finally {
+      HBaseTestingUtility.closeRegionAndWAL(region);
+    }
+  }
+
+  @Test
+  public void testSequentialFlush() throws IOException {
+    checkFlush(new Configuration(TEST_UTIL.getConfiguration()));
+  }
+
+  @Test
+  public void testParallelFlush() throws IOException {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setInt(HRegion.FLUSH_STORES_THREADS_MAX_KEY, 4);
+    checkFlush(conf);
+  }
+
+  @Test
+  public void testParallelFlushFailure() throws IOException {
+    slowFlushStarted = new CountDownLatch(1);
+    flushFailed = new CountDownLatch(1);
+    slowFlushInterrupted = new AtomicBoolean();
+    slowFlushDone = new AtomicBoolean();
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setInt(HRegion.FLUSH_STORES_THREADS_MAX_KEY, FAMILY_COUNT);
+    HRegion region = createRegion(conf,
+      ColumnFamilyDescriptorBuilder.newBuilder(family(0))
+          .setConfiguration(DefaultStoreEngine.DEFAULT_STORE_FLUSHER_CLASS_KEY,
+            FailingStoreFlusher.class.getName())
+          .build(),
+      ColumnFamilyDescriptorBuilder.newBuilder(family(1))
+          .setConfiguration(DefaultStoreEngine.DEFAULT_STORE_FLUSHER_CLASS_KEY,
+            SlowStoreFlusher.class.getName())
+          .build());
+    try {
+      Put put = new Put(Bytes.toBytes(0));
+      for (int i = 0; i < FAMILY_COUNT; i++) {
+        put.addColumn(family(i), QUALIFIER, Bytes.toBytes(i));
+      }
+      region.put(put);
+      try {
+        region.flush(true);
+        fail("The flush of " + Bytes.toString(family(0)) + " should have failed");
+      } catch (DroppedSnapshotException e) {
+        assertEquals("Injected failure", e.getCause().getCause().getMessage());
+      }
+      // The flush failed only once the flush still in progress was done
+      assertTrue(slowFlushDone.get());
+      assertFalse(slowFlushInterrupted.get());
+    } finally {
+      HBaseTestingUtility.closeRegionAndWAL(region);
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({RegionServerTests.class, SmallTests.class})
+public class TestRingBufferMultiVersionConcurrencyControl {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestRingBufferMultiVersionConcurrencyControl.class);
+
+  @Test
+  public void testSimpleMvccOps() {
+    MultiVersionConcurrencyControl mvcc = new RingBufferMultiVersionConcurrencyControl();
+    long readPoint = mvcc.getReadPoint();
+    MultiVersionConcurrencyControl.WriteEntry writeEntry = mvcc.begin();
+    mvcc.completeAndWait(writeEntry);
+    assertEquals(readPoint + 1, mvcc.getReadPoint());
+    writeEntry = mvcc.begin();
+    mvcc.complete(writeEntry);
+    assertEquals(readPoint + 2, mvcc.getWritePoint());
+    assertEquals(readPoint + 2, mvcc.getReadPoint());
+  }
+
+  @Test
+  public void testOutOfOrderCompletion() {
+    MultiVersionConcurrencyControl mvcc = new RingBufferMultiVersionConcurrencyControl(10);
+    MultiVersionConcurrencyControl.WriteEntry first = mvcc.begin();
+    MultiVersionConcurrencyControl.WriteEntry second = mvcc.begin();
+    MultiVersionConcurrencyControl.WriteEntry third = mvcc.begin();
+    assertFalse(mvcc.complete(third));
+    assertFalse(mvcc.complete(second));
+    assertEquals(10, mvcc.getReadPoint());
+    assertTrue(mvcc.complete(first));
+    assertEquals(13, mvcc.getReadPoint());
+  }
+
+  @Test
+  public void testAdvanceTo() {
+    MultiVersionConcurrencyControl mvcc = new RingBufferMultiVersionConcurrencyControl();
+    mvcc.completeAndWait(mvcc.begin());
+    mvcc.advanceTo(1000);
+    assertEquals(1000, mvcc.getReadPoint());
+    assertEquals(1000, mvcc.getWritePoint());
+    MultiVersionConcurrencyControl.WriteEntry e = mvcc.begin();
+    assertEquals(1001, e.getWriteNumber());
+    assertTrue(mvcc.complete(e));
+    assertEquals(1001, mvcc.getReadPoint());
+  }
+
+  @Test
+  public void testGrowWithOutstandingWrites() {
+    RingBufferMultiVersionConcurrencyControl mvcc = new RingBufferMultiVersionConcurrencyControl();
+    int outstanding = RingBufferMultiVersionConcurrencyControl.INITIAL_CAPACITY * 3;
+    List<MultiVersionConcurrencyControl.WriteEntry> entries = new ArrayList<>();
+    for (int i = 0; i < outstanding; i++) {
+      MultiVersionConcurrencyControl.WriteEntry e = mvcc.begin();
+      entries.add(e);
+      // Complete every other write so some completions have to survive the grow.
+      if (i % 2 == 1) {
+        mvcc.complete(e);
+      }
+    }
+    assertTrue(mvcc.getCapacity() >= outstanding);
+    assertEquals(0, mvcc.getReadPoint());
+    for (int i = 0; i < outstanding; i += 2) {
+      mvcc.complete(entries.get(i));
+    }
+    assertEquals(outstanding, mvcc.getReadPoint());
+    assertEquals(outstanding, mvcc.getWritePoint());
+  }
+
+  @Test
+  public void testConcurrentWriters() throws Exception {
+    MultiVersionConcurrencyControl mvcc = new RingBufferMultiVersionConcurrencyControl();
+    AtomicBoolean finished = new AtomicBoolean(false);
+    AtomicBoolean readerFailed = new AtomicBoolean(false);
+    int writers = 16;
+    ExecutorService pool = Executors.newFixedThreadPool(writers + 1);
+    try {
+      Future<?> reader = pool.submit(() -> {
+        long prev = mvcc.getReadPoint();
+        while (!finished.get()) {
+          long current = mvcc.getReadPoint();
+          if (current < prev) {
+            readerFailed.set(true);
+            return;
+          }
+          prev = current;
+        }
+      });
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < writers; i++) {
+        futures.add(pool.submit(() -> {
+          for (int n = 0; n < 20000; n++) {
+            MultiVersionConcurrencyControl.WriteEntry e = mvcc.begin();
+            if (ThreadLocalRandom.current().nextInt(100) == 0) {
+              Thread.yield();
+            }
+            mvcc.completeAndWait(e);
+            assertTrue(mvcc.getReadPoint() >= e.getWriteNumber());
+          }
+        }));
+      }
+      for (Future<?> f : futures) {
+        f.get(2, TimeUnit.MINUTES);
+      }
+      finished.set(true);
+      reader.get();
+    } finally {
+      pool.shutdownNow();
+    }
+    assertFalse(readerFailed.get());
+    assertEquals(mvcc.getWritePoint(), mvcc.getReadPoint());
+    assertEquals(writers * 20000L, mvcc.getReadPoint());
+  }
+}
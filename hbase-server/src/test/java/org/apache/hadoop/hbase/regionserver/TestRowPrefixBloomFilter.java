@@ -85,6 +85,7 @@ public class TestRowPrefixBloomFilter {
   private static final int suffixRowCount = 10;
   private static final int fixedLengthExpKeys = prefixRowCount;
   private static final BloomType bt = BloomType.ROWPREFIX_FIXED_LENGTH;
+  private static final String delimiter = "#";
 
   @Rule
   public TestName name = new TestName();
@@ -95,6 +96,7 @@ public class TestRowPrefixBloomFilter {
     conf.setFloat(BloomFilterFactory.IO_STOREFILE_BLOOM_ERROR_RATE, err);
     conf.setBoolean(BloomFilterFactory.IO_STOREFILE_BLOOM_ENABLED, true);
     conf.setInt(BloomFilterUtil.PREFIX_LENGTH_KEY, prefixLength);
+    conf.set(BloomFilterUtil.DELIMITER_KEY, delimiter);
 
     localfs =
         (conf.get("fs.defaultFS", "file:///").compareTo("file:///") == 0);
@@ -176,7 +178,7 @@ public class TestRowPrefixBloomFilter {
 
   private String generateRowWithSuffix(String prefixRow, int suffix) {
     StringBuilder row = new StringBuilder(prefixRow);
-    row.append("#");
+    row.append(delimiter);
     row.append(String.format(suffixFormatter, suffix));
     return row.toString();
   }
@@ -357,4 +359,66 @@ public class TestRowPrefixBloomFilter {
     reader.close(true); // evict because we are about to delete the file
     fs.delete(f, true);
   }
+
+  @Test
+  public void testRowPrefixDelimitedBloomFilter() throws Exception {
+    FileSystem fs = FileSystem.getLocal(conf);
+    // The prefixes of the valid rows and the invalid rows
+    int expKeys = prefixRowCount;
+    // write the file
+    Path f = new Path(testDir, name.getMethodName());
+    writeStoreFile(f, BloomType.ROWPREFIX_DELIMITED, expKeys);
+
+    StoreFileReader reader =
+        new StoreFileReader(fs, f, cacheConf, true, new AtomicInteger(0), true, conf);
+    reader.loadFileInfo();
+    reader.loadBloomfilter();
+
+    //check basic param
+    assertEquals(BloomType.ROWPREFIX_DELIMITED, reader.getBloomFilterType());
+    assertEquals(delimiter, Bytes.toString(reader.getDelimiter()));
+    assertEquals(expKeys, reader.getGeneralBloomFilter().getKeyCount());
+    StoreFileScanner scanner = getStoreFileScanner(reader);
+    HStore store = mock(HStore.class);
+    when(store.getColumnFamilyDescriptor()).thenReturn(ColumnFamilyDescriptorBuilder.of("family"));
+
+    // Get, prefix row in bloom and not in bloom
+    String inPrefix = String.format(prefixFormatter, prefixRowCount - 2) + delimiter;
+    String outPrefix = String.format(prefixFormatter, prefixRowCount - 1) + delimiter;
+    Scan scan = new Scan(new Get(Bytes.toBytes(inPrefix + "x")));
+    assertTrue(scanner.shouldUseScanner(scan, store, Long.MIN_VALUE));
+    scan = new Scan(new Get(Bytes.toBytes(outPrefix + "x")));
+    assertFalse(scanner.shouldUseScanner(scan, store, Long.MIN_VALUE));
+
+    // Get with a row without the delimiter, the whole row is the key
+    scan = new Scan(new Get(Bytes.toBytes(String.format(invalidFormatter, prefixRowCount + 2))));
+    assertTrue(scanner.shouldUseScanner(scan, store, Long.MIN_VALUE));
+    scan = new Scan(new Get(Bytes.toBytes(String.format(invalidFormatter, prefixRowCount + 1))));
+    assertFalse(scanner.shouldUseScanner(scan, store, Long.MIN_VALUE));
+
+    // Prefix scans, of the whole prefix or of some rows with it
+    scan = new Scan().setRowPrefixFilter(Bytes.toBytes(inPrefix));
+    assertTrue(scanner.shouldUseScanner(scan, store, Long.MIN_VALUE));
+    scan = new Scan().setRowPrefixFilter(Bytes.toBytes(outPrefix));
+    assertFalse(scanner.shouldUseScanner(scan, store, Long.MIN_VALUE));
+    scan = new Scan().setRowPrefixFilter(Bytes.toBytes(outPrefix + "0"));
+    assertFalse(scanner.shouldUseScanner(scan, store, Long.MIN_VALUE));
+    scan = new Scan().withStartRow(Bytes.toBytes(outPrefix + "1"))
+        .withStopRow(Bytes.toBytes(outPrefix + "0")).setReversed(true);
+    assertFalse(scanner.shouldUseScanner(scan, store, Long.MIN_VALUE));
+
+    // The rows of the scan can have other prefixes
+    scan = new Scan().withStartRow(Bytes.toBytes(outPrefix));
+    assertTrue(scanner.shouldUseScanner(scan, store, Long.MIN_VALUE));
+    scan = new Scan().withStartRow(Bytes.toBytes(outPrefix))
+        .withStopRow(Bytes.toBytes(String.format(prefixFormatter, prefixRowCount)));
+    assertTrue(scanner.shouldUseScanner(scan, store, Long.MIN_VALUE));
+    String rowWithoutDelimiter = String.format(prefixFormatter, prefixRowCount - 1);
+    scan = new Scan().withStartRow(Bytes.toBytes(rowWithoutDelimiter))
+        .withStopRow(Bytes.toBytes(outPrefix + "x"));
+    assertTrue(scanner.shouldUseScanner(scan, store, Long.MIN_VALUE));
+
+    reader.close(true); // evict because we are about to delete the file
+    fs.delete(f, true);
+  }
 }
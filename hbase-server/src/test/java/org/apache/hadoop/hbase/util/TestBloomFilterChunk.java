@@ -23,6 +23,7 @@ import java.nio.ByteBuffer;
 import junit.framework.TestCase;
 import org.apache.hadoop.hbase.HBaseClassTestRule;
 import org.apache.hadoop.hbase.nio.MultiByteBuff;
+import org.apache.hadoop.hbase.regionserver.BloomType;
 import org.apache.hadoop.hbase.testclassification.MiscTests;
 import org.apache.hadoop.hbase.testclassification.SmallTests;
 import org.junit.ClassRule;
@@ -188,6 +189,56 @@ public class TestBloomFilterChunk extends TestCase {
     assertEquals(640, BloomFilterUtil.computeFoldableByteSize(5001, 4));
   }
 
+  public void testBlockedBloom() {
+    for (int hashType : new int[] { Hash.MURMUR_HASH, Hash.JENKINS_HASH, Hash.MURMUR_HASH3,
+        Hash.XXHASH64 }) {
+      float err = (float) 0.01;
+      BloomFilterChunk b =
+          BloomFilterUtil.createBySize(16 * 1000, err, hashType, 3, BloomType.ROW, true);
+      b.allocBloom();
+      assertTrue(b.isBlocked());
+      // Rounded up to a size that can be folded three times by whole blocks
+      assertEquals(16 * 1024, b.getByteSize());
+      // Some blocks get more keys than others
+      assertTrue(b.getMaxKeys() < BloomFilterUtil.computeMaxKeys(16 * 1024 * 8, err, b.hashCount));
+      for (int i = 0; i < 4000; ++i) {
+        byte[] ib = Bytes.toBytes(i);
+        b.add(ib, 0, ib.length);
+      }
+      b.compactBloom();
+      assertEquals(8 * 1024, b.getByteSize());
+
+      int falsePositives = 0;
+      for (int i = 0; i < 100 * 1000; ++i) {
+        byte[] bytes = Bytes.toBytes(i);
+        if (BloomFilterUtil.contains(bytes, 0, bytes.length, new MultiByteBuff(b.bloom), 0,
+            (int) b.byteSize, b.hash, b.hashCount, true)) {
+          if (i >= 4000) {
+            falsePositives++;
+          }
+        } else {
+          assertFalse(i < 4000);
+        }
+      }
+      assertTrue("hash type " + hashType + ": " + falsePositives,
+        falsePositives <= 100 * 1000 * err);
+    }
+  }
+
+  public void testXXHash64() {
+    Hash hash = Hash.getInstance(Hash.XXHASH64);
+    assertEquals(0xEF46DB3751D8E999L, hash64(hash, ""));
+    assertEquals(0xD24EC4F1A98C6E5BL, hash64(hash, "a"));
+    assertEquals(0x44BC2CF5AD770999L, hash64(hash, "abc"));
+    assertEquals(0xFBCEA83C8A378BF1L, hash64(hash, "Nobody inspects the spammish repetition"));
+    assertEquals(Hash.XXHASH64, Hash.parseHashType("xxhash64"));
+  }
+
+  private static long hash64(Hash hash, String s) {
+    byte[] bytes = Bytes.toBytes(s);
+    return hash.hash64(new ByteArrayHashKey(bytes, 0, bytes.length), 0);
+  }
+
 
 }
 
@@ -0,0 +1,121 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.nio.ByteBuff;
+import org.apache.hadoop.hbase.regionserver.BloomType;
+import org.apache.hadoop.hbase.testclassification.MiscTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ MiscTests.class, SmallTests.class })
+public class TestXorFilterChunk {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestXorFilterChunk.class);
+
+  private static XorFilterChunk createFilter(int fingerprintBits, int keyCount) {
+    XorFilterChunk filter =
+        new XorFilterChunk(Hash.MURMUR_HASH3, BloomType.ROW, fingerprintBits, keyCount);
+    filter.allocBloom();
+    for (int i = 0; i < keyCount; i++) {
+      byte[] key = Bytes.toBytes(i);
+      filter.add(key, 0, key.length);
+    }
+    filter.compactBloom();
+    return filter;
+  }
+
+  private static boolean contains(XorFilterChunk filter, int i) {
+    byte[] key = Bytes.toBytes(i);
+    return XorFilterChunk.contains(key, 0, key.length, ByteBuff.wrap(filter.bloom), 0,
+      filter.hash, filter.getHashCount());
+  }
+
+  @Test
+  public void testFalsePositiveRate() {
+    int keyCount = 100 * 1000;
+    for (int fingerprintBits : new int[] { 4, 7, 8, 13 }) {
+      XorFilterChunk filter = createFilter(fingerprintBits, keyCount);
+      for (int i = 0; i < keyCount; i++) {
+        assertTrue(contains(filter, i));
+      }
+      int falsePositives = 0;
+      for (int i = keyCount; i < 3 * keyCount; i++) {
+        if (contains(filter, i)) {
+          falsePositives++;
+        }
+      }
+      double errorRate = Math.pow(2, -fingerprintBits);
+      assertEquals(errorRate, filter.actualErrorRate(), 0);
+      // Within four standard deviations
+      double expected = 2 * keyCount * errorRate;
+      assertTrue(fingerprintBits + " bits: " + falsePositives,
+        falsePositives < expected + 4 * Math.sqrt(expected));
+
+      // A sixth smaller than a Bloom filter with the same error rate
+      long bloomByteSize = BloomFilterUtil.computeBitSize(keyCount, errorRate) / 8;
+      assertTrue(filter.getByteSize() < bloomByteSize * 0.85);
+      assertEquals(filter.getByteSize(), filter.bloom.limit());
+    }
+  }
+
+  @Test
+  public void testSmallFilters() {
+    for (int keyCount = 1; keyCount < 100; keyCount++) {
+      XorFilterChunk filter = createFilter(8, keyCount);
+      for (int i = 0; i < keyCount; i++) {
+        assertTrue(contains(filter, i));
+      }
+    }
+  }
+
+  @Test
+  public void testDuplicateKeys() {
+    XorFilterChunk filter = new XorFilterChunk(Hash.MURMUR_HASH3, BloomType.ROW, 8, 10);
+    filter.allocBloom();
+    byte[] key = Bytes.toBytes(1);
+    for (int i = 0; i < 3; i++) {
+      filter.add(key, 0, key.length);
+    }
+    filter.compactBloom();
+    assertTrue(contains(filter, 1));
+    assertFalse(contains(filter, 2));
+  }
+
+  @Test
+  public void testSizing() {
+    assertEquals(7, XorFilterChunk.computeFingerprintBits(0.01));
+    assertEquals(1, XorFilterChunk.computeFingerprintBits(0.5));
+    int byteSize = 128 * 1024;
+    int maxKeys = XorFilterChunk.computeMaxKeys(byteSize, 7);
+    assertTrue(XorFilterChunk.computeByteSize(maxKeys, 7) <= byteSize);
+    assertTrue(XorFilterChunk.computeByteSize(maxKeys + 1000, 7) > byteSize);
+    // Building with fewer keys than the maximum takes less space
+    XorFilterChunk filter = createFilter(7, maxKeys / 2);
+    assertTrue(filter.getByteSize() < byteSize * 0.6);
+  }
+}
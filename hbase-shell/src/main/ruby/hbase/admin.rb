@@ -1009,6 +1009,8 @@ module Hbase
       family.setMobEnabled(JBoolean.valueOf(arg.delete(org.apache.hadoop.hbase.HColumnDescriptor::IS_MOB))) if arg.include?(org.apache.hadoop.hbase.HColumnDescriptor::IS_MOB)
       family.setMobThreshold(JLong.valueOf(arg.delete(org.apache.hadoop.hbase.HColumnDescriptor::MOB_THRESHOLD))) if arg.include?(org.apache.hadoop.hbase.HColumnDescriptor::MOB_THRESHOLD)
       family.setNewVersionBehavior(JBoolean.valueOf(arg.delete(org.apache.hadoop.hbase.HColumnDescriptor::NEW_VERSION_BEHAVIOR))) if arg.include?(org.apache.hadoop.hbase.HColumnDescriptor::NEW_VERSION_BEHAVIOR)
+      family.setBlockCachePartition(arg.delete(org.apache.hadoop.hbase.HColumnDescriptor::BLOCK_CACHE_PARTITION)) if arg.include?(org.apache.hadoop.hbase.HColumnDescriptor::BLOCK_CACHE_PARTITION)
+      family.setBlockCachePartitionShare(arg.delete(org.apache.hadoop.hbase.HColumnDescriptor::BLOCK_CACHE_PARTITION_SHARE).to_f) if arg.include?(org.apache.hadoop.hbase.HColumnDescriptor::BLOCK_CACHE_PARTITION_SHARE)
       if arg.include?(org.apache.hadoop.hbase.HColumnDescriptor::BLOOMFILTER)
         bloomtype = arg.delete(org.apache.hadoop.hbase.HColumnDescriptor::BLOOMFILTER).upcase.to_sym
         if org.apache.hadoop.hbase.regionserver.BloomType.constants.include?(bloomtype)
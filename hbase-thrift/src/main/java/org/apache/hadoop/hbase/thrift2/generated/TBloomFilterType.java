@@ -28,7 +28,12 @@ public enum TBloomFilterType implements org.apache.thrift.TEnum {
   /**
    * Bloom enabled with Table row prefix as Key, specify the length of the prefix
    */
-  ROWPREFIX_FIXED_LENGTH(3);
+  ROWPREFIX_FIXED_LENGTH(3),
+  /**
+   * Bloom enabled with Table row prefix as Key, the prefix is the row up to and including
+   * the first occurrence of a delimiter, specify the delimiter
+   */
+  ROWPREFIX_DELIMITED(4);
 
   private final int value;
 
@@ -58,6 +63,8 @@ public enum TBloomFilterType implements org.apache.thrift.TEnum {
         return ROWCOL;
       case 3:
         return ROWPREFIX_FIXED_LENGTH;
+      case 4:
+        return ROWPREFIX_DELIMITED;
       default:
         return null;
     }
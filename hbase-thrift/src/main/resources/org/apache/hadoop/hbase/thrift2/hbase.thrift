@@ -339,6 +339,11 @@ enum TBloomFilterType {
    * Bloom enabled with Table row prefix as Key, specify the length of the prefix
    */
   ROWPREFIX_FIXED_LENGTH = 3,
+  /**
+   * Bloom enabled with Table row prefix as Key, the prefix is the row up to and including
+   * the first occurrence of a delimiter, specify the delimiter
+   */
+  ROWPREFIX_DELIMITED = 4,
 }
 
 /**